@@ -2,14 +2,17 @@ package org.neuroph.contrib.neat.gen;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.neuroph.contrib.neat.gen.operations.MutationOperation;
 import org.neuroph.contrib.neat.gen.operations.OrganismFitnessScore;
 import org.neuroph.contrib.neat.gen.operations.ReproductionOperation;
+import org.neuroph.contrib.neat.gen.persistence.BufferedPersistence;
 import org.neuroph.contrib.neat.gen.persistence.Persistence;
 import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
+import org.neuroph.contrib.neat.gen.util.OrganismHelper;
 import org.neuroph.contrib.neat.gen.util.SpecieHelper;
 
 /**
@@ -110,6 +113,12 @@ public class Evolver {
 		// this will prevent us from overwriting / duplicating id's
 		params.setInnovationIdsStart(generation.getLastInnovationId() + 1);
 		
+		// not every Persistence can store the NeatParameters, so the loaded
+		// Specie are given the ones the evolution carries on with.
+		for (Specie s : generation.getSpecies()) {
+			s.setNeatParameters(params);
+		}
+		
 		Evolver e = new Evolver(params, generation,
 				innovations, fitnessScores);
 		
@@ -139,17 +148,18 @@ public class Evolver {
 		// keep evolving until the exit criteria has been met.
 		while (!neatParameters.getTerminationCondition().exitCriteriaMet(
 				neatParameters, generationNumber, currentGeneration, fitness)) {
-			List<Organism> organismCopy = new ArrayList<Organism>(organisms);
-			List<Organism> newGeneration = runGeneration(neatParameters,
-					innovations, species, organismCopy, fitness,
-					generationNumber);
+			// runGeneration always returns a new list, so it is safe for it
+			// to cull the current one in place.
+			organisms = runGeneration(neatParameters, innovations, species,
+					organisms, fitness, generationNumber);
 			generationNumber++;
 
-			organisms = new ArrayList<Organism>(newGeneration);
+			// the snapshot freezes and shares the Organisms rather than
+			// copying them, the next generation only changes the genes of the
+			// offspring it creates.
+			List<Specie> speciesSnapshot = SpecieHelper.snapshot(species);
 
-			List<Specie> speciesClone = SpecieHelper.copy(species);
-
-			currentGeneration = new Generation(generationNumber, speciesClone, neatParameters.nextInnovationId());
+			currentGeneration = new Generation(generationNumber, speciesSnapshot, neatParameters.nextInnovationId());
 
 			// update the innovation id maps before persisting.
 			innovations.updateFromGeneration(currentGeneration);
@@ -158,6 +168,11 @@ public class Evolver {
 					currentGeneration, fitness);
 		}
 
+		// make sure the last generation has been written before returning.
+		if (neatParameters.getPersistence() instanceof BufferedPersistence) {
+			((BufferedPersistence) neatParameters.getPersistence()).flush();
+		}
+
 		return fitness.getFittestOrganism(organisms);
 	}
 
@@ -262,10 +277,11 @@ public class Evolver {
 				.selectOrganismsForNextGeneration(params, fitnessScores,
 						species, organisms, generationNumber);
 
+		Set<Organism> survivors = OrganismHelper.identitySet(survivingOrganisms);
 		List<Specie> deadSpecies = new ArrayList<Specie>();
 
 		for (Specie s : species) {
-			s.cull(survivingOrganisms);
+			s.cull(survivingOrganisms, survivors);
 
 			// if there are no organisms left in the species then kill it off.
 			if (s.getOrganisms().isEmpty()) {
@@ -275,7 +291,7 @@ public class Evolver {
 
 		species.removeAll(deadSpecies);
 		// remove any of the organisms not selected from the list.
-		organisms.retainAll(survivingOrganisms);
+		organisms.retainAll(survivors);
 
 		notify(species, EvolutionEventType.END_SELECTION);
 		return survivingOrganisms;
@@ -300,14 +316,12 @@ public class Evolver {
 
 	private static void calculateFitnessScores(NeatParameters params,
 			FitnessScores scores, List<Organism> organisms, long generation) {
-		List<OrganismFitnessScore> fitnessScores = new ArrayList<OrganismFitnessScore>();
-
-		for (Organism o : organisms) {
-			fitnessScores.add(new OrganismFitnessScore(o, params
-					.getNeuralNetworkBuilder().createNeuralNetwork(o)));
-		}
+		scores.setGeneration(generation);
 
-		params.getFitnessFunction().evaluate(fitnessScores);
+		// the evaluator returns the scores in the same order as the organisms,
+		// so the merge is deterministic no matter how the work was scheduled.
+		List<OrganismFitnessScore> fitnessScores = params
+				.getFitnessEvaluator().evaluate(params, organisms);
 
 		for (OrganismFitnessScore fs : fitnessScores) {
 			Organism o = fs.getOrganism();
@@ -315,8 +329,6 @@ public class Evolver {
 
 			scores.setFitness(o, fitness);
 		}
-
-		fitnessScores.clear();
 	}
 
 	public Innovations getInnovations() {
@@ -1,44 +1,66 @@
 package org.neuroph.contrib.neat.gen;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-
-import org.neuroph.contrib.neat.gen.util.LRUCache;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A simple cache that stores all of the fitness scores for the evolutionary
  * process.
- * 
+ *
+ * The scores are kept in an open addressing hash table of primitive
+ * <code>long</code> organism ids and <code>double</code> fitness values, each
+ * stamped with the generation it was last set in. Calling
+ * <code>setGeneration</code> drops the scores that are older than the number
+ * of generations to keep. The best fitness and the highest organism id are
+ * tracked as the scores are set, so neither requires a scan, unless the score
+ * holding the best fitness is overwritten with a lower one, in which case the
+ * best fitness is recomputed the next time it is asked for.
+ *
+ * <code>setFitness</code> may be called concurrently from several threads and
+ * does not take a lock unless the table is being resized or old generations
+ * are being dropped.
+ *
  * @author Aidan Morgan
  */
 public class FitnessScores implements Serializable {
 	/**
 	 * Serialization identifier.
 	 */
-	private static final long serialVersionUID = -8240470644092428521L;
+	private static final long serialVersionUID = 2594174382612466385L;
 
 	/**
 	 * How many generations that should be kept in the cache.
 	 */
 	private static final int DEFAULT_GENERATIONS_TO_KEEP = 2;
 
+	/**
+	 * The value stored in an empty slot of the table, can never be used as an
+	 * organism id.
+	 */
+	private static final long EMPTY = Long.MIN_VALUE;
+
 	/**
 	 * Convenience method that will create a new <code>FitnessScores</code> that
 	 * only contains the elements that are in <code>current</code> <b>and
 	 * not</b> in <code>original</code>.
-	 * 
+	 *
 	 * @param original
 	 *            the <code>FitnessScores</code> to use as the base model, all
 	 *            elements in this <code>FitnessScores</code> will <b>NOT</b> be
 	 *            present in the returned <code>FitnessScores</code>.
-	 * 
+	 *
 	 * @param current
 	 *            the <code>FitnessScores</code> to check for new entries (i.e.
 	 *            entries that are not in the <code>original</code>
 	 *            </code>FitnessScores</code> map.
-	 * 
+	 *
 	 * @return a new <code>FitnessScores</code> instance that contains only the
 	 *         entries that have been added to <code>current</code> since
 	 *         <code>original</code>.
@@ -46,9 +68,18 @@ public class FitnessScores implements Serializable {
 	public static FitnessScores computeAdded(FitnessScores original,
 			FitnessScores current) {
 		FitnessScores scores = new FitnessScores(current.getCacheSize());
-		LRUCache<Long, Double> currentClone = new LRUCache<Long, Double>(current.getCacheSize());
-		currentClone.removeAll(original.fitnessMap);
-		scores.fitnessMap = currentClone;
+		scores.generationsToKeep = current.generationsToKeep;
+		scores.generation = current.generation;
+
+		Table t = current.table;
+		for (int i = 0; i < t.capacity(); i++) {
+			long id = t.keys.get(i);
+
+			if (id != EMPTY && !original.containsKey(id)) {
+				scores.put(id, Double.longBitsToDouble(t.values.get(i)), t.stamps
+						.get(i));
+			}
+		}
 
 		return scores;
 	}
@@ -57,7 +88,7 @@ public class FitnessScores implements Serializable {
 	 * Convenience method that will add all of the fitness scores in
 	 * <code>toAdd</code> to the <code>base</code> <code>FitnessScores</code>
 	 * map.
-	 * 
+	 *
 	 * @param base
 	 *            the base <code>FitnessScores</code> instance, to which all of
 	 *            the entries in <code>toAdd</code> will be added.
@@ -66,20 +97,56 @@ public class FitnessScores implements Serializable {
 	 *            <code>FitnessScores</code>.
 	 */
 	public static void append(FitnessScores base, FitnessScores toAdd) {
-		base.fitnessMap.addAll(toAdd.fitnessMap);
+		Table t = toAdd.table;
+		for (int i = 0; i < t.capacity(); i++) {
+			long id = t.keys.get(i);
+
+			if (id != EMPTY) {
+				base.put(id, Double.longBitsToDouble(t.values.get(i)), t.stamps
+						.get(i));
+			}
+		}
+
+		base.setGeneration(toAdd.generation);
 	}
 
+	private int cacheSize;
+
 	/**
-	 * The <code>LRUCache</code> (least recently used cache) for storing the
-	 * fitness values.
+	 * The number of generations to keep scores for.
 	 */
-	private LRUCache<Long, Double> fitnessMap;
+	private int generationsToKeep;
 
-	private int cacheSize;
+	/**
+	 * The current generation, new scores are stamped with this value.
+	 */
+	private volatile long generation;
+
+	/**
+	 * The table holding the fitness values, replaced whenever it is resized or
+	 * old generations are dropped.
+	 */
+	private transient volatile Table table;
+
+	/**
+	 * The bits of the highest fitness value in the table.
+	 */
+	private transient AtomicLong bestFitness;
+
+	/**
+	 * Set when the score holding the best fitness has been overwritten with a
+	 * lower one, so <code>bestFitness</code> may be too high.
+	 */
+	private transient volatile boolean bestFitnessStale;
+
+	/**
+	 * The highest organism id in the table.
+	 */
+	private transient AtomicLong lastOrganismId;
 
 	/**
 	 * Constructor.
-	 * 
+	 *
 	 * @param params
 	 *            the <code>NeatParameters</code> that describe the evolution
 	 *            environment.
@@ -90,28 +157,40 @@ public class FitnessScores implements Serializable {
 
 	/**
 	 * Constructor.
-	 * 
+	 *
 	 * @param params
 	 *            the <code>NeatParameters</code> that describe the evolution
 	 *            environment.
 	 * @param numGenerationsToKeep
-	 *            the number of generations to keep in the <code>LRUCache</code>
-	 *            .
+	 *            the number of generations to keep scores for.
 	 */
 	public FitnessScores(NeatParameters params, int numGenerationsToKeep) {
-		this.cacheSize = params.getPopulationSize() * numGenerationsToKeep;
-		this.fitnessMap = new LRUCache<Long, Double>(cacheSize);
+		this(params.getPopulationSize() * numGenerationsToKeep);
+		this.generationsToKeep = numGenerationsToKeep;
 	}
 
 	public FitnessScores(int cacheSize) {
-		this.fitnessMap = new LRUCache<Long, Double>(cacheSize);
+		this(cacheSize, DEFAULT_GENERATIONS_TO_KEEP);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cacheSize
+	 *            the number of scores that can be stored without resizing.
+	 * @param numGenerationsToKeep
+	 *            the number of generations to keep scores for.
+	 */
+	public FitnessScores(int cacheSize, int numGenerationsToKeep) {
 		this.cacheSize = cacheSize;
+		this.generationsToKeep = numGenerationsToKeep;
+		init(cacheSize);
 	}
 
 	/**
 	 * Store the fitness value for the provided <code>Organism</code> in the
 	 * cache.
-	 * 
+	 *
 	 * @param o
 	 *            the <code>Organism</code> to store the fitness value for.
 	 * @param fitness
@@ -123,23 +202,26 @@ public class FitnessScores implements Serializable {
 
 	/**
 	 * Returns the fitness value for the provided <code>Organism</code>.
-	 * 
+	 *
 	 * @param o
 	 *            the <code>Organism</code> to get the fitness score for.
 	 * @return the fitness score for the provided <code>Organism</code>.
 	 */
 	public double getFitness(Organism o) {
-		if(!fitnessMap.containsKey(o.getInnovationId())) {
+		Table t = table;
+		int slot = t.find(o.getInnovationId());
+
+		if (slot < 0) {
 			throw new IllegalArgumentException("Could not find Organism with innovation id " + o.getInnovationId() + ".");
 		}
-		
-		return fitnessMap.get(o.getInnovationId());
+
+		return Double.longBitsToDouble(t.values.get(slot));
 	}
 
 	/**
 	 * Determines the <code>Organism</code> from the provided <code>List</code>
 	 * which has the highest fitness score.
-	 * 
+	 *
 	 * @param organisms
 	 *            a <code>List</code> of <code>Organism</code>s to find the
 	 *            fittest one from.
@@ -169,23 +251,21 @@ public class FitnessScores implements Serializable {
 
 	/**
 	 * Returns the highest fitness value.
-	 * 
+	 *
 	 * @return the highest fitness value in this cache.
 	 */
 	public double getBestFitness() {
-		double max = Double.MIN_VALUE;
-
-		for (Double d : fitnessMap.values()) {
-			max = Math.max(d, max);
+		if (bestFitnessStale) {
+			recomputeBestFitness();
 		}
 
-		return max;
+		return Double.longBitsToDouble(bestFitness.get());
 	}
 
 	/**
 	 * Returns the <u>total</u> fitness for all of the <code>Organism</code>s in
 	 * the provided <code>List</code>.
-	 * 
+	 *
 	 * @param organisms
 	 *            the <code>List</code> of <code>Organism</code>s to get the
 	 *            total fitness for.
@@ -201,17 +281,70 @@ public class FitnessScores implements Serializable {
 
 		return total;
 	}
-	
+
 	public List<Long> getOrganismIds() {
-		return new ArrayList<Long>(fitnessMap.keySet());
+		Table t = table;
+		List<Long> ids = new ArrayList<Long>(t.size.get());
+
+		for (int i = 0; i < t.capacity(); i++) {
+			long id = t.keys.get(i);
+
+			if (id != EMPTY) {
+				ids.add(id);
+			}
+		}
+
+		return ids;
 	}
-	
+
 	public Double getFitnessForOrganism(long id) {
-		return fitnessMap.get(id);
+		Table t = table;
+		int slot = t.find(id);
+
+		if (slot < 0) {
+			return null;
+		}
+
+		return Double.longBitsToDouble(t.values.get(slot));
 	}
 
 	public void setFitness(long longValue, double doubleValue) {
-		fitnessMap.put(longValue, doubleValue);
+		put(longValue, doubleValue, generation);
+	}
+
+	/**
+	 * Stores the fitness for the provided organism id as if it had been set
+	 * in the provided generation, used when restoring the scores from a
+	 * <code>Persistence</code>.
+	 *
+	 * @param id
+	 *            the organism id.
+	 * @param fitness
+	 *            the fitness of the organism.
+	 * @param generation
+	 *            the generation the fitness was set in.
+	 */
+	public void setFitness(long id, double fitness, long generation) {
+		put(id, fitness, generation);
+	}
+
+	/**
+	 * Returns the generation the fitness for the provided organism id was last
+	 * set in.
+	 *
+	 * @param id
+	 *            the organism id.
+	 * @return the generation the fitness was last set in.
+	 */
+	public long getGenerationForOrganism(long id) {
+		Table t = table;
+		int slot = t.find(id);
+
+		if (slot < 0) {
+			throw new IllegalArgumentException("Could not find Organism with innovation id " + id + ".");
+		}
+
+		return t.stamps.get(slot);
 	}
 
 	public int getCacheSize() {
@@ -219,12 +352,356 @@ public class FitnessScores implements Serializable {
 	}
 
 	public long getLastOrganismId() {
-		List<Long> keys = new ArrayList<Long>(fitnessMap.keySet());
-		Collections.sort(keys);
-		
-		if(keys.isEmpty()) {
+		if (table.size.get() == 0) {
 			throw new IllegalStateException("Cannot get last organism id from an empty FitnessScores.");
 		}
-		return keys.get(keys.size() - 1);
+
+		return lastOrganismId.get();
+	}
+
+	public boolean containsKey(long id) {
+		return table.find(id) >= 0;
+	}
+
+	public int size() {
+		return table.size.get();
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	public int getGenerationsToKeep() {
+		return generationsToKeep;
+	}
+
+	/**
+	 * Creates a copy of this <code>FitnessScores</code> that is not affected by
+	 * any later changes to it, so that it can be persisted while the evolution
+	 * process carries on.
+	 *
+	 * @return a new <code>FitnessScores</code> holding the same scores.
+	 */
+	public FitnessScores copy() {
+		FitnessScores scores = new FitnessScores(cacheSize, generationsToKeep);
+		scores.generation = generation;
+
+		Table t = table;
+		for (int i = 0; i < t.capacity(); i++) {
+			long id = t.keys.get(i);
+
+			if (id != EMPTY) {
+				scores.put(id, Double.longBitsToDouble(t.values.get(i)), t.stamps
+						.get(i));
+			}
+		}
+
+		return scores;
+	}
+
+	/**
+	 * Advances this <code>FitnessScores</code> to the provided generation.
+	 * Scores set from now on are stamped with the provided generation and any
+	 * score that has not been set within the last
+	 * <code>numGenerationsToKeep</code> generations is dropped.
+	 *
+	 * @param generation
+	 *            the generation that is about to be evaluated.
+	 */
+	public synchronized void setGeneration(long generation) {
+		if (generation <= this.generation) {
+			return;
+		}
+
+		this.generation = generation;
+		rebuild(table, table.capacity(), generation - generationsToKeep);
+	}
+
+	/**
+	 * Creates an empty table large enough to hold <code>expectedSize</code>
+	 * scores without resizing.
+	 */
+	private void init(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+
+		table = new Table(capacity);
+		bestFitness = new AtomicLong(Double.doubleToLongBits(Double.MIN_VALUE));
+		lastOrganismId = new AtomicLong(EMPTY);
+	}
+
+	/**
+	 * Stores the fitness for the provided organism id with the provided
+	 * generation stamp.
+	 */
+	private void put(long id, double fitness, long stamp) {
+		if (id == EMPTY) {
+			throw new IllegalArgumentException("Invalid organism id " + id + ".");
+		}
+
+		while (true) {
+			Table t = table;
+			int slot = t.insert(id);
+
+			if (slot < 0) {
+				grow(t);
+				continue;
+			}
+
+			long previous = t.values.getAndSet(slot, Double.doubleToLongBits(fitness));
+			t.stamps.set(slot, stamp);
+
+			// the table is frozen before it's copied, so if it isn't frozen
+			// now the copy is guaranteed to see this write. Otherwise wait for
+			// the copy to finish and write the value again.
+			if (t.frozen) {
+				synchronized (this) {
+					// the copy holds the lock, so once it's acquired the new
+					// table is in place.
+				}
+				continue;
+			}
+
+			// lowering the best score means the maximum can't be tracked
+			// incrementally any more, so leave it for getBestFitness to find.
+			if (previous == bestFitness.get()
+					&& fitness < Double.longBitsToDouble(previous)) {
+				bestFitnessStale = true;
+			}
+
+			updateMaximum(bestFitness, fitness);
+			updateMaximum(lastOrganismId, id);
+			return;
+		}
+	}
+
+	/**
+	 * Doubles the capacity of the provided table, unless another thread has
+	 * already replaced it.
+	 */
+	private synchronized void grow(Table t) {
+		if (table == t) {
+			rebuild(t, t.capacity() * 2, Long.MIN_VALUE);
+		}
+	}
+
+	/**
+	 * Scans the table for the highest fitness value after the previous best
+	 * has been overwritten with a lower score.
+	 */
+	private synchronized void recomputeBestFitness() {
+		if (!bestFitnessStale) {
+			return;
+		}
+
+		// cleared before the scan so that a score lowered during it is
+		// picked up by the next call.
+		bestFitnessStale = false;
+
+		Table t = table;
+		double best = Double.MIN_VALUE;
+
+		for (int i = 0; i < t.capacity(); i++) {
+			if (t.keys.get(i) != EMPTY) {
+				best = Math.max(best, Double.longBitsToDouble(t.values.get(i)));
+			}
+		}
+
+		bestFitness.set(Double.doubleToLongBits(best));
+	}
+
+	/**
+	 * Replaces the provided table with a new table of the provided capacity,
+	 * keeping only the scores stamped after <code>oldestStamp</code>. Must be
+	 * called while holding the lock.
+	 */
+	private void rebuild(Table t, int capacity, long oldestStamp) {
+		t.frozen = true;
+
+		while (capacity / 2 <= t.size.get()) {
+			capacity <<= 1;
+		}
+
+		Table rebuilt = new Table(capacity);
+		double best = Double.MIN_VALUE;
+		long last = EMPTY;
+
+		for (int i = 0; i < t.capacity(); i++) {
+			long id = t.keys.get(i);
+			long stamp = t.stamps.get(i);
+
+			if (id == EMPTY || stamp <= oldestStamp) {
+				continue;
+			}
+
+			double fitness = Double.longBitsToDouble(t.values.get(i));
+			int slot = rebuilt.insert(id);
+			rebuilt.values.set(slot, Double.doubleToLongBits(fitness));
+			rebuilt.stamps.set(slot, stamp);
+
+			best = Math.max(best, fitness);
+			last = Math.max(last, id);
+		}
+
+		bestFitness.set(Double.doubleToLongBits(best));
+		bestFitnessStale = false;
+		lastOrganismId.set(last);
+		table = rebuilt;
+	}
+
+	private static void updateMaximum(AtomicLong max, double value) {
+		while (true) {
+			long current = max.get();
+
+			if (value <= Double.longBitsToDouble(current)
+					|| max.compareAndSet(current, Double.doubleToLongBits(value))) {
+				return;
+			}
+		}
+	}
+
+	private static void updateMaximum(AtomicLong max, long value) {
+		while (true) {
+			long current = max.get();
+
+			if (value <= current || max.compareAndSet(current, value)) {
+				return;
+			}
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+
+		Table t = table;
+		out.writeInt(t.size.get());
+
+		for (int i = 0; i < t.capacity(); i++) {
+			long id = t.keys.get(i);
+
+			if (id != EMPTY) {
+				out.writeLong(id);
+				out.writeLong(t.values.get(i));
+				out.writeLong(t.stamps.get(i));
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+
+		int size = in.readInt();
+		init(Math.max(size, cacheSize));
+
+		for (int i = 0; i < size; i++) {
+			long id = in.readLong();
+			double fitness = Double.longBitsToDouble(in.readLong());
+			long stamp = in.readLong();
+
+			put(id, fitness, stamp);
+		}
+	}
+
+	/**
+	 * A fixed capacity, linear probing hash table of organism ids to fitness
+	 * values. Entries are never removed, the table is copied instead.
+	 */
+	private static final class Table {
+		private final AtomicLongArray keys;
+		private final AtomicLongArray values;
+		private final AtomicLongArray stamps;
+		private final AtomicInteger size;
+		private final int mask;
+		private final int threshold;
+
+		/**
+		 * Set before the table is copied, writers that see this must repeat
+		 * their write on the replacement table.
+		 */
+		private volatile boolean frozen;
+
+		public Table(int capacity) {
+			keys = new AtomicLongArray(capacity);
+			values = new AtomicLongArray(capacity);
+			stamps = new AtomicLongArray(capacity);
+			size = new AtomicInteger();
+			mask = capacity - 1;
+			threshold = capacity / 2;
+
+			for (int i = 0; i < capacity; i++) {
+				keys.set(i, EMPTY);
+			}
+		}
+
+		public int capacity() {
+			return mask + 1;
+		}
+
+		/**
+		 * Returns the slot holding the provided id, or <code>-1</code> if it is
+		 * not in the table.
+		 */
+		public int find(long id) {
+			int slot = hash(id) & mask;
+
+			for (int i = 0; i <= mask; i++) {
+				long key = keys.get(slot);
+
+				if (key == id) {
+					return slot;
+				}
+
+				if (key == EMPTY) {
+					return -1;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Returns the slot holding the provided id, claiming an empty slot for
+		 * it if needed. Returns <code>-1</code> if the table is too full.
+		 */
+		public int insert(long id) {
+			int slot = hash(id) & mask;
+
+			for (int i = 0; i <= mask; i++) {
+				long key = keys.get(slot);
+
+				if (key == id) {
+					return slot;
+				}
+
+				if (key == EMPTY) {
+					if (size.get() >= threshold) {
+						return -1;
+					}
+
+					if (keys.compareAndSet(slot, EMPTY, id)) {
+						size.incrementAndGet();
+						return slot;
+					}
+
+					// another thread claimed the slot, check it again.
+					i--;
+					continue;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		private static int hash(long id) {
+			long h = id * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
 	}
 }
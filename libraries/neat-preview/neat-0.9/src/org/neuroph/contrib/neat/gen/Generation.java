@@ -59,8 +59,9 @@ public class Generation implements Serializable {
 	 * Returns the <code>List</code> of <code>Specie</code>s that are in this
 	 * <code>Generation</code>.
 	 * 
-	 * <b>Note:</b> these are a copy of the <code>Specie</code>s, not the actual
-	 * ones under evolution.
+	 * <b>Note:</b> these are a snapshot of the <code>Specie</code>s, not the
+	 * actual ones under evolution. The <code>Organism</code>s are shared with
+	 * the evolution but are frozen, so their genes will not change.
 	 * 
 	 * @return the <code>List</code> of <code>Specie</code>s that are in this
 	 *         <code>Generation</code>.
@@ -0,0 +1,159 @@
+package org.neuroph.contrib.neat.gen;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only snapshot of the <code>ConnectionGene</code>s of an
+ * <code>Organism</code>, held as primitive arrays sorted by innovation id.
+ *
+ * The snapshot is not updated if the <code>Organism</code> changes, so a
+ * <code>GenomeView</code> should only be kept while the <code>Organism</code>
+ * is not being mutated (e.g. for the duration of a speciation).
+ */
+public final class GenomeView {
+	/**
+	 * Sorts <code>ConnectionGene</code>s by innovation id.
+	 */
+	private static final Comparator<ConnectionGene> INNOVATION_ORDER = new Comparator<ConnectionGene>() {
+		public int compare(ConnectionGene o1, ConnectionGene o2) {
+			long id1 = o1.getInnovationId();
+			long id2 = o2.getInnovationId();
+
+			return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+		}
+	};
+
+	/**
+	 * The innovation id of each <code>ConnectionGene</code>, in ascending
+	 * order.
+	 */
+	private final long[] innovationIds;
+
+	/**
+	 * The weight of each <code>ConnectionGene</code>, in the same order as
+	 * <code>innovationIds</code>.
+	 */
+	private final double[] weights;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param o
+	 *            the <code>Organism</code> to create the view of.
+	 */
+	public GenomeView(Organism o) {
+		List<ConnectionGene> connections = o.getConnections();
+		ConnectionGene[] genes = connections
+				.toArray(new ConnectionGene[connections.size()]);
+
+		// genes are nearly always added in innovation order already, so only
+		// sort when we have to.
+		for (int i = 1; i < genes.length; i++) {
+			if (genes[i - 1].getInnovationId() > genes[i].getInnovationId()) {
+				Arrays.sort(genes, INNOVATION_ORDER);
+				break;
+			}
+		}
+
+		innovationIds = new long[genes.length];
+		weights = new double[genes.length];
+
+		for (int i = 0; i < genes.length; i++) {
+			innovationIds[i] = genes[i].getInnovationId();
+			weights[i] = genes[i].getWeight();
+		}
+	}
+
+	public int size() {
+		return innovationIds.length;
+	}
+
+	public long getInnovationId(int i) {
+		return innovationIds[i];
+	}
+
+	public double getWeight(int i) {
+		return weights[i];
+	}
+
+	/**
+	 * Calculates the NEAT compatibility distance between this genome and the
+	 * provided genome in a single pass over both.
+	 *
+	 * Genes with the same innovation id are matched and contribute the average
+	 * difference in their weights. Unmatched genes with an innovation id lower
+	 * than the last gene of the other genome are disjoint, the remainder are
+	 * excess.
+	 *
+	 * @param other
+	 *            the <code>GenomeView</code> to compare to.
+	 * @param excessMultiplier
+	 *            how much to multiply the excess gene count by.
+	 * @param disjointMultiplier
+	 *            how much to multiply the disjoint gene count by.
+	 * @param matchedMultiplier
+	 *            how much to multiply the average weight difference by.
+	 * @param normalise
+	 *            if <code>true</code>, the excess and disjoint counts are
+	 *            divided by the number of genes in the larger genome.
+	 * @return the compatibility distance.
+	 */
+	public double distance(GenomeView other, double excessMultiplier,
+			double disjointMultiplier, double matchedMultiplier,
+			boolean normalise) {
+		long[] ids1 = innovationIds;
+		long[] ids2 = other.innovationIds;
+
+		int g1 = 0;
+		int g2 = 0;
+
+		int numDisjoint = 0;
+		int numMatched = 0;
+		double weightDifference = 0;
+
+		while (g1 < ids1.length && g2 < ids2.length) {
+			long id1 = ids1[g1];
+			long id2 = ids2[g2];
+
+			if (id1 == id2) {
+				weightDifference += Math.abs(weights[g1] - other.weights[g2]);
+				numMatched++;
+				g1++;
+				g2++;
+			} else if (id1 < id2) {
+				numDisjoint++;
+				g1++;
+			} else {
+				numDisjoint++;
+				g2++;
+			}
+		}
+
+		// whatever is left over in either genome is past the end of the other.
+		int numExcess = (ids1.length - g1) + (ids2.length - g2);
+
+		double excessScore = numExcess;
+		double disjointScore = numDisjoint;
+		double matchedScore = weightDifference / numMatched;
+
+		if (normalise) {
+			int longest = Math.max(ids1.length, ids2.length);
+
+			excessScore /= longest;
+			disjointScore /= longest;
+		}
+
+		if (Double.isNaN(matchedScore)) {
+			throw new IllegalStateException(
+					"Invalid Organism comparison: [excessScore = "
+							+ excessScore + " disjointScore = " + disjointScore
+							+ " matchedScore = " + matchedScore + "].");
+		}
+
+		return (excessMultiplier * excessScore)
+				+ (disjointMultiplier * disjointScore)
+				+ (matchedMultiplier * matchedScore);
+	}
+}
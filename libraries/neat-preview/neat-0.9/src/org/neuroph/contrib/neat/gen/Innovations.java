@@ -1,12 +1,18 @@
 package org.neuroph.contrib.neat.gen;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import org.neuroph.contrib.neat.gen.util.InnovationTable;
 
 /**
  * The <code>Innovations</code> is a simple class that monitors the creation of
@@ -19,19 +25,57 @@ import java.util.Map;
  * <code>Gene</code> is retrieved from this class and used instead of creating a
  * new <code>Gene</code>.
  * 
+ * The innovations are looked up in <code>InnovationTable</code>s keyed on the
+ * primitive ids, and every change is appended to a log so the changes made
+ * since an earlier point (e.g. the last time the <code>Innovations</code> was
+ * persisted) can be retrieved without comparing the whole registry. Only the
+ * log is serialized, the tables are rebuilt from it when it is read.
+ * 
+ * A <code>ConnectionGene</code> is keyed on it's origin and endpoint ids
+ * packed into a single <code>long</code> (see
+ * <code>InnovationTable.pack</code>), so the ids of the neurons it connects
+ * must fit in an <code>int</code>. Looking up or storing a connection to a
+ * neuron with a larger id throws an <code>IllegalArgumentException</code>.
+ * Ids are handed out one at a time by
+ * <code>NeatParameters.nextInnovationId</code>, so a single run would need
+ * more than two billion innovations to reach the limit.
+ * 
+ * The registration methods are thread-safe. For reproducible results when
+ * several threads mutate at once, each thread should record it's innovations
+ * in a <code>fork()</code> which is then merged back in a fixed order, rather
+ * than registering them directly.
+ * 
  * @author Aidan Morgan
  */
 public class Innovations implements Serializable {
 	/**
 	 * Serialization identifier.
 	 */
-	private static final long serialVersionUID = 216047023917140135L;
+	private static final long serialVersionUID = -3378106914720593377L;
+
+	/**
+	 * The number of innovations a new <code>Innovations</code> can hold
+	 * before it's tables are resized.
+	 */
+	private static final int DEFAULT_SIZE = 64;
+
+	/**
+	 * The number of innovations a fork can hold before it's tables are
+	 * resized, forks rarely record more than a few.
+	 */
+	private static final int FORK_SIZE = 4;
 
 	/**
 	 * Convenience method that will create a new <code>Innovations</code> that
 	 * only contains the elements that are in <code>current</code> <b>and
 	 * not</b> in <code>base</code>.
 	 * 
+	 * <code>base</code> must be an earlier state of <code>current</code> (or
+	 * <code>current</code> itself), e.g. the <code>Innovations</code> that was
+	 * last persisted. The result is a slice of the change log of
+	 * <code>current</code>, so it only costs as much as the number of new
+	 * entries.
+	 * 
 	 * @param base
 	 *            the <code>Innovations</code> to use as the base model, all
 	 *            elements in this <code>Innovations</code> will <b>NOT</b> be
@@ -48,61 +92,228 @@ public class Innovations implements Serializable {
 	 */
 	public static Innovations calculateAdded(Innovations base,
 			Innovations current) {
-		Map<ConnectionKey, ConnectionGene> connectionClone = new HashMap<ConnectionKey, ConnectionGene>(
-				current.connectionInnovations);
-		for (ConnectionKey k : base.connectionInnovations.keySet()) {
-			connectionClone.remove(base.connectionInnovations.get(k));
-		}
+		return current.getChangesSince(base.getChangeCount());
+	}
 
-		Map<NeuronKey, NeuronGene> neuronClone = new HashMap<NeuronKey, NeuronGene>(
-				current.neuronInnovations);
-		for (NeuronKey k : base.neuronInnovations.keySet()) {
-			neuronClone.remove(base.neuronInnovations.get(k));
-		}
-		
-		Map<Long, Innovation> innovationsClone = new HashMap<Long, Innovation>(current.innovationIds);
-		for(Long l : base.innovationIds.keySet()) {
-			innovationsClone.remove(base.innovationIds.get(l));
+	/**
+	 * Adds all of the entries in <code>toAdd</code> to <code>base</code>, in
+	 * the order they were recorded. Entries that <code>base</code> already has
+	 * are ignored.
+	 * 
+	 * @param base
+	 *            the <code>Innovations</code> to add the entries to.
+	 * @param toAdd
+	 *            the <code>Innovations</code> to add the entries from.
+	 */
+	public static void append(Innovations base, Innovations toAdd) {
+		for (Change c : toAdd.getChanges(0)) {
+			base.record(c);
 		}
+	}
 
-		Innovations ret = new Innovations();
-		ret.neuronInnovations = neuronClone;
-		ret.connectionInnovations = connectionClone;
-		ret.innovationIds = innovationsClone;
+	/**
+	 * Every change made to this <code>Innovations</code>, in the order it was
+	 * made. Entries are only ever appended.
+	 */
+	private List<Change> changes;
 
-		return ret;
-	}
+	/**
+	 * The <code>ConnectionGene</code>s, keyed on their packed origin and
+	 * endpoint ids.
+	 */
+	private transient InnovationTable<ConnectionGene> connectionInnovations;
 
-	public static void append(Innovations base, Innovations toAdd) {
-		base.connectionInnovations.putAll(toAdd.connectionInnovations);
-		base.neuronInnovations.putAll(toAdd.neuronInnovations);
-		base.innovationIds.putAll(toAdd.innovationIds);
-		
-	}
+	/**
+	 * The <code>NeuronGene</code>s, keyed on the id of the connection that was
+	 * split to create them.
+	 */
+	private transient InnovationTable<NeuronGene> neuronInnovations;
 
 	/**
-	 * A <code>Map</code> of <code>ConnectionKey</code> to
-	 * <code>ConnectionGene</code>.
+	 * The first change that recorded each innovation id.
 	 */
-	private Map<ConnectionKey, ConnectionGene> connectionInnovations;
+	private transient InnovationTable<Change> innovationIds;
 
 	/**
-	 * A <code>Map</code> of <code>NeuronKey</code> to <code>NeuronGene</code>.
+	 * The <code>Innovations</code> this was forked from, <code>null</code> if
+	 * this is not a fork.
 	 */
-	private Map<NeuronKey, NeuronGene> neuronInnovations;
+	private transient Innovations parent;
 
 	/**
-	 * A <code>Map</code> of innovation id to the <code>Innovation</code> that has that id.
+	 * The number of changes recorded by this fork that have already been
+	 * merged.
 	 */
-	private Map<Long, Innovation> innovationIds;
-	
+	private transient int merged;
+
 	/**
 	 * Constructor.
 	 */
 	public Innovations() {
-		connectionInnovations = new HashMap<ConnectionKey, ConnectionGene>();
-		neuronInnovations = new HashMap<NeuronKey, NeuronGene>();
-		innovationIds = new HashMap<Long, Innovation>();
+		this(DEFAULT_SIZE);
+	}
+
+	private Innovations(int expectedSize) {
+		changes = new ArrayList<Change>();
+		init(expectedSize);
+	}
+
+	/**
+	 * Creates a fork of this <code>Innovations</code>. The fork looks up
+	 * <code>ConnectionGene</code>s and <code>NeuronGene</code>s in this
+	 * <code>Innovations</code> as well as it's own, but records any new ones
+	 * locally until they are passed to <code>merge</code>.
+	 * 
+	 * This <code>Innovations</code> must not be changed while the fork is in
+	 * use, other than by <code>merge</code>.
+	 * 
+	 * @return a new fork of this <code>Innovations</code>.
+	 */
+	public Innovations fork() {
+		Innovations fork = new Innovations(FORK_SIZE);
+		fork.parent = this;
+
+		return fork;
+	}
+
+	/**
+	 * Returns <code>true</code> if this is a fork that has recorded
+	 * innovations which have not been merged yet.
+	 */
+	public boolean hasPendingInnovations() {
+		return parent != null && getChangeCount() > merged;
+	}
+
+	/**
+	 * Registers the innovations recorded by the provided fork with this
+	 * <code>Innovations</code>, in the order they were recorded.
+	 * 
+	 * A recorded innovation that this <code>Innovations</code> already has
+	 * (e.g. because an earlier fork made the same one) is replaced by the
+	 * existing <code>Gene</code>, otherwise a new <code>Gene</code> is created
+	 * with an innovation id from <code>params</code>. Merging the forks in a
+	 * fixed order therefore gives the same innovation ids no matter which order
+	 * the forks were created in.
+	 * 
+	 * @param fork
+	 *            a fork of this <code>Innovations</code>.
+	 * @param params
+	 *            the <code>NeatParameters</code> to get new innovation ids
+	 *            from.
+	 * @return the <code>Gene</code> to use in place of each <code>Gene</code>
+	 *         recorded by the fork.
+	 */
+	public synchronized Map<Gene, Gene> merge(Innovations fork,
+			NeatParameters params) {
+		if (fork.parent != this) {
+			throw new IllegalArgumentException(
+					"Attempting to merge an Innovations that is not a fork of this one.");
+		}
+
+		Map<Gene, Gene> replacements = new IdentityHashMap<Gene, Gene>();
+
+		// the new genes can refer to each other (e.g. the connections either
+		// side of a new neuron), so the ids they were given by the fork are
+		// translated as we go.
+		Map<Long, Long> ids = new HashMap<Long, Long>();
+
+		List<Change> pending = fork.getChanges(fork.merged);
+		for (Change c : pending) {
+			if (c.type == Change.NEURON) {
+				NeuronGene ng = (NeuronGene) c.innovation;
+				long connectionId = translate(ids, c.key);
+
+				NeuronGene canonical = getNeuronGene(connectionId);
+				if (canonical == null) {
+					canonical = new NeuronGene(ng.getNeuronType(), params
+							.nextInnovationId(), ng.getActivationResponse());
+					canonical.setEnabled(ng.isEnabled());
+					putNeuronGene(connectionId, canonical);
+				}
+
+				ids.put(ng.getInnovationId(), canonical.getInnovationId());
+				replacements.put(ng, canonical);
+			} else if (c.type == Change.CONNECTION) {
+				ConnectionGene cg = (ConnectionGene) c.innovation;
+				long originId = translate(ids, cg.getOriginId());
+				long endpointId = translate(ids, cg.getEndpointId());
+
+				ConnectionGene canonical = getConnectionGene(originId,
+						endpointId);
+				if (canonical == null) {
+					canonical = new ConnectionGene(params.nextInnovationId(),
+							originId, endpointId, cg.getWeight(), cg
+									.isEnabled());
+					putConnectionGene(canonical);
+				}
+
+				ids.put(cg.getInnovationId(), canonical.getInnovationId());
+				replacements.put(cg, canonical);
+			}
+		}
+
+		fork.merged += pending.size();
+
+		return replacements;
+	}
+
+	private static long translate(Map<Long, Long> ids, long id) {
+		Long translated = ids.get(id);
+		return translated == null ? id : translated.longValue();
+	}
+
+	/**
+	 * Returns the number of changes that have been made to this
+	 * <code>Innovations</code>. Passing the result to
+	 * <code>getChangesSince</code> later on returns only the changes made in
+	 * between.
+	 * 
+	 * @return the number of changes that have been made to this
+	 *         <code>Innovations</code>.
+	 */
+	public int getChangeCount() {
+		synchronized (changes) {
+			return changes.size();
+		}
+	}
+
+	/**
+	 * Creates a new <code>Innovations</code> that contains only the changes
+	 * made to this <code>Innovations</code> after the provided number of
+	 * changes.
+	 * 
+	 * @param changeCount
+	 *            a value previously returned by <code>getChangeCount</code>.
+	 * @return a new <code>Innovations</code> containing the changes made since
+	 *         <code>changeCount</code>.
+	 */
+	public Innovations getChangesSince(int changeCount) {
+		return getChangesBetween(changeCount, -1);
+	}
+
+	/**
+	 * Creates a new <code>Innovations</code> that contains only the changes
+	 * made to this <code>Innovations</code> after <code>fromChangeCount</code>
+	 * changes and up to <code>toChangeCount</code> changes, ignoring any made
+	 * since.
+	 * 
+	 * @param fromChangeCount
+	 *            a value previously returned by <code>getChangeCount</code>.
+	 * @param toChangeCount
+	 *            a later value returned by <code>getChangeCount</code>, or -1
+	 *            for all of the changes made so far.
+	 * @return a new <code>Innovations</code> containing the changes made in
+	 *         between.
+	 */
+	public Innovations getChangesBetween(int fromChangeCount, int toChangeCount) {
+		List<Change> added = getChanges(fromChangeCount, toChangeCount);
+
+		Innovations ret = new Innovations(added.size());
+		for (Change c : added) {
+			ret.record(c);
+		}
+
+		return ret;
 	}
 
 	/**
@@ -115,10 +326,18 @@ public class Innovations implements Serializable {
 	 *            the id of the neuron the connection is ending at.
 	 * @return a <code>ConnectionGene</code> connecting the two provided neuron
 	 *         id's, <code>null</code> if no connection has been created before.
+	 * @throws IllegalArgumentException
+	 *             if either id does not fit in an <code>int</code>.
 	 */
 	public ConnectionGene getConnectionGene(long originId, long endpointId) {
-		ConnectionKey ck = new ConnectionKey(originId, endpointId);
-		return connectionInnovations.get(ck);
+		ConnectionGene cg = connectionInnovations.get(InnovationTable.pack(
+				originId, endpointId));
+
+		if (cg == null && parent != null) {
+			cg = parent.getConnectionGene(originId, endpointId);
+		}
+
+		return cg;
 	}
 
 	/**
@@ -127,22 +346,46 @@ public class Innovations implements Serializable {
 	 * 
 	 * @param cg
 	 *            the <code>ConnectionGene</code> to store.
+	 * @throws IllegalArgumentException
+	 *             if a <code>ConnectionGene</code> has already been stored for
+	 *             the same neurons.
 	 */
 	public void putConnectionGene(ConnectionGene cg) {
-		ConnectionKey ck = new ConnectionKey(cg.getOriginId(), cg
-				.getEndpointId());
-
-		if (connectionInnovations.containsKey(ck)) {
+		if (putConnectionGeneIfAbsent(cg) != cg) {
 			throw new IllegalArgumentException(
 					"Attempting to register Connection innovation "
 							+ cg.getInnovationId()
 							+ " but one is already registered.");
 		}
+	}
 
-		connectionInnovations.put(ck, cg);
-		
-		// record the connection so we can do a reverse lookup later.
-		registerInnovation(cg);
+	/**
+	 * Stores the provided <code>ConnectionGene</code> in this
+	 * <code>Innovations</code>, unless a <code>ConnectionGene</code> has
+	 * already been stored for the same neurons. If several threads store a
+	 * <code>ConnectionGene</code> for the same neurons at once, all of them
+	 * are given the same one.
+	 * 
+	 * @param cg
+	 *            the <code>ConnectionGene</code> to store.
+	 * @return the <code>ConnectionGene</code> that is stored for the neurons,
+	 *         which is <code>cg</code> if it was stored.
+	 * @throws IllegalArgumentException
+	 *             if the id of either neuron does not fit in an
+	 *             <code>int</code>.
+	 */
+	public ConnectionGene putConnectionGeneIfAbsent(ConnectionGene cg) {
+		if (parent != null) {
+			ConnectionGene existing = parent.getConnectionGene(cg
+					.getOriginId(), cg.getEndpointId());
+
+			if (existing != null) {
+				return existing;
+			}
+		}
+
+		return (ConnectionGene) record(new Change(Change.CONNECTION, cg,
+				InnovationTable.pack(cg.getOriginId(), cg.getEndpointId())));
 	}
 
 	/**
@@ -158,8 +401,13 @@ public class Innovations implements Serializable {
 	 *         no <code>NeuronGene</code> was created before.
 	 */
 	public NeuronGene getNeuronGene(long connectionId) {
-		NeuronKey nk = new NeuronKey(connectionId);
-		return neuronInnovations.get(nk);
+		NeuronGene ng = neuronInnovations.get(connectionId);
+
+		if (ng == null && parent != null) {
+			ng = parent.getNeuronGene(connectionId);
+		}
+
+		return ng;
 	}
 
 	/**
@@ -174,21 +422,42 @@ public class Innovations implements Serializable {
 	 * @param connectionId the id of the connection that was split
 	 * (and subsequently removed) for the provided <code>NeuronGene</code> to be inserted.
 	 * @param ng the <code>NeuronGene</code> that was inserted.
+	 * @throws IllegalArgumentException if a <code>NeuronGene</code> has already been
+	 * stored for the same connection.
 	 */
 	public void putNeuronGene(long connectionId, NeuronGene ng) {
-		NeuronKey nk = new NeuronKey(connectionId);
-
-		if (neuronInnovations.containsKey(nk)) {
+		if (putNeuronGeneIfAbsent(connectionId, ng) != ng) {
 			throw new IllegalArgumentException(
 					"Attempting to register Neuron innovation "
 							+ ng.getInnovationId()
 							+ " but one is already registered.");
 		}
+	}
 
-		neuronInnovations.put(nk, ng);
-		
-		// record the neuron genes so we can do a reverse lookup later.
-		registerInnovation(ng);
+	/**
+	 * Stores the <code>NeuronGene</code> in this <code>Innovations</code>,
+	 * unless a <code>NeuronGene</code> has already been stored for the same
+	 * connection. If several threads store a <code>NeuronGene</code> for the
+	 * same connection at once, all of them are given the same one.
+	 * 
+	 * @param connectionId
+	 *            the id of the connection that was split for the provided
+	 *            <code>NeuronGene</code> to be inserted.
+	 * @param ng
+	 *            the <code>NeuronGene</code> to store.
+	 * @return the <code>NeuronGene</code> that is stored for the connection,
+	 *         which is <code>ng</code> if it was stored.
+	 */
+	public NeuronGene putNeuronGeneIfAbsent(long connectionId, NeuronGene ng) {
+		if (parent != null) {
+			NeuronGene existing = parent.getNeuronGene(connectionId);
+
+			if (existing != null) {
+				return existing;
+			}
+		}
+
+		return (NeuronGene) record(new Change(Change.NEURON, ng, connectionId));
 	}
 	
 	/**
@@ -202,14 +471,21 @@ public class Innovations implements Serializable {
 	 * when the provided <code>NeuronGene</code> was added to the <code>Organism</code>.
 	 */
 	public long getConnectionInnovationForNeuron(NeuronGene ng) {
-		for(NeuronKey key : neuronInnovations.keySet()) {
-			NeuronGene temp = neuronInnovations.get(key);
-			
-			if(temp.getInnovationId() == ng.getInnovationId()) {
-				return key.getConnectionId();
+		Change c = innovationIds.get(ng.getInnovationId());
+
+		if (c != null && c.type == Change.NEURON) {
+			return c.key;
+		}
+
+		// the id was recorded before the neuron was stored, so look for it
+		// in the log instead.
+		for (Change temp : getChanges(0)) {
+			if (temp.type == Change.NEURON
+					&& temp.innovation.getInnovationId() == ng.getInnovationId()) {
+				return temp.key;
 			}
 		}
-		
+
 		return -1;
 	}
 
@@ -222,25 +498,31 @@ public class Innovations implements Serializable {
 	}
 
 	public List<ConnectionGene> getConnectionGenes() {
-		return new ArrayList<ConnectionGene>(connectionInnovations.values());
+		return connectionInnovations.values();
 	}
 
 	public List<NeuronGene> getNeuronGenes() {
-		return new ArrayList<NeuronGene>(neuronInnovations.values());
+		return neuronInnovations.values();
 	}
 
 	public Innovation getInnovative(long innovationId) {
-		return innovationIds.get(innovationId);
+		Change c = innovationIds.get(innovationId);
+		return c == null ? null : c.innovation;
 	}
 	
 	public List<NeuronGene> getRecordedNeuronGenes() {
+		Set<Long> stored = new HashSet<Long>();
+		for (NeuronGene ng : neuronInnovations.values()) {
+			stored.add(ng.getInnovationId());
+		}
+
 		List<NeuronGene> genes = new ArrayList<NeuronGene>();
 		
-		for(Innovation g : innovationIds.values()) {
-			if(g instanceof NeuronGene) {
-				NeuronGene ng = (NeuronGene)g;
+		for(Change c : innovationIds.values()) {
+			if(c.innovation instanceof NeuronGene) {
+				NeuronGene ng = (NeuronGene)c.innovation;
 				
-				if(!neuronInnovations.containsValue(ng)) {
+				if(!stored.contains(ng.getInnovationId())) {
 					genes.add(ng);
 				}
 			}
@@ -252,12 +534,12 @@ public class Innovations implements Serializable {
 	public List<ConnectionGene> getRecordedConnectionGenes() {
 		List<ConnectionGene> genes = new ArrayList<ConnectionGene>();
 		
-		for(Innovation g : innovationIds.values()) {
-			if(g instanceof ConnectionGene) {
-				ConnectionGene ng = (ConnectionGene)g;
-				ConnectionKey key = new ConnectionKey(ng.getOriginId(), ng.getEndpointId());
+		for(Change c : innovationIds.values()) {
+			if(c.innovation instanceof ConnectionGene) {
+				ConnectionGene ng = (ConnectionGene)c.innovation;
+				long key = InnovationTable.pack(ng.getOriginId(), ng.getEndpointId());
 				
-				if(!connectionInnovations.containsKey(key)) {
+				if(connectionInnovations.get(key) == null) {
 					genes.add(ng);
 				}
 			}
@@ -267,7 +549,7 @@ public class Innovations implements Serializable {
 	}	
 
 	public void registerInnovation(Innovation i) {
-		registerInnovations(Arrays.asList(i));
+		record(new Change(Change.RECORDED, i, 0));
 	}
 
 	/**
@@ -291,116 +573,142 @@ public class Innovations implements Serializable {
 	 */
 	public void registerInnovations(List<? extends Innovation> connections) {
 		for(Innovation i : connections) {
-			if(!innovationIds.containsKey(i.getInnovationId())) {
-				this.innovationIds.put(i.getInnovationId(), i);
-			}
-			else {
-				Innovation o = innovationIds.get(i.getInnovationId());
-				
-				if(!i.equals(o)) {
-					throw new IllegalStateException("Duplicate innovation id ("+i.getInnovationId()+") found: " + o.getClass().getName() + " and " + i.getClass().getName() + ".");
-				}
-			}
-			
+			registerInnovation(i);
 		}
 		
 	}
-	
-	
+
 	/**
-	 * Simple class that is used as a <code>Map</code> key for the
-	 * <code>ConnectionGene</code>.
-	 * 
-	 * As <code>ConnectionGene</code>s are uniquely identified by their
-	 * <code>originId</code> and <code>endpointId</code> this class is used to
-	 * combine them into a single hash value.
+	 * Adds the provided change to the tables and appends it to the log, unless
+	 * it's key has already been stored.
 	 * 
-	 * @author Aidan Morgan
+	 * @return the <code>Innovation</code> stored for the key of the change.
 	 */
-	private class ConnectionKey implements Serializable {
-		private long originId;
-		private long endpointId;
-
-		public ConnectionKey(long originId, long endpointId) {
-			this.originId = originId;
-			this.endpointId = endpointId;
+	private Innovation record(Change c) {
+		Innovation stored = c.innovation;
+
+		if (c.type == Change.CONNECTION) {
+			stored = connectionInnovations.putIfAbsent(c.key,
+					(ConnectionGene) c.innovation);
+		} else if (c.type == Change.NEURON) {
+			stored = neuronInnovations.putIfAbsent(c.key,
+					(NeuronGene) c.innovation);
 		}
 
-		public long getOriginId() {
-			return originId;
+		// another thread (or an earlier change) got there first.
+		if (stored != c.innovation) {
+			return stored;
 		}
 
-		public long getEndpointId() {
-			return endpointId;
-		}
-		
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + (int) (endpointId ^ (endpointId >>> 32));
-			result = prime * result + (int) (originId ^ (originId >>> 32));
-			return result;
+		long id = c.innovation.getInnovationId();
+		Change registered = innovationIds.putIfAbsent(id, c);
+
+		if (registered != c) {
+			if (!c.innovation.equals(registered.innovation)) {
+				throw new IllegalStateException("Duplicate innovation id ("
+						+ id + ") found: "
+						+ registered.innovation.getClass().getName() + " and "
+						+ c.innovation.getClass().getName() + ".");
+			}
+
+			// nothing new to log for an id that is already known.
+			if (c.type == Change.RECORDED) {
+				return registered.innovation;
+			}
 		}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			ConnectionKey other = (ConnectionKey) obj;
-			if (endpointId != other.endpointId)
-				return false;
-			if (originId != other.originId)
-				return false;
-			return true;
+		synchronized (changes) {
+			changes.add(c);
 		}
+
+		return c.innovation;
 	}
 
 	/**
-	 * Simple class that is used as a <code>Map</code> key for the
-	 * <code>NeuronGene</code>.
-	 * 
-	 * This class isn't really needed, however I added it for interface
-	 * consistency with the <code>ConnectionKey</code>.
-	 * 
-	 * @author Aidan Morgan
+	 * Returns a copy of the changes made after the provided number of changes.
 	 */
-	private class NeuronKey implements Serializable {
-		private long connectionId;
+	private List<Change> getChanges(int from) {
+		return getChanges(from, -1);
+	}
+
+	/**
+	 * Returns a copy of the changes made after <code>from</code> changes, up
+	 * to <code>to</code> changes or all of them if <code>to</code> is -1.
+	 */
+	private List<Change> getChanges(int from, int to) {
+		synchronized (changes) {
+			if (to == -1) {
+				to = changes.size();
+			}
 
-		public NeuronKey(long connId) {
-			this.connectionId = connId;
+			if (to < 0 || to > changes.size()) {
+				throw new IllegalArgumentException("Invalid change count "
+						+ to + ", only " + changes.size()
+						+ " changes have been made.");
+			}
+
+			if (from < 0 || from > to) {
+				throw new IllegalArgumentException("Invalid change count "
+						+ from + ", only " + to
+						+ " changes have been made.");
+			}
+
+			return new ArrayList<Change>(changes.subList(from, to));
 		}
+	}
 
-		public long getConnectionId() {
-			return connectionId;
+	private void init(int expectedSize) {
+		connectionInnovations = new InnovationTable<ConnectionGene>(
+				expectedSize);
+		neuronInnovations = new InnovationTable<NeuronGene>(expectedSize);
+		innovationIds = new InnovationTable<Change>(expectedSize);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		synchronized (changes) {
+			out.defaultWriteObject();
 		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+
+		List<Change> read = changes;
+		changes = new ArrayList<Change>(read.size());
+		init(Math.max(read.size(), DEFAULT_SIZE));
 
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result
-					+ (int) (connectionId ^ (connectionId >>> 32));
-			return result;
+		for (Change c : read) {
+			record(c);
 		}
+	}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			NeuronKey other = (NeuronKey) obj;
-			if (connectionId != other.connectionId)
-				return false;
-			return true;
+	/**
+	 * A single entry in the change log: a <code>ConnectionGene</code> stored
+	 * for it's endpoints, a <code>NeuronGene</code> stored for the connection
+	 * that was split to create it, or an <code>Innovation</code> that was only
+	 * registered by it's id.
+	 */
+	private static final class Change implements Serializable {
+		private static final long serialVersionUID = 4530712395410982513L;
+
+		private static final int CONNECTION = 0;
+		private static final int NEURON = 1;
+		private static final int RECORDED = 2;
+
+		private final int type;
+		private final Innovation innovation;
+
+		/**
+		 * The packed endpoint ids of a connection, or the id of the connection
+		 * that was split for a neuron.
+		 */
+		private final long key;
+
+		public Change(int type, Innovation innovation, long key) {
+			this.type = type;
+			this.innovation = innovation;
+			this.key = key;
 		}
-	}	
+	}
 }
@@ -3,6 +3,7 @@ package org.neuroph.contrib.neat.gen;
 import java.util.List;
 import java.util.Random;
 
+import org.neuroph.contrib.neat.gen.operations.FitnessEvaluator;
 import org.neuroph.contrib.neat.gen.operations.FitnessFunction;
 import org.neuroph.contrib.neat.gen.operations.MutationOperation;
 import org.neuroph.contrib.neat.gen.operations.OrganismSelector;
@@ -35,6 +36,16 @@ public interface NeatParameters {
 	 */
 	public FitnessFunction getFitnessFunction();
 
+	/**
+	 * Returns the <code>FitnessEvaluator</code> that is responsible for
+	 * creating the <code>NeuralNetwork</code> for each <code>Organism</code>
+	 * and running the <code>FitnessFunction</code> over them.
+	 * 
+	 * @return the <code>FitnessEvaluator</code> that is responsible for
+	 *         evaluating each generation.
+	 */
+	public FitnessEvaluator getFitnessEvaluator();
+
 	/**
 	 * Returns the <code>OrganismSelector</code> that will select the
 	 * <code>Organism</code>s to go into the next generation.
@@ -2,7 +2,11 @@ package org.neuroph.contrib.neat.gen;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,6 +24,14 @@ import org.neuroph.contrib.neat.gen.util.GeneHelper;
  * <code>ConnectionGene</code> and <code>NeuronGene</code>'s as the
  * representation of it's "genetic material".
  * 
+ * <code>Gene</code>s are shared between an <code>Organism</code> and the
+ * copies made of it, so they must not be changed directly. Use
+ * <code>getMutableConnection</code> and <code>getMutableNeuron</code> to get a
+ * <code>Gene</code> that is only referenced by this <code>Organism</code>
+ * before changing it. Once an <code>Organism</code> has been frozen it's genes
+ * can no longer be changed at all, which allows a <code>Generation</code> to
+ * reference it without taking a copy.
+ * 
  * @author Aidan Morgan
  */
 public class Organism implements Innovation, Serializable {
@@ -42,6 +54,15 @@ public class Organism implements Innovation, Serializable {
 	 */
 	private Map<Long, ConnectionGene> connectionsMap = new HashMap<Long, ConnectionGene>();
 
+	/**
+	 * An index of the <code>ConnectionGene</code>s by origin id and then
+	 * endpoint id, used for constant time duplicate checks and for walking the
+	 * network. Built on demand and kept up to date as
+	 * <code>ConnectionGene</code>s are added and removed, so the endpoints of
+	 * a <code>ConnectionGene</code> must not change once it has been added.
+	 */
+	private transient volatile Map<Long, Map<Long, ConnectionGene>> outgoing;
+
 	/**
 	 * A <code>List</code> of all <code>NeuronGene</code>s in the input layer.
 	 */
@@ -64,9 +85,24 @@ public class Organism implements Innovation, Serializable {
 	private Map<Long, NeuronGene> neuronsMap;
 
 	/**
-	 * The <code>Specie</code> this <code>Organism</code> belongs to.
+	 * The <code>Specie</code> this <code>Organism</code> belongs to. This is
+	 * not serialised, the <code>Specie</code> re-establishes the link when it
+	 * is deserialised.
 	 */
-	private Specie specie;
+	private transient Specie specie;
+
+	/**
+	 * If <code>true</code> the genes of this <code>Organism</code> can no
+	 * longer be changed.
+	 */
+	private boolean frozen;
+
+	/**
+	 * The <code>Gene</code>s that were copied on write by this
+	 * <code>Organism</code> and are not shared with any other
+	 * <code>Organism</code>, so can be changed in place.
+	 */
+	private transient Set<Gene> ownedGenes;
 
 	/**
 	 * A simple array containing the innovation id's of any parents of this <code>Organism</code>.
@@ -202,6 +238,8 @@ public class Organism implements Innovation, Serializable {
 					"Attempting to add a null NeuronGene.");
 		}
 
+		checkNotFrozen();
+
 		if (n.getNeuronType() == NeuronType.INPUT) {
 			inputNeurons.add(n);
 		} else if (n.getNeuronType() == NeuronType.HIDDEN) {
@@ -242,10 +280,13 @@ public class Organism implements Innovation, Serializable {
 					"Attempting to add a null ConnectionGene.");
 		}
 
+		checkNotFrozen();
+
 		// no point adding a connection we already have...
-		if (!connections.contains(gene)) {
+		if (findConnection(gene.getOriginId(), gene.getEndpointId()) == null) {
 			connectionsMap.put(gene.getInnovationId(), gene);
 			connections.add(gene);
+			index(gene);
 		} else {
 			// TODO : turn this back on!!
 			// throw new
@@ -259,19 +300,116 @@ public class Organism implements Innovation, Serializable {
 		return organismId;
 	}
 
+	/**
+	 * Returns <code>true</code> if there is a path of
+	 * <code>ConnectionGene</code>s from the neuron <code>out</code> to the
+	 * neuron <code>in</code>, using a breadth first search that visits each
+	 * neuron at most once.
+	 */
 	private boolean containsConnection(long out, long in) {
-		for (ConnectionGene link : connectionsMap.values()) {
-			if (link.getEndpointId() == in) {
-				if (link.getOriginId() == out) {
+		Map<Long, Map<Long, ConnectionGene>> index = getOutgoing();
+
+		Set<Long> visited = new HashSet<Long>();
+		LinkedList<Long> queue = new LinkedList<Long>();
+		queue.add(out);
+		visited.add(out);
+
+		while (!queue.isEmpty()) {
+			Map<Long, ConnectionGene> links = index.get(queue.removeFirst());
+
+			if (links == null) {
+				continue;
+			}
+
+			for (Long endpoint : links.keySet()) {
+				if (endpoint.longValue() == in) {
 					return true;
-				} else {
-					return containsConnection(out, link.getOriginId());
+				}
+
+				if (visited.add(endpoint)) {
+					queue.add(endpoint);
 				}
 			}
 		}
+
 		return false;
 	}
 
+	/**
+	 * Returns the <code>ConnectionGene</code> between the two neurons in
+	 * either direction, or <code>null</code> if they are not connected.
+	 */
+	private ConnectionGene findConnection(long originId, long endpointId) {
+		Map<Long, Map<Long, ConnectionGene>> index = getOutgoing();
+
+		Map<Long, ConnectionGene> links = index.get(originId);
+		if (links != null) {
+			ConnectionGene cg = links.get(endpointId);
+
+			if (cg != null) {
+				return cg;
+			}
+		}
+
+		links = index.get(endpointId);
+		if (links != null) {
+			return links.get(originId);
+		}
+
+		return null;
+	}
+
+	private Map<Long, Map<Long, ConnectionGene>> getOutgoing() {
+		Map<Long, Map<Long, ConnectionGene>> index = outgoing;
+
+		// parents are read by several reproduction tasks at once, so the index
+		// is only published once it is complete.
+		if (index == null) {
+			index = new HashMap<Long, Map<Long, ConnectionGene>>();
+
+			for (ConnectionGene cg : connections) {
+				index(index, cg);
+			}
+
+			outgoing = index;
+		}
+
+		return index;
+	}
+
+	private void index(ConnectionGene cg) {
+		// if the index has not been built it will pick up the gene when it is.
+		if (outgoing != null) {
+			index(outgoing, cg);
+		}
+	}
+
+	private static void index(Map<Long, Map<Long, ConnectionGene>> index,
+			ConnectionGene cg) {
+		Map<Long, ConnectionGene> links = index.get(cg.getOriginId());
+		if (links == null) {
+			links = new HashMap<Long, ConnectionGene>(4);
+			index.put(cg.getOriginId(), links);
+		}
+
+		links.put(cg.getEndpointId(), cg);
+	}
+
+	private void unindex(ConnectionGene cg) {
+		if (outgoing == null) {
+			return;
+		}
+
+		Map<Long, ConnectionGene> links = outgoing.get(cg.getOriginId());
+		if (links != null && links.get(cg.getEndpointId()) == cg) {
+			links.remove(cg.getEndpointId());
+
+			if (links.isEmpty()) {
+				outgoing.remove(cg.getOriginId());
+			}
+		}
+	}
+
 	void setSpecies(Specie specie) {
 		// if(this.specie != null) {
 		// this.specie.removeOrganism(this);
@@ -306,6 +444,10 @@ public class Organism implements Innovation, Serializable {
 	 * is important that all of the <code>Gene</code>s that make up this
 	 * organism retain their original innovation id's.
 	 * 
+	 * The copy shares the <code>Gene</code>s of this <code>Organism</code>
+	 * rather than cloning them, they are only copied when either
+	 * <code>Organism</code> asks for a mutable version of them.
+	 * 
 	 * @param params
 	 * @return
 	 */
@@ -318,17 +460,159 @@ public class Organism implements Innovation, Serializable {
 		Organism o = new Organism(params, inputNeurons, outputNeurons, false);
 
 		for (NeuronGene ng : hiddenNeurons) {
-			NeuronGene clone = ng.copy();
-			o.addGene(clone);
+			o.addNeuronGene(ng);
 		}
 
-		for (ConnectionGene cg : connections) {
-			o.addConnectionGene(cg.copy());
-		}
+		// the connections are already unique, so skip the duplicate check
+		// addConnectionGene performs.
+		o.connections.addAll(connections);
+		o.connectionsMap.putAll(connectionsMap);
+
+		// every gene is now shared with the copy.
+		ownedGenes = null;
 
 		return o;
 	}
 
+	/**
+	 * Returns a version of the provided <code>ConnectionGene</code> that can be
+	 * changed without affecting any other <code>Organism</code>. If the
+	 * <code>ConnectionGene</code> is shared it is replaced in this
+	 * <code>Organism</code> by a copy with the same innovation id.
+	 * 
+	 * @param cg
+	 *            a <code>ConnectionGene</code> of this <code>Organism</code>.
+	 * @return the <code>ConnectionGene</code> to change.
+	 * @throws IllegalArgumentException
+	 *             if the <code>ConnectionGene</code> is not part of this
+	 *             <code>Organism</code>.
+	 * @throws IllegalStateException
+	 *             if this <code>Organism</code> is frozen.
+	 */
+	public ConnectionGene getMutableConnection(ConnectionGene cg) {
+		if (cg == null) {
+			throw new IllegalArgumentException(
+					"Attempting to mutate a null ConnectionGene.");
+		}
+
+		for (int i = 0; i < connections.size(); i++) {
+			if (connections.get(i) == cg) {
+				return getMutableConnection(i);
+			}
+		}
+
+		throw new IllegalArgumentException("ConnectionGene "
+				+ cg.getInnovationId() + " is not part of Organism "
+				+ organismId + ".");
+	}
+
+	/**
+	 * Returns a version of the <code>ConnectionGene</code> at the provided
+	 * index of <code>getConnections()</code> that can be changed without
+	 * affecting any other <code>Organism</code>.
+	 * 
+	 * @param index
+	 *            the index of the <code>ConnectionGene</code>.
+	 * @return the <code>ConnectionGene</code> to change.
+	 * @throws IllegalStateException
+	 *             if this <code>Organism</code> is frozen.
+	 */
+	public ConnectionGene getMutableConnection(int index) {
+		checkNotFrozen();
+
+		ConnectionGene cg = connections.get(index);
+		if (isOwned(cg)) {
+			return cg;
+		}
+
+		ConnectionGene copy = cg.copy();
+		connections.set(index, copy);
+		connectionsMap.put(copy.getInnovationId(), copy);
+		index(copy);
+		own(copy);
+
+		return copy;
+	}
+
+	/**
+	 * Returns a version of the provided <code>NeuronGene</code> that can be
+	 * changed without affecting any other <code>Organism</code>. If the
+	 * <code>NeuronGene</code> is shared it is replaced in this
+	 * <code>Organism</code> by a copy with the same innovation id.
+	 * 
+	 * @param ng
+	 *            a <code>NeuronGene</code> of this <code>Organism</code>.
+	 * @return the <code>NeuronGene</code> to change.
+	 * @throws IllegalArgumentException
+	 *             if the <code>NeuronGene</code> is not part of this
+	 *             <code>Organism</code>.
+	 * @throws IllegalStateException
+	 *             if this <code>Organism</code> is frozen.
+	 */
+	public NeuronGene getMutableNeuron(NeuronGene ng) {
+		if (ng == null) {
+			throw new IllegalArgumentException(
+					"Attempting to mutate a null NeuronGene.");
+		}
+
+		checkNotFrozen();
+
+		List<NeuronGene> neurons = getNeurons(ng.getNeuronType());
+		for (int i = 0; i < neurons.size(); i++) {
+			if (neurons.get(i) == ng) {
+				if (isOwned(ng)) {
+					return ng;
+				}
+
+				NeuronGene copy = ng.copy();
+				copy.setEnabled(ng.isEnabled());
+				neurons.set(i, copy);
+				neuronsMap.put(copy.getInnovationId(), copy);
+				own(copy);
+
+				return copy;
+			}
+		}
+
+		throw new IllegalArgumentException("NeuronGene "
+				+ ng.getInnovationId() + " is not part of Organism "
+				+ organismId + ".");
+	}
+
+	/**
+	 * Prevents any further changes to the genes of this <code>Organism</code>
+	 * so that it can be shared by a snapshot of the population. The
+	 * <code>Specie</code> of a frozen <code>Organism</code> can still change.
+	 */
+	public void freeze() {
+		frozen = true;
+		ownedGenes = null;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException("Organism " + organismId
+					+ " is frozen and cannot be changed.");
+		}
+	}
+
+	private boolean isOwned(Gene g) {
+		return ownedGenes != null && ownedGenes.contains(g);
+	}
+
+	private void own(Gene g) {
+		if (ownedGenes == null) {
+			ownedGenes = Collections
+					.newSetFromMap(new IdentityHashMap<Gene, Boolean>());
+		}
+
+		ownedGenes.add(g);
+	}
+
 	public List<ConnectionGene> getGenes() {
 		return new ArrayList<ConnectionGene>(connectionsMap.values());
 	}
@@ -339,13 +623,13 @@ public class Organism implements Innovation, Serializable {
 					"Attempting to find a match for a null Gene.");
 		}
 
-		for (Gene cg : connectionsMap.values()) {
-			if (g.equals(cg)) {
-				return cg;
-			}
+		// only ConnectionGenes are matched, a NeuronGene never equals one.
+		if (!(g instanceof ConnectionGene)) {
+			return null;
 		}
 
-		return null;
+		ConnectionGene cg = (ConnectionGene) g;
+		return findConnection(cg.getOriginId(), cg.getEndpointId());
 	}
 
 	public NeuronGene getNeuron(long id) {
@@ -383,20 +667,20 @@ public class Organism implements Innovation, Serializable {
 		return connections;
 	}
 
+	/**
+	 * Returns <code>true</code> if there is no <code>ConnectionGene</code>
+	 * between the two neurons in either direction.
+	 */
 	public boolean canConnect(long st, long end) {
-		for (ConnectionGene cg : connections) {
-			if (cg.getOriginId() == st && cg.getEndpointId() == end) {
-				return false;
-			}
-
-			if (cg.getEndpointId() == st && cg.getOriginId() == end) {
-				return false;
-			}
-		}
-
-		return true;
+		return findConnection(st, end) == null;
 	}
 
+	/**
+	 * Returns <code>true</code> if there is a path of
+	 * <code>ConnectionGene</code>s from <code>end</code> back to
+	 * <code>start</code>, i.e. if connecting <code>start</code> to
+	 * <code>end</code> would create a cycle.
+	 */
 	public boolean containsConnection(NeuronGene start, NeuronGene end) {
 		return containsConnection(end.getInnovationId(), start
 				.getInnovationId());
@@ -479,6 +763,8 @@ public class Organism implements Innovation, Serializable {
 					"Attempting to remove null NeuronGene.");
 		}
 
+		checkNotFrozen();
+
 		if (n.getNeuronType() == NeuronType.INPUT) {
 			inputNeurons.remove(n);
 		} else if (n.getNeuronType() == NeuronType.HIDDEN) {
@@ -499,7 +785,15 @@ public class Organism implements Innovation, Serializable {
 					"Attempting to null remove ConnectionGene.");
 		}
 
-		connections.remove(g);
+		checkNotFrozen();
+
+		ConnectionGene existing = findConnection(g.getOriginId(), g
+				.getEndpointId());
+		if (existing != null) {
+			connections.remove(existing);
+			unindex(existing);
+		}
+
 		connectionsMap.remove(g.getInnovationId());
 	}
 
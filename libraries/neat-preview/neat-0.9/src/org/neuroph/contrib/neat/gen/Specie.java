@@ -1,9 +1,12 @@
 package org.neuroph.contrib.neat.gen;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.neuroph.contrib.neat.gen.util.OrganismHelper;
 
@@ -38,9 +41,11 @@ public class Specie implements Innovation, Serializable {
 
 	/**
 	 * The <code>NeatParameters</code> that define the environment this
-	 * <code>Specie</code> is operating in.
+	 * <code>Specie</code> is operating in. They are not
+	 * <code>Serializable</code>, so they are given back to the
+	 * <code>Specie</code> when it is loaded from a <code>Persistence</code>.
 	 */
-	private NeatParameters neatParams;
+	private transient NeatParameters neatParams;
 
 	/**
 	 * Whether this <code>Specie</code> is dead or not.
@@ -52,6 +57,12 @@ public class Specie implements Innovation, Serializable {
 	 */
 	private Organism representativeOrganism;
 
+	/**
+	 * Identity <code>Set</code> of the <code>organisms</code>, used for
+	 * constant time membership tests. Rebuilt on demand after deserialisation.
+	 */
+	private transient Set<Organism> members;
+
 	/**
 	 * Constructor.
 	 * 
@@ -85,6 +96,53 @@ public class Specie implements Innovation, Serializable {
 			addOrganism(o);
 		}
 	}
+
+	/**
+	 * Constructor used to restore a <code>Specie</code> from a
+	 * <code>Persistence</code>.
+	 * 
+	 * @param specieId
+	 *            the innovation id of the <code>Specie</code>.
+	 * @param organisms
+	 *            the <code>Organism</code>s in the <code>Specie</code>.
+	 * @param representative
+	 *            the <code>Organism</code> that best represents the
+	 *            <code>Specie</code>, which does not have to be one of
+	 *            <code>organisms</code>.
+	 */
+	public Specie(long specieId, List<Organism> organisms,
+			Organism representative) {
+		this(specieId, organisms, representative, null);
+	}
+
+	/**
+	 * Constructor used to restore a <code>Specie</code> from a
+	 * <code>Persistence</code> along with the <code>NeatParameters</code> it
+	 * was evolved with.
+	 * 
+	 * @param specieId
+	 *            the innovation id of the <code>Specie</code>.
+	 * @param organisms
+	 *            the <code>Organism</code>s in the <code>Specie</code>.
+	 * @param representative
+	 *            the <code>Organism</code> that best represents the
+	 *            <code>Specie</code>, which does not have to be one of
+	 *            <code>organisms</code>.
+	 * @param params
+	 *            the <code>NeatParameters</code> that define the environment
+	 *            this <code>Specie</code> is operating in, may be
+	 *            <code>null</code>.
+	 */
+	public Specie(long specieId, List<Organism> organisms,
+			Organism representative, NeatParameters params) {
+		this(specieId, organisms);
+
+		if (representative != null) {
+			this.representativeOrganism = representative;
+		}
+
+		this.neatParams = params;
+	}
 	
 	/**
 	 * @inheritDoc
@@ -124,7 +182,7 @@ public class Specie implements Innovation, Serializable {
 			representativeOrganism = o;
 		}			
 		
-		if (!organisms.contains(o)) {
+		if (getMembers().add(o)) {
 			organisms.add(o);
 			o.setSpecies(this);
 			
@@ -144,16 +202,35 @@ public class Specie implements Innovation, Serializable {
 	 *            others are killed off.
 	 */
 	public void cull(List<Organism> org) {
+		cull(org, OrganismHelper.identitySet(org));
+	}
+
+	/**
+	 * Removes all of the <code>Organism</code>s from this <code>Specie</code>
+	 * that are not in <code>org</code>.
+	 * 
+	 * @param org
+	 *            the <code>Organism</code>s to keep.
+	 * @param orgSet
+	 *            an identity <code>Set</code> of the same
+	 *            <code>Organism</code>s as <code>org</code>, allowing a single
+	 *            <code>Set</code> to be shared when culling several
+	 *            <code>Specie</code>s.
+	 */
+	public void cull(List<Organism> org, Set<Organism> orgSet) {
+		Set<Organism> members = getMembers();
+
 		for (Organism o : organisms) {
-			if (!org.contains(o)) {
+			if (!orgSet.contains(o)) {
 				o.setSpecies(null);
+				members.remove(o);
 			}
 		}
 
-		organisms.retainAll(org);
+		organisms.retainAll(orgSet);
 		
 		// reset the representative organism to the first one in the list...
-		if(!org.contains(representativeOrganism)) {
+		if(!orgSet.contains(representativeOrganism)) {
 			representativeOrganism = org.get(0);
 		}
 	}
@@ -188,10 +265,23 @@ public class Specie implements Innovation, Serializable {
 		return isDead;
 	}
 
+	/**
+	 * Sets the <code>NeatParameters</code> of a <code>Specie</code> that was
+	 * loaded from a <code>Persistence</code> without them.
+	 * 
+	 * @param params
+	 *            the <code>NeatParameters</code> that define the environment
+	 *            this <code>Specie</code> is operating in.
+	 */
+	void setNeatParameters(NeatParameters params) {
+		this.neatParams = params;
+	}
+
 	public Specie copy() {
 		List<Organism> clones = OrganismHelper.copy(neatParams, organisms);
 
 		Specie s = new Specie(specieId, clones);
+		s.neatParams = neatParams;
 		// s.fitnessMap = new HashMap<Long, Double>(this.fitnessMap);
 
 		// make sure we maintain the link to the specie, but to the clone of the
@@ -203,6 +293,47 @@ public class Specie implements Innovation, Serializable {
 		return s;
 	}
 
+	/**
+	 * Creates a snapshot of this <code>Specie</code> that shares it's
+	 * <code>Organism</code>s rather than copying them. The
+	 * <code>Organism</code>s are frozen so they cannot change underneath the
+	 * snapshot, and still refer to this <code>Specie</code> rather than the
+	 * snapshot.
+	 * 
+	 * @return a snapshot of this <code>Specie</code>.
+	 */
+	public Specie snapshot() {
+		Specie s = new Specie(specieId, Collections.<Organism> emptyList());
+		s.organisms.addAll(organisms);
+		s.neatParams = neatParams;
+		s.isDead = isDead;
+		s.representativeOrganism = representativeOrganism;
+
+		for (Organism o : organisms) {
+			o.freeze();
+		}
+
+		return s;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+
+		// the link from the Organism back to it's Specie is not serialised.
+		for (Organism o : organisms) {
+			o.setSpecies(this);
+		}
+	}
+
+	private Set<Organism> getMembers() {
+		if (members == null) {
+			members = OrganismHelper.identitySet(organisms);
+		}
+
+		return members;
+	}
+
 	public Organism getRepresentativeOrganism() {
 		return representativeOrganism;
 	}
@@ -0,0 +1,19 @@
+package org.neuroph.contrib.neat.gen.impl;
+
+/**
+ * Enumeration of the orders the <code>CompiledNetworkBuilder</code> can
+ * calculate the neurons of a <code>CompiledNeuralNetwork</code> in.
+ */
+public enum ActivationOrder {
+	/**
+	 * inputs, then hidden, then outputs, each in the order they appear in the
+	 * <code>Organism</code>. Matches the <code>SimpleNeuralNetworkBuilder</code>.
+	 */
+	LAYERED,
+
+	/**
+	 * every neuron after all of the neurons that feed into it, connections that
+	 * form a cycle read the output from the previous pass.
+	 */
+	TOPOLOGICAL
+}
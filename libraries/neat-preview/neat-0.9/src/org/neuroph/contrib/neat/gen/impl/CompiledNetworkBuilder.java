@@ -0,0 +1,294 @@
+package org.neuroph.contrib.neat.gen.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neuroph.contrib.neat.gen.ConnectionGene;
+import org.neuroph.contrib.neat.gen.NeuralNetworkBuilder;
+import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.NeuronType;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.core.NeuralNetwork;
+
+/**
+ * Implementation of the <code>NeuralNetworkBuilder</code> that creates a
+ * {@link CompiledNeuralNetwork} from the provided <code>Organism</code>.
+ *
+ * The neurons are numbered inputs first, then hidden, then outputs. With the
+ * default {@link ActivationOrder#LAYERED} order they are calculated in that
+ * sequence, which is the same order the <code>Layer</code>s of a network
+ * created by the <code>SimpleNeuralNetworkBuilder</code> are calculated in, so
+ * both builders produce identical outputs for the same <code>Organism</code>.
+ *
+ * With {@link ActivationOrder#TOPOLOGICAL} every neuron is calculated after
+ * all of the neurons that feed into it, so a feed-forward network produces
+ * it's final outputs after a single pass. If the <code>Organism</code>
+ * contains cycles, the connections that close them read the output of the
+ * previous pass and the network is calculated
+ * <code>relaxationPasses</code> times per call to <code>calculate</code>.
+ */
+public class CompiledNetworkBuilder implements NeuralNetworkBuilder {
+	/**
+	 * The default number of passes used for networks that contain cycles.
+	 */
+	public static final int DEFAULT_RELAXATION_PASSES = 1;
+
+	/**
+	 * The order to calculate the neurons in.
+	 */
+	private ActivationOrder activationOrder;
+
+	/**
+	 * The number of passes used for networks that contain cycles when using
+	 * the <code>TOPOLOGICAL</code> order.
+	 */
+	private int relaxationPasses = DEFAULT_RELAXATION_PASSES;
+
+	/**
+	 * Creates a new <code>CompiledNetworkBuilder</code> that uses the
+	 * <code>LAYERED</code> order.
+	 */
+	public CompiledNetworkBuilder() {
+		this(ActivationOrder.LAYERED);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param activationOrder
+	 *            the order to calculate the neurons in.
+	 */
+	public CompiledNetworkBuilder(ActivationOrder activationOrder) {
+		setActivationOrder(activationOrder);
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public NeuralNetwork createNeuralNetwork(Organism o) {
+		List<NeuronGene> neurons = new ArrayList<NeuronGene>();
+		Map<Long, Integer> neuronIndex = new HashMap<Long, Integer>();
+
+		int[] inputIndices = addNeurons(o.getNeurons(NeuronType.INPUT), true,
+				neurons, neuronIndex);
+		addNeurons(o.getNeurons(NeuronType.HIDDEN), true, neurons, neuronIndex);
+		int[] outputIndices = addNeurons(o.getNeurons(NeuronType.OUTPUT),
+				false, neurons, neuronIndex);
+
+		double[] slope = new double[neurons.size()];
+		for (int i = 0; i < slope.length; i++) {
+			slope[i] = neurons.get(i).getActivationResponse();
+		}
+
+		// count the incoming connections of each neuron first so the
+		// connections can be placed directly into their rows.
+		List<ConnectionGene> connections = new ArrayList<ConnectionGene>();
+		int[] connectionStart = new int[neurons.size() + 1];
+		for (ConnectionGene g : o.getConnections()) {
+			if (g.isEnabled()) {
+				Integer from = neuronIndex.get(g.getOriginId());
+				Integer to = neuronIndex.get(g.getEndpointId());
+
+				if (from != null && to != null) {
+					connections.add(g);
+					connectionStart[to.intValue() + 1]++;
+				}
+			}
+		}
+
+		for (int i = 0; i < neurons.size(); i++) {
+			connectionStart[i + 1] += connectionStart[i];
+		}
+
+		// the connections keep the order they have in the Organism within each
+		// row, so the weighted sums are added up in the same order as a
+		// Neuron would.
+		int[] connectionSource = new int[connections.size()];
+		double[] connectionWeight = new double[connections.size()];
+		int[] next = new int[neurons.size()];
+		System.arraycopy(connectionStart, 0, next, 0, next.length);
+
+		for (ConnectionGene g : connections) {
+			int pos = next[neuronIndex.get(g.getEndpointId()).intValue()]++;
+			connectionSource[pos] = neuronIndex.get(g.getOriginId()).intValue();
+			connectionWeight[pos] = g.getWeight();
+		}
+
+		int[] order;
+		int passes = 1;
+
+		if (activationOrder == ActivationOrder.TOPOLOGICAL) {
+			order = createTopologicalOrder(connectionStart, connectionSource);
+
+			if (isRecurrent(order, connectionStart, connectionSource)) {
+				passes = relaxationPasses;
+			}
+		} else {
+			order = new int[neurons.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+		}
+
+		return new CompiledNeuralNetwork(inputIndices, outputIndices, order,
+				connectionStart, connectionSource, connectionWeight, slope,
+				passes);
+	}
+
+	public ActivationOrder getActivationOrder() {
+		return activationOrder;
+	}
+
+	public void setActivationOrder(ActivationOrder activationOrder) {
+		if (activationOrder == null) {
+			throw new IllegalArgumentException(
+					"ActivationOrder cannot be null.");
+		}
+
+		this.activationOrder = activationOrder;
+	}
+
+	public int getRelaxationPasses() {
+		return relaxationPasses;
+	}
+
+	public void setRelaxationPasses(int relaxationPasses) {
+		if (relaxationPasses < 1) {
+			throw new IllegalArgumentException(
+					"Must use at least one relaxation pass.");
+		}
+
+		this.relaxationPasses = relaxationPasses;
+	}
+
+	/**
+	 * Performs a depth first search from every neuron back along it's incoming
+	 * connections, adding each neuron to the order once all of it's sources
+	 * have been added. A connection back to a neuron that is still being
+	 * searched closes a cycle and is skipped, the neuron it comes from ends up
+	 * later in the order.
+	 *
+	 * The search starts from the neurons in index order, so the inputs come
+	 * first and the result is the same every time for the same
+	 * <code>Organism</code>.
+	 *
+	 * @param connectionStart
+	 *            the offset of the first incoming connection of each neuron.
+	 * @param connectionSource
+	 *            the source neuron index of each connection.
+	 * @return the neuron indexes in the sequence they should be calculated.
+	 */
+	private int[] createTopologicalOrder(int[] connectionStart,
+			int[] connectionSource) {
+		int neuronCount = connectionStart.length - 1;
+
+		int[] order = new int[neuronCount];
+		int added = 0;
+
+		// 0 = not visited, 1 = being searched, 2 = added to the order.
+		byte[] state = new byte[neuronCount];
+		int[] cursor = new int[neuronCount];
+		int[] stack = new int[neuronCount];
+
+		for (int root = 0; root < neuronCount; root++) {
+			if (state[root] != 0) {
+				continue;
+			}
+
+			int depth = 0;
+			stack[depth++] = root;
+			state[root] = 1;
+			cursor[root] = connectionStart[root];
+
+			while (depth > 0) {
+				int n = stack[depth - 1];
+
+				if (cursor[n] < connectionStart[n + 1]) {
+					int source = connectionSource[cursor[n]++];
+
+					if (state[source] == 0) {
+						stack[depth++] = source;
+						state[source] = 1;
+						cursor[source] = connectionStart[source];
+					}
+				} else {
+					depth--;
+					state[n] = 2;
+					order[added++] = n;
+				}
+			}
+		}
+
+		return order;
+	}
+
+	/**
+	 * Returns <code>true</code> if any connection has a source that is not
+	 * calculated before it's endpoint in the provided order.
+	 *
+	 * @param order
+	 *            the neuron indexes in the sequence they are calculated.
+	 * @param connectionStart
+	 *            the offset of the first incoming connection of each neuron.
+	 * @param connectionSource
+	 *            the source neuron index of each connection.
+	 * @return <code>true</code> if the network contains a cycle.
+	 */
+	private boolean isRecurrent(int[] order, int[] connectionStart,
+			int[] connectionSource) {
+		int[] position = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			position[order[i]] = i;
+		}
+
+		for (int n = 0; n < order.length; n++) {
+			for (int c = connectionStart[n]; c < connectionStart[n + 1]; c++) {
+				if (position[connectionSource[c]] >= position[n]) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Appends the provided <code>NeuronGene</code>s to the list of neurons,
+	 * recording the index each one is given.
+	 *
+	 * @param genes
+	 *            the <code>NeuronGene</code>s to add.
+	 * @param enabledOnly
+	 *            if <code>true</code>, disabled <code>NeuronGene</code>s are
+	 *            skipped.
+	 * @param neurons
+	 *            the list of neurons to append to.
+	 * @param neuronIndex
+	 *            the index of each neuron, keyed by innovation id.
+	 * @return the indexes given to the added <code>NeuronGene</code>s.
+	 */
+	private int[] addNeurons(List<NeuronGene> genes, boolean enabledOnly,
+			List<NeuronGene> neurons, Map<Long, Integer> neuronIndex) {
+		int[] indices = new int[genes.size()];
+		int count = 0;
+
+		for (NeuronGene ng : genes) {
+			if (!enabledOnly || ng.isEnabled()) {
+				indices[count++] = neurons.size();
+				neuronIndex.put(ng.getInnovationId(), neurons.size());
+				neurons.add(ng);
+			}
+		}
+
+		if (count == indices.length) {
+			return indices;
+		}
+
+		int[] trimmed = new int[count];
+		System.arraycopy(indices, 0, trimmed, 0, count);
+
+		return trimmed;
+	}
+}
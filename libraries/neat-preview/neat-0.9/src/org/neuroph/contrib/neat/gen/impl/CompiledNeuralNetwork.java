@@ -0,0 +1,328 @@
+package org.neuroph.contrib.neat.gen.impl;
+
+import java.util.Vector;
+
+import org.neuroph.core.NeuralNetwork;
+
+/**
+ * A <code>NeuralNetwork</code> that stores the phenotype of an
+ * <code>Organism</code> in flat primitive arrays instead of an object graph of
+ * <code>Layer</code>s, <code>Neuron</code>s and <code>Connection</code>s.
+ *
+ * The incoming connections of each neuron are stored in compressed sparse row
+ * form: the connections of neuron <code>i</code> are found at the indexes
+ * <code>[connectionStart[i], connectionStart[i + 1])</code> of the
+ * <code>connectionSource</code> and <code>connectionWeight</code> arrays.
+ * Neurons are calculated in the sequence given by the <code>order</code>
+ * array, each reading the current output of it's source neurons and applying a
+ * sigmoid with it's own precomputed slope. A connection whose source has not
+ * yet been calculated in the current pass (i.e. a recurrent connection) reads
+ * the output left by the previous pass, so the neuron outputs double as the
+ * recurrent state of the network. The whole sequence is repeated
+ * <code>passes</code> times on each call to <code>calculate</code> to let
+ * signals around cycles settle.
+ *
+ * Use {@link #activate(double[], double[])} to run the network without
+ * allocating, the <code>setInput</code>/<code>calculate</code>/
+ * <code>getOutput</code> methods are provided so a
+ * <code>CompiledNeuralNetwork</code> can be passed to any existing
+ * <code>FitnessFunction</code>.
+ *
+ * Instances are created by the {@link CompiledNetworkBuilder} and hold
+ * activation state, so a single instance must not be used by more than one
+ * thread at a time.
+ */
+public class CompiledNeuralNetwork extends NeuralNetwork {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The neuron index of each network input, in input order.
+	 */
+	private int[] inputIndices;
+
+	/**
+	 * The neuron index of each network output, in output order.
+	 */
+	private int[] outputIndices;
+
+	/**
+	 * The neuron indexes in the sequence they are calculated.
+	 */
+	private int[] order;
+
+	/**
+	 * The offset of the first incoming connection of each neuron, has one more
+	 * entry than there are neurons.
+	 */
+	private int[] connectionStart;
+
+	/**
+	 * The neuron index at the source of each connection.
+	 */
+	private int[] connectionSource;
+
+	/**
+	 * The weight of each connection.
+	 */
+	private double[] connectionWeight;
+
+	/**
+	 * The slope of the sigmoid transfer function of each neuron.
+	 */
+	private double[] slope;
+
+	/**
+	 * The number of times the neurons are calculated for each call to
+	 * <code>calculate</code>.
+	 */
+	private int passes;
+
+	/**
+	 * The current net input of each neuron.
+	 */
+	private double[] netInput;
+
+	/**
+	 * The current output of each neuron.
+	 */
+	private double[] output;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param inputIndices
+	 *            the neuron index of each network input.
+	 * @param outputIndices
+	 *            the neuron index of each network output.
+	 * @param order
+	 *            the neuron indexes in the sequence they are calculated.
+	 * @param connectionStart
+	 *            the offset of the first incoming connection of each neuron.
+	 * @param connectionSource
+	 *            the source neuron index of each connection.
+	 * @param connectionWeight
+	 *            the weight of each connection.
+	 * @param slope
+	 *            the sigmoid slope of each neuron.
+	 * @param passes
+	 *            the number of times the neurons are calculated for each call
+	 *            to <code>calculate</code>.
+	 */
+	CompiledNeuralNetwork(int[] inputIndices, int[] outputIndices,
+			int[] order, int[] connectionStart, int[] connectionSource,
+			double[] connectionWeight, double[] slope, int passes) {
+		this.inputIndices = inputIndices;
+		this.outputIndices = outputIndices;
+		this.order = order;
+		this.connectionStart = connectionStart;
+		this.connectionSource = connectionSource;
+		this.connectionWeight = connectionWeight;
+		this.slope = slope;
+		this.passes = passes;
+
+		this.netInput = new double[slope.length];
+		this.output = new double[slope.length];
+	}
+
+	/**
+	 * Sets the provided inputs, calculates the network and copies the outputs
+	 * into the provided array. No objects are allocated.
+	 *
+	 * @param in
+	 *            the network inputs, must have one entry per input.
+	 * @param out
+	 *            the array to write the network outputs to, must have one
+	 *            entry per output.
+	 */
+	public void activate(double[] in, double[] out) {
+		setInput(in);
+		calculate();
+		copyOutput(out);
+	}
+
+	/**
+	 * Sets the inputs starting at <code>inOffset</code> of the provided array,
+	 * calculates the network and copies the outputs into the provided array
+	 * starting at <code>outOffset</code>. No objects are allocated.
+	 *
+	 * This allows the inputs and outputs of many networks to be kept in a
+	 * single pair of arrays.
+	 *
+	 * @param in
+	 *            the array holding the network inputs.
+	 * @param inOffset
+	 *            the index of the first input.
+	 * @param out
+	 *            the array to write the network outputs to.
+	 * @param outOffset
+	 *            the index to write the first output to.
+	 */
+	public void activate(double[] in, int inOffset, double[] out,
+			int outOffset) {
+		if (inOffset < 0 || inOffset + inputIndices.length > in.length) {
+			throw new IllegalArgumentException("Invalid input offset "
+					+ inOffset + ".");
+		}
+
+		if (outOffset < 0 || outOffset + outputIndices.length > out.length) {
+			throw new IllegalArgumentException("Invalid output offset "
+					+ outOffset + ".");
+		}
+
+		for (int i = 0; i < inputIndices.length; i++) {
+			netInput[inputIndices[i]] = in[inOffset + i];
+		}
+
+		calculate();
+
+		for (int i = 0; i < outputIndices.length; i++) {
+			out[outOffset + i] = output[outputIndices[i]];
+		}
+	}
+
+	/**
+	 * Returns the number of network inputs.
+	 *
+	 * @return the number of network inputs.
+	 */
+	public int getInputCount() {
+		return inputIndices.length;
+	}
+
+	/**
+	 * Returns the number of network outputs.
+	 *
+	 * @return the number of network outputs.
+	 */
+	public int getOutputCount() {
+		return outputIndices.length;
+	}
+
+	/**
+	 * Returns the total number of neurons in the network.
+	 *
+	 * @return the total number of neurons in the network.
+	 */
+	public int getNeuronCount() {
+		return slope.length;
+	}
+
+	/**
+	 * Returns the total number of connections in the network.
+	 *
+	 * @return the total number of connections in the network.
+	 */
+	public int getConnectionCount() {
+		return connectionSource.length;
+	}
+
+	/**
+	 * Returns the number of times the neurons are calculated for each call to
+	 * <code>calculate</code>.
+	 *
+	 * @return the number of passes per calculation.
+	 */
+	public int getPasses() {
+		return passes;
+	}
+
+	@Override
+	public void setInput(double... inputArray) {
+		if (inputArray.length != inputIndices.length) {
+			throw new IllegalArgumentException(
+					"Input vector size does not match network input dimension!");
+		}
+
+		for (int i = 0; i < inputIndices.length; i++) {
+			netInput[inputIndices[i]] = inputArray[i];
+		}
+	}
+
+	@Override
+	public void setInput(Vector<Double> inputVector) {
+		if (inputVector.size() != inputIndices.length) {
+			throw new IllegalArgumentException(
+					"Input vector size does not match network input dimension!");
+		}
+
+		for (int i = 0; i < inputIndices.length; i++) {
+			netInput[inputIndices[i]] = inputVector.get(i).doubleValue();
+		}
+	}
+
+	@Override
+	public void calculate() {
+		for (int pass = 0; pass < passes; pass++) {
+			for (int n : order) {
+				int start = connectionStart[n];
+				int end = connectionStart[n + 1];
+
+				// a neuron without incoming connections keeps the net input it
+				// was given, which is how the input neurons receive their
+				// values.
+				if (start != end) {
+					double sum = 0;
+					for (int c = start; c < end; c++) {
+						sum = sum + output[connectionSource[c]]
+								* connectionWeight[c];
+					}
+					netInput[n] = sum;
+				}
+
+				output[n] = 1 / (1 + Math.exp(-slope[n] * netInput[n]));
+			}
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < output.length; i++) {
+			netInput[i] = 0;
+			output[i] = 0;
+		}
+	}
+
+	@Override
+	public Vector<Double> getOutput() {
+		Vector<Double> outputVector = new Vector<Double>(outputIndices.length);
+
+		for (int n : outputIndices) {
+			outputVector.add(Double.valueOf(output[n]));
+		}
+
+		return outputVector;
+	}
+
+	@Override
+	public double[] getOutputAsArray() {
+		return getOutputAsArray(null);
+	}
+
+	@Override
+	public double[] getOutputAsArray(double[] outputArray) {
+		if (outputArray == null) {
+			outputArray = new double[outputIndices.length];
+		}
+
+		copyOutput(outputArray);
+
+		return outputArray;
+	}
+
+	/**
+	 * Copies the current network outputs into the provided array.
+	 *
+	 * @param out
+	 *            the array to write the network outputs to.
+	 */
+	private void copyOutput(double[] out) {
+		if (out.length != outputIndices.length) {
+			throw new IllegalArgumentException(
+					"Output vector size does not match network output dimension!");
+		}
+
+		for (int i = 0; i < outputIndices.length; i++) {
+			out[i] = output[outputIndices[i]];
+		}
+	}
+}
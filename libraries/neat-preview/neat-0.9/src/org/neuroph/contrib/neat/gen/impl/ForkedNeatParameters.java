@@ -0,0 +1,167 @@
+package org.neuroph.contrib.neat.gen.impl;
+
+import java.util.List;
+import java.util.Random;
+
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.NeuralNetworkBuilder;
+import org.neuroph.contrib.neat.gen.TerminationCondition;
+import org.neuroph.contrib.neat.gen.operations.FitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.FitnessFunction;
+import org.neuroph.contrib.neat.gen.operations.MutationOperation;
+import org.neuroph.contrib.neat.gen.operations.OrganismSelector;
+import org.neuroph.contrib.neat.gen.operations.ReproductionOperation;
+import org.neuroph.contrib.neat.gen.operations.Speciator;
+import org.neuroph.contrib.neat.gen.persistence.Persistence;
+
+/**
+ * A view of a <code>NeatParameters</code> for a single task of a parallel
+ * operation. It has it's own <code>Random</code> and hands out innovation ids
+ * from a range that belongs to the task, so the result of the task does not
+ * depend on what the other tasks are doing. Everything else is delegated to
+ * the wrapped <code>NeatParameters</code>.
+ *
+ * When created without a range the innovation ids are provisional: they count
+ * down from <code>-1</code> and must be replaced with real ids (e.g. by
+ * <code>Innovations.merge</code>) before they are added to an
+ * <code>Organism</code>.
+ */
+public class ForkedNeatParameters implements NeatParameters {
+	private NeatParameters delegate;
+
+	private Random randomGenerator;
+
+	/**
+	 * The next innovation id to hand out.
+	 */
+	private long nextId;
+
+	/**
+	 * The last innovation id that can be handed out.
+	 */
+	private long lastId;
+
+	/**
+	 * The direction the innovation ids are handed out in.
+	 */
+	private long step;
+
+	/**
+	 * Creates a new <code>ForkedNeatParameters</code> that hands out
+	 * provisional innovation ids.
+	 *
+	 * @param delegate
+	 *            the <code>NeatParameters</code> to delegate to.
+	 * @param randomGenerator
+	 *            the <code>Random</code> for the task.
+	 */
+	public ForkedNeatParameters(NeatParameters delegate, Random randomGenerator) {
+		this(delegate, randomGenerator, -1L, Long.MIN_VALUE, -1L);
+	}
+
+	/**
+	 * Creates a new <code>ForkedNeatParameters</code> that hands out the
+	 * innovation ids in <code>[firstId, lastId]</code>, which must have been
+	 * reserved from the wrapped <code>NeatParameters</code>.
+	 *
+	 * @param delegate
+	 *            the <code>NeatParameters</code> to delegate to.
+	 * @param randomGenerator
+	 *            the <code>Random</code> for the task.
+	 * @param firstId
+	 *            the first innovation id of the task.
+	 * @param lastId
+	 *            the last innovation id of the task.
+	 */
+	public ForkedNeatParameters(NeatParameters delegate,
+			Random randomGenerator, long firstId, long lastId) {
+		this(delegate, randomGenerator, firstId, lastId, 1L);
+	}
+
+	private ForkedNeatParameters(NeatParameters delegate,
+			Random randomGenerator, long firstId, long lastId, long step) {
+		if (delegate == null) {
+			throw new IllegalArgumentException(
+					"NeatParameters cannot be null.");
+		}
+
+		if (randomGenerator == null) {
+			throw new IllegalArgumentException("Random cannot be null.");
+		}
+
+		this.delegate = delegate;
+		this.randomGenerator = randomGenerator;
+		this.nextId = firstId;
+		this.lastId = lastId;
+		this.step = step;
+	}
+
+	public long nextInnovationId() {
+		if (step > 0 ? nextId > lastId : nextId < lastId) {
+			throw new IllegalStateException(
+					"No innovation ids left in the range reserved for this task.");
+		}
+
+		long id = nextId;
+		nextId += step;
+
+		return id;
+	}
+
+	public Random getRandomGenerator() {
+		return randomGenerator;
+	}
+
+	public double getRandomClamped() {
+		return (randomGenerator.nextDouble() - randomGenerator.nextDouble());
+	}
+
+	public void setInnovationIdsStart(long l) {
+		throw new UnsupportedOperationException(
+				"Cannot change the innovation ids of a forked NeatParameters.");
+	}
+
+	public NeatParameters getDelegate() {
+		return delegate;
+	}
+
+	public int getPopulationSize() {
+		return delegate.getPopulationSize();
+	}
+
+	public FitnessFunction getFitnessFunction() {
+		return delegate.getFitnessFunction();
+	}
+
+	public FitnessEvaluator getFitnessEvaluator() {
+		return delegate.getFitnessEvaluator();
+	}
+
+	public OrganismSelector getOrganismSelector() {
+		return delegate.getOrganismSelector();
+	}
+
+	public List<ReproductionOperation> getReproductionOperators() {
+		return delegate.getReproductionOperators();
+	}
+
+	public List<MutationOperation> getMutationOperators() {
+		return delegate.getMutationOperators();
+	}
+
+	public NeuralNetworkBuilder getNeuralNetworkBuilder() {
+		return delegate.getNeuralNetworkBuilder();
+	}
+
+	public Speciator getSpeciator() {
+		return delegate.getSpeciator();
+	}
+
+	public Persistence getPersistence() {
+		return delegate.getPersistence();
+	}
+
+	public TerminationCondition getTerminationCondition() {
+		return delegate.getTerminationCondition();
+	}
+}
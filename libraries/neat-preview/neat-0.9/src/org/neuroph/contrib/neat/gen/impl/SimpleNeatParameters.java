@@ -11,11 +11,13 @@ import java.util.logging.Logger;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.NeuralNetworkBuilder;
 import org.neuroph.contrib.neat.gen.TerminationCondition;
+import org.neuroph.contrib.neat.gen.operations.FitnessEvaluator;
 import org.neuroph.contrib.neat.gen.operations.FitnessFunction;
 import org.neuroph.contrib.neat.gen.operations.MutationOperation;
 import org.neuroph.contrib.neat.gen.operations.OrganismSelector;
 import org.neuroph.contrib.neat.gen.operations.ReproductionOperation;
 import org.neuroph.contrib.neat.gen.operations.Speciator;
+import org.neuroph.contrib.neat.gen.operations.evaluator.SequentialFitnessEvaluator;
 import org.neuroph.contrib.neat.gen.operations.mutation.ActivationResponseMutationOperation;
 import org.neuroph.contrib.neat.gen.operations.mutation.AddConnectionMutationOperation;
 import org.neuroph.contrib.neat.gen.operations.mutation.AddNeuronMutationOperation;
@@ -77,6 +79,12 @@ public class SimpleNeatParameters implements NeatParameters {
 	 */
 	private FitnessFunction fitnessFunction;
 
+	/**
+	 * The <code>FitnessEvaluator</code> used to build and score each
+	 * generation, defaults to a <code>SequentialFitnessEvaluator</code>.
+	 */
+	private FitnessEvaluator fitnessEvaluator;
+
 	private NeuralNetworkBuilder neuralNetworkBuilder;
 
 	private Speciator speciator;
@@ -104,6 +112,7 @@ public class SimpleNeatParameters implements NeatParameters {
 
 		organismSelector = new NaturalSelectionOrganismSelector();
 
+		fitnessEvaluator = new SequentialFitnessEvaluator();
 		neuralNetworkBuilder = new SimpleNeuralNetworkBuilder();
 		speciator = new SimpleSpeciator();
 		persistence = new NoOpPersistence();
@@ -170,6 +179,14 @@ public class SimpleNeatParameters implements NeatParameters {
 		this.fitnessFunction = f;
 	}
 
+	public FitnessEvaluator getFitnessEvaluator() {
+		return fitnessEvaluator;
+	}
+
+	public void setFitnessEvaluator(FitnessEvaluator fitnessEvaluator) {
+		this.fitnessEvaluator = fitnessEvaluator;
+	}
+
 	public NeuralNetworkBuilder getNeuralNetworkBuilder() {
 		return neuralNetworkBuilder;
 	}
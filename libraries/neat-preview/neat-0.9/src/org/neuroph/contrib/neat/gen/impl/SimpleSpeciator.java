@@ -4,10 +4,12 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import org.neuroph.contrib.neat.gen.FitnessScores;
+import org.neuroph.contrib.neat.gen.GenomeView;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.Organism;
 import org.neuroph.contrib.neat.gen.Specie;
 import org.neuroph.contrib.neat.gen.operations.Speciator;
+import org.neuroph.contrib.neat.gen.util.CompatibilityCache;
 
 /**
  * Implementation of the <code>Speciator</code> interface which provides the same
@@ -49,10 +51,20 @@ public class SimpleSpeciator implements Speciator {
 	 */
 	private double compatabilityThreshold = DEFAULT_COMPATABILITY_THRESHOLD;
 
+	/**
+	 * The <code>GenomeView</code>s and distances calculated during the current
+	 * speciation.
+	 */
+	private CompatibilityCache cache = new CompatibilityCache();
+
 	public void speciate(NeatParameters params, List<Specie> species,
 			FitnessScores fitnessScores, List<Organism> chromosomes) {
 		int newSpeciesCreated = 0;
 
+		// the genomes don't change while we are speciating, so remember the
+		// distances for the duration of this call.
+		clearCache();
+
 		for (Organism o : chromosomes) {
 			Specie parentSpecie = null;
 
@@ -65,7 +77,7 @@ public class SimpleSpeciator implements Speciator {
 				if (o.equals(s.getRepresentativeOrganism())) {
 					parentSpecie = s;
 				} else {
-					double score = compare(s.getRepresentativeOrganism(), o);
+					double score = compareCached(s.getRepresentativeOrganism(), o);
 
 					if (score < compatabilityThreshold) {
 						parentSpecie = s;
@@ -85,90 +97,47 @@ public class SimpleSpeciator implements Speciator {
 
 			parentSpecie.addOrganism(o);
 		}
+
+		clearCache();
 	}
 
+	/**
+	 * Returns the compatibility distance between the provided
+	 * <code>Organism</code>s.
+	 */
 	public double compare(Organism one, Organism two) {
-		// travel down the length of each genome counting the number of
-		// disjoint genes, the number of excess genes and the number of
-		// matched genes
-		double NumDisjoint = 0;
-		double NumExcess = 0;
-		double NumMatched = 0;
-
-		// this records the summed difference of weights in matched genes
-		double weightDifference = 0;
-
-		// position holders for each genome. They are incremented as we
-		// step down each genomes length.
-		int g1 = 0;
-		int g2 = 0;
-
-		while ((g1 < one.getConnections().size() - 1)
-				|| (g2 < two.getConnections().size() - 1)) {
-			// we've reached the end of genome1 but not genome2 so increment
-			// the excess score
-			if (g1 == one.getConnections().size() - 1) {
-				++g2;
-				++NumExcess;
-
-				continue;
-			} else if (g2 == two.getConnections().size() - 1) {
-				++g1;
-				++NumExcess;
-
-				continue;
-			} else {
-
-				// get innovation numbers for each gene at this point
-				long id1 = one.getConnections().get(g1).getInnovationId();
-				long id2 = two.getConnections().get(g2).getInnovationId();
-
-				// innovation numbers are identical so increase the matched
-				// score
-				if (id1 == id2) {
-					++g1;
-					++g2;
-					++NumMatched;
-
-					// get the weight difference between these two genes
-					weightDifference += Math.abs(one.getConnections().get(g1)
-							.getWeight()
-							- two.getConnections().get(g2).getWeight());
-				}
-
-				// innovation numbers are different so increment the disjoint
-				// score
-				if (id1 < id2) {
-					++NumDisjoint;
-					++g1;
-				}
-
-				if (id1 > id2) {
-					++NumDisjoint;
-					++g2;
-				}
-			}
-
-		}// end while
+		return compare(new GenomeView(one), new GenomeView(two));
+	}
 
-		// get the length of the longest genome
-		int longest = Math.max(one.getGenes().size(), two.getGenes().size());
+	/**
+	 * Returns the compatibility distance between the provided
+	 * <code>Organism</code>s, reusing the <code>GenomeView</code>s and any
+	 * distance already calculated during the current speciation.
+	 */
+	protected double compareCached(Organism one, Organism two) {
+		double score = cache.getDistance(one.getInnovationId(), two
+				.getInnovationId());
+
+		if (Double.isNaN(score)) {
+			score = compare(cache.getView(one), cache.getView(two));
+			cache.putDistance(one.getInnovationId(), two.getInnovationId(),
+					score);
+		}
 
-		double excessScore = NumExcess / longest;
-		double disjointScore = NumDisjoint / longest;
-		double matchedScore = weightDifference / NumMatched;
+		return score;
+	}
 
-		if (Double.isNaN(matchedScore)) {
-			throw new IllegalStateException(
-					"Invalid Organism comparison: [excessScore = "
-							+ excessScore + " disjointScore = " + disjointScore
-							+ " matchedScore = " + matchedScore + "].");
-		}
+	/**
+	 * Clears the <code>GenomeView</code>s and distances remembered during the
+	 * current speciation.
+	 */
+	protected void clearCache() {
+		cache.clear();
+	}
 
-		// finally calculate the scores
-		return (excessMultiplier * excessScore)
-				+ (disjointMultiplier * disjointScore)
-				+ (matchedMultiplier * matchedScore);
+	private double compare(GenomeView one, GenomeView two) {
+		return one.distance(two, excessMultiplier, disjointMultiplier,
+				matchedMultiplier, true);
 	}
 
 	public double getDisjointMultiplier() {
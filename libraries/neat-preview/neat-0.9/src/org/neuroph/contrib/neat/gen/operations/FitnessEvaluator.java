@@ -0,0 +1,40 @@
+package org.neuroph.contrib.neat.gen.operations;
+
+import java.util.List;
+
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.Organism;
+
+/**
+ * A <code>FitnessEvaluator</code> is responsible for creating the
+ * <code>NeuralNetwork</code> for each <code>Organism</code> in a generation and
+ * passing them to the <code>FitnessFunction</code> to be scored.
+ *
+ * Separating this from the <code>FitnessFunction</code> allows the threading
+ * model used for evaluation to be changed without every
+ * <code>FitnessFunction</code> having to manage it's own threads.
+ */
+public interface FitnessEvaluator {
+	/**
+	 * Creates the <code>NeuralNetwork</code> for each of the provided
+	 * <code>Organism</code>s using the <code>NeuralNetworkBuilder</code> and
+	 * evaluates them with the <code>FitnessFunction</code> from the provided
+	 * <code>NeatParameters</code>.
+	 *
+	 * The returned <code>List</code> <b>must</b> be in the same order as the
+	 * provided <code>List</code> of <code>Organism</code>s, regardless of the
+	 * order the evaluations completed in, so the results can be merged into
+	 * the <code>FitnessScores</code> deterministically.
+	 *
+	 * @param params
+	 *            the <code>NeatParameters</code> that describe the evolution
+	 *            environment.
+	 * @param organisms
+	 *            the <code>Organism</code>s to evaluate.
+	 * @return a <code>List</code> of <code>OrganismFitnessScore</code>s, one
+	 *         for each of the provided <code>Organism</code>s, with the
+	 *         fitness set.
+	 */
+	public List<OrganismFitnessScore> evaluate(NeatParameters params,
+			List<Organism> organisms);
+}
@@ -0,0 +1,310 @@
+package org.neuroph.contrib.neat.gen.operations.evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.neuroph.contrib.neat.gen.ConnectionGene;
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.NeuronType;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.operations.FitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.OrganismFitnessScore;
+
+/**
+ * A <code>FitnessEvaluator</code> that remembers the fitness of every genome it
+ * has evaluated and skips building and evaluating the
+ * <code>NeuralNetwork</code> of any <code>Organism</code> whose genome it has
+ * seen before. Only the <code>Organism</code>s that miss the cache are passed
+ * to the wrapped <code>FitnessEvaluator</code>.
+ *
+ * Genomes are matched on their structure and weights: the type, innovation
+ * id, enabled flag and activation response of every <code>NeuronGene</code>
+ * and the endpoints, enabled flag and weight of every
+ * <code>ConnectionGene</code>, in the order they appear in the
+ * <code>Organism</code>. Clones and unmutated survivors therefore hit the cache
+ * even though they have a new innovation id.
+ *
+ * The least recently used genomes are dropped once the estimated size of the
+ * cache exceeds the memory budget. The <code>OrganismFitnessScore</code>s
+ * returned for cache hits do not have a <code>NeuralNetwork</code>.
+ *
+ * <b>NOTE:</b> this is only correct for a <code>FitnessFunction</code> that
+ * always gives the same fitness to the same <code>NeuralNetwork</code>.
+ */
+public class CachingFitnessEvaluator implements FitnessEvaluator {
+	/**
+	 * Logging instance.
+	 */
+	private static Logger s_log = Logger
+			.getLogger(CachingFitnessEvaluator.class.getName());
+
+	/**
+	 * The default memory budget, in bytes.
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET = 16L * 1024L * 1024L;
+
+	/**
+	 * An estimate of the bytes used by each cache entry, not counting the
+	 * genome itself.
+	 */
+	private static final int ENTRY_OVERHEAD = 104;
+
+	/**
+	 * The <code>FitnessEvaluator</code> used for the genomes that are not in
+	 * the cache.
+	 */
+	private FitnessEvaluator delegate;
+
+	/**
+	 * The maximum estimated size of the cache, in bytes.
+	 */
+	private long memoryBudget;
+
+	/**
+	 * The estimated size of the cache, in bytes.
+	 */
+	private long usedMemory;
+
+	/**
+	 * The cached fitness of each genome, in least recently used order.
+	 */
+	private LinkedHashMap<GenomeKey, Double> cache;
+
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a new <code>CachingFitnessEvaluator</code> with the
+	 * <code>DEFAULT_MEMORY_BUDGET</code>.
+	 *
+	 * @param delegate
+	 *            the <code>FitnessEvaluator</code> to use for the genomes that
+	 *            are not in the cache.
+	 */
+	public CachingFitnessEvaluator(FitnessEvaluator delegate) {
+		this(delegate, DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param delegate
+	 *            the <code>FitnessEvaluator</code> to use for the genomes that
+	 *            are not in the cache.
+	 * @param memoryBudget
+	 *            the maximum estimated size of the cache, in bytes.
+	 */
+	public CachingFitnessEvaluator(FitnessEvaluator delegate, long memoryBudget) {
+		if (delegate == null) {
+			throw new IllegalArgumentException(
+					"FitnessEvaluator cannot be null.");
+		}
+
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException(
+					"Memory budget must be greater than zero.");
+		}
+
+		this.delegate = delegate;
+		this.memoryBudget = memoryBudget;
+		this.cache = new LinkedHashMap<GenomeKey, Double>(16, 0.75f, true);
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public synchronized List<OrganismFitnessScore> evaluate(
+			NeatParameters params, List<Organism> organisms) {
+		OrganismFitnessScore[] scores = new OrganismFitnessScore[organisms
+				.size()];
+
+		// identical genomes within the same generation are only evaluated
+		// once, the other copies are filled in from the first one's result.
+		Map<GenomeKey, List<Integer>> pending = new HashMap<GenomeKey, List<Integer>>();
+		List<GenomeKey> pendingKeys = new ArrayList<GenomeKey>();
+		List<Organism> pendingOrganisms = new ArrayList<Organism>();
+
+		for (int i = 0; i < scores.length; i++) {
+			Organism o = organisms.get(i);
+			GenomeKey key = new GenomeKey(o);
+			Double fitness = cache.get(key);
+
+			if (fitness != null) {
+				hits++;
+				scores[i] = new OrganismFitnessScore(o, null);
+				scores[i].setFitness(fitness.doubleValue());
+				continue;
+			}
+
+			List<Integer> indices = pending.get(key);
+			if (indices == null) {
+				misses++;
+				indices = new ArrayList<Integer>(1);
+				pending.put(key, indices);
+				pendingKeys.add(key);
+				pendingOrganisms.add(o);
+			} else {
+				hits++;
+			}
+			indices.add(i);
+		}
+
+		if (!pendingOrganisms.isEmpty()) {
+			List<OrganismFitnessScore> evaluated = delegate.evaluate(params,
+					pendingOrganisms);
+
+			for (int i = 0; i < evaluated.size(); i++) {
+				GenomeKey key = pendingKeys.get(i);
+				OrganismFitnessScore fs = evaluated.get(i);
+
+				List<Integer> indices = pending.get(key);
+				scores[indices.get(0)] = fs;
+
+				for (int j = 1; j < indices.size(); j++) {
+					int index = indices.get(j);
+					scores[index] = new OrganismFitnessScore(organisms
+							.get(index), null);
+					scores[index].setFitness(fs.getFitness());
+				}
+
+				put(key, fs.getFitness());
+			}
+		}
+
+		if (s_log.isLoggable(Level.FINE)) {
+			s_log.fine("Fitness cache  : " + hits + " hits, " + misses
+					+ " misses, " + cache.size() + " genomes.");
+		}
+
+		return Arrays.asList(scores);
+	}
+
+	public FitnessEvaluator getDelegate() {
+		return delegate;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public synchronized long getUsedMemory() {
+		return usedMemory;
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Removes all entries from the cache and resets the hit and miss counters.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		usedMemory = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Adds the fitness of the provided genome to the cache, dropping the least
+	 * recently used genomes until the cache is back under it's memory budget.
+	 */
+	private void put(GenomeKey key, double fitness) {
+		if (cache.put(key, Double.valueOf(fitness)) == null) {
+			usedMemory += key.getEstimatedSize();
+		}
+
+		Iterator<GenomeKey> it = cache.keySet().iterator();
+		while (usedMemory > memoryBudget && it.hasNext()) {
+			usedMemory -= it.next().getEstimatedSize();
+			it.remove();
+		}
+	}
+
+	/**
+	 * An immutable copy of everything in an <code>Organism</code> that affects
+	 * the <code>NeuralNetwork</code> built from it, flattened into a
+	 * <code>long</code> array so it can be compared and hashed cheaply.
+	 */
+	private static final class GenomeKey {
+		private final long[] genes;
+		private final int hash;
+
+		public GenomeKey(Organism o) {
+			List<NeuronGene> inputs = o.getNeurons(NeuronType.INPUT);
+			List<NeuronGene> hidden = o.getNeurons(NeuronType.HIDDEN);
+			List<NeuronGene> outputs = o.getNeurons(NeuronType.OUTPUT);
+			List<ConnectionGene> connections = o.getConnections();
+
+			genes = new long[4
+					+ 3 * (inputs.size() + hidden.size() + outputs.size())
+					+ 4 * connections.size()];
+
+			int pos = 0;
+			genes[pos++] = inputs.size();
+			genes[pos++] = hidden.size();
+			genes[pos++] = outputs.size();
+			genes[pos++] = connections.size();
+
+			pos = addNeurons(inputs, pos);
+			pos = addNeurons(hidden, pos);
+			pos = addNeurons(outputs, pos);
+
+			for (ConnectionGene cg : connections) {
+				genes[pos++] = cg.getOriginId();
+				genes[pos++] = cg.getEndpointId();
+				genes[pos++] = cg.isEnabled() ? 1 : 0;
+				genes[pos++] = Double.doubleToLongBits(cg.getWeight());
+			}
+
+			hash = Arrays.hashCode(genes);
+		}
+
+		private int addNeurons(List<NeuronGene> neurons, int pos) {
+			for (NeuronGene ng : neurons) {
+				genes[pos++] = (ng.getNeuronType().ordinal() << 1)
+						| (ng.isEnabled() ? 1 : 0);
+				genes[pos++] = ng.getInnovationId();
+				genes[pos++] = Double.doubleToLongBits(ng
+						.getActivationResponse());
+			}
+
+			return pos;
+		}
+
+		public long getEstimatedSize() {
+			return ENTRY_OVERHEAD + 8L * genes.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof GenomeKey))
+				return false;
+			GenomeKey other = (GenomeKey) obj;
+			return hash == other.hash && Arrays.equals(genes, other.genes);
+		}
+	}
+}
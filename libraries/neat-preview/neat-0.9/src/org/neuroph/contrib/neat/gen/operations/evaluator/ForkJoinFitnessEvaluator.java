@@ -0,0 +1,165 @@
+package org.neuroph.contrib.neat.gen.operations.evaluator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.operations.FitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.OrganismFitnessScore;
+
+/**
+ * A <code>FitnessEvaluator</code> that creates and scores the
+ * <code>Organism</code>s in parallel on a work-stealing
+ * <code>ForkJoinPool</code>.
+ *
+ * The population is recursively split in half until each task holds at most
+ * <code>batchSize</code> <code>Organism</code>s, each of these batches has it's
+ * <code>NeuralNetwork</code>s built and is passed to the
+ * <code>FitnessFunction</code> separately. Idle threads steal the remaining
+ * halves from busy ones, so a few slow <code>Organism</code>s do not hold up
+ * the rest of the generation.
+ *
+ * <b>NOTE:</b> the <code>FitnessFunction</code> will be called concurrently
+ * from several threads with different sub-lists of the generation, so it must
+ * not keep any per-call state in fields.
+ */
+public class ForkJoinFitnessEvaluator implements FitnessEvaluator {
+	/**
+	 * The default number of <code>Organism</code>s to evaluate in a single
+	 * task.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1;
+
+	/**
+	 * The pool shared by all <code>ForkJoinFitnessEvaluator</code>s that were
+	 * not given their own, sized to the number of available processors.
+	 */
+	private static ForkJoinPool s_sharedPool;
+
+	/**
+	 * Returns the <code>ForkJoinPool</code> shared by all
+	 * <code>ForkJoinFitnessEvaluator</code>s, creating it the first time it
+	 * is requested.
+	 *
+	 * @return the shared <code>ForkJoinPool</code>.
+	 */
+	public static synchronized ForkJoinPool getSharedPool() {
+		if (s_sharedPool == null) {
+			s_sharedPool = new ForkJoinPool(Runtime.getRuntime()
+					.availableProcessors());
+		}
+
+		return s_sharedPool;
+	}
+
+	/**
+	 * The <code>ForkJoinPool</code> to run the evaluations on.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * The maximum number of <code>Organism</code>s to evaluate in a single
+	 * task.
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Creates a new <code>ForkJoinFitnessEvaluator</code> that uses the shared
+	 * <code>ForkJoinPool</code>.
+	 */
+	public ForkJoinFitnessEvaluator() {
+		this(getSharedPool());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            the <code>ForkJoinPool</code> to run the evaluations on.
+	 */
+	public ForkJoinFitnessEvaluator(ForkJoinPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("ForkJoinPool cannot be null.");
+		}
+
+		this.pool = pool;
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public List<OrganismFitnessScore> evaluate(NeatParameters params,
+			List<Organism> organisms) {
+		OrganismFitnessScore[] scores = new OrganismFitnessScore[organisms
+				.size()];
+
+		if (scores.length > 0) {
+			pool.invoke(new EvaluationTask(params, organisms, scores, 0,
+					scores.length));
+		}
+
+		// each task only ever writes to it's own slots of the array, so the
+		// results are in the same order as the organisms no matter which
+		// thread finished first.
+		return Arrays.asList(scores);
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(batchSize, 1);
+	}
+
+	/**
+	 * Evaluates the <code>Organism</code>s in the range
+	 * <code>[start, end)</code>, splitting the range in half until it is no
+	 * larger than <code>batchSize</code>.
+	 */
+	private class EvaluationTask extends RecursiveAction {
+		private static final long serialVersionUID = -2793414592345318742L;
+
+		private NeatParameters params;
+		private List<Organism> organisms;
+		private OrganismFitnessScore[] scores;
+		private int start;
+		private int end;
+
+		public EvaluationTask(NeatParameters params, List<Organism> organisms,
+				OrganismFitnessScore[] scores, int start, int end) {
+			this.params = params;
+			this.organisms = organisms;
+			this.scores = scores;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > batchSize) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new EvaluationTask(params, organisms, scores, start,
+						middle), new EvaluationTask(params, organisms, scores,
+						middle, end));
+				return;
+			}
+
+			for (int i = start; i < end; i++) {
+				Organism o = organisms.get(i);
+				scores[i] = new OrganismFitnessScore(o, params
+						.getNeuralNetworkBuilder().createNeuralNetwork(o));
+			}
+
+			params.getFitnessFunction().evaluate(
+					Arrays.asList(scores).subList(start, end));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package org.neuroph.contrib.neat.gen.operations.evaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.NeuralNetworkBuilder;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.operations.FitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.OrganismFitnessScore;
+
+/**
+ * The default <code>FitnessEvaluator</code>, creates all of the
+ * <code>NeuralNetwork</code>s on the calling thread and then passes the
+ * complete <code>List</code> to the <code>FitnessFunction</code> in a single
+ * call.
+ */
+public class SequentialFitnessEvaluator implements FitnessEvaluator {
+
+	/**
+	 * @inheritDoc
+	 */
+	public List<OrganismFitnessScore> evaluate(NeatParameters params,
+			List<Organism> organisms) {
+		NeuralNetworkBuilder builder = params.getNeuralNetworkBuilder();
+		List<OrganismFitnessScore> fitnessScores = new ArrayList<OrganismFitnessScore>(
+				organisms.size());
+
+		for (Organism o : organisms) {
+			fitnessScores.add(new OrganismFitnessScore(o, builder
+					.createNeuralNetwork(o)));
+		}
+
+		params.getFitnessFunction().evaluate(fitnessScores);
+
+		return fitnessScores;
+	}
+}
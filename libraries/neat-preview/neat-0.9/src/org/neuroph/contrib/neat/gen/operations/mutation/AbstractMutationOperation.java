@@ -1,8 +1,11 @@
 package org.neuroph.contrib.neat.gen.operations.mutation;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 import org.neuroph.contrib.neat.gen.FitnessScores;
@@ -10,7 +13,10 @@ import org.neuroph.contrib.neat.gen.Gene;
 import org.neuroph.contrib.neat.gen.Innovations;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.impl.ForkedNeatParameters;
 import org.neuroph.contrib.neat.gen.operations.MutationOperation;
+import org.neuroph.contrib.neat.gen.util.ParallelLoop;
+import org.neuroph.contrib.neat.gen.util.RandomStreams;
 
 /**
  * A <code>MutationOperation</code> is applied to each <code>Organism</code> as
@@ -18,6 +24,14 @@ import org.neuroph.contrib.neat.gen.operations.MutationOperation;
  * <code>MutationOperation</code> to determine which <code>Gene</code>s need to
  * be added, removed or modified.
  * 
+ * If a <code>ForkJoinPool</code> is set the <code>Organism</code>s are mutated
+ * in parallel. Each <code>Organism</code> then gets it's own
+ * <code>Random</code> stream, derived from the shared random generator and the
+ * <code>Organism</code>'s id, and records it's new innovations in a fork of the
+ * <code>Innovations</code>. The forks are merged back in the order of the
+ * <code>Organism</code>s, so the result is the same for a given seed no matter
+ * how many threads are used (although it differs from the sequential result).
+ * 
  * @author Aidan Morgan
  */
 public abstract class AbstractMutationOperation implements MutationOperation {
@@ -31,6 +45,17 @@ public abstract class AbstractMutationOperation implements MutationOperation {
 	 */
 	private double mutationProbability = 0.0;
 
+	/**
+	 * The number of <code>Organism</code>s mutated by a single parallel task.
+	 */
+	private static final int PARALLEL_BATCH_SIZE = 8;
+
+	/**
+	 * The <code>ForkJoinPool</code> to mutate the <code>Organism</code>s on,
+	 * <code>null</code> to mutate them sequentially.
+	 */
+	private ForkJoinPool pool;
+
 	/**
 	 * Creates a new <code>MutationOperation</code> with the provided
 	 * probability of occurring.
@@ -52,12 +77,32 @@ public abstract class AbstractMutationOperation implements MutationOperation {
 		return mutationProbability;
 	}
 
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets the <code>ForkJoinPool</code> to mutate the <code>Organism</code>s
+	 * on.
+	 * 
+	 * @param pool
+	 *            the <code>ForkJoinPool</code> to use, or <code>null</code> to
+	 *            mutate the <code>Organism</code>s sequentially.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	/**
 	 * @inheritDoc
 	 */
 	public int mutate(NeatParameters neatParameters, Innovations innovations,
 			FitnessScores fitnessScores, List<Organism> generation,
 			int generationNumber) {
+		if (pool != null) {
+			return mutateInParallel(neatParameters, innovations,
+					fitnessScores, generation, generationNumber);
+		}
 
 		int totalOrganismsMutated = 0;
 
@@ -76,6 +121,56 @@ public abstract class AbstractMutationOperation implements MutationOperation {
 		return totalOrganismsMutated;
 	}
 
+	private int mutateInParallel(final NeatParameters neatParameters,
+			final Innovations innovations, final FitnessScores fitnessScores,
+			final List<Organism> generation, final int generationNumber) {
+		final long seed = RandomStreams.mix(neatParameters.getRandomGenerator()
+				.nextLong()
+				^ generationNumber);
+		final MutationResult[] results = new MutationResult[generation.size()];
+
+		new ParallelLoop() {
+			@Override
+			protected void iteration(int index) {
+				Organism o = generation.get(index);
+				NeatParameters params = new ForkedNeatParameters(
+						neatParameters, RandomStreams.create(seed, o
+								.getInnovationId()));
+
+				MutationResult result = new MutationResult(innovations.fork());
+				result.mutated = mutate(params, result.innovations,
+						fitnessScores, o, result.genesToAdd,
+						result.genesToRemove, generationNumber);
+				results[index] = result;
+			}
+		}.execute(pool, results.length, PARALLEL_BATCH_SIZE);
+
+		int totalOrganismsMutated = 0;
+
+		// the innovations are merged in the order of the organisms so that
+		// they are given the same ids no matter which thread finished first.
+		for (int i = 0; i < results.length; i++) {
+			MutationResult result = results[i];
+			Map<Gene, Gene> replacements = innovations.merge(
+					result.innovations, neatParameters);
+
+			Set<Gene> genesToAdd = new LinkedHashSet<Gene>();
+			for (Gene g : result.genesToAdd) {
+				Gene replacement = replacements.get(g);
+				genesToAdd.add(replacement == null ? g : replacement);
+			}
+
+			if (result.mutated) {
+				totalOrganismsMutated++;
+			}
+
+			updateOrganismGenesAfterMutation(generation.get(i), genesToAdd,
+					result.genesToRemove);
+		}
+
+		return totalOrganismsMutated;
+	}
+
 	/**
 	 * Updates the provided <code>Organism</code>, adding the provided
 	 * <codE>Gene</codE>s specified to be added and removing the provided
@@ -172,4 +267,17 @@ public abstract class AbstractMutationOperation implements MutationOperation {
 		return (params.getRandomGenerator().nextDouble() < mutationRate);
 	}
 
+	/**
+	 * The outcome of mutating a single <code>Organism</code> in parallel.
+	 */
+	private static final class MutationResult {
+		private final Innovations innovations;
+		private final Set<Gene> genesToAdd = new HashSet<Gene>();
+		private final Set<Gene> genesToRemove = new HashSet<Gene>();
+		private boolean mutated;
+
+		public MutationResult(Innovations innovations) {
+			this.innovations = innovations;
+		}
+	}
 }
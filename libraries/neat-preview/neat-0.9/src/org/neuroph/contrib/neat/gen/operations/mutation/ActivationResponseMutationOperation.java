@@ -45,8 +45,8 @@ public class ActivationResponseMutationOperation extends
 			return false;
 		}
 
-		NeuronGene randomNeuron = genes.get(neatParameters.getRandomGenerator()
-				.nextInt(genes.size()));
+		NeuronGene randomNeuron = o.getMutableNeuron(genes.get(neatParameters
+				.getRandomGenerator().nextInt(genes.size())));
 
 		double existingActivationResponse = randomNeuron
 				.getActivationResponse();
@@ -43,8 +43,9 @@ public class AddNeuronMutationOperation extends AbstractMutationOperation {
 	public static boolean addNeuron(NeatParameters neatParameters,
 			Innovations innovations, Organism o, Set<Gene> genesToAdd,
 			List<ConnectionGene> connections) {
-		ConnectionGene theConnection = connections.get(neatParameters
-				.getRandomGenerator().nextInt(connections.size()));
+		int connectionIndex = neatParameters.getRandomGenerator().nextInt(
+				connections.size());
+		ConnectionGene theConnection = connections.get(connectionIndex);
 
 		NeuronGene start = o.getNeuron(theConnection.getOriginId());
 		NeuronGene end = o.getNeuron(theConnection.getEndpointId());
@@ -86,7 +87,7 @@ public class AddNeuronMutationOperation extends AbstractMutationOperation {
 		genesToAdd.add(firstHalf);
 		genesToAdd.add(secondHalf);
 
-		theConnection.setEnabled(false);
+		o.getMutableConnection(connectionIndex).setEnabled(false);
 
 		return true;
 	}
@@ -52,7 +52,7 @@ public class WeightMutationOperation extends AbstractMutationOperation {
 			return false;
 		}
 
-		ConnectionGene randomConnection = connections.get(neatParameters
+		ConnectionGene randomConnection = o.getMutableConnection(neatParameters
 				.getRandomGenerator().nextInt(connections.size()));
 		if (shouldUseNewWeight(neatParameters)) {
 			randomConnection.setWeight(neatParameters.getRandomClamped());
@@ -1,14 +1,19 @@
 package org.neuroph.contrib.neat.gen.operations.reproduction;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.neuroph.contrib.neat.gen.FitnessScores;
 import org.neuroph.contrib.neat.gen.Innovations;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.Organism;
 import org.neuroph.contrib.neat.gen.Specie;
+import org.neuroph.contrib.neat.gen.impl.ForkedNeatParameters;
 import org.neuroph.contrib.neat.gen.operations.ReproductionOperation;
+import org.neuroph.contrib.neat.gen.util.ParallelLoop;
+import org.neuroph.contrib.neat.gen.util.RandomStreams;
 
 /**
  * A <code>ReproductionOperation</code> is responsible for performing all of the
@@ -37,6 +42,17 @@ public abstract class AbstractReproductionOperation implements
 	 */
 	private double operationPercentage;
 
+	/**
+	 * The number of offspring created by a single parallel task.
+	 */
+	private static final int PARALLEL_BATCH_SIZE = 4;
+
+	/**
+	 * The <code>ForkJoinPool</code> to create the offspring on,
+	 * <code>null</code> to create them sequentially.
+	 */
+	private ForkJoinPool pool;
+
 	/**
 	 * Constructor
 	 * 
@@ -105,10 +121,11 @@ public abstract class AbstractReproductionOperation implements
 		int size = (int) Math.ceil(((double) newSize)
 				/ ((double) species.size()));
 
-		for (Specie s : species) {
-			reproduce(params, innovations, fitnessScores, s.getOrganisms(),
-					size, newOffspring, generationNumber);
-		}
+		int[] numSpecieOffspring = new int[species.size()];
+		Arrays.fill(numSpecieOffspring, size);
+
+		reproduceSpecies(params, innovations, fitnessScores, species,
+				numSpecieOffspring, newOffspring, generationNumber);
 	}
 
 	/**
@@ -131,15 +148,86 @@ public abstract class AbstractReproductionOperation implements
 		// compared to all other <code>Specie</code>s. I.e. if a particular
 		// species is very strong in comparison to all of
 		// the others then more offspring should be created from it.
-		for (Specie s : species) {
+		int[] numSpecieOffspring = new int[species.size()];
+
+		for (int i = 0; i < numSpecieOffspring.length; i++) {
+			Specie s = species.get(i);
 			double percentFitness = fitnessScores.getFitness(s.getOrganisms())
 					/ allSpeciesFitness;
 
 			// round up because we will just remove random incorrect organisms
 			// later.
-			int numSpecieOffspring = (int) Math.ceil(percentFitness * newSize);
-			reproduce(params, innovations, fitnessScores, s.getOrganisms(),
-					numSpecieOffspring, newOffspring, generationNumber);
+			numSpecieOffspring[i] = (int) Math.ceil(percentFitness * newSize);
+		}
+
+		reproduceSpecies(params, innovations, fitnessScores, species,
+				numSpecieOffspring, newOffspring, generationNumber);
+	}
+
+	/**
+	 * Creates the provided number of offspring from each <code>Specie</code>,
+	 * in parallel if a <code>ForkJoinPool</code> has been set.
+	 */
+	private void reproduceSpecies(final NeatParameters params,
+			final Innovations innovations, final FitnessScores fitnessScores,
+			List<Specie> species, int[] numSpecieOffspring,
+			List<Organism> newOffspring, final long generationNumber) {
+		if (pool == null) {
+			for (int i = 0; i < numSpecieOffspring.length; i++) {
+				reproduce(params, innovations, fitnessScores, species.get(i)
+						.getOrganisms(), numSpecieOffspring[i], newOffspring,
+						generationNumber);
+			}
+
+			return;
+		}
+
+		// work out the parents of every offspring, and reserve each of them an
+		// organism id in order, so neither depends on the order the tasks run
+		// in.
+		final List<List<Organism>> parents = new ArrayList<List<Organism>>();
+		for (int i = 0; i < numSpecieOffspring.length; i++) {
+			List<Organism> organisms = species.get(i).getOrganisms();
+
+			for (int j = 0; j < numSpecieOffspring[i]; j++) {
+				parents.add(organisms);
+			}
+		}
+
+		final long[] ids = new long[parents.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = params.nextInnovationId();
+		}
+
+		final long seed = RandomStreams.mix(params.getRandomGenerator()
+				.nextLong()
+				^ generationNumber);
+		final Organism[][] offspring = new Organism[ids.length][];
+
+		new ParallelLoop() {
+			@Override
+			protected void iteration(int index) {
+				NeatParameters forked = new ForkedNeatParameters(params,
+						RandomStreams.create(seed, index), ids[index],
+						ids[index]);
+				Innovations fork = innovations.fork();
+
+				List<Organism> created = new ArrayList<Organism>(1);
+				reproduce(forked, fork, fitnessScores, parents.get(index), 1,
+						created, generationNumber);
+
+				if (fork.hasPendingInnovations()) {
+					throw new IllegalStateException(
+							"A ReproductionOperation cannot create new innovations when run in parallel.");
+				}
+
+				offspring[index] = created.toArray(new Organism[created
+						.size()]);
+			}
+		}.execute(pool, ids.length, PARALLEL_BATCH_SIZE);
+
+		for (Organism[] created : offspring) {
+			newOffspring.addAll(Arrays.asList(created));
 		}
 	}
 
@@ -187,4 +275,28 @@ public abstract class AbstractReproductionOperation implements
 		this.useFitnessBias = useFitnessBias;
 	}
 
+	/**
+	 * Returns the <code>ForkJoinPool</code> the offspring are created on,
+	 * <code>null</code> if they are created sequentially.
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets the <code>ForkJoinPool</code> to create the offspring on.
+	 * 
+	 * In parallel each offspring is created by a separate call to
+	 * <code>reproduce</code> that asks for a single <code>Organism</code>, with
+	 * it's own <code>Random</code> stream and a single reserved innovation id
+	 * for the new <code>Organism</code>.
+	 * 
+	 * @param pool
+	 *            the <code>ForkJoinPool</code> to use, or <code>null</code> to
+	 *            create the offspring sequentially.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 }
@@ -65,16 +65,16 @@ public class CrossoverReproductionOperator extends
 
 				List<ConnectionGene> genes = child.getConnections();
 
-				for (ConnectionGene gene : genes) {
+				for (int i = 0; i < genes.size(); i++) {
 					if (config.getRandomGenerator().nextBoolean()) {
 
-						ConnectionGene dominantGene = gene;
+						ConnectionGene dominantGene = genes.get(i);
 						ConnectionGene recessiveGene = (ConnectionGene) recessive
 								.findMatchingGene(dominantGene);
 
 						if (recessiveGene != null) {
 							double weight = recessiveGene.getWeight();
-							dominantGene.setWeight(weight);
+							child.getMutableConnection(i).setWeight(weight);
 						}
 					}
 				}
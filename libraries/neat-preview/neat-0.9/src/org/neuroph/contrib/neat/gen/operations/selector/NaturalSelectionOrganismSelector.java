@@ -4,12 +4,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import org.neuroph.contrib.neat.gen.FitnessScores;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.Organism;
 import org.neuroph.contrib.neat.gen.Specie;
 import org.neuroph.contrib.neat.gen.operations.OrganismSelector;
+import org.neuroph.contrib.neat.gen.util.OrganismHelper;
 
 /**
  * <code>NaturalSelectionOrganismSelector</code> is a simple
@@ -96,13 +99,31 @@ public class NaturalSelectionOrganismSelector implements OrganismSelector {
 		int numberOfOrganismsToKeep = (int) Math.round(survivalRatio
 				* (params.getPopulationSize() - survivors.size()));
 
-		while (numberOfOrganismsToKeep > 0) {
-			Organism randomOrganism = organisms.get(params.getRandomGenerator()
-					.nextInt(organisms.size()));
+		if (numberOfOrganismsToKeep > 0) {
+			// draw the rest of the survivors without replacement from the
+			// organisms that have not already been kept, using a partial
+			// Fisher-Yates shuffle so every draw succeeds.
+			Set<Organism> kept = OrganismHelper.identitySet(survivors);
+			Organism[] candidates = new Organism[organisms.size()];
+			int candidateCount = 0;
+
+			for (Organism candidate : organisms) {
+				if (kept.add(candidate)) {
+					candidates[candidateCount++] = candidate;
+				}
+			}
+
+			Random random = params.getRandomGenerator();
+			int draws = Math.min(numberOfOrganismsToKeep, candidateCount);
+
+			for (int i = 0; i < draws; i++) {
+				int j = i + random.nextInt(candidateCount - i);
+
+				Organism randomOrganism = candidates[j];
+				candidates[j] = candidates[i];
+				candidates[i] = randomOrganism;
 
-			if (!survivors.contains(randomOrganism)) {
 				survivors.add(randomOrganism);
-				numberOfOrganismsToKeep--;
 			}
 		}
 
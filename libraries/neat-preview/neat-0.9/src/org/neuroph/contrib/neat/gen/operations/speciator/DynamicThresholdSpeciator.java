@@ -1,7 +1,9 @@
 package org.neuroph.contrib.neat.gen.operations.speciator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.neuroph.contrib.neat.gen.FitnessScores;
@@ -14,12 +16,47 @@ import org.neuroph.contrib.neat.gen.Specie;
  * will adjust the comparison threshold in an attempt to keep the number of
  * <code>Specie</code>s within a certain range.
  * 
+ * By default the threshold is adjusted by a fixed amount and the speciation is
+ * repeated until the number of <code>Specie</code>s is acceptable. With
+ * {@link ThresholdSearch#BISECTION} the threshold is instead found by
+ * bisection, counting the <code>Specie</code>s each candidate threshold would
+ * create from the cached distances without modifying any <code>Specie</code>,
+ * and the speciation is then performed once with the threshold found.
+ * 
  * @author Aidan Morgan
  */
 public class DynamicThresholdSpeciator extends SimpleSpeciator {
 	private static Logger s_log = Logger
 			.getLogger(DynamicThresholdSpeciator.class.getName());
 
+	/**
+	 * The ways the threshold can be searched for.
+	 */
+	public enum ThresholdSearch {
+		/**
+		 * adjust the threshold by <code>thresholdCompatabilityAdjustmentRate</code>
+		 * and speciate again until the number of <code>Specie</code>s is
+		 * acceptable.
+		 */
+		INCREMENTAL,
+
+		/**
+		 * bisect the threshold against the cached distances, then speciate
+		 * once.
+		 */
+		BISECTION
+	}
+
+	/**
+	 * The default maximum number of thresholds to try in a single speciation.
+	 */
+	public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+	/**
+	 * The default width of the threshold range at which the bisection stops.
+	 */
+	public static final double DEFAULT_SEARCH_TOLERANCE = 0.01;
+
 	/**
 	 * The default ratio of population size to use if the maximum species value
 	 * is not set.
@@ -60,6 +97,43 @@ public class DynamicThresholdSpeciator extends SimpleSpeciator {
 	 */
 	private int maxSpecies = -1;
 
+	/**
+	 * How the threshold is searched for.
+	 */
+	private ThresholdSearch thresholdSearch = ThresholdSearch.INCREMENTAL;
+
+	/**
+	 * The maximum number of thresholds to try in a single speciation.
+	 */
+	private int maxIterations = DEFAULT_MAX_ITERATIONS;
+
+	/**
+	 * The width of the threshold range at which the bisection stops.
+	 */
+	private double searchTolerance = DEFAULT_SEARCH_TOLERANCE;
+
+	/**
+	 * The number of thresholds tried in the last speciation.
+	 */
+	private int lastIterations;
+
+	/**
+	 * The number of complete speciation passes performed in the last
+	 * speciation.
+	 */
+	private int lastSpeciationPasses;
+
+	/**
+	 * The number of thresholds tried over all speciations.
+	 */
+	private long totalIterations;
+
+	/**
+	 * The number of complete speciation passes performed over all
+	 * speciations.
+	 */
+	private long totalSpeciationPasses;
+
 	public DynamicThresholdSpeciator() {
 
 	}
@@ -90,11 +164,25 @@ public class DynamicThresholdSpeciator extends SimpleSpeciator {
 	@Override
 	public void speciate(NeatParameters params, List<Specie> species,
 			FitnessScores fitnessScores, List<Organism> chromosomes) {
-		int maxSpecies = getMaxSpecies(params);
-
 		List<Specie> addedSpecies = new ArrayList<Specie>();
 		int sizeBeforeSpeciation = species.size();
 
+		// the existing species are never removed here, so if there are already
+		// too many the best we can do is not add any more.
+		int maxSpecies = Math.max(getMaxSpecies(params), sizeBeforeSpeciation);
+
+		lastIterations = 0;
+		lastSpeciationPasses = 0;
+
+		// every attempt compares the same organisms against mostly the same
+		// representatives, so the distances are kept between attempts.
+		clearCache();
+
+		if (thresholdSearch == ThresholdSearch.BISECTION) {
+			dynamicThreshold = searchThreshold(species, chromosomes, maxSpecies
+					- sizeBeforeSpeciation);
+		}
+
 		// keep trying different threshold methods until we have found a
 		// suitable specie size.
 		do {
@@ -102,6 +190,8 @@ public class DynamicThresholdSpeciator extends SimpleSpeciator {
 			species.removeAll(addedSpecies);
 			addedSpecies = super.performSpeciation(params, species,
 					fitnessScores, chromosomes, dynamicThreshold);
+			lastIterations++;
+			lastSpeciationPasses++;
 
 			// we are above the max number of species, so increase the
 			// comparison threshold.
@@ -115,7 +205,128 @@ public class DynamicThresholdSpeciator extends SimpleSpeciator {
 			if (dynamicThreshold < 0) {
 				dynamicThreshold = DEFAULT_THRESHOLD;
 			}
-		} while ((addedSpecies.size() + sizeBeforeSpeciation > maxSpecies));
+		} while ((addedSpecies.size() + sizeBeforeSpeciation > maxSpecies)
+				&& lastIterations < maxIterations);
+
+		clearCache();
+
+		totalIterations += lastIterations;
+		totalSpeciationPasses += lastSpeciationPasses;
+
+		if (s_log.isLoggable(Level.FINE)) {
+			s_log.fine("Speciation     : " + lastIterations + " thresholds, "
+					+ lastSpeciationPasses + " passes, threshold "
+					+ dynamicThreshold + ".");
+		}
+	}
+
+	/**
+	 * Finds the smallest threshold (to within <code>searchTolerance</code>)
+	 * that creates no more than <code>allowedNewSpecies</code> new
+	 * <code>Specie</code>s, starting from the current
+	 * <code>dynamicThreshold</code>.
+	 * 
+	 * @param species
+	 *            the existing <code>Specie</code>s.
+	 * @param chromosomes
+	 *            the <code>Organism</code>s to speciate.
+	 * @param allowedNewSpecies
+	 *            the number of <code>Specie</code>s that may be created.
+	 * @return the threshold to speciate with.
+	 */
+	private double searchThreshold(List<Specie> species,
+			List<Organism> chromosomes, int allowedNewSpecies) {
+		Organism[] representatives = new Organism[species.size()];
+		for (int i = 0; i < representatives.length; i++) {
+			representatives[i] = species.get(i).getRepresentativeOrganism();
+		}
+
+		// the distance from every organism to every existing representative,
+		// filled in as they are needed.
+		double[] distances = new double[chromosomes.size()
+				* representatives.length];
+		Arrays.fill(distances, Double.NaN);
+
+		List<Organism> newRepresentatives = new ArrayList<Organism>();
+
+		double lo = dynamicThreshold;
+		if (countNewSpecies(representatives, distances, newRepresentatives,
+				chromosomes, lo, allowedNewSpecies) <= allowedNewSpecies) {
+			return lo;
+		}
+
+		// grow the step until we find a threshold that is large enough.
+		double step = Math.max(thresholdCompatabilityAdjustmentRate,
+				searchTolerance);
+		double hi = lo + step;
+		while (lastIterations < maxIterations
+				&& countNewSpecies(representatives, distances,
+						newRepresentatives, chromosomes, hi, allowedNewSpecies) > allowedNewSpecies) {
+			lo = hi;
+			step *= 2;
+			hi = lo + step;
+		}
+
+		while (lastIterations < maxIterations && hi - lo > searchTolerance) {
+			double mid = (lo + hi) / 2;
+
+			if (countNewSpecies(representatives, distances, newRepresentatives,
+					chromosomes, mid, allowedNewSpecies) <= allowedNewSpecies) {
+				hi = mid;
+			} else {
+				lo = mid;
+			}
+		}
+
+		return hi;
+	}
+
+	/**
+	 * Counts the number of <code>Specie</code>s that
+	 * <code>performSpeciation</code> would create with the provided threshold,
+	 * without modifying any <code>Specie</code>. Stops counting once more than
+	 * <code>limit</code> have been found.
+	 */
+	private int countNewSpecies(Organism[] representatives,
+			double[] distances, List<Organism> newRepresentatives,
+			List<Organism> chromosomes, double thresh, int limit) {
+		lastIterations++;
+		newRepresentatives.clear();
+
+		for (int i = 0; i < chromosomes.size(); i++) {
+			Organism o = chromosomes.get(i);
+			boolean found = false;
+
+			for (int s = 0; s < representatives.length && !found; s++) {
+				Organism representative = representatives[s];
+
+				if (o.equals(representative)) {
+					found = true;
+				} else {
+					int index = i * representatives.length + s;
+
+					if (Double.isNaN(distances[index])) {
+						distances[index] = compareCached(representative, o);
+					}
+
+					found = distances[index] < thresh;
+				}
+			}
+
+			for (int s = 0; s < newRepresentatives.size() && !found; s++) {
+				found = compareCached(newRepresentatives.get(s), o) < thresh;
+			}
+
+			if (!found) {
+				newRepresentatives.add(o);
+
+				if (newRepresentatives.size() > limit) {
+					break;
+				}
+			}
+		}
+
+		return newRepresentatives.size();
 	}
 
 	public double getMaxSpeciesRatio() {
@@ -146,6 +357,67 @@ public class DynamicThresholdSpeciator extends SimpleSpeciator {
 		return thresholdCompatabilityAdjustmentRate;
 	}
 
+	public ThresholdSearch getThresholdSearch() {
+		return thresholdSearch;
+	}
+
+	public void setThresholdSearch(ThresholdSearch thresholdSearch) {
+		if (thresholdSearch == null) {
+			throw new IllegalArgumentException(
+					"ThresholdSearch cannot be null.");
+		}
+
+		this.thresholdSearch = thresholdSearch;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = Math.max(maxIterations, 1);
+	}
+
+	public double getSearchTolerance() {
+		return searchTolerance;
+	}
+
+	public void setSearchTolerance(double searchTolerance) {
+		// a tolerance that isn't positive would never stop the bisection
+		// before it ran out of iterations.
+		if (!(searchTolerance > 0)) {
+			throw new IllegalArgumentException(
+					"Search tolerance must be greater than zero, got "
+							+ searchTolerance + ".");
+		}
+
+		this.searchTolerance = searchTolerance;
+	}
+
+	/**
+	 * Returns the number of thresholds tried in the last speciation, including
+	 * the ones only counted during a bisection.
+	 */
+	public int getLastIterations() {
+		return lastIterations;
+	}
+
+	/**
+	 * Returns the number of complete speciation passes performed in the last
+	 * speciation.
+	 */
+	public int getLastSpeciationPasses() {
+		return lastSpeciationPasses;
+	}
+
+	public long getTotalIterations() {
+		return totalIterations;
+	}
+
+	public long getTotalSpeciationPasses() {
+		return totalSpeciationPasses;
+	}
+
 	public void setThresholdCompatabilityAdjustmentRate(
 			double thresholdCompatabilityAdjustmentRate) {
 		this.thresholdCompatabilityAdjustmentRate = thresholdCompatabilityAdjustmentRate;
@@ -0,0 +1,21 @@
+package org.neuroph.contrib.neat.gen.persistence;
+
+/**
+ * A <code>Persistence</code> that may hold on to <code>Generation</code>s
+ * after <code>addGeneration</code> returns, rather than writing them straight
+ * away.
+ *
+ * The <code>Evolver</code> calls <code>flush</code> once the evolution process
+ * has finished, so that the final <code>Generation</code> is always written.
+ */
+public interface BufferedPersistence extends Persistence {
+
+	/**
+	 * Writes every <code>Generation</code> that has been added but not yet
+	 * written, returning once they are all in the persistent store.
+	 *
+	 * @throws PersistenceException
+	 *             if any of the <code>Generation</code>s could not be written.
+	 */
+	public void flush() throws PersistenceException;
+}
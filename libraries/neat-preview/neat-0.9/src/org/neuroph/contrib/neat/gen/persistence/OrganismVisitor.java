@@ -0,0 +1,23 @@
+package org.neuroph.contrib.neat.gen.persistence;
+
+import org.neuroph.contrib.neat.gen.Organism;
+
+/**
+ * Receives the <code>Organism</code>s of the persisted <code>Generation</code>s
+ * one at a time from <code>Persistence.iterateGenerations</code>.
+ */
+public interface OrganismVisitor {
+
+	/**
+	 * Called for each <code>Organism</code> stored with a
+	 * <code>Generation</code>.
+	 *
+	 * @param generation
+	 *            the number of the <code>Generation</code> the
+	 *            <code>Organism</code> was stored with.
+	 * @param o
+	 *            the <code>Organism</code>.
+	 * @return <code>false</code> to stop the iteration.
+	 */
+	public boolean visit(long generation, Organism o);
+}
@@ -3,6 +3,7 @@ package org.neuroph.contrib.neat.gen.persistence;
 import org.neuroph.contrib.neat.gen.FitnessScores;
 import org.neuroph.contrib.neat.gen.Generation;
 import org.neuroph.contrib.neat.gen.Innovations;
+import org.neuroph.contrib.neat.gen.Organism;
 
 /**
  * Interface defining operations that must be performed to be able to 
@@ -65,4 +66,31 @@ public interface Persistence {
 	 * @return the number of <code>Generation</code>s that are available in the persistence store.
 	 */
 	public long getGenerationCount();
+
+	/**
+	 * Loads the <code>Organism</code> with the provided innovation id from the first
+	 * <code>Generation</code> it was persisted with, without loading any of the others.
+	 * 
+	 * @param id the innovation id of the <code>Organism</code>.
+	 * 
+	 * @return the <code>Organism</code>, or <code>null</code> if it is not in any persisted 
+	 * <code>Generation</code>.
+	 * @throws PersistenceException
+	 */
+	public Organism loadOrganism(long id) throws PersistenceException;
+	
+	/**
+	 * Passes each <code>Organism</code> stored with the persisted <code>Generation</code>s numbered
+	 * <code>from</code> to <code>to</code> (inclusive) to the provided <code>OrganismVisitor</code>,
+	 * in generation order. Where possible the <code>Organism</code>s are read one at a time rather 
+	 * than loading a whole <code>Generation</code>. <code>Specie</code> representatives are stored 
+	 * with a <code>Generation</code> and are included.
+	 * 
+	 * @param from the first generation number to visit.
+	 * @param to the last generation number to visit.
+	 * @param visitor the <code>OrganismVisitor</code>, which can stop the iteration by returning
+	 * <code>false</code>.
+	 * @throws PersistenceException
+	 */
+	public void iterateGenerations(long from, long to, OrganismVisitor visitor) throws PersistenceException;
 }
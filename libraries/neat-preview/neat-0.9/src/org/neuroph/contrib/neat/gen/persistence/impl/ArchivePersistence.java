@@ -0,0 +1,817 @@
+package org.neuroph.contrib.neat.gen.persistence.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.neuroph.contrib.neat.gen.FitnessScores;
+import org.neuroph.contrib.neat.gen.Generation;
+import org.neuroph.contrib.neat.gen.Innovations;
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.persistence.OrganismVisitor;
+import org.neuroph.contrib.neat.gen.persistence.Persistence;
+import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
+import org.neuroph.contrib.neat.gen.persistence.impl.binary.BinarySerializationDelegate;
+
+/**
+ * An implementation of the <code>Persistence</code> interface that appends
+ * every generation to a single archive file, encoded with a
+ * <code>BinarySerializationDelegate</code>.
+ *
+ * Each generation adds a <code>Generation</code> record, a
+ * <code>FitnessScores</code> record and either the changes made to the
+ * <code>Innovations</code> since the previous generation or, every
+ * <code>snapshotInterval</code> generations, a full snapshot of them, and
+ * ends with an index record listing where it's records are. Loading any
+ * generation only has to read it's own records plus the innovation changes
+ * since the nearest snapshot.
+ *
+ * When the archive is closed an index of every record is written at the end
+ * of it, so it can be opened without reading anything else. The archive is
+ * memory-mapped for reading a segment at a time, and a segment is only mapped
+ * once the archive has grown past it's end.
+ *
+ * Each generation also adds a record of where each of it's
+ * <code>Organism</code>s is within the <code>Generation</code> record, so a
+ * single <code>Organism</code> can be loaded without decoding anything else.
+ *
+ * If the index is missing (e.g. the archive was not closed) it is rebuilt
+ * from the index record of each generation when the archive is opened, and
+ * any partially written generation is discarded.
+ */
+public class ArchivePersistence implements Persistence {
+	private static Logger s_log = Logger.getLogger(ArchivePersistence.class
+			.getName());
+
+	/**
+	 * The default number of generations between full snapshots of the
+	 * <code>Innovations</code>.
+	 */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+
+	/**
+	 * The first four bytes of the archive, "NARC".
+	 */
+	private static final int ARCHIVE_MAGIC = 0x4E415243;
+
+	/**
+	 * The last four bytes of the archive, "NIDX".
+	 */
+	private static final int INDEX_MAGIC = 0x4E494458;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The size of the archive header: magic and version.
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * The size of the header of each record: length, kind and generation.
+	 */
+	private static final int RECORD_HEADER_SIZE = 13;
+
+	/**
+	 * The size of the trailer: index offset and magic.
+	 */
+	private static final int TRAILER_SIZE = 12;
+
+	/**
+	 * The size of each entry in the index: kind, generation, offset and length.
+	 */
+	private static final int INDEX_ENTRY_SIZE = 21;
+
+	/**
+	 * The size of each memory-mapped segment of the archive.
+	 */
+	private static final int SEGMENT_SIZE = 1 << 24;
+
+	private static final int KIND_GENERATION = 1;
+	private static final int KIND_FITNESS = 2;
+	private static final int KIND_INNOVATIONS = 3;
+	private static final int KIND_INNOVATIONS_SNAPSHOT = 4;
+	private static final int KIND_INDEX = 5;
+	private static final int KIND_ORGANISMS = 6;
+
+	private final File file;
+	private final int snapshotInterval;
+	private final BinarySerializationDelegate delegate;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+
+	/**
+	 * The read-only mappings of each complete segment of the archive, mapped
+	 * the first time they are read.
+	 */
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+	/**
+	 * The offset the next record will be written at, which is where the index
+	 * starts if the archive has one.
+	 */
+	private long dataEnd;
+
+	/**
+	 * Whether the archive ends with an index that has to be removed before
+	 * anything is appended to it.
+	 */
+	private boolean indexed;
+
+	private final TreeMap<Long, Entry> generations = new TreeMap<Long, Entry>();
+	private final TreeMap<Long, Entry> fitness = new TreeMap<Long, Entry>();
+	private final TreeMap<Long, Entry> innovationChanges = new TreeMap<Long, Entry>();
+	private final TreeMap<Long, Entry> innovationSnapshots = new TreeMap<Long, Entry>();
+	private final TreeMap<Long, Entry> organisms = new TreeMap<Long, Entry>();
+
+	/**
+	 * Where every archived <code>Organism</code> is, read from the
+	 * <code>OrganismIndex</code> records the first time it is needed.
+	 */
+	private OrganismIndex organismIndex;
+
+	/**
+	 * The <code>Innovations</code> whose changes are being appended, and the
+	 * number of it's changes that have been written.
+	 */
+	private Innovations trackedInnovations;
+	private int persistedInnovationChanges;
+	private long lastSnapshot = Long.MIN_VALUE;
+
+	/**
+	 * Opens (or creates) the archive at the provided path with compression and
+	 * the <code>DEFAULT_SNAPSHOT_INTERVAL</code>.
+	 */
+	public ArchivePersistence(String path) throws PersistenceException {
+		this(new File(path), DEFAULT_SNAPSHOT_INTERVAL, true);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            the archive file, created if it does not exist.
+	 * @param snapshotInterval
+	 *            the number of generations between full snapshots of the
+	 *            <code>Innovations</code>.
+	 * @param useCompression
+	 *            <code>true</code> if the records should be compressed.
+	 * @throws PersistenceException
+	 *             if the archive cannot be opened or is not valid.
+	 */
+	public ArchivePersistence(File file, int snapshotInterval,
+			boolean useCompression) throws PersistenceException {
+		this(file, snapshotInterval, useCompression, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            the archive file, created if it does not exist.
+	 * @param snapshotInterval
+	 *            the number of generations between full snapshots of the
+	 *            <code>Innovations</code>.
+	 * @param useCompression
+	 *            <code>true</code> if the records should be compressed.
+	 * @param params
+	 *            the <code>NeatParameters</code> that loaded
+	 *            <code>Specie</code> are restored with, may be
+	 *            <code>null</code>.
+	 * @throws PersistenceException
+	 *             if the archive cannot be opened or is not valid.
+	 */
+	public ArchivePersistence(File file, int snapshotInterval,
+			boolean useCompression, NeatParameters params)
+			throws PersistenceException {
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null.");
+		}
+
+		if (snapshotInterval < 1) {
+			throw new IllegalArgumentException(
+					"Snapshot interval must be at least 1.");
+		}
+
+		this.file = file;
+		this.snapshotInterval = snapshotInterval;
+		this.delegate = new BinarySerializationDelegate(useCompression,
+				params);
+
+		open();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public synchronized void addGeneration(Innovations i, Generation g,
+			FitnessScores scores) throws PersistenceException {
+		long generation = g.getGenerationNumber();
+
+		if (!generations.isEmpty() && generation <= generations.lastKey()) {
+			throw new PersistenceException("Generation " + generation
+					+ " is not after the last archived generation "
+					+ generations.lastKey() + ".");
+		}
+
+		long previousSnapshot = lastSnapshot;
+
+		// an Innovations we haven't seen before may have nothing in common
+		// with what is archived, so it always starts with a snapshot.
+		boolean snapshot = i != trackedInnovations
+				|| generation - lastSnapshot >= snapshotInterval;
+
+		// the changes are copied out so that the count matches exactly what
+		// is written, even if more are being made at the same time.
+		Innovations changes = i.getChangesSince(snapshot ? 0
+				: persistedInnovationChanges);
+
+		OrganismIndex stored = new OrganismIndex(g.getOrganisms().size());
+		ByteBuffer generationRecord = delegate.encodeGeneration(g, stored);
+
+		try {
+			// the index is rewritten when the archive is closed, until then
+			// the archive must end with the last generation.
+			if (indexed) {
+				channel.truncate(dataEnd);
+				indexed = false;
+			}
+
+			long position = dataEnd;
+
+			if (snapshot) {
+				position = append(position, KIND_INNOVATIONS_SNAPSHOT,
+						generation, delegate.encodeInnovations(changes));
+				lastSnapshot = generation;
+			} else {
+				position = append(position, KIND_INNOVATIONS, generation,
+						delegate.encodeInnovations(changes));
+			}
+
+			position = append(position, KIND_FITNESS, generation, delegate
+					.encodeFitnessScores(scores));
+			position = append(position, KIND_ORGANISMS, generation, delegate
+					.encodeOrganismIndex(stored));
+			position = append(position, KIND_GENERATION, generation,
+					generationRecord);
+
+			dataEnd = writeIndex(position, generation);
+		} catch (IOException e) {
+			// forget the records that were written, the next generation will
+			// overwrite them.
+			generations.remove(generation);
+			fitness.remove(generation);
+			innovationChanges.remove(generation);
+			innovationSnapshots.remove(generation);
+			organisms.remove(generation);
+			lastSnapshot = previousSnapshot;
+
+			throw new PersistenceException("Could not write generation "
+					+ generation + " to " + file.getAbsolutePath() + ".", e);
+		}
+
+		if (snapshot) {
+			trackedInnovations = i;
+			persistedInnovationChanges = changes.getChangeCount();
+		} else {
+			persistedInnovationChanges += changes.getChangeCount();
+		}
+
+		if (organismIndex != null) {
+			organismIndex.addAll(stored);
+		}
+	}
+
+	public synchronized long getGenerationCount() {
+		return generations.size();
+	}
+
+	public synchronized Innovations loadInnovations() throws PersistenceException {
+		if (generations.isEmpty()) {
+			return null;
+		}
+
+		Innovations innovations = loadInnovations(generations.lastKey());
+
+		// the evolution carries on from these, so only their changes need to
+		// be archived from now on.
+		trackedInnovations = innovations;
+		persistedInnovationChanges = innovations.getChangeCount();
+
+		return innovations;
+	}
+
+	public synchronized Innovations loadInnovations(long generation)
+			throws PersistenceException {
+		Map.Entry<Long, Entry> snapshot = innovationSnapshots
+				.floorEntry(generation);
+
+		if (snapshot == null) {
+			return null;
+		}
+
+		Innovations innovations = delegate.decodeInnovations(read(snapshot
+				.getValue()));
+
+		for (Entry e : innovationChanges.subMap(snapshot.getKey(), false,
+				generation, true).values()) {
+			Innovations.append(innovations, delegate
+					.decodeInnovations(read(e)));
+		}
+
+		return innovations;
+	}
+
+	public synchronized Generation loadGeneration(Innovations innovations)
+			throws PersistenceException {
+		if (generations.isEmpty()) {
+			return null;
+		}
+
+		return loadGeneration(generations.lastKey(), innovations);
+	}
+
+	public synchronized Generation loadGeneration(long generation,
+			Innovations innovations) throws PersistenceException {
+		Entry e = generations.get(generation);
+
+		if (e == null) {
+			throw new PersistenceException("Cannot find Generation "
+					+ generation + " in " + file.getAbsolutePath() + ".");
+		}
+
+		return delegate.decodeGeneration(read(e));
+	}
+
+	public synchronized FitnessScores loadFitnessScores()
+			throws PersistenceException {
+		if (fitness.isEmpty()) {
+			return null;
+		}
+
+		return loadFitnessScores(fitness.lastKey());
+	}
+
+	public synchronized FitnessScores loadFitnessScores(long generation)
+			throws PersistenceException {
+		// every record holds all of the scores being kept at that point, so
+		// there's nothing to replay.
+		Map.Entry<Long, Entry> e = fitness.floorEntry(generation);
+
+		if (e == null) {
+			return null;
+		}
+
+		return delegate.decodeFitnessScores(read(e.getValue()));
+	}
+
+	public synchronized Organism loadOrganism(long id)
+			throws PersistenceException {
+		if (organismIndex == null) {
+			organismIndex = loadOrganismIndex();
+		}
+
+		int index = organismIndex.indexOf(id);
+
+		if (index < 0) {
+			return null;
+		}
+
+		Entry e = generations.get(organismIndex.getGenerationAt(index));
+		return delegate.decodeOrganism(read(e), id, organismIndex
+				.getOffsetAt(index));
+	}
+
+	public synchronized void iterateGenerations(long from, long to,
+			OrganismVisitor visitor) throws PersistenceException {
+		if (from > to) {
+			return;
+		}
+
+		for (Entry e : generations.subMap(from, true, to, true).values()) {
+			if (!delegate.visitOrganisms(read(e), visitor)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the index of every record to the end of the archive and closes
+	 * it. It cannot be used once it is closed.
+	 */
+	public synchronized void close() throws PersistenceException {
+		segments.clear();
+
+		try {
+			if (!indexed) {
+				channel.truncate(writeIndex(dataEnd, -1) + TRAILER_SIZE);
+				indexed = true;
+			}
+
+			raf.close();
+		} catch (IOException e) {
+			throw new PersistenceException("Could not close "
+					+ file.getAbsolutePath() + ".", e);
+		}
+	}
+
+	/**
+	 * Reads the <code>OrganismIndex</code> records of every archived
+	 * generation, in order, so each <code>Organism</code> maps to the first
+	 * generation it was archived with.
+	 */
+	private OrganismIndex loadOrganismIndex() throws PersistenceException {
+		OrganismIndex index = new OrganismIndex();
+
+		for (Map.Entry<Long, Entry> e : generations.entrySet()) {
+			Entry stored = organisms.get(e.getKey());
+
+			// generations archived before the organisms were indexed have to
+			// be scanned instead.
+			if (stored == null) {
+				delegate.indexGeneration(read(e.getValue()), index);
+			} else {
+				index.addAll(delegate.decodeOrganismIndex(read(stored)));
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * Opens the archive, reading it's index or rebuilding it if it's missing.
+	 */
+	private void open() throws PersistenceException {
+		try {
+			raf = new RandomAccessFile(file, "rw");
+			channel = raf.getChannel();
+
+			if (channel.size() == 0) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+						ByteOrder.LITTLE_ENDIAN);
+				header.putInt(ARCHIVE_MAGIC);
+				header.putInt(VERSION);
+				header.flip();
+
+				write(0, header);
+				dataEnd = HEADER_SIZE;
+				return;
+			}
+
+			ByteBuffer header = readAt(0, HEADER_SIZE);
+			if (header.getInt() != ARCHIVE_MAGIC) {
+				throw new PersistenceException(file.getAbsolutePath()
+						+ " is not a NEAT archive.");
+			}
+
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new PersistenceException("Unsupported archive version "
+						+ version + ", expected " + VERSION + ".");
+			}
+
+			if (!readIndex()) {
+				s_log.info(file.getAbsolutePath()
+						+ " was not closed, rebuilding it's index.");
+				rebuildIndex();
+			}
+
+			if (!innovationSnapshots.isEmpty()) {
+				lastSnapshot = innovationSnapshots.lastKey();
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Could not open "
+					+ file.getAbsolutePath() + ".", e);
+		}
+	}
+
+	/**
+	 * Reads the index from the end of the archive, returning
+	 * <code>false</code> if it is not there.
+	 */
+	private boolean readIndex() throws IOException {
+		long size = channel.size();
+
+		if (size < HEADER_SIZE + RECORD_HEADER_SIZE + TRAILER_SIZE) {
+			return false;
+		}
+
+		ByteBuffer trailer = readAt(size - TRAILER_SIZE, TRAILER_SIZE);
+		long indexOffset = trailer.getLong();
+
+		if (trailer.getInt() != INDEX_MAGIC || indexOffset < HEADER_SIZE
+				|| indexOffset > size - TRAILER_SIZE - RECORD_HEADER_SIZE) {
+			return false;
+		}
+
+		ByteBuffer header = readAt(indexOffset, RECORD_HEADER_SIZE);
+		int length = header.getInt();
+		int kind = header.get();
+
+		if (kind != KIND_INDEX
+				|| indexOffset + RECORD_HEADER_SIZE + length != size
+						- TRAILER_SIZE || length % INDEX_ENTRY_SIZE != 0) {
+			return false;
+		}
+
+		if (!readEntries(readAt(indexOffset + RECORD_HEADER_SIZE, length),
+				indexOffset)) {
+			clearIndex();
+			return false;
+		}
+
+		dataEnd = indexOffset;
+		indexed = true;
+		return true;
+	}
+
+	/**
+	 * Adds the entries of an index record to the index, returning
+	 * <code>false</code> if any of them are not before <code>end</code>.
+	 */
+	private boolean readEntries(ByteBuffer index, long end) {
+		while (index.hasRemaining()) {
+			int kind = index.get();
+			long generation = index.getLong();
+			long offset = index.getLong();
+			int length = index.getInt();
+
+			if (kind < KIND_GENERATION || kind == KIND_INDEX
+					|| kind > KIND_ORGANISMS || offset < HEADER_SIZE
+					|| offset + length > end) {
+				return false;
+			}
+
+			addEntry(kind, generation, new Entry(offset, length));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Scans the records from the start of the archive, adding the entries of
+	 * each generation's index record and stopping at the first record that is
+	 * incomplete. A generation is only kept if it's index record was written,
+	 * anything after the last one is discarded.
+	 */
+	private void rebuildIndex() throws IOException {
+		clearIndex();
+
+		long size = channel.size();
+		long position = HEADER_SIZE;
+		long generationEnd = HEADER_SIZE;
+
+		while (position + RECORD_HEADER_SIZE <= size) {
+			ByteBuffer header = readAt(position, RECORD_HEADER_SIZE);
+			int length = header.getInt();
+			int kind = header.get();
+			long generation = header.getLong();
+
+			if (length < 0 || kind < KIND_GENERATION || kind > KIND_ORGANISMS
+					|| position + RECORD_HEADER_SIZE + length > size) {
+				break;
+			}
+
+			// the index of the whole archive is only ever at the end of it.
+			if (kind == KIND_INDEX && generation < 0) {
+				break;
+			}
+
+			if (kind == KIND_INDEX) {
+				if (length % INDEX_ENTRY_SIZE != 0
+						|| !readEntries(readAt(position + RECORD_HEADER_SIZE,
+								length), position)) {
+					break;
+				}
+
+				generationEnd = position + RECORD_HEADER_SIZE + length;
+			}
+
+			position += RECORD_HEADER_SIZE + length;
+		}
+
+		channel.truncate(generationEnd);
+		dataEnd = generationEnd;
+	}
+
+	private void clearIndex() {
+		generations.clear();
+		fitness.clear();
+		innovationChanges.clear();
+		innovationSnapshots.clear();
+		organisms.clear();
+		organismIndex = null;
+	}
+
+	private void addEntry(int kind, long generation, Entry e) {
+		switch (kind) {
+		case KIND_GENERATION:
+			generations.put(generation, e);
+			break;
+		case KIND_FITNESS:
+			fitness.put(generation, e);
+			break;
+		case KIND_INNOVATIONS:
+			innovationChanges.put(generation, e);
+			break;
+		case KIND_INNOVATIONS_SNAPSHOT:
+			innovationSnapshots.put(generation, e);
+			break;
+		case KIND_ORGANISMS:
+			organisms.put(generation, e);
+			break;
+		default:
+			throw new IllegalStateException("Unknown record kind " + kind
+					+ ".");
+		}
+	}
+
+	/**
+	 * Writes a record at the provided position and adds it to the index.
+	 *
+	 * @return the position after the record.
+	 */
+	private long append(long position, int kind, long generation,
+			ByteBuffer payload) throws IOException {
+		int length = payload.remaining();
+
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(
+				ByteOrder.LITTLE_ENDIAN);
+		header.putInt(length);
+		header.put((byte) kind);
+		header.putLong(generation);
+		header.flip();
+
+		write(position, header);
+		write(position + RECORD_HEADER_SIZE, payload);
+
+		addEntry(kind, generation, new Entry(position + RECORD_HEADER_SIZE,
+				length));
+
+		return position + RECORD_HEADER_SIZE + length;
+	}
+
+	/**
+	 * Writes an index record at the provided position. If
+	 * <code>generation</code> is <code>-1</code> it lists every record and is
+	 * followed by the trailer, otherwise it lists the records of the provided
+	 * generation.
+	 *
+	 * @return the position after the index record.
+	 */
+	private long writeIndex(long position, long generation) throws IOException {
+		boolean all = generation < 0;
+		Long key = Long.valueOf(generation);
+
+		List<Integer> kinds = new ArrayList<Integer>();
+		List<TreeMap<Long, Entry>> entries = new ArrayList<TreeMap<Long, Entry>>();
+		kinds.add(KIND_INNOVATIONS_SNAPSHOT);
+		entries.add(innovationSnapshots);
+		kinds.add(KIND_INNOVATIONS);
+		entries.add(innovationChanges);
+		kinds.add(KIND_FITNESS);
+		entries.add(fitness);
+		kinds.add(KIND_ORGANISMS);
+		entries.add(organisms);
+		kinds.add(KIND_GENERATION);
+		entries.add(generations);
+
+		int count = 0;
+		for (TreeMap<Long, Entry> e : entries) {
+			count += all ? e.size() : (e.containsKey(key) ? 1 : 0);
+		}
+
+		int length = count * INDEX_ENTRY_SIZE;
+
+		ByteBuffer index = ByteBuffer.allocate(
+				RECORD_HEADER_SIZE + length + (all ? TRAILER_SIZE : 0)).order(
+				ByteOrder.LITTLE_ENDIAN);
+		index.putInt(length);
+		index.put((byte) KIND_INDEX);
+		index.putLong(generation);
+
+		for (int i = 0; i < kinds.size(); i++) {
+			TreeMap<Long, Entry> e = entries.get(i);
+
+			if (all) {
+				putEntries(index, kinds.get(i), e);
+			} else if (e.containsKey(key)) {
+				putEntry(index, kinds.get(i), generation, e.get(key));
+			}
+		}
+
+		if (all) {
+			index.putLong(position);
+			index.putInt(INDEX_MAGIC);
+		}
+		index.flip();
+
+		write(position, index);
+
+		return position + RECORD_HEADER_SIZE + length;
+	}
+
+	private static void putEntries(ByteBuffer index, int kind,
+			TreeMap<Long, Entry> entries) {
+		for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+			putEntry(index, kind, e.getKey(), e.getValue());
+		}
+	}
+
+	private static void putEntry(ByteBuffer index, int kind, long generation,
+			Entry e) {
+		index.put((byte) kind);
+		index.putLong(generation);
+		index.putLong(e.offset);
+		index.putInt(e.length);
+	}
+
+	/**
+	 * Returns the payload of the provided record, read from the mapped
+	 * archive.
+	 */
+	private ByteBuffer read(Entry e) throws PersistenceException {
+		int segment = (int) (e.offset / SEGMENT_SIZE);
+		long segmentStart = (long) segment * SEGMENT_SIZE;
+		long segmentEnd = segmentStart + SEGMENT_SIZE;
+
+		try {
+			// a record that crosses into the next segment, or is in the
+			// segment still being appended to, is read directly rather than
+			// mapping it again every time the archive grows.
+			if (e.offset + e.length > segmentEnd || segmentEnd > dataEnd) {
+				return readAt(e.offset, e.length);
+			}
+
+			while (segments.size() <= segment) {
+				segments.add(null);
+			}
+
+			MappedByteBuffer mapped = segments.get(segment);
+			if (mapped == null) {
+				mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+						segmentStart, SEGMENT_SIZE);
+				segments.set(segment, mapped);
+			}
+
+			int start = (int) (e.offset - segmentStart);
+			ByteBuffer buffer = mapped.duplicate();
+			buffer.limit(start + e.length);
+			buffer.position(start);
+
+			return buffer.slice();
+		} catch (IOException ex) {
+			throw new PersistenceException("Could not read "
+					+ file.getAbsolutePath() + ".", ex);
+		}
+	}
+
+	private void write(long position, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private ByteBuffer readAt(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(
+				ByteOrder.LITTLE_ENDIAN);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file "
+						+ file.getAbsolutePath() + ".");
+			}
+		}
+		buffer.flip();
+
+		return buffer;
+	}
+
+	/**
+	 * The location of a record's payload in the archive.
+	 */
+	private static final class Entry {
+		private final long offset;
+		private final int length;
+
+		public Entry(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,406 @@
+package org.neuroph.contrib.neat.gen.persistence.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.neuroph.contrib.neat.gen.FitnessScores;
+import org.neuroph.contrib.neat.gen.Generation;
+import org.neuroph.contrib.neat.gen.Innovations;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.persistence.BufferedPersistence;
+import org.neuroph.contrib.neat.gen.persistence.OrganismVisitor;
+import org.neuroph.contrib.neat.gen.persistence.Persistence;
+import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
+
+/**
+ * An implementation of the <code>Persistence</code> interface that passes
+ * each <code>Generation</code> on to another <code>Persistence</code> from a
+ * background thread, so that the next generation can be evaluated while the
+ * previous one is being written.
+ *
+ * A <code>Generation</code> is a frozen snapshot, so it is handed over as it
+ * is. The <code>FitnessScores</code> keep changing, so they are copied when
+ * the <code>Generation</code> is added. The <code>Innovations</code> keep
+ * changing too, and the next generation's innovations must not be written
+ * with this one, so only their change count is recorded when the
+ * <code>Generation</code> is added. The writer thread keeps it's own copy of
+ * the <code>Innovations</code>, brings it up to that count and passes the
+ * copy to the delegate.
+ *
+ * At most <code>queueSize</code> generations wait to be written, once the
+ * queue is full <code>addGeneration</code> blocks until the writer catches up.
+ * Only every <code>checkpointInterval</code>th generation is written, along
+ * with the last generation added before <code>flush</code> is called. If a
+ * write fails nothing more is written, and the failure is thrown from the
+ * next call made to this <code>Persistence</code>.
+ */
+public class AsyncPersistence implements BufferedPersistence {
+	private static Logger s_log = Logger.getLogger(AsyncPersistence.class
+			.getName());
+
+	/**
+	 * The default number of generations that can wait to be written.
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 2;
+
+	/**
+	 * The <code>Persistence</code> that performs the writing.
+	 */
+	private final Persistence delegate;
+
+	private final int checkpointInterval;
+
+	/**
+	 * The generations waiting to be written.
+	 */
+	private final BlockingQueue<Checkpoint> queue;
+
+	/**
+	 * Guards <code>pending</code> and <code>failure</code>, and is notified
+	 * whenever a write finishes.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The number of generations that are queued or being written.
+	 */
+	private int pending;
+
+	/**
+	 * The reason the last write failed, once set nothing more is written.
+	 */
+	private Throwable failure;
+
+	/**
+	 * The last generation added that was not due to be written, written by
+	 * <code>flush</code> if no later one is.
+	 */
+	private Checkpoint held;
+
+	private Thread writer;
+
+	/**
+	 * Constructor, writes every generation with the
+	 * <code>DEFAULT_QUEUE_SIZE</code>.
+	 *
+	 * @param delegate
+	 *            the <code>Persistence</code> that performs the writing.
+	 */
+	public AsyncPersistence(Persistence delegate) {
+		this(delegate, DEFAULT_QUEUE_SIZE, 1);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param delegate
+	 *            the <code>Persistence</code> that performs the writing.
+	 * @param queueSize
+	 *            the number of generations that can wait to be written before
+	 *            <code>addGeneration</code> blocks.
+	 * @param checkpointInterval
+	 *            only generations whose number is a multiple of this are
+	 *            written, plus the last one before a <code>flush</code>.
+	 */
+	public AsyncPersistence(Persistence delegate, int queueSize,
+			int checkpointInterval) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("Persistence cannot be null.");
+		}
+
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("Invalid queue size "
+					+ queueSize + ".");
+		}
+
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("Invalid checkpoint interval "
+					+ checkpointInterval + ".");
+		}
+
+		this.delegate = delegate;
+		this.checkpointInterval = checkpointInterval;
+		this.queue = new ArrayBlockingQueue<Checkpoint>(queueSize);
+	}
+
+	public Persistence getDelegate() {
+		return delegate;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public synchronized void addGeneration(Innovations i, Generation g,
+			FitnessScores fitness) throws PersistenceException {
+		checkFailure();
+
+		Checkpoint checkpoint = new Checkpoint(i, i.getChangeCount(), g,
+				fitness.copy());
+
+		if (g.getGenerationNumber() % checkpointInterval != 0) {
+			held = checkpoint;
+			return;
+		}
+
+		held = null;
+		enqueue(checkpoint);
+	}
+
+	public synchronized void flush() throws PersistenceException {
+		checkFailure();
+
+		if (held != null) {
+			Checkpoint checkpoint = held;
+			held = null;
+			enqueue(checkpoint);
+		}
+
+		awaitWritten();
+	}
+
+	/**
+	 * Flushes any generations that have not been written and stops the
+	 * writer thread. The delegate <code>Persistence</code> is not closed.
+	 *
+	 * @throws PersistenceException
+	 *             if any of the generations could not be written.
+	 */
+	public synchronized void close() throws PersistenceException {
+		try {
+			flush();
+		} finally {
+			if (writer != null) {
+				writer.interrupt();
+				writer = null;
+			}
+		}
+	}
+
+	// the loads only see the generations that have been written, so they wait
+	// for the queue to empty first.
+
+	public synchronized long getGenerationCount() {
+		try {
+			awaitWrites();
+		} catch (PersistenceException e) {
+			// interrupted, so count what has been written so far.
+		}
+
+		return delegate.getGenerationCount();
+	}
+
+	public synchronized Innovations loadInnovations()
+			throws PersistenceException {
+		awaitWritten();
+		return delegate.loadInnovations();
+	}
+
+	public synchronized Innovations loadInnovations(long generation)
+			throws PersistenceException {
+		awaitWritten();
+		return delegate.loadInnovations(generation);
+	}
+
+	public synchronized Generation loadGeneration(Innovations innovations)
+			throws PersistenceException {
+		awaitWritten();
+		return delegate.loadGeneration(innovations);
+	}
+
+	public synchronized Generation loadGeneration(long generation,
+			Innovations innovations) throws PersistenceException {
+		awaitWritten();
+		return delegate.loadGeneration(generation, innovations);
+	}
+
+	public synchronized FitnessScores loadFitnessScores()
+			throws PersistenceException {
+		awaitWritten();
+		return delegate.loadFitnessScores();
+	}
+
+	public synchronized FitnessScores loadFitnessScores(long generation)
+			throws PersistenceException {
+		awaitWritten();
+		return delegate.loadFitnessScores(generation);
+	}
+
+	public synchronized Organism loadOrganism(long id)
+			throws PersistenceException {
+		awaitWritten();
+		return delegate.loadOrganism(id);
+	}
+
+	public synchronized void iterateGenerations(long from, long to,
+			OrganismVisitor visitor) throws PersistenceException {
+		awaitWritten();
+		delegate.iterateGenerations(from, to, visitor);
+	}
+
+	/**
+	 * Queues the provided generation to be written, blocking while the queue
+	 * is full.
+	 */
+	private void enqueue(Checkpoint checkpoint) throws PersistenceException {
+		synchronized (lock) {
+			pending++;
+		}
+
+		if (writer == null) {
+			writer = new Thread(new Writer(), "neat-persistence-writer");
+			writer.setDaemon(true);
+			writer.start();
+		}
+
+		try {
+			queue.put(checkpoint);
+		} catch (InterruptedException e) {
+			finished();
+			Thread.currentThread().interrupt();
+
+			throw new PersistenceException("Interrupted while queueing generation "
+					+ checkpoint.generation.getGenerationNumber() + ".", e);
+		}
+	}
+
+	/**
+	 * Waits for every queued generation to be written, then throws the
+	 * failure if any of them could not be.
+	 */
+	private void awaitWritten() throws PersistenceException {
+		awaitWrites();
+		checkFailure();
+	}
+
+	private void awaitWrites() throws PersistenceException {
+		synchronized (lock) {
+			while (pending > 0) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+
+					throw new PersistenceException(
+							"Interrupted while waiting for generations to be written.",
+							e);
+				}
+			}
+		}
+	}
+
+	private void checkFailure() throws PersistenceException {
+		synchronized (lock) {
+			if (failure != null) {
+				throw new PersistenceException("A previous generation could not be written.",
+						failure);
+			}
+		}
+	}
+
+	/**
+	 * Called once a queued generation has been written, or discarded.
+	 */
+	private void finished() {
+		synchronized (lock) {
+			pending--;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * A generation waiting to be written.
+	 */
+	private static final class Checkpoint {
+		private final Innovations innovations;
+
+		/**
+		 * The number of changes made to the <code>innovations</code> when the
+		 * generation was added, later ones belong to the next generation.
+		 */
+		private final int innovationChanges;
+
+		private final Generation generation;
+		private final FitnessScores fitness;
+
+		public Checkpoint(Innovations innovations, int innovationChanges,
+				Generation generation, FitnessScores fitness) {
+			this.innovations = innovations;
+			this.innovationChanges = innovationChanges;
+			this.generation = generation;
+			this.fitness = fitness;
+		}
+	}
+
+	/**
+	 * Writes the queued generations in the order they were added.
+	 */
+	private final class Writer implements Runnable {
+		/**
+		 * The <code>Innovations</code> being added to, and the writer's copy
+		 * of it which is only ever as far as the last generation written.
+		 */
+		private Innovations source;
+		private Innovations written;
+
+		public void run() {
+			while (true) {
+				Checkpoint checkpoint;
+
+				try {
+					checkpoint = queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				try {
+					if (!hasFailed()) {
+						delegate.addGeneration(copyInnovations(checkpoint),
+								checkpoint.generation, checkpoint.fitness);
+					}
+				} catch (PersistenceException e) {
+					fail(checkpoint, e);
+				} catch (RuntimeException e) {
+					fail(checkpoint, e);
+				} finally {
+					finished();
+				}
+			}
+		}
+
+		/**
+		 * Brings the writer's copy of the <code>Innovations</code> up to the
+		 * changes that had been made when the provided generation was added.
+		 */
+		private Innovations copyInnovations(Checkpoint checkpoint) {
+			if (checkpoint.innovations != source) {
+				source = checkpoint.innovations;
+				written = new Innovations();
+			}
+
+			Innovations.append(written, source.getChangesBetween(written
+					.getChangeCount(), checkpoint.innovationChanges));
+
+			return written;
+		}
+
+		private boolean hasFailed() {
+			synchronized (lock) {
+				return failure != null;
+			}
+		}
+
+		private void fail(Checkpoint checkpoint, Throwable t) {
+			if (s_log.isLoggable(Level.SEVERE)) {
+				s_log.log(Level.SEVERE, "Could not write generation "
+						+ checkpoint.generation.getGenerationNumber() + ".", t);
+			}
+
+			synchronized (lock) {
+				failure = t;
+			}
+		}
+	}
+}
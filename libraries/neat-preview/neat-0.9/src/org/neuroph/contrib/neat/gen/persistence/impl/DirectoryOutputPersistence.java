@@ -1,15 +1,32 @@
 package org.neuroph.contrib.neat.gen.persistence.impl;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.neuroph.contrib.neat.gen.FitnessScores;
 import org.neuroph.contrib.neat.gen.Generation;
 import org.neuroph.contrib.neat.gen.Innovations;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.Specie;
+import org.neuroph.contrib.neat.gen.persistence.OrganismVisitor;
 import org.neuroph.contrib.neat.gen.persistence.Persistence;
 import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
+import org.neuroph.contrib.neat.gen.persistence.impl.binary.BinarySerializationDelegate;
 
 /**
  * An implementation of the <code>Persistence</code> interface that will only
@@ -20,9 +37,16 @@ import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
  * <code>SerializationDelegate</code> to perform, this class is just responsible
  * for managing the saving and loading of the deltas.
  * 
+ * The generation each <code>Organism</code> was first saved with is recorded
+ * in an index file, so that a single <code>Organism</code> can be loaded
+ * without reading every generation.
+ * 
  * @author Aidan Morgan
  */
 public class DirectoryOutputPersistence implements Persistence {
+	private static Logger s_log = Logger
+			.getLogger(DirectoryOutputPersistence.class.getName());
+
 	/**
 	 * The prefix for files that store generations.
 	 */
@@ -38,6 +62,12 @@ public class DirectoryOutputPersistence implements Persistence {
 	 */
 	public static final String FITNESS_PREFIX = "fitness-";
 
+	/**
+	 * The file that records which generation each <code>Organism</code> was
+	 * first saved with.
+	 */
+	public static final String ORGANISM_INDEX_FILE = "organisms.idx";
+
 	/**
 	 * The default directory for storing files in.
 	 */
@@ -54,6 +84,12 @@ public class DirectoryOutputPersistence implements Persistence {
 	 */
 	private Innovations persistedInnovations;
 
+	/**
+	 * The number of changes to the <code>Innovations</code> that have already
+	 * been written to disk.
+	 */
+	private int persistedInnovationChanges;
+
 	/**
 	 * The <code>FitnessScores</code> that was last persisted (i.e. the last
 	 * <code>FitnessScores</code> that was written to disk.
@@ -66,6 +102,13 @@ public class DirectoryOutputPersistence implements Persistence {
 	 */
 	private SerializationDelegate delegate;
 
+	/**
+	 * Which generation each saved <code>Organism</code> was first saved with,
+	 * read from the <code>ORGANISM_INDEX_FILE</code> the first time it's
+	 * needed.
+	 */
+	private OrganismIndex organismIndex;
+
 	/**
 	 * Constructor.
 	 * 
@@ -121,6 +164,12 @@ public class DirectoryOutputPersistence implements Persistence {
 
 	public void addGeneration(Innovations i, Generation g, FitnessScores fitness)
 			throws PersistenceException {
+		// load the index before the generation is saved, otherwise it would be
+		// treated as a generation that is missing from the index.
+		if (organismIndex == null) {
+			organismIndex = loadOrganismIndex();
+		}
+
 		// if we have existing entries, then calculate the delta and only store
 		// that.
 		FitnessScores scores = fitness;
@@ -130,21 +179,20 @@ public class DirectoryOutputPersistence implements Persistence {
 		}
 		saveFitnessScores(g.getGenerationNumber(), scores);
 
-		// if we have existing entries, then calculate the delta and only store
-		// that.
-		Innovations innovations = i;
-		if (persistedInnovations != null) {
-			innovations = Innovations.calculateAdded(persistedInnovations, i);
-		}
+		// only store the changes made since the last generation was saved.
+		Innovations innovations = i.getChangesSince(persistedInnovationChanges);
 		saveInnovations(g.getGenerationNumber(), innovations);
+		persistedInnovationChanges += innovations.getChangeCount();
 
 		// a generation has no concept of a delta, they are all unique, so just
 		// save.
 		saveGeneration(g.getGenerationNumber(), g);
+
+		indexGeneration(g);
 	}
 
 	public FitnessScores loadFitnessScores() throws PersistenceException {
-		return loadFitnessScores(getGenerationCount());
+		return loadFitnessScores(getLastGeneration());
 	}
 	
 	public FitnessScores loadFitnessScores(long generation) throws PersistenceException {
@@ -159,11 +207,11 @@ public class DirectoryOutputPersistence implements Persistence {
 			return scores;
 		}
 
-		for(int i = 1; i <= generation; i++) {
-			File f = new File(baseDirectory, FITNESS_PREFIX + i + delegate.getFileExtension());
-			
-			if(!f.exists()) {
-				throw new IllegalArgumentException("Cannot load fitness from file " + f.getAbsolutePath() + ".");
+		// generations that were not checkpointed have no file, so replay the
+		// ones that exist.
+		for(File f : files) {
+			if(getGenerationNumber(f, FITNESS_PREFIX) > generation) {
+				break;
 			}
 			
 			FitnessScores score = (FitnessScores) delegate.readFitnessScores(f);
@@ -182,7 +230,7 @@ public class DirectoryOutputPersistence implements Persistence {
 	}
 
 	public Innovations loadInnovations() throws PersistenceException {
-		return loadInnovations(getGenerationCount());
+		return loadInnovations(getLastGeneration());
 	}
 	
 	public Innovations loadInnovations(long generation) throws PersistenceException {
@@ -197,11 +245,9 @@ public class DirectoryOutputPersistence implements Persistence {
 			return scores;
 		}
 
-		for(int i = 1; i <= generation; i++) {
-			File f = new File(baseDirectory, INNOVATION_PREFIX + i + delegate.getFileExtension());
-			
-			if(!f.exists()) {
-				throw new IllegalArgumentException("Cannot load innovations from file " + f.getAbsolutePath() + ".");
+		for(File f : files) {
+			if(getGenerationNumber(f, INNOVATION_PREFIX) > generation) {
+				break;
 			}
 			
 			Innovations read = (Innovations) delegate.readInnovations(f);
@@ -214,12 +260,13 @@ public class DirectoryOutputPersistence implements Persistence {
 		}
 
 		persistedInnovations = scores;
+		persistedInnovationChanges = scores.getChangeCount();
 
 		return scores;
 	}
 
 	public Generation loadGeneration(Innovations innovations) throws PersistenceException {
-		return loadGeneration(getGenerationCount(), innovations);
+		return loadGeneration(getLastGeneration(), innovations);
 	}
 	
 
@@ -249,6 +296,233 @@ public class DirectoryOutputPersistence implements Persistence {
 		return (Generation) delegate.readGeneration(generation, innovations);
 	}	
 
+	public Organism loadOrganism(final long id) throws PersistenceException {
+		if (organismIndex == null) {
+			organismIndex = loadOrganismIndex();
+		}
+
+		int index = organismIndex.indexOf(id);
+
+		if (index < 0) {
+			return null;
+		}
+
+		final Organism[] found = new Organism[1];
+		File f = getFileForGeneration(organismIndex.getGenerationAt(index));
+
+		visitGeneration(f, new OrganismVisitor() {
+			public boolean visit(long generation, Organism o) {
+				if (o.getInnovationId() == id) {
+					found[0] = o;
+					return false;
+				}
+
+				return true;
+			}
+		});
+
+		return found[0];
+	}
+
+	public void iterateGenerations(long from, long to, OrganismVisitor visitor)
+			throws PersistenceException {
+		for (File f : getFilesForType(GENERATION_PREFIX)) {
+			long generation = getGenerationNumber(f, GENERATION_PREFIX);
+
+			if (generation < from) {
+				continue;
+			}
+
+			if (generation > to || !visitGeneration(f, visitor)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Passes the <code>Organism</code>s in the provided
+	 * <code>Generation</code> file to the visitor, reading them one at a time
+	 * if the <code>SerializationDelegate</code> can.
+	 *
+	 * @return <code>false</code> if the visitor stopped the iteration.
+	 */
+	private boolean visitGeneration(File f, OrganismVisitor visitor)
+			throws PersistenceException {
+		if (delegate instanceof BinarySerializationDelegate) {
+			return ((BinarySerializationDelegate) delegate).visitOrganisms(f,
+					visitor);
+		}
+
+		Generation g = delegate.readGeneration(f, null);
+		return visitOrganisms(g, visitor);
+	}
+
+	/**
+	 * Passes each <code>Organism</code> in the provided
+	 * <code>Generation</code> to the visitor once, the members of each
+	 * <code>Specie</code> then any representatives that are not members.
+	 */
+	private static boolean visitOrganisms(Generation g, OrganismVisitor visitor) {
+		Map<Organism, Boolean> visited = new IdentityHashMap<Organism, Boolean>();
+
+		for (Specie s : g.getSpecies()) {
+			for (Organism o : s.getOrganisms()) {
+				if (visited.put(o, Boolean.TRUE) == null
+						&& !visitor.visit(g.getGenerationNumber(), o)) {
+					return false;
+				}
+			}
+		}
+
+		for (Specie s : g.getSpecies()) {
+			Organism o = s.getRepresentativeOrganism();
+
+			if (o != null && visited.put(o, Boolean.TRUE) == null
+					&& !visitor.visit(g.getGenerationNumber(), o)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Records the <code>Organism</code>s in the provided
+	 * <code>Generation</code> that have not been saved before.
+	 */
+	private void indexGeneration(Generation g) throws PersistenceException {
+		final OrganismIndex added = new OrganismIndex();
+
+		visitOrganisms(g, new OrganismVisitor() {
+			public boolean visit(long generation, Organism o) {
+				if (organismIndex.indexOf(o.getInnovationId()) < 0) {
+					added.add(o.getInnovationId(), generation,
+							OrganismIndex.UNKNOWN_OFFSET);
+				}
+
+				return true;
+			}
+		});
+
+		writeOrganismIndex(added, true);
+		organismIndex.addAll(added);
+	}
+
+	/**
+	 * Reads the <code>ORGANISM_INDEX_FILE</code>, then indexes any
+	 * <code>Generation</code> files that are not in it yet (e.g. they were
+	 * saved before the index existed, or the index was only partly written)
+	 * and rewrites it.
+	 */
+	private OrganismIndex loadOrganismIndex() throws PersistenceException {
+		final OrganismIndex index = new OrganismIndex();
+		File f = new File(baseDirectory, ORGANISM_INDEX_FILE);
+		long lastIndexed = Long.MIN_VALUE;
+		boolean rewrite = false;
+
+		if (f.exists()) {
+			DataInputStream in = null;
+
+			try {
+				in = new DataInputStream(new BufferedInputStream(
+						new FileInputStream(f)));
+
+				while (in.available() > 0) {
+					long generation = in.readLong();
+					int count = in.readInt();
+
+					for (int i = 0; i < count; i++) {
+						index.add(in.readLong(), generation,
+								OrganismIndex.UNKNOWN_OFFSET);
+					}
+
+					lastIndexed = generation;
+				}
+			} catch (EOFException e) {
+				// the last generation was only partly written, it's indexed
+				// again below.
+				rewrite = true;
+			} catch (IOException e) {
+				throw new PersistenceException("Could not read from file "
+						+ f.getAbsolutePath() + ".", e);
+			} finally {
+				close(in);
+			}
+		}
+
+		for (File generation : getFilesForType(GENERATION_PREFIX)) {
+			if (getGenerationNumber(generation, GENERATION_PREFIX) > lastIndexed) {
+				visitGeneration(generation, new OrganismVisitor() {
+					public boolean visit(long generation, Organism o) {
+						index.add(o.getInnovationId(), generation,
+								OrganismIndex.UNKNOWN_OFFSET);
+						return true;
+					}
+				});
+
+				rewrite = true;
+			}
+		}
+
+		if (rewrite) {
+			writeOrganismIndex(index, false);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Writes the entries of the provided <code>OrganismIndex</code> to the
+	 * <code>ORGANISM_INDEX_FILE</code>, as a generation number and count
+	 * followed by the organism ids for each run of entries from the same
+	 * generation.
+	 */
+	private void writeOrganismIndex(OrganismIndex index, boolean append)
+			throws PersistenceException {
+		File f = new File(baseDirectory, ORGANISM_INDEX_FILE);
+		DataOutputStream out = null;
+
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(f, append)));
+
+			int start = 0;
+			while (start < index.size()) {
+				long generation = index.getGenerationAt(start);
+
+				int end = start;
+				while (end < index.size()
+						&& index.getGenerationAt(end) == generation) {
+					end++;
+				}
+
+				out.writeLong(generation);
+				out.writeInt(end - start);
+				for (int i = start; i < end; i++) {
+					out.writeLong(index.getOrganismIdAt(i));
+				}
+
+				start = end;
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Could not write to file "
+					+ f.getAbsolutePath() + ".", e);
+		} finally {
+			close(out);
+		}
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				s_log.log(Level.WARNING, "IOException thrown closing "
+						+ c.getClass().getSimpleName() + ".", e);
+			}
+		}
+	}
+
 	private void saveFitnessScores(long generation, FitnessScores scores)
 			throws PersistenceException {
 		File outputFile = getFileForFitnessScores(generation);
@@ -282,6 +556,27 @@ public class DirectoryOutputPersistence implements Persistence {
 				+ delegate.getFileExtension());
 	}
 
+	/**
+	 * Returns the number of the last <code>Generation</code> that was saved,
+	 * which is only the same as the <code>getGenerationCount()</code> if
+	 * every generation was saved.
+	 */
+	private long getLastGeneration() {
+		File[] files = getFilesForType(GENERATION_PREFIX);
+
+		if (files.length == 0) {
+			return 0;
+		}
+
+		return getGenerationNumber(files[files.length - 1], GENERATION_PREFIX);
+	}
+
+	private long getGenerationNumber(File f, String prefix) {
+		String name = f.getName();
+		return Long.parseLong(name.substring(prefix.length(), name.length()
+				- delegate.getFileExtension().length()));
+	}
+
 	private File[] getFilesForType(String prefix) {
 		File[] files = baseDirectory.listFiles(new PrefixSuffixFilenameFilter(
 				prefix, delegate.getFileExtension()));
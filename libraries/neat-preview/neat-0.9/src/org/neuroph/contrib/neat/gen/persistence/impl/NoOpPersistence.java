@@ -3,6 +3,8 @@ package org.neuroph.contrib.neat.gen.persistence.impl;
 import org.neuroph.contrib.neat.gen.FitnessScores;
 import org.neuroph.contrib.neat.gen.Generation;
 import org.neuroph.contrib.neat.gen.Innovations;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.persistence.OrganismVisitor;
 import org.neuroph.contrib.neat.gen.persistence.Persistence;
 import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
 
@@ -58,4 +60,15 @@ public class NoOpPersistence implements Persistence {
 		return null;
 	}
 
+	@Override
+	public Organism loadOrganism(long id) throws PersistenceException {
+		return null;
+	}
+
+	@Override
+	public void iterateGenerations(long from, long to, OrganismVisitor visitor)
+			throws PersistenceException {
+
+	}
+
 }
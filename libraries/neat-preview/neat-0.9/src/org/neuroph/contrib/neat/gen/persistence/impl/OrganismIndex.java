@@ -0,0 +1,174 @@
+package org.neuroph.contrib.neat.gen.persistence.impl;
+
+/**
+ * Records which persisted <code>Generation</code> each <code>Organism</code>
+ * was first stored with, and where in that <code>Generation</code> it is, so
+ * that a single <code>Organism</code> can be loaded without searching every
+ * <code>Generation</code>.
+ *
+ * The entries are kept in the order they were added, with an open addressing
+ * table of organism ids to entries for looking them up. Only the first entry
+ * added for an organism id is kept.
+ */
+public class OrganismIndex {
+	/**
+	 * The offset stored for an <code>Organism</code> when it's position within
+	 * the <code>Generation</code> is not known.
+	 */
+	public static final int UNKNOWN_OFFSET = -1;
+
+	private long[] organismIds;
+	private long[] generations;
+	private int[] offsets;
+	private int size;
+
+	/**
+	 * Each slot holds the index of an entry plus one, zero for an empty slot.
+	 */
+	private int[] table;
+
+	public OrganismIndex() {
+		this(64);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param expectedSize
+	 *            the number of entries that can be added without resizing.
+	 */
+	public OrganismIndex(int expectedSize) {
+		int capacity = Math.max(expectedSize, 16);
+
+		organismIds = new long[capacity];
+		generations = new long[capacity];
+		offsets = new int[capacity];
+		table = new int[tableSize(capacity)];
+	}
+
+	/**
+	 * Adds an entry for the provided organism id, unless there already is one.
+	 *
+	 * @param organismId
+	 *            the innovation id of the <code>Organism</code>.
+	 * @param generation
+	 *            the number of the <code>Generation</code> it is stored with.
+	 * @param offset
+	 *            where the <code>Organism</code> is within the stored
+	 *            <code>Generation</code>, or <code>UNKNOWN_OFFSET</code>.
+	 * @return <code>true</code> if the entry was added.
+	 */
+	public boolean add(long organismId, long generation, int offset) {
+		int slot = find(organismId);
+
+		if (table[slot] != 0) {
+			return false;
+		}
+
+		if (size == organismIds.length) {
+			grow();
+			slot = find(organismId);
+		}
+
+		organismIds[size] = organismId;
+		generations[size] = generation;
+		offsets[size] = offset;
+		size++;
+
+		table[slot] = size;
+		return true;
+	}
+
+	/**
+	 * Adds every entry of the provided <code>OrganismIndex</code> whose
+	 * organism id is not already in this one.
+	 */
+	public void addAll(OrganismIndex index) {
+		for (int i = 0; i < index.size; i++) {
+			add(index.organismIds[i], index.generations[i], index.offsets[i]);
+		}
+	}
+
+	/**
+	 * Returns the index of the entry for the provided organism id, or
+	 * <code>-1</code> if there is none.
+	 */
+	public int indexOf(long organismId) {
+		return table[find(organismId)] - 1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getOrganismIdAt(int index) {
+		checkIndex(index);
+		return organismIds[index];
+	}
+
+	public long getGenerationAt(int index) {
+		checkIndex(index);
+		return generations[index];
+	}
+
+	public int getOffsetAt(int index) {
+		checkIndex(index);
+		return offsets[index];
+	}
+
+	/**
+	 * Returns the slot holding the provided organism id, or the empty slot it
+	 * would be stored in.
+	 */
+	private int find(long organismId) {
+		int mask = table.length - 1;
+		long h = organismId * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+
+		while (table[slot] != 0 && organismIds[table[slot] - 1] != organismId) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void grow() {
+		int capacity = organismIds.length * 2;
+
+		long[] grownIds = new long[capacity];
+		long[] grownGenerations = new long[capacity];
+		int[] grownOffsets = new int[capacity];
+
+		System.arraycopy(organismIds, 0, grownIds, 0, size);
+		System.arraycopy(generations, 0, grownGenerations, 0, size);
+		System.arraycopy(offsets, 0, grownOffsets, 0, size);
+
+		organismIds = grownIds;
+		generations = grownGenerations;
+		offsets = grownOffsets;
+
+		table = new int[tableSize(capacity)];
+		for (int i = 0; i < size; i++) {
+			table[find(organismIds[i])] = i + 1;
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Invalid index " + index + ".");
+		}
+	}
+
+	/**
+	 * Returns a power of two at least twice the provided capacity, so the
+	 * table is never more than half full.
+	 */
+	private static int tableSize(int capacity) {
+		int tableSize = 16;
+		while (tableSize < capacity * 2) {
+			tableSize <<= 1;
+		}
+
+		return tableSize;
+	}
+}
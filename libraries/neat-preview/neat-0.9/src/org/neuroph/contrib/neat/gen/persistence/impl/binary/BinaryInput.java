@@ -0,0 +1,141 @@
+package org.neuroph.contrib.neat.gen.persistence.impl.binary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes the values written by a <code>BinaryOutput</code>.
+ *
+ * Reading past the end of the buffer, or reading a value that could not have
+ * been written, throws an <code>IllegalStateException</code>.
+ */
+final class BinaryInput {
+	private final ByteBuffer buffer;
+
+	public BinaryInput(ByteBuffer buffer) {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public int position() {
+		return buffer.position();
+	}
+
+	public int readByte() {
+		try {
+			return buffer.get() & 0xFF;
+		} catch (BufferUnderflowException e) {
+			throw truncated();
+		}
+	}
+
+	public int readInt() {
+		try {
+			return buffer.getInt();
+		} catch (BufferUnderflowException e) {
+			throw truncated();
+		}
+	}
+
+	public double readDouble() {
+		try {
+			return buffer.getDouble();
+		} catch (BufferUnderflowException e) {
+			throw truncated();
+		}
+	}
+
+	public boolean readBoolean() {
+		return readByte() != 0;
+	}
+
+	public long readVarLong() {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalStateException("Malformed variable length integer.");
+	}
+
+	public long readSignedVarLong() {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a non-negative value that must fit in an <code>int</code>.
+	 */
+	public int readVarInt() {
+		long value = readVarLong();
+
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Invalid value " + value + ".");
+		}
+
+		return (int) value;
+	}
+
+	/**
+	 * Reads a count, which must be able to fit in the remaining bytes.
+	 */
+	public int readCount() {
+		long count = readVarLong();
+
+		if (count < 0 || count > buffer.remaining() * 8L + 8) {
+			throw new IllegalStateException("Invalid count " + count + ".");
+		}
+
+		return (int) count;
+	}
+
+	public long[] readDeltas(int count) {
+		long[] values = new long[count];
+		long previous = 0;
+
+		for (int i = 0; i < count; i++) {
+			previous += readSignedVarLong();
+			values[i] = previous;
+		}
+
+		return values;
+	}
+
+	public double[] readDoubles(int count) {
+		if (buffer.remaining() < 8L * count) {
+			throw truncated();
+		}
+
+		double[] values = new double[count];
+
+		for (int i = 0; i < count; i++) {
+			values[i] = buffer.getDouble();
+		}
+
+		return values;
+	}
+
+	public boolean[] readBits(int count) {
+		boolean[] values = new boolean[count];
+
+		for (int i = 0; i < count; i += 8) {
+			int b = readByte();
+
+			for (int j = 0; j < 8 && i + j < count; j++) {
+				values[i + j] = (b & (1 << j)) != 0;
+			}
+		}
+
+		return values;
+	}
+
+	private static IllegalStateException truncated() {
+		return new IllegalStateException("Unexpected end of data.");
+	}
+}
@@ -0,0 +1,137 @@
+package org.neuroph.contrib.neat.gen.persistence.impl.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A growable buffer that the <code>BinarySerializationDelegate</code> encodes
+ * into. Ids are written as variable length integers, most of them as the
+ * difference to the previous id so that runs of similar ids take a byte or two
+ * each.
+ */
+final class BinaryOutput {
+	private ByteBuffer buffer;
+
+	public BinaryOutput(int initialCapacity) {
+		buffer = ByteBuffer.allocate(Math.max(initialCapacity, 64)).order(
+				ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Returns the written bytes, ready to be read.
+	 */
+	public ByteBuffer getBuffer() {
+		ByteBuffer written = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		written.flip();
+		return written;
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 */
+	public int position() {
+		return buffer.position();
+	}
+
+	public void writeByte(int b) {
+		ensureCapacity(1);
+		buffer.put((byte) b);
+	}
+
+	public void write(byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		buffer.put(bytes, offset, length);
+	}
+
+	public void writeInt(int i) {
+		ensureCapacity(4);
+		buffer.putInt(i);
+	}
+
+	public void writeDouble(double d) {
+		ensureCapacity(8);
+		buffer.putDouble(d);
+	}
+
+	public void writeBoolean(boolean b) {
+		writeByte(b ? 1 : 0);
+	}
+
+	/**
+	 * Writes a non-negative value using seven bits per byte.
+	 */
+	public void writeVarLong(long value) {
+		ensureCapacity(10);
+
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Writes a value that may be negative, small negative values are kept
+	 * small by zig-zag encoding them first.
+	 */
+	public void writeSignedVarLong(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Writes each value as the difference to the value before it.
+	 */
+	public void writeDeltas(long[] values) {
+		long previous = 0;
+
+		for (long value : values) {
+			writeSignedVarLong(value - previous);
+			previous = value;
+		}
+	}
+
+	public void writeDoubles(double[] values) {
+		ensureCapacity(8 * values.length);
+
+		for (double value : values) {
+			buffer.putDouble(value);
+		}
+	}
+
+	/**
+	 * Writes the values packed eight to a byte.
+	 */
+	public void writeBits(boolean[] values) {
+		ensureCapacity((values.length + 7) / 8);
+
+		for (int i = 0; i < values.length; i += 8) {
+			int b = 0;
+
+			for (int j = 0; j < 8 && i + j < values.length; j++) {
+				if (values[i + j]) {
+					b |= 1 << j;
+				}
+			}
+
+			buffer.put((byte) b);
+		}
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+
+		int capacity = buffer.capacity() * 2;
+		while (capacity - buffer.position() < bytes) {
+			capacity *= 2;
+		}
+
+		ByteBuffer grown = ByteBuffer.allocate(capacity).order(
+				ByteOrder.LITTLE_ENDIAN);
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+}
@@ -0,0 +1,1085 @@
+package org.neuroph.contrib.neat.gen.persistence.impl.binary;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.neuroph.contrib.neat.gen.ConnectionGene;
+import org.neuroph.contrib.neat.gen.FitnessScores;
+import org.neuroph.contrib.neat.gen.Gene;
+import org.neuroph.contrib.neat.gen.Generation;
+import org.neuroph.contrib.neat.gen.Innovation;
+import org.neuroph.contrib.neat.gen.Innovations;
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.NeuronType;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.Specie;
+import org.neuroph.contrib.neat.gen.persistence.OrganismVisitor;
+import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
+import org.neuroph.contrib.neat.gen.persistence.impl.OrganismIndex;
+import org.neuroph.contrib.neat.gen.persistence.impl.SerializationDelegate;
+
+/**
+ * A <code>SerializationDelegate</code> that writes a compact, versioned binary
+ * format instead of serialising the object graph.
+ *
+ * The genes of each <code>Organism</code> are written as columns (all of the
+ * ids, then all of the weights, then the enabled flags packed into bits) and
+ * ids are written as variable length differences to the previous id, which
+ * are usually a byte or two. <code>Organism</code>s that are in more than one
+ * <code>Specie</code> are only written once.
+ *
+ * Each record starts with a header holding a magic number, the format
+ * version, the type of the record and whether the payload is compressed. A
+ * compressed payload is split into blocks that are deflated separately.
+ *
+ * The <code>NeatParameters</code> of each <code>Specie</code> are not
+ * written. Decoded <code>Specie</code> are given the ones passed to the
+ * constructor, if any.
+ *
+ * <b>NOTE:</b> only <code>ConnectionGene</code>s and <code>NeuronGene</code>s
+ * are written for the <code>Innovations</code>, any other
+ * <code>Innovation</code> registered with it is dropped.
+ */
+public class BinarySerializationDelegate implements SerializationDelegate {
+	private static Logger s_log = Logger
+			.getLogger(BinarySerializationDelegate.class.getName());
+
+	/**
+	 * The first four bytes of every record, "NEAT".
+	 */
+	public static final int MAGIC = 0x4E454154;
+
+	/**
+	 * The version of the format written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	public static final int TYPE_GENERATION = 1;
+	public static final int TYPE_INNOVATIONS = 2;
+	public static final int TYPE_FITNESS = 3;
+	public static final int TYPE_ORGANISMS = 4;
+
+	/**
+	 * Set in the header flags if the payload is compressed.
+	 */
+	private static final int FLAG_COMPRESSED = 1;
+
+	/**
+	 * The size of the header, in bytes.
+	 */
+	private static final int HEADER_SIZE = 11;
+
+	/**
+	 * The number of uncompressed bytes in each compressed block.
+	 */
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	private static final NeuronType[] NEURON_TYPES = NeuronType.values();
+
+	/**
+	 * Sorts <code>Gene</code>s by innovation id.
+	 */
+	private static final Comparator<Innovation> INNOVATION_ORDER = new Comparator<Innovation>() {
+		public int compare(Innovation o1, Innovation o2) {
+			long id1 = o1.getInnovationId();
+			long id2 = o2.getInnovationId();
+
+			return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+		}
+	};
+
+	private boolean useCompression;
+
+	/**
+	 * The <code>NeatParameters</code> given to each decoded
+	 * <code>Specie</code>.
+	 */
+	private NeatParameters neatParams;
+
+	public BinarySerializationDelegate() {
+		this(true);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param useCompression
+	 *            <code>true</code> if the payload of each record should be
+	 *            deflated.
+	 */
+	public BinarySerializationDelegate(boolean useCompression) {
+		this(useCompression, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param useCompression
+	 *            <code>true</code> if the payload of each record should be
+	 *            deflated.
+	 * @param params
+	 *            the <code>NeatParameters</code> that decoded
+	 *            <code>Specie</code> are restored with, as they are not stored
+	 *            in the records. May be <code>null</code>.
+	 */
+	public BinarySerializationDelegate(boolean useCompression,
+			NeatParameters params) {
+		this.useCompression = useCompression;
+		this.neatParams = params;
+	}
+
+	public String getFileExtension() {
+		if (useCompression) {
+			return ".nbz";
+		}
+
+		return ".nb";
+	}
+
+	public boolean isUseCompression() {
+		return useCompression;
+	}
+
+	public NeatParameters getNeatParameters() {
+		return neatParams;
+	}
+
+	public void writeGeneration(File outFile, Generation s)
+			throws PersistenceException {
+		writeToFile(outFile, encodeGeneration(s));
+	}
+
+	public void writeInnovations(File outFile, Innovations o)
+			throws PersistenceException {
+		writeToFile(outFile, encodeInnovations(o));
+	}
+
+	public void writeFitnessScores(File outFile, FitnessScores s)
+			throws PersistenceException {
+		writeToFile(outFile, encodeFitnessScores(s));
+	}
+
+	public Generation readGeneration(File f, Innovations innovations)
+			throws PersistenceException {
+		return decodeGeneration(readFromFile(f));
+	}
+
+	public Innovations readInnovations(File f) throws PersistenceException {
+		return decodeInnovations(readFromFile(f));
+	}
+
+	public FitnessScores readFitnessScores(File f) throws PersistenceException {
+		return decodeFitnessScores(readFromFile(f));
+	}
+
+	/**
+	 * Reads the <code>Generation</code> record in the provided file one
+	 * <code>Organism</code> at a time.
+	 *
+	 * @see #visitOrganisms(ByteBuffer, OrganismVisitor)
+	 */
+	public boolean visitOrganisms(File f, OrganismVisitor visitor)
+			throws PersistenceException {
+		return visitOrganisms(readFromFile(f), visitor);
+	}
+
+	/**
+	 * Encodes the provided <code>Generation</code> as a complete record.
+	 *
+	 * @param g
+	 *            the <code>Generation</code> to encode.
+	 * @return a buffer holding the record, ready to be read.
+	 */
+	public ByteBuffer encodeGeneration(Generation g) {
+		return encodeGeneration(g, null);
+	}
+
+	/**
+	 * Encodes the provided <code>Generation</code> as a complete record,
+	 * adding where each <code>Organism</code> was written to the provided
+	 * <code>OrganismIndex</code> so that it can be read on it's own with
+	 * <code>decodeOrganism</code>.
+	 *
+	 * @param g
+	 *            the <code>Generation</code> to encode.
+	 * @param index
+	 *            the <code>OrganismIndex</code> to add the
+	 *            <code>Organism</code>s to, may be <code>null</code>.
+	 * @return a buffer holding the record, ready to be read.
+	 */
+	public ByteBuffer encodeGeneration(Generation g, OrganismIndex index) {
+		BinaryOutput out = new BinaryOutput(4096);
+
+		// every Organism is written once, the Specie refer to them by index.
+		List<Organism> organisms = new ArrayList<Organism>();
+		Map<Organism, Integer> indices = new IdentityHashMap<Organism, Integer>();
+
+		for (Specie s : g.getSpecies()) {
+			for (Organism o : s.getOrganisms()) {
+				addOrganism(o, organisms, indices);
+			}
+		}
+
+		for (Specie s : g.getSpecies()) {
+			if (s.getRepresentativeOrganism() != null) {
+				addOrganism(s.getRepresentativeOrganism(), organisms, indices);
+			}
+		}
+
+		out.writeSignedVarLong(g.getGenerationNumber());
+		out.writeSignedVarLong(g.getLastInnovationId());
+
+		out.writeVarLong(organisms.size());
+		long previousId = 0;
+		for (Organism o : organisms) {
+			out.writeSignedVarLong(o.getInnovationId() - previousId);
+			previousId = o.getInnovationId();
+
+			if (index != null) {
+				index.add(o.getInnovationId(), g.getGenerationNumber(), out
+						.position());
+			}
+
+			writeOrganism(out, o);
+		}
+
+		out.writeVarLong(g.getSpecies().size());
+		for (Specie s : g.getSpecies()) {
+			out.writeSignedVarLong(s.getInnovationId());
+			out.writeBoolean(s.isDead());
+
+			List<Organism> members = s.getOrganisms();
+			out.writeVarLong(members.size());
+			for (Organism o : members) {
+				out.writeVarLong(indices.get(o));
+			}
+
+			Organism representative = s.getRepresentativeOrganism();
+			out.writeVarLong(representative == null ? 0 : indices
+					.get(representative) + 1);
+		}
+
+		return createRecord(TYPE_GENERATION, out);
+	}
+
+	/**
+	 * Decodes a record created by <code>encodeGeneration</code>.
+	 *
+	 * @param record
+	 *            the buffer holding the record.
+	 * @return the decoded <code>Generation</code>.
+	 * @throws PersistenceException
+	 *             if the record is not a valid <code>Generation</code>.
+	 */
+	public Generation decodeGeneration(ByteBuffer record)
+			throws PersistenceException {
+		BinaryInput in = openRecord(record, TYPE_GENERATION);
+
+		try {
+			int generationNumber = (int) in.readSignedVarLong();
+			long lastInnovationId = in.readSignedVarLong();
+
+			Organism[] organisms = new Organism[in.readCount()];
+			long previousId = 0;
+			for (int i = 0; i < organisms.length; i++) {
+				previousId += in.readSignedVarLong();
+				organisms[i] = readOrganism(in, previousId);
+			}
+
+			int specieCount = in.readCount();
+			List<Specie> species = new ArrayList<Specie>(specieCount);
+			for (int i = 0; i < specieCount; i++) {
+				long specieId = in.readSignedVarLong();
+				boolean dead = in.readBoolean();
+
+				int memberCount = in.readCount();
+				List<Organism> members = new ArrayList<Organism>(memberCount);
+				for (int j = 0; j < memberCount; j++) {
+					members.add(organisms[readIndex(in, organisms.length)]);
+				}
+
+				int representative = readIndex(in, organisms.length + 1) - 1;
+
+				Specie s = new Specie(specieId, members,
+						representative < 0 ? null : organisms[representative],
+						neatParams);
+				s.setDead(dead);
+				species.add(s);
+			}
+
+			return new Generation(generationNumber, species, lastInnovationId);
+		} catch (IllegalStateException e) {
+			throw new PersistenceException("Invalid Generation record.", e);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException("Invalid Generation record.", e);
+		}
+	}
+
+	/**
+	 * Decodes a single <code>Organism</code> from a record created by
+	 * <code>encodeGeneration</code>.
+	 *
+	 * @param record
+	 *            the buffer holding the <code>Generation</code> record.
+	 * @param organismId
+	 *            the innovation id of the <code>Organism</code>.
+	 * @param offset
+	 *            the offset of the <code>Organism</code>, from the
+	 *            <code>OrganismIndex</code>.
+	 * @return the decoded <code>Organism</code>.
+	 * @throws PersistenceException
+	 *             if there is no valid <code>Organism</code> at the offset.
+	 */
+	public Organism decodeOrganism(ByteBuffer record, long organismId,
+			int offset) throws PersistenceException {
+		try {
+			// an Organism is much smaller than a block, so it's almost always
+			// in the block at it's offset or the one after. Only if it isn't
+			// is the rest of the record inflated.
+			try {
+				return readOrganism(new BinaryInput(openPayload(record,
+						TYPE_GENERATION, offset, 2)), organismId);
+			} catch (IllegalStateException e) {
+				return readOrganism(new BinaryInput(openPayload(record,
+						TYPE_GENERATION, offset, Integer.MAX_VALUE)),
+						organismId);
+			}
+		} catch (IllegalStateException e) {
+			throw new PersistenceException("Invalid Organism at offset "
+					+ offset + ".", e);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException("Invalid Organism at offset "
+					+ offset + ".", e);
+		}
+	}
+
+	/**
+	 * Decodes the <code>Organism</code>s of a record created by
+	 * <code>encodeGeneration</code> one at a time, passing each to the
+	 * provided <code>OrganismVisitor</code>. The <code>Specie</code> are not
+	 * decoded.
+	 *
+	 * @param record
+	 *            the buffer holding the <code>Generation</code> record.
+	 * @param visitor
+	 *            the <code>OrganismVisitor</code> to pass the
+	 *            <code>Organism</code>s to.
+	 * @return <code>false</code> if the <code>OrganismVisitor</code> stopped
+	 *         the iteration.
+	 * @throws PersistenceException
+	 *             if the record is not a valid <code>Generation</code>.
+	 */
+	public boolean visitOrganisms(ByteBuffer record, OrganismVisitor visitor)
+			throws PersistenceException {
+		return readOrganisms(record, visitor, null);
+	}
+
+	/**
+	 * Adds where each <code>Organism</code> is in a record created by
+	 * <code>encodeGeneration</code> to the provided
+	 * <code>OrganismIndex</code>, as if it had been passed to
+	 * <code>encodeGeneration</code>.
+	 *
+	 * @param record
+	 *            the buffer holding the <code>Generation</code> record.
+	 * @param index
+	 *            the <code>OrganismIndex</code> to add the
+	 *            <code>Organism</code>s to.
+	 * @throws PersistenceException
+	 *             if the record is not a valid <code>Generation</code>.
+	 */
+	public void indexGeneration(ByteBuffer record, OrganismIndex index)
+			throws PersistenceException {
+		readOrganisms(record, null, index);
+	}
+
+	/**
+	 * Encodes the provided <code>OrganismIndex</code> as a complete record.
+	 *
+	 * @param index
+	 *            the <code>OrganismIndex</code> to encode.
+	 * @return a buffer holding the record, ready to be read.
+	 */
+	public ByteBuffer encodeOrganismIndex(OrganismIndex index) {
+		int count = index.size();
+		long[] organismIds = new long[count];
+		long[] generations = new long[count];
+		long[] offsets = new long[count];
+
+		for (int i = 0; i < count; i++) {
+			organismIds[i] = index.getOrganismIdAt(i);
+			generations[i] = index.getGenerationAt(i);
+			offsets[i] = index.getOffsetAt(i);
+		}
+
+		BinaryOutput out = new BinaryOutput(count * 4);
+		out.writeVarLong(count);
+		out.writeDeltas(organismIds);
+		out.writeDeltas(generations);
+		out.writeDeltas(offsets);
+
+		return createRecord(TYPE_ORGANISMS, out);
+	}
+
+	/**
+	 * Decodes a record created by <code>encodeOrganismIndex</code>.
+	 *
+	 * @param record
+	 *            the buffer holding the record.
+	 * @return the decoded <code>OrganismIndex</code>.
+	 * @throws PersistenceException
+	 *             if the record is not a valid <code>OrganismIndex</code>.
+	 */
+	public OrganismIndex decodeOrganismIndex(ByteBuffer record)
+			throws PersistenceException {
+		BinaryInput in = openRecord(record, TYPE_ORGANISMS);
+
+		try {
+			int count = in.readCount();
+			long[] organismIds = in.readDeltas(count);
+			long[] generations = in.readDeltas(count);
+			long[] offsets = in.readDeltas(count);
+
+			OrganismIndex index = new OrganismIndex(count);
+			for (int i = 0; i < count; i++) {
+				index.add(organismIds[i], generations[i], (int) offsets[i]);
+			}
+
+			return index;
+		} catch (IllegalStateException e) {
+			throw new PersistenceException("Invalid OrganismIndex record.", e);
+		}
+	}
+
+	/**
+	 * Encodes the provided <code>Innovations</code> as a complete record.
+	 *
+	 * @param innovations
+	 *            the <code>Innovations</code> to encode.
+	 * @return a buffer holding the record, ready to be read.
+	 */
+	public ByteBuffer encodeInnovations(Innovations innovations) {
+		BinaryOutput out = new BinaryOutput(1024);
+
+		List<ConnectionGene> connections = innovations.getConnectionGenes();
+		Collections.sort(connections, INNOVATION_ORDER);
+		writeConnections(out, connections);
+
+		List<NeuronGene> neurons = innovations.getNeuronGenes();
+		Collections.sort(neurons, INNOVATION_ORDER);
+		writeNeurons(out, neurons);
+
+		long[] splitIds = new long[neurons.size()];
+		for (int i = 0; i < splitIds.length; i++) {
+			splitIds[i] = innovations.getConnectionInnovationForNeuron(neurons
+					.get(i));
+		}
+		out.writeDeltas(splitIds);
+
+		List<ConnectionGene> recordedConnections = innovations
+				.getRecordedConnectionGenes();
+		Collections.sort(recordedConnections, INNOVATION_ORDER);
+		writeConnections(out, recordedConnections);
+
+		List<NeuronGene> recordedNeurons = innovations.getRecordedNeuronGenes();
+		Collections.sort(recordedNeurons, INNOVATION_ORDER);
+		writeNeurons(out, recordedNeurons);
+
+		return createRecord(TYPE_INNOVATIONS, out);
+	}
+
+	/**
+	 * Decodes a record created by <code>encodeInnovations</code>.
+	 *
+	 * @param record
+	 *            the buffer holding the record.
+	 * @return the decoded <code>Innovations</code>.
+	 * @throws PersistenceException
+	 *             if the record is not a valid <code>Innovations</code>.
+	 */
+	public Innovations decodeInnovations(ByteBuffer record)
+			throws PersistenceException {
+		BinaryInput in = openRecord(record, TYPE_INNOVATIONS);
+
+		try {
+			Innovations innovations = new Innovations();
+
+			for (ConnectionGene cg : readConnections(in)) {
+				innovations.putConnectionGene(cg);
+			}
+
+			List<NeuronGene> neurons = readNeurons(in);
+			long[] splitIds = in.readDeltas(neurons.size());
+			for (int i = 0; i < splitIds.length; i++) {
+				innovations.putNeuronGene(splitIds[i], neurons.get(i));
+			}
+
+			innovations.registerInnovations(readConnections(in));
+			innovations.registerInnovations(readNeurons(in));
+
+			return innovations;
+		} catch (IllegalStateException e) {
+			throw new PersistenceException("Invalid Innovations record.", e);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException("Invalid Innovations record.", e);
+		}
+	}
+
+	/**
+	 * Encodes the provided <code>FitnessScores</code> as a complete record.
+	 *
+	 * @param scores
+	 *            the <code>FitnessScores</code> to encode.
+	 * @return a buffer holding the record, ready to be read.
+	 */
+	public ByteBuffer encodeFitnessScores(FitnessScores scores) {
+		BinaryOutput out = new BinaryOutput(1024);
+
+		List<Long> ids = scores.getOrganismIds();
+		Collections.sort(ids);
+
+		long[] organismIds = new long[ids.size()];
+		double[] fitness = new double[ids.size()];
+		for (int i = 0; i < organismIds.length; i++) {
+			organismIds[i] = ids.get(i);
+			fitness[i] = scores.getFitnessForOrganism(organismIds[i]);
+		}
+
+		out.writeSignedVarLong(scores.getGeneration());
+		out.writeVarLong(scores.getGenerationsToKeep());
+		out.writeVarLong(scores.getCacheSize());
+
+		out.writeVarLong(organismIds.length);
+		out.writeDeltas(organismIds);
+		out.writeDoubles(fitness);
+
+		// the generations are close to the current one, so are written as the
+		// distance back from it.
+		for (long id : organismIds) {
+			out.writeSignedVarLong(scores.getGeneration()
+					- scores.getGenerationForOrganism(id));
+		}
+
+		return createRecord(TYPE_FITNESS, out);
+	}
+
+	/**
+	 * Decodes a record created by <code>encodeFitnessScores</code>.
+	 *
+	 * @param record
+	 *            the buffer holding the record.
+	 * @return the decoded <code>FitnessScores</code>.
+	 * @throws PersistenceException
+	 *             if the record is not a valid <code>FitnessScores</code>.
+	 */
+	public FitnessScores decodeFitnessScores(ByteBuffer record)
+			throws PersistenceException {
+		BinaryInput in = openRecord(record, TYPE_FITNESS);
+
+		try {
+			long generation = in.readSignedVarLong();
+			int generationsToKeep = in.readVarInt();
+			int cacheSize = in.readVarInt();
+
+			int count = in.readCount();
+			long[] organismIds = in.readDeltas(count);
+			double[] fitness = in.readDoubles(count);
+
+			FitnessScores scores = new FitnessScores(Math.max(cacheSize, count),
+					generationsToKeep);
+			scores.setGeneration(generation);
+
+			for (int i = 0; i < count; i++) {
+				scores.setFitness(organismIds[i], fitness[i], generation
+						- in.readSignedVarLong());
+			}
+
+			return scores;
+		} catch (IllegalStateException e) {
+			throw new PersistenceException("Invalid FitnessScores record.", e);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException("Invalid FitnessScores record.", e);
+		}
+	}
+
+	/**
+	 * Reads the <code>Organism</code>s at the start of a
+	 * <code>Generation</code> record, passing each to the visitor and adding
+	 * each to the index if they are not <code>null</code>.
+	 *
+	 * @return <code>false</code> if the visitor stopped the iteration.
+	 */
+	private static boolean readOrganisms(ByteBuffer record,
+			OrganismVisitor visitor, OrganismIndex index)
+			throws PersistenceException {
+		BinaryInput in = openRecord(record, TYPE_GENERATION);
+
+		try {
+			long generationNumber = in.readSignedVarLong();
+			in.readSignedVarLong();
+
+			int count = in.readCount();
+			long previousId = 0;
+			for (int i = 0; i < count; i++) {
+				previousId += in.readSignedVarLong();
+
+				if (index != null) {
+					index.add(previousId, generationNumber, in.position());
+				}
+
+				Organism o = readOrganism(in, previousId);
+
+				if (visitor != null && !visitor.visit(generationNumber, o)) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (IllegalStateException e) {
+			throw new PersistenceException("Invalid Generation record.", e);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException("Invalid Generation record.", e);
+		}
+	}
+
+	private static void addOrganism(Organism o, List<Organism> organisms,
+			Map<Organism, Integer> indices) {
+		if (!indices.containsKey(o)) {
+			indices.put(o, organisms.size());
+			organisms.add(o);
+		}
+	}
+
+	private static int readIndex(BinaryInput in, int count) {
+		long index = in.readVarLong();
+
+		if (index < 0 || index >= count) {
+			throw new IllegalStateException("Invalid Organism index " + index
+					+ ".");
+		}
+
+		return (int) index;
+	}
+
+	private static void writeOrganism(BinaryOutput out, Organism o) {
+		out.writeBoolean(o.isFrozen());
+
+		long[] ancestory = o.getAncestory();
+		if (ancestory == null) {
+			out.writeVarLong(0);
+		} else {
+			out.writeVarLong(ancestory.length + 1);
+			out.writeDeltas(ancestory);
+		}
+
+		writeNeurons(out, o.getNeurons(NeuronType.INPUT));
+		writeNeurons(out, o.getNeurons(NeuronType.HIDDEN));
+		writeNeurons(out, o.getNeurons(NeuronType.OUTPUT));
+		writeConnections(out, o.getConnections());
+	}
+
+	private static Organism readOrganism(BinaryInput in, long organismId) {
+		boolean frozen = in.readBoolean();
+
+		long[] ancestory = null;
+		int ancestoryLength = in.readCount();
+		if (ancestoryLength > 0) {
+			ancestory = in.readDeltas(ancestoryLength - 1);
+		}
+
+		List<Gene> genes = new ArrayList<Gene>();
+		genes.addAll(readNeurons(in));
+		genes.addAll(readNeurons(in));
+		genes.addAll(readNeurons(in));
+		genes.addAll(readConnections(in));
+
+		Organism o = new Organism(organismId, genes);
+		o.setAncestory(ancestory);
+
+		if (frozen) {
+			o.freeze();
+		}
+
+		return o;
+	}
+
+	private static void writeNeurons(BinaryOutput out, List<NeuronGene> neurons) {
+		int count = neurons.size();
+		long[] ids = new long[count];
+		double[] responses = new double[count];
+		boolean[] enabled = new boolean[count];
+
+		out.writeVarLong(count);
+
+		for (int i = 0; i < count; i++) {
+			NeuronGene ng = neurons.get(i);
+			ids[i] = ng.getInnovationId();
+			responses[i] = ng.getActivationResponse();
+			enabled[i] = ng.isEnabled();
+
+			out.writeByte(ng.getNeuronType().ordinal());
+		}
+
+		out.writeDeltas(ids);
+		out.writeDoubles(responses);
+		out.writeBits(enabled);
+	}
+
+	private static List<NeuronGene> readNeurons(BinaryInput in) {
+		int count = in.readCount();
+
+		NeuronType[] types = new NeuronType[count];
+		for (int i = 0; i < count; i++) {
+			int type = in.readByte();
+
+			if (type >= NEURON_TYPES.length) {
+				throw new IllegalStateException("Invalid NeuronType " + type
+						+ ".");
+			}
+
+			types[i] = NEURON_TYPES[type];
+		}
+
+		long[] ids = in.readDeltas(count);
+		double[] responses = in.readDoubles(count);
+		boolean[] enabled = in.readBits(count);
+
+		List<NeuronGene> neurons = new ArrayList<NeuronGene>(count);
+		for (int i = 0; i < count; i++) {
+			NeuronGene ng = new NeuronGene(types[i], ids[i], responses[i]);
+			ng.setEnabled(enabled[i]);
+			neurons.add(ng);
+		}
+
+		return neurons;
+	}
+
+	private static void writeConnections(BinaryOutput out,
+			List<ConnectionGene> connections) {
+		int count = connections.size();
+		long[] ids = new long[count];
+		long[] origins = new long[count];
+		long[] endpoints = new long[count];
+		double[] weights = new double[count];
+		boolean[] enabled = new boolean[count];
+
+		for (int i = 0; i < count; i++) {
+			ConnectionGene cg = connections.get(i);
+			ids[i] = cg.getInnovationId();
+			origins[i] = cg.getOriginId();
+			endpoints[i] = cg.getEndpointId();
+			weights[i] = cg.getWeight();
+			enabled[i] = cg.isEnabled();
+		}
+
+		out.writeVarLong(count);
+		out.writeDeltas(ids);
+		out.writeDeltas(origins);
+		out.writeDeltas(endpoints);
+		out.writeDoubles(weights);
+		out.writeBits(enabled);
+	}
+
+	private static List<ConnectionGene> readConnections(BinaryInput in) {
+		int count = in.readCount();
+		long[] ids = in.readDeltas(count);
+		long[] origins = in.readDeltas(count);
+		long[] endpoints = in.readDeltas(count);
+		double[] weights = in.readDoubles(count);
+		boolean[] enabled = in.readBits(count);
+
+		List<ConnectionGene> connections = new ArrayList<ConnectionGene>(count);
+		for (int i = 0; i < count; i++) {
+			connections.add(new ConnectionGene(ids[i], origins[i],
+					endpoints[i], weights[i], enabled[i]));
+		}
+
+		return connections;
+	}
+
+	/**
+	 * Prefixes the payload written to <code>out</code> with the record header,
+	 * compressing it if required.
+	 */
+	private ByteBuffer createRecord(int type, BinaryOutput out) {
+		ByteBuffer payload = out.getBuffer();
+		int length = payload.remaining();
+
+		if (useCompression) {
+			payload = deflate(payload);
+		}
+
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE
+				+ payload.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+		record.putInt(MAGIC);
+		record.put((byte) VERSION);
+		record.put((byte) type);
+		record.put((byte) (useCompression ? FLAG_COMPRESSED : 0));
+		record.putInt(length);
+		record.put(payload);
+		record.flip();
+
+		return record;
+	}
+
+	/**
+	 * Checks the header of the provided record and returns a
+	 * <code>BinaryInput</code> for it's payload.
+	 */
+	private static BinaryInput openRecord(ByteBuffer record, int type)
+			throws PersistenceException {
+		return new BinaryInput(openPayload(record, type, 0, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Checks the header of the provided record and returns it's payload,
+	 * starting at the provided offset. If the payload is compressed only
+	 * <code>blocks</code> blocks are inflated, starting with the one holding
+	 * the offset.
+	 */
+	private static ByteBuffer openPayload(ByteBuffer record, int type,
+			int offset, int blocks) throws PersistenceException {
+		ByteBuffer buffer = record.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new PersistenceException("Not a binary NEAT record.");
+		}
+
+		int version = buffer.get() & 0xFF;
+		if (version != VERSION) {
+			throw new PersistenceException("Unsupported record version "
+					+ version + ", expected " + VERSION + ".");
+		}
+
+		int actualType = buffer.get() & 0xFF;
+		if (actualType != type) {
+			throw new PersistenceException("Expected a record of type " + type
+					+ " but found type " + actualType + ".");
+		}
+
+		int flags = buffer.get() & 0xFF;
+		int length = buffer.getInt();
+
+		if (length < 0) {
+			throw new PersistenceException("Invalid record length " + length
+					+ ".");
+		}
+
+		if (offset < 0 || offset > length) {
+			throw new PersistenceException("Invalid offset " + offset + ".");
+		}
+
+		ByteBuffer payload = buffer.slice();
+		if ((flags & FLAG_COMPRESSED) != 0) {
+			return inflate(payload, length, offset, blocks);
+		}
+
+		if (payload.remaining() != length) {
+			throw new PersistenceException("Expected " + length
+					+ " bytes of data but found " + payload.remaining() + ".");
+		}
+
+		payload.position(offset);
+		return payload.slice();
+	}
+
+	/**
+	 * Compresses the provided payload as a sequence of blocks, each preceded
+	 * by it's compressed length.
+	 */
+	private static ByteBuffer deflate(ByteBuffer payload) {
+		byte[] raw = new byte[Math.min(payload.remaining(), BLOCK_SIZE)];
+		byte[] compressed = new byte[raw.length + raw.length / 8 + 64];
+		BinaryOutput out = new BinaryOutput(payload.remaining() / 2);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+		try {
+			while (payload.hasRemaining()) {
+				int length = Math.min(payload.remaining(), raw.length);
+				payload.get(raw, 0, length);
+
+				deflater.reset();
+				deflater.setInput(raw, 0, length);
+				deflater.finish();
+
+				int compressedLength = 0;
+				while (!deflater.finished()) {
+					if (compressedLength == compressed.length) {
+						byte[] grown = new byte[compressed.length * 2];
+						System.arraycopy(compressed, 0, grown, 0,
+								compressedLength);
+						compressed = grown;
+					}
+
+					compressedLength += deflater.deflate(compressed,
+							compressedLength, compressed.length
+									- compressedLength);
+				}
+
+				out.writeInt(compressedLength);
+				out.write(compressed, 0, compressedLength);
+			}
+		} finally {
+			deflater.end();
+		}
+
+		return out.getBuffer();
+	}
+
+	/**
+	 * Inflates the blocks of a payload that was compressed by
+	 * <code>deflate</code>, returning the data from the provided offset.
+	 * Blocks before the one holding the offset are skipped, and at most
+	 * <code>blocks</code> blocks are inflated.
+	 */
+	private static ByteBuffer inflate(ByteBuffer compressed, int length,
+			int offset, int blocks) throws PersistenceException {
+		compressed.order(ByteOrder.LITTLE_ENDIAN);
+		int start = offset - offset % BLOCK_SIZE;
+		int end = (int) Math.min(length, start + (long) blocks * BLOCK_SIZE);
+		byte[] raw = new byte[end - start];
+		byte[] block = new byte[0];
+		Inflater inflater = new Inflater();
+
+		try {
+			int position = 0;
+			while (position < end) {
+				if (compressed.remaining() < 4) {
+					throw new PersistenceException("Unexpected end of data.");
+				}
+
+				int compressedLength = compressed.getInt();
+				if (compressedLength < 0
+						|| compressedLength > compressed.remaining()) {
+					throw new PersistenceException("Invalid block length "
+							+ compressedLength + ".");
+				}
+
+				int blockLength = Math.min(BLOCK_SIZE, length - position);
+
+				if (position < start) {
+					compressed.position(compressed.position()
+							+ compressedLength);
+					position += blockLength;
+					continue;
+				}
+
+				if (block.length < compressedLength) {
+					block = new byte[compressedLength];
+				}
+				compressed.get(block, 0, compressedLength);
+
+				inflater.reset();
+				inflater.setInput(block, 0, compressedLength);
+
+				int inflated = 0;
+				while (inflated < blockLength && !inflater.finished()) {
+					int n = inflater.inflate(raw, position - start + inflated,
+							blockLength - inflated);
+
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+
+					inflated += n;
+				}
+
+				if (inflated != blockLength) {
+					throw new PersistenceException("Corrupt compressed block.");
+				}
+
+				position += blockLength;
+			}
+		} catch (DataFormatException e) {
+			throw new PersistenceException("Corrupt compressed block.", e);
+		} finally {
+			inflater.end();
+		}
+
+		ByteBuffer payload = ByteBuffer.wrap(raw);
+		payload.position(offset - start);
+
+		return payload.slice();
+	}
+
+	private static void writeToFile(File f, ByteBuffer record)
+			throws PersistenceException {
+		FileOutputStream fos = null;
+
+		try {
+			fos = new FileOutputStream(f);
+			FileChannel channel = fos.getChannel();
+
+			while (record.hasRemaining()) {
+				channel.write(record);
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Could not write to file "
+					+ f.getAbsolutePath() + ".", e);
+		} finally {
+			if (fos != null) {
+				try {
+					fos.close();
+				} catch (IOException e) {
+					s_log.log(Level.WARNING,
+							"IOException thrown closing FileOutputStream.", e);
+				}
+			}
+		}
+	}
+
+	private static ByteBuffer readFromFile(File f) throws PersistenceException {
+		FileInputStream fis = null;
+
+		try {
+			fis = new FileInputStream(f);
+			FileChannel channel = fis.getChannel();
+
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new PersistenceException("File " + f.getAbsolutePath()
+						+ " is too large to read.");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new PersistenceException("Unexpected end of file "
+							+ f.getAbsolutePath() + ".");
+				}
+			}
+			buffer.flip();
+
+			return buffer;
+		} catch (IOException e) {
+			throw new PersistenceException("Could not read from file "
+					+ f.getAbsolutePath() + ".", e);
+		} finally {
+			if (fis != null) {
+				try {
+					fis.close();
+				} catch (IOException e) {
+					s_log.log(Level.WARNING,
+							"IOException thrown closing FileInputStream.", e);
+				}
+			}
+		}
+	}
+}
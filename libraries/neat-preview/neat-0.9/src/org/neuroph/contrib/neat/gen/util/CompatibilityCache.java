@@ -0,0 +1,152 @@
+package org.neuroph.contrib.neat.gen.util;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.neuroph.contrib.neat.gen.GenomeView;
+import org.neuroph.contrib.neat.gen.Organism;
+
+/**
+ * Remembers the <code>GenomeView</code> of each <code>Organism</code> and the
+ * compatibility distance between pairs of <code>Organism</code>s so that a
+ * <code>Speciator</code> does not have to recalculate them when it speciates
+ * the same generation more than once.
+ *
+ * The cache assumes the <code>Organism</code>s are not modified while it is
+ * in use, so it must be cleared once the speciation is complete.
+ */
+public class CompatibilityCache {
+	/**
+	 * The key used for an empty slot.
+	 */
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private Map<Organism, GenomeView> views = new IdentityHashMap<Organism, GenomeView>();
+
+	/**
+	 * The smaller of the two organism ids in each pair.
+	 */
+	private long[] firstIds;
+
+	/**
+	 * The larger of the two organism ids in each pair.
+	 */
+	private long[] secondIds;
+
+	private double[] distances;
+
+	private int size;
+
+	public CompatibilityCache() {
+		allocate(64);
+	}
+
+	/**
+	 * Returns the <code>GenomeView</code> for the provided
+	 * <code>Organism</code>, creating it the first time it is requested.
+	 *
+	 * @param o
+	 *            the <code>Organism</code> to get the view of.
+	 * @return the <code>GenomeView</code> of the <code>Organism</code>.
+	 */
+	public GenomeView getView(Organism o) {
+		GenomeView view = views.get(o);
+
+		if (view == null) {
+			view = new GenomeView(o);
+			views.put(o, view);
+		}
+
+		return view;
+	}
+
+	/**
+	 * Returns the cached distance between the two provided organism ids, or
+	 * <code>Double.NaN</code> if it has not been calculated yet.
+	 */
+	public double getDistance(long one, long two) {
+		long first = Math.min(one, two);
+		long second = Math.max(one, two);
+
+		int slot = slot(first, second);
+		while (firstIds[slot] != EMPTY) {
+			if (firstIds[slot] == first && secondIds[slot] == second) {
+				return distances[slot];
+			}
+
+			slot = (slot + 1) & (firstIds.length - 1);
+		}
+
+		return Double.NaN;
+	}
+
+	/**
+	 * Stores the distance between the two provided organism ids.
+	 */
+	public void putDistance(long one, long two, double distance) {
+		if (size >= firstIds.length / 2) {
+			grow();
+		}
+
+		long first = Math.min(one, two);
+		long second = Math.max(one, two);
+
+		int slot = slot(first, second);
+		while (firstIds[slot] != EMPTY) {
+			if (firstIds[slot] == first && secondIds[slot] == second) {
+				distances[slot] = distance;
+				return;
+			}
+
+			slot = (slot + 1) & (firstIds.length - 1);
+		}
+
+		firstIds[slot] = first;
+		secondIds[slot] = second;
+		distances[slot] = distance;
+		size++;
+	}
+
+	/**
+	 * Removes all of the cached views and distances.
+	 */
+	public void clear() {
+		views.clear();
+
+		if (size > 0) {
+			Arrays.fill(firstIds, EMPTY);
+			size = 0;
+		}
+	}
+
+	private void allocate(int capacity) {
+		firstIds = new long[capacity];
+		secondIds = new long[capacity];
+		distances = new double[capacity];
+		size = 0;
+
+		for (int i = 0; i < capacity; i++) {
+			firstIds[i] = EMPTY;
+		}
+	}
+
+	private void grow() {
+		long[] oldFirst = firstIds;
+		long[] oldSecond = secondIds;
+		double[] oldDistances = distances;
+
+		allocate(oldFirst.length * 2);
+
+		for (int i = 0; i < oldFirst.length; i++) {
+			if (oldFirst[i] != EMPTY) {
+				putDistance(oldFirst[i], oldSecond[i], oldDistances[i]);
+			}
+		}
+	}
+
+	private int slot(long first, long second) {
+		long h = (first * 31 + second) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (firstIds.length - 1);
+	}
+}
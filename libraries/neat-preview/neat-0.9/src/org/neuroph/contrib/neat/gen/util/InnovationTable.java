@@ -0,0 +1,298 @@
+package org.neuroph.contrib.neat.gen.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open addressing hash table of primitive <code>long</code> keys to values
+ * that are set once and never replaced or removed, used by the
+ * <code>Innovations</code> to look up <code>Gene</code>s without boxing their
+ * keys.
+ *
+ * <code>get</code> and <code>putIfAbsent</code> may be called concurrently
+ * from several threads and do not take a lock unless the table is being
+ * resized. When two threads put a value for the same key at the same time
+ * exactly one of them wins, and both are given the winning value.
+ *
+ * @param <T>
+ *            the type of the values in the table.
+ */
+public class InnovationTable<T> {
+	/**
+	 * The value stored in an empty slot of the table, can never be used as a
+	 * key.
+	 */
+	public static final long EMPTY = Long.MIN_VALUE;
+
+	/**
+	 * Combines the two provided ids into a single key, each id must fit in an
+	 * <code>int</code> and must not be <code>Integer.MIN_VALUE</code>. Ids
+	 * outside that range can't be packed without two pairs sharing a key, so
+	 * they are rejected rather than hashed.
+	 *
+	 * @param first
+	 *            the id stored in the high half of the key.
+	 * @param second
+	 *            the id stored in the low half of the key.
+	 * @return the combined key.
+	 * @throws IllegalArgumentException
+	 *             if either id is out of range.
+	 */
+	public static long pack(long first, long second) {
+		if (first <= Integer.MIN_VALUE || first > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cannot pack id " + first
+					+ ", ids must fit in an int.");
+		}
+
+		if (second <= Integer.MIN_VALUE || second > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cannot pack id " + second
+					+ ", ids must fit in an int.");
+		}
+
+		return (first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * The table holding the values, replaced whenever it is resized.
+	 */
+	private volatile Table<T> table;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param expectedSize
+	 *            the number of values the table can hold without resizing.
+	 */
+	public InnovationTable(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+
+		table = new Table<T>(capacity);
+	}
+
+	/**
+	 * Returns the value for the provided key, <code>null</code> if there is no
+	 * value for the key.
+	 */
+	public T get(long key) {
+		Table<T> t = table;
+		int slot = t.find(key);
+
+		if (slot < 0) {
+			return null;
+		}
+
+		return t.values.get(slot);
+	}
+
+	/**
+	 * Stores the provided value for the provided key, unless the key already
+	 * has a value.
+	 *
+	 * @param key
+	 *            the key to store the value for.
+	 * @param value
+	 *            the value to store.
+	 * @return the value for the key after the call, which is
+	 *         <code>value</code> if it was stored.
+	 */
+	public T putIfAbsent(long key, T value) {
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("Invalid key " + key + ".");
+		}
+
+		if (value == null) {
+			throw new IllegalArgumentException("Value cannot be null.");
+		}
+
+		while (true) {
+			Table<T> t = table;
+			int slot = t.insert(key);
+
+			if (slot < 0) {
+				grow(t);
+				continue;
+			}
+
+			// the thread that sets the value wins, whoever claimed the key.
+			T result = value;
+			if (!t.values.compareAndSet(slot, null, value)) {
+				result = t.values.get(slot);
+			}
+
+			// the table is frozen before it's copied, so if it isn't frozen
+			// now the copy is guaranteed to see the value. Otherwise wait for
+			// the copy to finish and put the value again, the replacement
+			// table decides which value won.
+			if (t.frozen) {
+				synchronized (this) {
+					// the copy holds the lock, so once it's acquired the new
+					// table is in place.
+				}
+				continue;
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the number of values in the table.
+	 */
+	public int size() {
+		return table.size.get();
+	}
+
+	/**
+	 * Returns the values in the table, in no particular order.
+	 */
+	public List<T> values() {
+		Table<T> t = table;
+		List<T> values = new ArrayList<T>(t.size.get());
+
+		for (int i = 0; i < t.capacity(); i++) {
+			T value = t.values.get(i);
+
+			if (value != null) {
+				values.add(value);
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Doubles the capacity of the provided table, unless another thread has
+	 * already replaced it.
+	 */
+	private synchronized void grow(Table<T> t) {
+		if (table != t) {
+			return;
+		}
+
+		t.frozen = true;
+
+		int capacity = t.capacity() * 2;
+		while (capacity / 2 <= t.size.get()) {
+			capacity <<= 1;
+		}
+
+		Table<T> rebuilt = new Table<T>(capacity);
+
+		for (int i = 0; i < t.capacity(); i++) {
+			T value = t.values.get(i);
+
+			// a claimed key without a value is still being put, that put will
+			// see the table is frozen and repeat itself on the new table.
+			if (value != null) {
+				int slot = rebuilt.insert(t.keys.get(i));
+				rebuilt.values.set(slot, value);
+			}
+		}
+
+		table = rebuilt;
+	}
+
+	/**
+	 * A fixed capacity, linear probing hash table of keys to values. Entries
+	 * are never removed, the table is copied instead.
+	 */
+	private static final class Table<T> {
+		private final AtomicLongArray keys;
+		private final AtomicReferenceArray<T> values;
+		private final AtomicInteger size;
+		private final int mask;
+		private final int threshold;
+
+		/**
+		 * Set before the table is copied, writers that see this must repeat
+		 * their write on the replacement table.
+		 */
+		private volatile boolean frozen;
+
+		public Table(int capacity) {
+			keys = new AtomicLongArray(capacity);
+			values = new AtomicReferenceArray<T>(capacity);
+			size = new AtomicInteger();
+			mask = capacity - 1;
+			threshold = capacity / 2;
+
+			for (int i = 0; i < capacity; i++) {
+				keys.set(i, EMPTY);
+			}
+		}
+
+		public int capacity() {
+			return mask + 1;
+		}
+
+		/**
+		 * Returns the slot holding the provided key, or <code>-1</code> if it
+		 * is not in the table.
+		 */
+		public int find(long key) {
+			int slot = hash(key) & mask;
+
+			for (int i = 0; i <= mask; i++) {
+				long k = keys.get(slot);
+
+				if (k == key) {
+					return slot;
+				}
+
+				if (k == EMPTY) {
+					return -1;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Returns the slot holding the provided key, claiming an empty slot for
+		 * it if needed. Returns <code>-1</code> if the table is too full.
+		 */
+		public int insert(long key) {
+			int slot = hash(key) & mask;
+
+			for (int i = 0; i <= mask; i++) {
+				long k = keys.get(slot);
+
+				if (k == key) {
+					return slot;
+				}
+
+				if (k == EMPTY) {
+					if (size.get() >= threshold) {
+						return -1;
+					}
+
+					if (keys.compareAndSet(slot, EMPTY, key)) {
+						size.incrementAndGet();
+						return slot;
+					}
+
+					// another thread claimed the slot, check it again.
+					i--;
+					continue;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
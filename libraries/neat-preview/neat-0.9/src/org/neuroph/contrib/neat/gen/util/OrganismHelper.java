@@ -1,7 +1,10 @@
 package org.neuroph.contrib.neat.gen.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 
@@ -52,6 +55,25 @@ public class OrganismHelper {
 		return ret;
 	}
 
+	/**
+	 * Returns a <code>Set</code> containing the provided <code>Organism</code>s
+	 * that uses identity comparison, giving constant time membership tests with
+	 * the same semantics as <code>List.contains</code> on an
+	 * <code>Organism</code>.
+	 * 
+	 * @param organisms
+	 *            the <code>Organism</code>s to add to the <code>Set</code>.
+	 * @return a new identity <code>Set</code> of the <code>Organism</code>s.
+	 */
+	public static Set<Organism> identitySet(Collection<Organism> organisms) {
+		Set<Organism> ret = Collections
+				.newSetFromMap(new IdentityHashMap<Organism, Boolean>(
+						organisms.size() * 2));
+		ret.addAll(organisms);
+
+		return ret;
+	}
+
 	public static List<Organism> copy(NeatParameters params,
 			List<Organism> organisms) {
 		List<Organism> org = new ArrayList<Organism>();
@@ -0,0 +1,67 @@
+package org.neuroph.contrib.neat.gen.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs <code>iteration</code> for every index in a range on a
+ * <code>ForkJoinPool</code>, splitting the range in half until each task holds
+ * at most <code>batchSize</code> indexes.
+ *
+ * Iterations may run in any order and on any thread, so each one must only
+ * write to state that belongs to it's own index.
+ */
+public abstract class ParallelLoop {
+	/**
+	 * Runs every iteration in <code>[0, count)</code> and waits for them to
+	 * complete.
+	 *
+	 * @param pool
+	 *            the <code>ForkJoinPool</code> to run the iterations on.
+	 * @param count
+	 *            the number of iterations.
+	 * @param batchSize
+	 *            the maximum number of iterations run by a single task.
+	 */
+	public void execute(ForkJoinPool pool, int count, int batchSize) {
+		if (count > 0) {
+			pool.invoke(new RangeTask(0, count, Math.max(batchSize, 1)));
+		}
+	}
+
+	/**
+	 * Performs the work for a single index.
+	 *
+	 * @param index
+	 *            the index of the iteration.
+	 */
+	protected abstract void iteration(int index);
+
+	private class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 3154928771503385604L;
+
+		private int start;
+		private int end;
+		private int batchSize;
+
+		public RangeTask(int start, int end, int batchSize) {
+			this.start = start;
+			this.end = end;
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > batchSize) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new RangeTask(start, middle, batchSize),
+						new RangeTask(middle, end, batchSize));
+				return;
+			}
+
+			for (int i = start; i < end; i++) {
+				iteration(i);
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package org.neuroph.contrib.neat.gen.util;
+
+import java.util.Random;
+
+/**
+ * Derives independent, reproducible <code>Random</code> streams from a single
+ * seed, so that work split across several threads draws the same random
+ * numbers no matter which thread runs it or in what order.
+ *
+ * The stream seeds are produced with the SplitMix64 mixing function, which
+ * maps different stream ids for the same seed to unrelated
+ * <code>Random</code> seeds.
+ */
+public class RandomStreams {
+	/**
+	 * The SplitMix64 increment, the fractional part of the golden ratio.
+	 */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Scrambles the bits of the provided value using the SplitMix64 finaliser.
+	 *
+	 * @param z
+	 *            the value to mix.
+	 * @return the mixed value.
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the seed of the stream with the provided id.
+	 *
+	 * @param seed
+	 *            the seed all of the streams are derived from.
+	 * @param streamId
+	 *            the id of the stream.
+	 * @return the seed of the stream.
+	 */
+	public static long seed(long seed, long streamId) {
+		return mix(seed + GOLDEN_GAMMA * (streamId + 1));
+	}
+
+	/**
+	 * Creates the <code>Random</code> stream with the provided id.
+	 *
+	 * @param seed
+	 *            the seed all of the streams are derived from.
+	 * @param streamId
+	 *            the id of the stream.
+	 * @return a new <code>Random</code> seeded for the stream.
+	 */
+	public static Random create(long seed, long streamId) {
+		return new Random(seed(seed, streamId));
+	}
+}
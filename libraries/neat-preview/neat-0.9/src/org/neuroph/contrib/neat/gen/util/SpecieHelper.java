@@ -15,4 +15,19 @@ public class SpecieHelper {
 
 		return ret;
 	}
+
+	/**
+	 * Creates a snapshot of each of the provided <code>Specie</code>s.
+	 * 
+	 * @see Specie#snapshot()
+	 */
+	public static List<Specie> snapshot(List<Specie> species) {
+		List<Specie> ret = new ArrayList<Specie>(species.size());
+
+		for (Specie s : species) {
+			ret.add(s.snapshot());
+		}
+
+		return ret;
+	}
 }
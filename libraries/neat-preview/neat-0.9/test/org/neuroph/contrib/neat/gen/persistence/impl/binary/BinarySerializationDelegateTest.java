@@ -0,0 +1,231 @@
+package org.neuroph.contrib.neat.gen.persistence.impl.binary;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.neuroph.contrib.neat.gen.ConnectionGene;
+import org.neuroph.contrib.neat.gen.FitnessScores;
+import org.neuroph.contrib.neat.gen.Gene;
+import org.neuroph.contrib.neat.gen.Generation;
+import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.NeuronType;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.Specie;
+import org.neuroph.contrib.neat.gen.persistence.impl.OrganismIndex;
+
+/**
+ * Writes records with a <code>BinarySerializationDelegate</code> and reads
+ * them back, checking that nothing is lost by the variable length ids or the
+ * deflated blocks.
+ */
+public class BinarySerializationDelegateTest extends TestCase {
+
+	/**
+	 * Neuron ids whose differences take from one to six bytes as variable
+	 * length values.
+	 */
+	private static final long[] NEURON_IDS = { 1, 2, 200, 70000, 1L << 40 };
+
+	private Random random;
+
+	public void setUp() {
+		random = new Random(42);
+	}
+
+	public void testGenerationRoundTripUncompressed() throws Exception {
+		Generation g = createGeneration(20, 10);
+		BinarySerializationDelegate delegate = new BinarySerializationDelegate(false);
+
+		assertGenerationEquals(g, delegate.decodeGeneration(delegate
+				.encodeGeneration(g)));
+	}
+
+	public void testGenerationRoundTripCompressed() throws Exception {
+		Generation g = createGeneration(20, 10);
+		BinarySerializationDelegate delegate = new BinarySerializationDelegate(true);
+
+		assertGenerationEquals(g, delegate.decodeGeneration(delegate
+				.encodeGeneration(g)));
+	}
+
+	public void testGenerationRoundTripSpanningBlocks() throws Exception {
+		// large enough that the record is deflated as several blocks.
+		Generation g = createGeneration(200, 1000);
+		BinarySerializationDelegate delegate = new BinarySerializationDelegate(true);
+
+		assertGenerationEquals(g, delegate.decodeGeneration(delegate
+				.encodeGeneration(g)));
+	}
+
+	public void testGenerationRoundTripThroughFile() throws Exception {
+		Generation g = createGeneration(20, 10);
+		BinarySerializationDelegate delegate = new BinarySerializationDelegate(true);
+
+		File f = File.createTempFile("generation", delegate.getFileExtension());
+		try {
+			delegate.writeGeneration(f, g);
+			assertGenerationEquals(g, delegate.readGeneration(f, null));
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testDecodeSingleOrganism() throws Exception {
+		// some of the organisms are in later blocks, or cross into the next.
+		Generation g = createGeneration(200, 1000);
+		BinarySerializationDelegate delegate = new BinarySerializationDelegate(true);
+
+		OrganismIndex index = new OrganismIndex(g.getOrganisms().size());
+		ByteBuffer record = delegate.encodeGeneration(g, index);
+
+		for (Organism o : g.getOrganisms()) {
+			int i = index.indexOf(o.getInnovationId());
+			assertTrue(i >= 0);
+
+			assertOrganismEquals(o, delegate.decodeOrganism(record
+					.duplicate(), o.getInnovationId(), index.getOffsetAt(i)));
+		}
+	}
+
+	public void testFitnessScoresRoundTrip() throws Exception {
+		FitnessScores scores = new FitnessScores(16);
+		scores.setFitness(1, 0.5, 3);
+		scores.setFitness(70000, -2.25, 4);
+		scores.setFitness(1L << 40, Double.MAX_VALUE, 4);
+		scores.setGeneration(4);
+
+		BinarySerializationDelegate delegate = new BinarySerializationDelegate(true);
+		FitnessScores decoded = delegate.decodeFitnessScores(delegate
+				.encodeFitnessScores(scores));
+
+		assertEquals(scores.size(), decoded.size());
+		assertEquals(scores.getGeneration(), decoded.getGeneration());
+
+		for (long id : scores.getOrganismIds()) {
+			assertEquals(scores.getFitnessForOrganism(id), decoded
+					.getFitnessForOrganism(id));
+			assertEquals(scores.getGenerationForOrganism(id), decoded
+					.getGenerationForOrganism(id));
+		}
+	}
+
+	/**
+	 * Creates a <code>Generation</code> with two <code>Specie</code>, sharing
+	 * one <code>Organism</code> between them.
+	 */
+	private Generation createGeneration(int organismCount, int connectionCount) {
+		List<Organism> first = new ArrayList<Organism>();
+		List<Organism> second = new ArrayList<Organism>();
+
+		long id = 1000;
+		for (int i = 0; i < organismCount; i++) {
+			Organism o = createOrganism(id++, connectionCount);
+
+			if (i % 2 == 0) {
+				first.add(o);
+			} else {
+				second.add(o);
+			}
+		}
+
+		second.add(first.get(0));
+
+		List<Specie> species = new ArrayList<Specie>();
+		species.add(new Specie(id++, first, first.get(0)));
+		species.add(new Specie(id++, second, null));
+		species.get(1).setDead(true);
+
+		return new Generation(7, species, id);
+	}
+
+	private Organism createOrganism(long id, int connectionCount) {
+		List<Gene> genes = new ArrayList<Gene>();
+
+		genes.add(new NeuronGene(NeuronType.INPUT, NEURON_IDS[0], random
+				.nextDouble()));
+		genes.add(new NeuronGene(NeuronType.INPUT, NEURON_IDS[1], random
+				.nextDouble()));
+		genes.add(new NeuronGene(NeuronType.HIDDEN, NEURON_IDS[2], random
+				.nextDouble()));
+		genes.add(new NeuronGene(NeuronType.HIDDEN, NEURON_IDS[3], random
+				.nextDouble()));
+		genes.add(new NeuronGene(NeuronType.OUTPUT, NEURON_IDS[4], random
+				.nextDouble()));
+
+		long innovationId = 1;
+		for (int i = 0; i < connectionCount; i++) {
+			innovationId += 1 + random.nextInt(i % 3 == 0 ? 100000 : 10);
+
+			long origin = NEURON_IDS[random.nextInt(NEURON_IDS.length)];
+			long endpoint = NEURON_IDS[random.nextInt(NEURON_IDS.length)];
+
+			genes.add(new ConnectionGene(innovationId, origin, endpoint,
+					random.nextGaussian() * 10, random.nextBoolean()));
+		}
+
+		return new Organism(id, genes);
+	}
+
+	private static void assertGenerationEquals(Generation expected,
+			Generation actual) {
+		assertEquals(expected.getGenerationNumber(), actual
+				.getGenerationNumber());
+		assertEquals(expected.getLastInnovationId(), actual
+				.getLastInnovationId());
+		assertEquals(expected.getSpecies().size(), actual.getSpecies().size());
+
+		for (int i = 0; i < expected.getSpecies().size(); i++) {
+			Specie e = expected.getSpecies().get(i);
+			Specie a = actual.getSpecies().get(i);
+
+			assertEquals(e.getInnovationId(), a.getInnovationId());
+			assertEquals(e.isDead(), a.isDead());
+			assertEquals(e.getOrganismCount(), a.getOrganismCount());
+
+			for (int j = 0; j < e.getOrganismCount(); j++) {
+				assertOrganismEquals(e.getOrganisms().get(j), a.getOrganisms()
+						.get(j));
+			}
+		}
+
+		// the shared organism is only written once, so it must be decoded
+		// as a single instance.
+		Organism shared = actual.getSpecies().get(0).getOrganisms().get(0);
+		List<Organism> second = actual.getSpecies().get(1).getOrganisms();
+		assertSame(shared, second.get(second.size() - 1));
+	}
+
+	private static void assertOrganismEquals(Organism expected, Organism actual) {
+		assertEquals(expected.getInnovationId(), actual.getInnovationId());
+
+		List<NeuronGene> en = expected.getNeurons();
+		List<NeuronGene> an = actual.getNeurons();
+		assertEquals(en.size(), an.size());
+
+		for (int i = 0; i < en.size(); i++) {
+			assertEquals(en.get(i).getInnovationId(), an.get(i)
+					.getInnovationId());
+			assertEquals(en.get(i).getNeuronType(), an.get(i).getNeuronType());
+			assertEquals(en.get(i).getActivationResponse(), an.get(i)
+					.getActivationResponse());
+		}
+
+		List<ConnectionGene> ec = expected.getConnections();
+		List<ConnectionGene> ac = actual.getConnections();
+		assertEquals(ec.size(), ac.size());
+
+		for (int i = 0; i < ec.size(); i++) {
+			assertEquals(ec.get(i).getInnovationId(), ac.get(i)
+					.getInnovationId());
+			assertEquals(ec.get(i).getOriginId(), ac.get(i).getOriginId());
+			assertEquals(ec.get(i).getEndpointId(), ac.get(i).getEndpointId());
+			assertEquals(ec.get(i).getWeight(), ac.get(i).getWeight());
+			assertEquals(ec.get(i).isEnabled(), ac.get(i).isEnabled());
+		}
+	}
+}
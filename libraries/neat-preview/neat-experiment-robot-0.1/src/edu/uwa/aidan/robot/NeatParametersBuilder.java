@@ -7,6 +7,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -19,15 +20,22 @@ import javax.swing.JTextField;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.NeuronGene;
 import org.neuroph.contrib.neat.gen.NeuronType;
+import org.neuroph.contrib.neat.gen.impl.ActivationOrder;
+import org.neuroph.contrib.neat.gen.impl.CompiledNetworkBuilder;
 import org.neuroph.contrib.neat.gen.impl.SimpleNeatParameters;
 import org.neuroph.contrib.neat.gen.operations.MutationOperation;
 import org.neuroph.contrib.neat.gen.operations.ReproductionOperation;
+import org.neuroph.contrib.neat.gen.operations.evaluator.CachingFitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.evaluator.ForkJoinFitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.mutation.AbstractMutationOperation;
 import org.neuroph.contrib.neat.gen.operations.mutation.AddConnectionMutationOperation;
 import org.neuroph.contrib.neat.gen.operations.mutation.AddNeuronMutationOperation;
 import org.neuroph.contrib.neat.gen.operations.mutation.WeightMutationOperation;
 import org.neuroph.contrib.neat.gen.operations.reproduction.AbstractReproductionOperation;
 import org.neuroph.contrib.neat.gen.operations.selector.NaturalSelectionOrganismSelector;
 import org.neuroph.contrib.neat.gen.operations.speciator.DynamicThresholdSpeciator;
+import org.neuroph.contrib.neat.gen.operations.speciator.DynamicThresholdSpeciator.ThresholdSearch;
+import org.neuroph.contrib.neat.gen.persistence.impl.AsyncPersistence;
 import org.neuroph.contrib.neat.gen.persistence.impl.DirectoryOutputPersistence;
 import org.neuroph.contrib.neat.gen.persistence.impl.serialize.JavaSerializationDelegate;
 
@@ -135,9 +143,20 @@ public class NeatParametersBuilder extends JPanel {
 		params.setPopulationSize(250);
 		params.setMaximumFitness(builder.getWorstFitnessScore());
 		params.setFitnessFunction(new RobotFitnessFunction(builder));
+		// the robots are simulated in lock-step batches, so give each task
+		// several of them.
+		ForkJoinFitnessEvaluator evaluator = new ForkJoinFitnessEvaluator();
+		evaluator.setBatchSize(16);
+
+		// the robot world is deterministic, so identical genomes can reuse
+		// the fitness from an earlier generation.
+		params.setFitnessEvaluator(new CachingFitnessEvaluator(evaluator));
+		params.setNeuralNetworkBuilder(new CompiledNetworkBuilder(
+				ActivationOrder.TOPOLOGICAL));
 
 		DynamicThresholdSpeciator speciator = new DynamicThresholdSpeciator();
 		speciator.setMaxSpecies(45);
+		speciator.setThresholdSearch(ThresholdSearch.BISECTION);
 		params.setSpeciator(speciator);
 
 		NaturalSelectionOrganismSelector selector = (NaturalSelectionOrganismSelector) params
@@ -156,16 +175,25 @@ public class NeatParametersBuilder extends JPanel {
 		ops.add(addNeuron);
 		ops.add(addConnection);
 		ops.add(weightMutation);
+
+		// mutate and reproduce on the same pool as the fitness evaluation,
+		// each organism gets it's own random stream so runs stay repeatable.
+		ForkJoinPool pool = ForkJoinFitnessEvaluator.getSharedPool();
+		for (MutationOperation op : ops) {
+			((AbstractMutationOperation) op).setPool(pool);
+		}
 		
 		params.setMutationOperators(ops);
 
 		for (ReproductionOperation op : params.getReproductionOperators()) {
 			((AbstractReproductionOperation) op).setUseFitnessBias(false);
+			((AbstractReproductionOperation) op).setPool(pool);
 		}
 
 		// if you change this to a different persistence mechanism, make sure to change the value
-		// in the replay as well.
-		params.setPersistence(new DirectoryOutputPersistence(BASE_DIRECTORY, new JavaSerializationDelegate(false)));
+		// in the replay as well. the generations are written in the background while the next
+		// one is evaluated.
+		params.setPersistence(new AsyncPersistence(new DirectoryOutputPersistence(BASE_DIRECTORY, new JavaSerializationDelegate(false))));
 
 		return params;
 	}
@@ -4,12 +4,8 @@ import java.io.File;
 
 import javax.swing.JFrame;
 
-import org.neuroph.contrib.neat.gen.Generation;
-import org.neuroph.contrib.neat.gen.Innovations;
 import org.neuroph.contrib.neat.gen.NeatParameters;
 import org.neuroph.contrib.neat.gen.Organism;
-import org.neuroph.contrib.neat.gen.Specie;
-import org.neuroph.contrib.neat.gen.persistence.Persistence;
 import org.neuroph.contrib.neat.gen.persistence.PersistenceException;
 
 import edu.uwa.aidan.robot.nnet.RobotFitnessFunction;
@@ -41,25 +37,9 @@ public class ReplayRobot {
 		frame.setVisible(true);
 	}
 
-	private static Organism loadOrganism(NeatParameters params, Long valueOf) throws PersistenceException {
-		Persistence p = params.getPersistence();
-		
-		long numberOfGenerations = p.getGenerationCount();
-		
-		Innovations innovations = p.loadInnovations();
-		
-		for(long l = 1; l < numberOfGenerations; l++) {
-			Generation g = p.loadGeneration(l, innovations);
-			
-			for(Specie s : g.getSpecies()) {
-				for(Organism o : s.getOrganisms()) {
-					if(o.getInnovationId() == valueOf) {
-						return o;
-					}
-				}
-			}
-		}
-		
-		return null;
+	private static Organism loadOrganism(NeatParameters params, long organismId) throws PersistenceException {
+		// the persistence keeps an index of which generation each Organism is in, so only that
+		// generation is read.
+		return params.getPersistence().loadOrganism(organismId);
 	}
 }
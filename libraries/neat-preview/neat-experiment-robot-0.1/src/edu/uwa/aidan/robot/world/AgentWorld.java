@@ -5,7 +5,6 @@ import java.awt.Graphics2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.geom.Line2D.Double;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,22 +28,10 @@ public class AgentWorld {
 	private double worstFitness = java.lang.Double.MAX_VALUE;
 
 	/**
-	 * The border of the world, the world is always assumed to be an enclosed
-	 * space.
+	 * The size, boundary and <code>Obstacle</code>s of the world, which are
+	 * shared with every copy of this world.
 	 */
-	private Rectangle2D border;
-
-	/**
-	 * The border as a <code>List</code> of <code>Line2D</code> objects, used
-	 * for collision detection.
-	 */
-	private List<Line2D> boundary;
-
-	/**
-	 * The <code>Obstacle</code>s in the world. These are represented as
-	 * <code>Line2D</code> objects.
-	 */
-	private List<Obstacle> obstacles;
+	private WorldGeometry geometry;
 
 	/**
 	 * The <code>Goal</code> the robot is attempting to find.
@@ -70,25 +57,32 @@ public class AgentWorld {
 	 *            the height of the world, in pixels.
 	 */
 	public AgentWorld(double width, double height) {
-		this.border = new Rectangle2D.Double(0.0, 0.0, width, height);
-		obstacles = new ArrayList<Obstacle>();
-
-		boundary = new ArrayList<Line2D>();
-		boundary.add(new Line2D.Double(0.0, 0.0, width, 0.0));
-		boundary.add(new Line2D.Double(0.0, 0.0, 0.0, height));
-		boundary.add(new Line2D.Double(0.0, height, width, height));
-		boundary.add(new Line2D.Double(width, 0.0, width, height));
+		this(new WorldGeometry(width, height, new ArrayList<Obstacle>()));
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param geometry
+	 *            the size, boundary and <code>Obstacle</code>s of the world.
+	 */
+	public AgentWorld(WorldGeometry geometry) {
+		this.geometry = geometry;
 	}
 
 	/**
 	 * Adds the provided <code>Obstacle</code> to the <code>List</code> of
 	 * <code>Obstacle</code>s in the world.
 	 * 
+	 * This creates a new <code>WorldGeometry</code>, so when there are many
+	 * <code>Obstacle</code>s it is quicker to create the
+	 * <code>WorldGeometry</code> with all of them.
+	 * 
 	 * @param o
 	 *            the <code>Obstacle</code> to add.
 	 */
 	public void addObstacle(Obstacle o) {
-		obstacles.add(o);
+		geometry = geometry.addObstacle(o);
 	}
 
 	/**
@@ -97,7 +91,27 @@ public class AgentWorld {
 	 * @return the <code>List</code> of <code>Obstacle</code>s in the world.
 	 */
 	public List<Obstacle> getObstacles() {
-		return obstacles;
+		return geometry.getObstacles();
+	}
+
+	/**
+	 * Returns the <code>WorldGeometry</code> of this world.
+	 * 
+	 * @return the <code>WorldGeometry</code> of this world.
+	 */
+	public WorldGeometry getGeometry() {
+		return geometry;
+	}
+
+	/**
+	 * Returns the <code>ObstacleGrid</code> over the <code>Obstacle</code>s
+	 * and boundary of this world.
+	 * 
+	 * @return the <code>ObstacleGrid</code> over the <code>Obstacle</code>s
+	 *         and boundary of this world.
+	 */
+	public ObstacleGrid getObstacleGrid() {
+		return geometry.getObstacleGrid();
 	}
 
 	/**
@@ -149,7 +163,7 @@ public class AgentWorld {
 	 * @return the boundary of this <code>AgentWorld</code> as a <code>List</code> of <code>Line2D</code> objects.
 	 */
 	public List<Line2D> getBoundary() {
-		return boundary;
+		return geometry.getBoundary();
 	}
 
 	/**
@@ -162,11 +176,11 @@ public class AgentWorld {
 	public void paint(Graphics2D g2d, double pixelRatio) {
 		g2d.setColor(Color.BLACK);
 		
-		for (Line2D l : boundary) {
+		for (Line2D l : getBoundary()) {
 			g2d.draw(ShapeHelper.getLine(l, pixelRatio));
 		}
 
-		for (Obstacle o : obstacles) {
+		for (Obstacle o : getObstacles()) {
 			g2d.draw(ShapeHelper.getLine(o.getShape(), pixelRatio));
 		}
 
@@ -184,7 +198,7 @@ public class AgentWorld {
 	 * @return the boundary of this <code>AgentWorld</code> as a <code>Rectangle2D</code>.
 	 */
 	public Rectangle2D getBoundaryRect() {
-		return border;
+		return geometry.getBoundaryRect();
 	}
 
 	/**
@@ -192,7 +206,7 @@ public class AgentWorld {
 	 * @return the width of this <code>AgentWorld</code>.
 	 */
 	public double getWidth() {
-		return border.getWidth();
+		return geometry.getWidth();
 	}
 
 	/**
@@ -200,7 +214,7 @@ public class AgentWorld {
 	 * @return the height of this <code>AgentWorld</code>.
 	 */
 	public double getHeight() {
-		return border.getHeight();
+		return geometry.getHeight();
 	}
 	
 	/**
@@ -230,7 +244,7 @@ public class AgentWorld {
 	 *            the current step num.
 	 */
 	public void step(long stepNum) {
-		for (Obstacle o : obstacles) {
+		for (Obstacle o : getObstacles()) {
 			o.step(stepNum);
 		}
 
@@ -247,7 +261,7 @@ public class AgentWorld {
 	 * Resets the world back to default.
 	 */
 	public void reset() {
-		for (Obstacle o : obstacles) {
+		for (Obstacle o : getObstacles()) {
 			o.reset();
 		}
 
@@ -263,22 +277,17 @@ public class AgentWorld {
 	 * Creates a copy of this <code>AgentWorld</code>.
 	 * 
 	 * <b>Note:</b> this will not copy the <code>Robot</code>, it is used for copying
-	 * the definition of the world to save loading it from disk repeatedly.
+	 * the definition of the world to save loading it from disk repeatedly. None of
+	 * the definition changes during a simulation, so the copy shares this world's
+	 * <code>WorldGeometry</code> and <code>Goal</code> rather than copying them.
 	 * 
 	 * @return a copy of this <code>AgentWorld</code>.
 	 */
 	public AgentWorld copy() {
-		AgentWorld copy = new AgentWorld(getWidth(), getHeight());
-		for(Obstacle o : getObstacles()) {
-			copy.addObstacle(o.copy());
-		}
-		
-		if(getGoal() != null) {
-			copy.setGoal(getGoal().copy());
-		}
-		
-		copy.setWorstFitnessScore(worstFitness);
-		copy.setInitialLocation(agentStartPosition.getX(), agentStartPosition.getY());
+		AgentWorld copy = new AgentWorld(geometry);
+		copy.goal = goal;
+		copy.worstFitness = worstFitness;
+		copy.agentStartPosition = agentStartPosition;
 		
 		return copy;
 	}
@@ -301,38 +310,24 @@ public class AgentWorld {
 	 */
 	public boolean canMove(Point2D lastPoint, Point2D newPoint) {
 		if (lastPoint != null) {
-			Double line = new Double(lastPoint, newPoint);
-
-			for (Obstacle o : getObstacles()) {
-				Line2D obstacle = o.getShape();
-
-				if (obstacle.intersectsLine(line)) {
-					return false;
-				}
-
-				// make sure the agent doesnt bump right into the obstacle.
-				if (obstacle.ptSegDist(newPoint) < Robot.AGENT_RADIUS) {
-					return false;
-				}
-			}
-
-			for (Line2D o : getBoundary()) {
-				if (o.intersectsLine(line)) {
-					return false;
-				}
-
-				// make sure the agent doesnt bump right into the obstacle.
-				if (o.ptSegDist(newPoint) < Robot.AGENT_RADIUS) {
-					return false;
-				}
-			}
-		} else {
-			if (!getBoundaryRect().contains(newPoint)) {
-				return false;
-			}
+			return canMove(lastPoint.getX(), lastPoint.getY(), newPoint.getX(),
+					newPoint.getY());
 		}
 
-		return true;
+		return getBoundaryRect().contains(newPoint);
+	}
+
+	/**
+	 * Returns <code>true</code> if it is possible to move from
+	 * <code>(fromX, fromY)</code> to <code>(toX, toY)</code>, without crossing
+	 * or bumping into an <code>Obstacle</code> or the boundary.
+	 * 
+	 * @return <code>true</code> if it is possible to move from
+	 *         <code>(fromX, fromY)</code> to <code>(toX, toY)</code>.
+	 */
+	public boolean canMove(double fromX, double fromY, double toX, double toY) {
+		return !getObstacleGrid().isBlocked(fromX, fromY, toX, toY,
+				Robot.AGENT_RADIUS);
 	}
 
 	/**
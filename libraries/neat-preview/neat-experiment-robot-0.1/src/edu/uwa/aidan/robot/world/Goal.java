@@ -71,7 +71,24 @@ public class Goal {
 	 * of this <code>Goal</code>, <code>false</code> otherwise.
 	 */
 	public boolean containsPoint(Point2D point) {
-		return getShape().contains(point);
+		return containsPoint(point.getX(), point.getY());
+	}
+
+	/**
+	 * Returns <code>true</code> if the point <code>(x, y)</code> is inside the capture-radius
+	 * of this <code>Goal</code>, <code>false</code> otherwise.
+	 * @param x the x coordinate of the point to test.
+	 * @param y the y coordinate of the point to test.
+	 * @return <code>true</code> if the point is inside the capture-radius of this
+	 * <code>Goal</code>, <code>false</code> otherwise.
+	 */
+	public boolean containsPoint(double x, double y) {
+		// the same test as getShape().contains(x, y), as this is called on every step
+		// it is done without creating the shape.
+		double normX = (x - position.getX()) / GOAL_RADIUS - 0.5;
+		double normY = (y - position.getY()) / GOAL_RADIUS - 0.5;
+
+		return (normX * normX + normY * normY) < 0.25;
 	}
 
 	/**
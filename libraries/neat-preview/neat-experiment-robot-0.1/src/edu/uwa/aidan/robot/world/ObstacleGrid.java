@@ -0,0 +1,451 @@
+package edu.uwa.aidan.robot.world;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A uniform grid over the <code>Obstacle</code>s and boundary of an
+ * <code>AgentWorld</code>, used to answer the geometric queries made on every
+ * step of the simulation without testing every line in the world.
+ *
+ * Each cell of the grid holds the lines whose bounding box overlaps it. A
+ * <code>RangeSensor</code> ray walks the cells it passes through in order,
+ * and stops as soon as it has found an intersection before the end of the
+ * current cell. Movement checks only test the lines in the cells around the
+ * movement.
+ *
+ * The line coordinates are copied out of the <code>Obstacle</code>s when the
+ * grid is created, so none of the queries allocate any objects. It is part of
+ * the <code>WorldGeometry</code>, and as it is never modified it is safe to
+ * use from multiple threads.
+ */
+public class ObstacleGrid {
+	/**
+	 * Returned by <code>getNearestIntersection</code> if there is no
+	 * intersection.
+	 */
+	public static final double NO_INTERSECTION = -1.0;
+
+	/**
+	 * How far past the end of a line an intersection can be and still count.
+	 * The <code>RangeSensor</code> has always been this lenient, so that a
+	 * ray through the point where two lines join hits at least one of them.
+	 */
+	private static final double SEGMENT_TOLERANCE = 0.005;
+
+	/**
+	 * The coordinates of each line, the <code>Obstacle</code>s followed by
+	 * the boundary.
+	 */
+	private final double[] x1, y1, x2, y2;
+
+	/**
+	 * The <code>SEGMENT_TOLERANCE</code> of each line, as a fraction of it's
+	 * length.
+	 */
+	private final double[] slack;
+
+	/**
+	 * The area covered by the grid.
+	 */
+	private final double minX, minY, maxX, maxY;
+
+	private final int columns, rows;
+	private final double cellWidth, cellHeight;
+
+	/**
+	 * The lines in cell <code>c</code> are
+	 * <code>cellLines[cellStart[c]]</code> up to, but not including,
+	 * <code>cellLines[cellStart[c + 1]]</code>. Cells are stored row by row.
+	 */
+	private final int[] cellStart;
+	private final int[] cellLines;
+
+	/**
+	 * Constructor, creates a grid with roughly two cells per line along each
+	 * side.
+	 *
+	 * @param obstacles
+	 *            the <code>Obstacle</code>s to create the grid over.
+	 * @param boundary
+	 *            the boundary of the world.
+	 */
+	public ObstacleGrid(List<Obstacle> obstacles, List<Line2D> boundary) {
+		this(obstacles, boundary, 2 * (int) Math.ceil(Math.sqrt(obstacles
+				.size() + boundary.size())));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param obstacles
+	 *            the <code>Obstacle</code>s to create the grid over.
+	 * @param boundary
+	 *            the boundary of the world.
+	 * @param resolution
+	 *            the number of cells along each side of the grid.
+	 */
+	public ObstacleGrid(List<Obstacle> obstacles, List<Line2D> boundary,
+			int resolution) {
+		if (resolution < 1) {
+			throw new IllegalArgumentException("Invalid resolution " + resolution + ".");
+		}
+
+		List<Line2D> lines = new ArrayList<Line2D>();
+		for (Obstacle o : obstacles) {
+			lines.add(o.getShape());
+		}
+		lines.addAll(boundary);
+
+		int count = lines.size();
+		x1 = new double[count];
+		y1 = new double[count];
+		x2 = new double[count];
+		y2 = new double[count];
+		slack = new double[count];
+
+		double left = Double.MAX_VALUE;
+		double top = Double.MAX_VALUE;
+		double right = -Double.MAX_VALUE;
+		double bottom = -Double.MAX_VALUE;
+
+		for (int i = 0; i < count; i++) {
+			Line2D l = lines.get(i);
+
+			x1[i] = l.getX1();
+			y1[i] = l.getY1();
+			x2[i] = l.getX2();
+			y2[i] = l.getY2();
+
+			double dx = x2[i] - x1[i];
+			double dy = y2[i] - y1[i];
+			slack[i] = SEGMENT_TOLERANCE / Math.sqrt(dx * dx + dy * dy);
+
+			left = Math.min(left, Math.min(x1[i], x2[i]));
+			top = Math.min(top, Math.min(y1[i], y2[i]));
+			right = Math.max(right, Math.max(x1[i], x2[i]));
+			bottom = Math.max(bottom, Math.max(y1[i], y2[i]));
+		}
+
+		if (count == 0) {
+			left = top = right = bottom = 0.0;
+		}
+
+		// grow the grid so that the lenient intersections past the ends of
+		// the lines are still inside the cells the lines are stored in.
+		minX = left - SEGMENT_TOLERANCE;
+		minY = top - SEGMENT_TOLERANCE;
+		maxX = right + SEGMENT_TOLERANCE;
+		maxY = bottom + SEGMENT_TOLERANCE;
+
+		columns = resolution;
+		rows = resolution;
+		cellWidth = (maxX - minX) / columns;
+		cellHeight = (maxY - minY) / rows;
+
+		// count the lines in each cell, then fill them in.
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < count; i++) {
+			int firstColumn = getColumn(Math.min(x1[i], x2[i]) - SEGMENT_TOLERANCE);
+			int lastColumn = getColumn(Math.max(x1[i], x2[i]) + SEGMENT_TOLERANCE);
+			int firstRow = getRow(Math.min(y1[i], y2[i]) - SEGMENT_TOLERANCE);
+			int lastRow = getRow(Math.max(y1[i], y2[i]) + SEGMENT_TOLERANCE);
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					cellStart[row * columns + column + 1]++;
+				}
+			}
+		}
+
+		for (int c = 0; c < columns * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+
+		cellLines = new int[cellStart[columns * rows]];
+		int[] filled = new int[columns * rows];
+
+		for (int i = 0; i < count; i++) {
+			int firstColumn = getColumn(Math.min(x1[i], x2[i]) - SEGMENT_TOLERANCE);
+			int lastColumn = getColumn(Math.max(x1[i], x2[i]) + SEGMENT_TOLERANCE);
+			int firstRow = getRow(Math.min(y1[i], y2[i]) - SEGMENT_TOLERANCE);
+			int lastRow = getRow(Math.max(y1[i], y2[i]) + SEGMENT_TOLERANCE);
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					int c = row * columns + column;
+					cellLines[cellStart[c] + filled[c]] = i;
+					filled[c]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns how far along the line from <code>(fromX, fromY)</code> to
+	 * <code>(toX, toY)</code> it first intersects an <code>Obstacle</code> or
+	 * the boundary, as a fraction of it's length.
+	 *
+	 * @return how far along the line it first intersects an
+	 *         <code>Obstacle</code> or the boundary, or
+	 *         <code>NO_INTERSECTION</code> if it doesn't intersect anything.
+	 */
+	public double getNearestIntersection(double fromX, double fromY,
+			double toX, double toY) {
+		double dx = toX - fromX;
+		double dy = toY - fromY;
+
+		double length = Math.sqrt(dx * dx + dy * dy);
+		if (length == 0.0) {
+			return NO_INTERSECTION;
+		}
+
+		double raySlack = SEGMENT_TOLERANCE / length;
+
+		// clip the ray to the area covered by the grid.
+		double enter = -raySlack;
+		double exit = 1.0 + raySlack;
+
+		if (dx == 0.0) {
+			if (fromX < minX || fromX > maxX) {
+				return NO_INTERSECTION;
+			}
+		} else {
+			double a = (minX - fromX) / dx;
+			double b = (maxX - fromX) / dx;
+			enter = Math.max(enter, Math.min(a, b));
+			exit = Math.min(exit, Math.max(a, b));
+		}
+
+		if (dy == 0.0) {
+			if (fromY < minY || fromY > maxY) {
+				return NO_INTERSECTION;
+			}
+		} else {
+			double a = (minY - fromY) / dy;
+			double b = (maxY - fromY) / dy;
+			enter = Math.max(enter, Math.min(a, b));
+			exit = Math.min(exit, Math.max(a, b));
+		}
+
+		if (enter > exit) {
+			return NO_INTERSECTION;
+		}
+
+		int column = getColumn(fromX + enter * dx);
+		int row = getRow(fromY + enter * dy);
+
+		// the distance along the ray to the next column and row boundaries,
+		// and the distance between successive boundaries.
+		int stepColumn = 0;
+		double nextColumn = Double.POSITIVE_INFINITY;
+		double columnDelta = Double.POSITIVE_INFINITY;
+
+		if (dx > 0.0) {
+			stepColumn = 1;
+			nextColumn = (minX + (column + 1) * cellWidth - fromX) / dx;
+			columnDelta = cellWidth / dx;
+		} else if (dx < 0.0) {
+			stepColumn = -1;
+			nextColumn = (minX + column * cellWidth - fromX) / dx;
+			columnDelta = -cellWidth / dx;
+		}
+
+		int stepRow = 0;
+		double nextRow = Double.POSITIVE_INFINITY;
+		double rowDelta = Double.POSITIVE_INFINITY;
+
+		if (dy > 0.0) {
+			stepRow = 1;
+			nextRow = (minY + (row + 1) * cellHeight - fromY) / dy;
+			rowDelta = cellHeight / dy;
+		} else if (dy < 0.0) {
+			stepRow = -1;
+			nextRow = (minY + row * cellHeight - fromY) / dy;
+			rowDelta = -cellHeight / dy;
+		}
+
+		double nearest = Double.POSITIVE_INFINITY;
+
+		while (true) {
+			int c = row * columns + column;
+
+			for (int j = cellStart[c]; j < cellStart[c + 1]; j++) {
+				double t = intersect(fromX, fromY, dx, dy, raySlack, cellLines[j]);
+
+				if (t < nearest) {
+					nearest = t;
+				}
+			}
+
+			// any intersection in a later cell is further along the ray.
+			double cellExit = Math.min(nextColumn, nextRow);
+			if (nearest <= cellExit || cellExit >= exit) {
+				break;
+			}
+
+			if (nextColumn < nextRow) {
+				column += stepColumn;
+				if (column < 0 || column >= columns) {
+					break;
+				}
+
+				nextColumn += columnDelta;
+			} else {
+				row += stepRow;
+				if (row < 0 || row >= rows) {
+					break;
+				}
+
+				nextRow += rowDelta;
+			}
+		}
+
+		if (nearest == Double.POSITIVE_INFINITY) {
+			return NO_INTERSECTION;
+		}
+
+		return nearest;
+	}
+
+	/**
+	 * Returns the distance from <code>(fromX, fromY)</code> to the first
+	 * <code>Obstacle</code> or boundary intersected by the line to
+	 * <code>(toX, toY)</code>.
+	 *
+	 * @return the distance to the first intersection, or
+	 *         <code>Double.MAX_VALUE</code> if the line doesn't intersect
+	 *         anything.
+	 */
+	public double getDistanceToNearestIntersection(double fromX,
+			double fromY, double toX, double toY) {
+		double t = getNearestIntersection(fromX, fromY, toX, toY);
+
+		if (t == NO_INTERSECTION) {
+			return Double.MAX_VALUE;
+		}
+
+		// measured between the points, rather than scaling the length, so
+		// the distance is the same as Point2D.distance would give.
+		double x = (fromX + t * (toX - fromX)) - fromX;
+		double y = (fromY + t * (toY - fromY)) - fromY;
+
+		return Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * Returns every point at which the line from <code>(fromX, fromY)</code>
+	 * to <code>(toX, toY)</code> intersects an <code>Obstacle</code> or the
+	 * boundary, <code>Obstacle</code>s first.
+	 *
+	 * This tests every line in the world, and is intended for rendering
+	 * rather than for use during the simulation.
+	 *
+	 * @return a <code>List</code> of every intersection.
+	 */
+	public List<Point2D> getIntersections(double fromX, double fromY,
+			double toX, double toY) {
+		double dx = toX - fromX;
+		double dy = toY - fromY;
+		double raySlack = SEGMENT_TOLERANCE / Math.sqrt(dx * dx + dy * dy);
+
+		List<Point2D> intersections = new ArrayList<Point2D>();
+
+		for (int i = 0; i < x1.length; i++) {
+			double t = intersect(fromX, fromY, dx, dy, raySlack, i);
+
+			if (t != Double.POSITIVE_INFINITY) {
+				intersections.add(new Point2D.Double(fromX + t * dx, fromY + t * dy));
+			}
+		}
+
+		return intersections;
+	}
+
+	/**
+	 * Returns <code>true</code> if moving from <code>(fromX, fromY)</code> to
+	 * <code>(toX, toY)</code> would cross an <code>Obstacle</code> or the
+	 * boundary, or finish closer than <code>clearance</code> to one.
+	 *
+	 * @return <code>true</code> if the movement is blocked.
+	 */
+	public boolean isBlocked(double fromX, double fromY, double toX,
+			double toY, double clearance) {
+		double left = Math.min(fromX, toX) - clearance;
+		double top = Math.min(fromY, toY) - clearance;
+		double right = Math.max(fromX, toX) + clearance;
+		double bottom = Math.max(fromY, toY) + clearance;
+
+		if (left > maxX || top > maxY || right < minX || bottom < minY) {
+			return false;
+		}
+
+		int firstColumn = getColumn(left);
+		int lastColumn = getColumn(right);
+		int firstRow = getRow(top);
+		int lastRow = getRow(bottom);
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int c = row * columns + column;
+
+				for (int j = cellStart[c]; j < cellStart[c + 1]; j++) {
+					int i = cellLines[j];
+
+					if (Line2D.linesIntersect(fromX, fromY, toX, toY, x1[i], y1[i], x2[i], y2[i])) {
+						return true;
+					}
+
+					// make sure the agent doesnt bump right into the obstacle.
+					if (Line2D.ptSegDist(x1[i], y1[i], x2[i], y2[i], toX, toY) < clearance) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns how far along the ray the line at <code>index</code> intersects
+	 * it, as a fraction of the ray's length, or
+	 * <code>Double.POSITIVE_INFINITY</code> if it doesn't.
+	 */
+	private double intersect(double fromX, double fromY, double dx,
+			double dy, double raySlack, int index) {
+		double lineDx = x2[index] - x1[index];
+		double lineDy = y2[index] - y1[index];
+
+		// parallel lines can't intersect.
+		double div = lineDy * dx - lineDx * dy;
+		if (div == 0.0) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		double offsetX = fromX - x1[index];
+		double offsetY = fromY - y1[index];
+
+		double ua = (lineDx * offsetY - lineDy * offsetX) / div;
+		double ub = (dx * offsetY - dy * offsetX) / div;
+
+		if (ua >= -raySlack && ua <= 1.0 + raySlack && ub >= -slack[index]
+				&& ub <= 1.0 + slack[index]) {
+			return ua;
+		}
+
+		return Double.POSITIVE_INFINITY;
+	}
+
+	private int getColumn(double x) {
+		int column = (int) ((x - minX) / cellWidth);
+		return Math.max(0, Math.min(columns - 1, column));
+	}
+
+	private int getRow(double y) {
+		int row = (int) ((y - minY) / cellHeight);
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+}
@@ -6,7 +6,6 @@ import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -103,27 +102,19 @@ public class RangeSensor {
 	 * nearest <code>Obstacle</code>.
 	 */
 	public Point2D getNearestObstacleIntersection() {
-		List<Point2D> obstacleIntersections = getObstacleIntersections();
-
-		Point2D closest = null;
 		Point2D agentPos = agent.getPosition();
+		double x = getX();
+		double y = getY();
 
-		for (Point2D v : obstacleIntersections) {
-			if (closest == null) {
-				closest = v;
-			} else {
-				if (v != null) {
-					double best = closest.distance(agentPos);
-					double proposed = v.distance(agentPos);
+		double t = agent.getWorld().getObstacleGrid().getNearestIntersection(
+				agentPos.getX(), agentPos.getY(), x, y);
 
-					if (proposed < best) {
-						closest = v;
-					}
-				}
-			}
+		if (t == ObstacleGrid.NO_INTERSECTION) {
+			return null;
 		}
 
-		return closest;
+		return new Point2D.Double(agentPos.getX() + t * (x - agentPos.getX()),
+				agentPos.getY() + t * (y - agentPos.getY()));
 	}
 
 	/**
@@ -137,105 +128,10 @@ public class RangeSensor {
 	 * <code>RangeSensor</code> with the <code>Obstacles</code>.
 	 */
 	public List<Point2D> getObstacleIntersections() {
-		Line2D l = new Line2D.Double(agent.getPosition(), getEndpoint());
-		List<Point2D> intersections = new ArrayList<Point2D>();
-
-		for (Obstacle s : agent.getWorld().getObstacles()) {
-			Line2D obs = s.getShape();
-
-			Point2D intersection = findIntersection(l, obs);
-
-			if (intersection != null) {
-				intersections.add(intersection);
-			}
-		}
-
-		for (Line2D wall : agent.getWorld().getBoundary()) {
-			Point2D intersection = findIntersection(l, wall);
-			if (intersection != null) {
-				intersections.add(intersection);
-			}
-		}
-
-		return intersections;
-	}
-
-	// calculates intersection and checks for parallel lines.
-	// also checks that the intersection point is actually on
-	// the line segment p1-p2
-	// we can't use the standard Java2D intersection here because
-	// it assumes infinitely long lines, which means we get intersections with
-	// the obstacles in both directions (i.e. both 0 degrees and 180 degrees).
-	private Point2D findIntersection(Line2D one, Line2D two) {
-		Point2D p1 = one.getP1();
-		Point2D p2 = one.getP2();
-		Point2D p3 = two.getP1();
-		Point2D p4 = two.getP2();
-
-		double xD1, yD1, xD2, yD2, xD3, yD3;
-		double dot, deg, len1, len2;
-		double segmentLen1, segmentLen2;
-		double ua, ub, div;
-
-		// calculate differences
-		xD1 = p2.getX() - p1.getX();
-		xD2 = p4.getX() - p3.getX();
-		yD1 = p2.getY() - p1.getY();
-		yD2 = p4.getY() - p3.getY();
-		xD3 = p1.getX() - p3.getX();
-		yD3 = p1.getY() - p3.getY();
-
-		// calculate the lengths of the two lines
-		len1 = Math.sqrt(xD1 * xD1 + yD1 * yD1);
-		len2 = Math.sqrt(xD2 * xD2 + yD2 * yD2);
-
-		// calculate angle between the two lines.
-		dot = (xD1 * xD2 + yD1 * yD2); // dot product
-		deg = dot / (len1 * len2);
-
-		// if abs(angle)==1 then the lines are parallell,
-		// so no intersection is possible
-		if (Math.abs(deg) == 1)
-			return null;
-
-		// find intersection Pt between two lines
-		Point2D.Double pt = new Point2D.Double(0.0, 0.0);
-
-		div = yD2 * xD1 - xD2 * yD1;
-		ua = (xD2 * yD3 - yD2 * xD3) / div;
-		ub = (xD1 * yD3 - yD1 * xD3) / div;
-		pt.x = (p1.getX() + ua * xD1);
-		pt.y = (p1.getY() + ua * yD1);
-
-		// calculate the combined length of the two segments
-		// between Pt-p1 and Pt-p2
-		xD1 = (pt.x - p1.getX());
-		xD2 = (pt.x - p2.getX());
-		yD1 = (pt.y - p1.getY());
-		yD2 = (pt.y - p2.getY());
-		segmentLen1 = Math.sqrt(xD1 * xD1 + yD1 * yD1)
-				+ Math.sqrt(xD2 * xD2 + yD2 * yD2);
-
-		// calculate the combined length of the two segments
-		// between Pt-p3 and Pt-p4
-		xD1 = (pt.x - p3.getX());
-		xD2 = (pt.x - p4.getX());
-		yD1 = (pt.y - p3.getY());
-		yD2 = (pt.y - p4.getY());
-		segmentLen2 = Math.sqrt(xD1 * xD1 + yD1 * yD1)
-				+ Math.sqrt(xD2 * xD2 + yD2 * yD2);
-
-		// if the lengths of both sets of segments are the same as
-		// the lenghts of the two lines the point is actually
-		// on the line segment.
-
-		// if the point isn't on the line, return null
-		if (Math.abs(len1 - segmentLen1) > 0.01
-				|| Math.abs(len2 - segmentLen2) > 0.01)
-			return null;
+		Point2D agentPos = agent.getPosition();
 
-		// return the valid intersection
-		return pt;
+		return agent.getWorld().getObstacleGrid().getIntersections(
+				agentPos.getX(), agentPos.getY(), getX(), getY());
 	}
 
 	/**
@@ -278,15 +174,19 @@ public class RangeSensor {
 	 * <code>Obstacle</code> found by this <codE>RangeSensor</code>.
 	 */
 	public double getDistanceToNearestObstacle() {
-		Point2D near = getNearestObstacleIntersection();
+		// this is called for every sensor on every step, so the endpoint is
+		// worked out here rather than allocating it.
+		Point2D agentPos = agent.getPosition();
+		double angle = getSensorAngle();
 
-		if (near != null) {
-			return agent.getPosition().distance(near);
-		}
+		double x = (SENSOR_RANGE * Math.cos(angle)) + agentPos.getX();
+		double y = (SENSOR_RANGE * Math.sin(angle)) + agentPos.getY();
 
-		// if there is no nearest obstacle, then the nearest obstacle is effectively 
+		// if there is no nearest obstacle, then the nearest obstacle is effectively
 		// the furthest possible distance away.
-		return java.lang.Double.MAX_VALUE;
+		return agent.getWorld().getObstacleGrid()
+				.getDistanceToNearestIntersection(agentPos.getX(),
+						agentPos.getY(), x, y);
 	}
 
 	/**
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import org.neuroph.contrib.neat.gen.impl.CompiledNeuralNetwork;
 import org.neuroph.core.NeuralNetwork;
 
 /**
@@ -47,6 +48,12 @@ public class Robot {
 	 */
 	public static final double AGENT_RADIUS = 1.0;
 
+	/**
+	 * The number of positions kept in the <code>Trajectory</code> unless
+	 * another length is provided.
+	 */
+	public static final int DEFAULT_TRAJECTORY_LENGTH = 1000;
+
 	/**
 	 * The <code>AgentWorld</code> that this <code>Robot</code> belongs to.
 	 */
@@ -68,15 +75,15 @@ public class Robot {
 	private double rotation = 0;
 	
 	/**
-	 * A <code>List</code> of <code>Point2D</code> recording every position that this <code>Robot</code>
-	 * has been in through the duration of the simulation.
+	 * Records the positions that this <code>Robot</code> has been in through the duration
+	 * of the simulation.
 	 */
-	private List<Point2D> trajectory;
+	private Trajectory trajectory;
 	
 	/**
-	 * The current position of this <code>Robot</code>.
+	 * The current position of this <code>Robot</code>, updated in place as it moves.
 	 */
-	private Point2D position;
+	private Point2D.Double position;
 
 	/**
 	 * The <code>NeuralNetwork</code> that is being evaluated. This is the "brains" of the
@@ -90,14 +97,36 @@ public class Robot {
 	 */
 	private boolean foundGoal = false;
 
+	/**
+	 * The inputs passed to the <code>NeuralNetwork</code>, reused on every step.
+	 */
+	private double[] inputs = new double[NUMBER_OF_RANGEFINDERS + NUMBER_OF_GOAL_SENSORS];
+
+	/**
+	 * The outputs read from the <code>NeuralNetwork</code>, reused on every
+	 * step.
+	 */
+	private double[] outputs = new double[2];
+
 	/**
 	 * Constructor.
 	 * @param nn the <code>NeuralNetwork</code> to use for determining the <code>Robot</code>s
 	 * behaviour.
 	 */
 	public Robot(NeuralNetwork nn) {
+		this(nn, DEFAULT_TRAJECTORY_LENGTH);
+	}
+
+	/**
+	 * Constructor.
+	 * @param nn the <code>NeuralNetwork</code> to use for determining the <code>Robot</code>s
+	 * behaviour.
+	 * @param trajectoryLength the number of positions to keep in the <code>Trajectory</code>,
+	 * zero to not record the <code>Trajectory</code> at all, e.g. when training.
+	 */
+	public Robot(NeuralNetwork nn, int trajectoryLength) {
 		this.network = nn;
-		this.trajectory = new ArrayList<Point2D>();
+		this.trajectory = new Trajectory(trajectoryLength);
 
 		createRangeSensors();
 		createGoalSensors();
@@ -167,7 +196,8 @@ public class Robot {
 	}
 
 	/**
-	 * Returns the current <code>Point2D</code> position of this <code>Robot</code>.
+	 * Returns the current <code>Point2D</code> position of this <code>Robot</code>. The
+	 * <code>Point2D</code> is updated as the <code>Robot</code> moves, and must not be modified.
 	 * @return the current <code>Point2D</code> position of this <code>Robot</code>.
 	 */
 	public Point2D getPosition() {
@@ -189,19 +219,25 @@ public class Robot {
 	 * @param amount the amount to move this <code>Robot</code> forward by.
 	 */
 	public void moveForward(double amount) {
-		double x = getPosition().getX() + (amount * Math.cos(rotation));
-		double y = getPosition().getY() + (amount * Math.sin(rotation));
-
-		Point2D newPosition = new Point2D.Double(x, y);
+		double x = position.getX() + (amount * Math.cos(rotation));
+		double y = position.getY() + (amount * Math.sin(rotation));
 
-		setPosition(newPosition);
+		// if we can move from the current position, to the new position, then update
+		// our position, otherwise ignore it.
+		if (world.canMove(position.getX(), position.getY(), x, y)) {
+			position.setLocation(x, y);
+		}
 	}
 
 	private void setPosition(Point2D newPosition) {
 		// if we can move from the current position, to the new position, then update
 		// our position, otherwise ignore it.
 		if (world.canMove(position, newPosition)) {
-			position = newPosition;
+			if (position == null) {
+				position = new Point2D.Double();
+			}
+
+			position.setLocation(newPosition);
 		}
 	}
 
@@ -242,8 +278,6 @@ public class Robot {
 			return;
 		}
 
-		double[] inputs = new double[12];
-
 		int index = 0;
 		for (RangeSensor rs : rangeSensors) {
 			inputs[index] = (rs.getDistanceToNearestObstacle() / rs.getSensorRange());
@@ -260,13 +294,16 @@ public class Robot {
 			index++;
 		}
 
-		network.setInput(inputs);
-		network.calculate();
-		double[] outputs = network.getOutputAsArray();
-
-		moveAgent(outputs);
+		if (network instanceof CompiledNeuralNetwork) {
+			((CompiledNeuralNetwork) network).activate(inputs, outputs);
+			moveAgent(outputs);
+		} else {
+			network.setInput(inputs);
+			network.calculate();
+			moveAgent(network.getOutputAsArray(outputs));
+		}
 
-		trajectory.add(getPosition());
+		trajectory.add(position.getX(), position.getY());
 	}
 
 	private void moveAgent(double[] outputs) {
@@ -288,8 +325,12 @@ public class Robot {
 		}
 	}
 
+	/**
+	 * Returns the positions recorded in the <code>Trajectory</code> as a new <code>List</code>.
+	 * @return the positions recorded in the <code>Trajectory</code> as a new <code>List</code>.
+	 */
 	public List<Point2D> getTrajectory() {
-		return trajectory;
+		return trajectory.toList();
 	}
 
 
@@ -320,14 +361,10 @@ public class Robot {
 				new Point2D.Double(x, y)), pixelRatio));
 
 		g.setColor(Color.ORANGE);
-		Point2D last = null;
-		for (Point2D point : trajectory) {
-			if (last != null) {
-				Line2D.Double line = new Line2D.Double(last, point);
-				g.draw(ShapeHelper.getLine(line, pixelRatio));
-			}
-
-			last = point;
+		for (int i = 1; i < trajectory.size(); i++) {
+			Line2D.Double line = new Line2D.Double(trajectory.getX(i - 1),
+					trajectory.getY(i - 1), trajectory.getX(i), trajectory.getY(i));
+			g.draw(ShapeHelper.getLine(line, pixelRatio));
 		}
 
 	}
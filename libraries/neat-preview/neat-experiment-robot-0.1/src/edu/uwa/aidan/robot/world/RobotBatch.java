@@ -0,0 +1,350 @@
+package edu.uwa.aidan.robot.world;
+
+import java.awt.geom.Arc2D;
+import java.awt.geom.Point2D;
+
+import org.neuroph.contrib.neat.gen.impl.CompiledNeuralNetwork;
+import org.neuroph.core.NeuralNetwork;
+
+/**
+ * Simulates many <code>Robot</code>s at once in copies of the same
+ * <code>AgentWorld</code>, advancing them all one step at a time.
+ *
+ * Rather than a <code>Robot</code> object per network, the state of the
+ * robots is kept in primitive arrays with one entry per robot, and each step
+ * is done in phases over all of the robots: checking for the
+ * <code>Goal</code>, reading each sensor, calculating the networks and then
+ * moving. The sensor inputs and network outputs of every robot are kept in a
+ * single pair of arrays, which <code>CompiledNeuralNetwork</code>s read and
+ * write directly. Robots that have found the <code>Goal</code> are dropped
+ * from the list of robots that are stepped.
+ *
+ * The robots can't see or bump into each other, and each behaves exactly as
+ * a <code>Robot</code> alone in it's own copy of the <code>AgentWorld</code>
+ * would. Nothing is allocated once the batch has been created, and as the
+ * batch holds the state of the networks it must only be used by one thread.
+ */
+public class RobotBatch {
+	/**
+	 * The number of network inputs for each robot, one for each sensor.
+	 */
+	private static final int INPUT_COUNT = Robot.NUMBER_OF_RANGEFINDERS
+			+ Robot.NUMBER_OF_GOAL_SENSORS;
+
+	/**
+	 * The number of network outputs for each robot.
+	 */
+	private static final int OUTPUT_COUNT = 2;
+
+	private final AgentWorld world;
+	private final ObstacleGrid obstacleGrid;
+	private final Goal goal;
+	private final double goalX, goalY;
+
+	/**
+	 * The angle of each <code>RangeSensor</code>, and the start and end angles
+	 * of each <code>GoalSensor</code>, as set up by <code>Robot</code>.
+	 */
+	private final double[] rangeSensorAngles;
+	private final double[] goalSensorStarts;
+	private final double[] goalSensorEnds;
+
+	private final NeuralNetwork[] networks;
+
+	/**
+	 * The <code>CompiledNeuralNetwork</code> of each robot, or
+	 * <code>null</code> if it's network isn't compiled.
+	 */
+	private final CompiledNeuralNetwork[] compiled;
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] rotation;
+	private final boolean[] foundGoal;
+
+	/**
+	 * The network inputs of each robot, robot <code>r</code>'s are at
+	 * <code>r * INPUT_COUNT</code>.
+	 */
+	private final double[] inputs;
+
+	/**
+	 * The network outputs of each robot, robot <code>r</code>'s are at
+	 * <code>r * OUTPUT_COUNT</code>.
+	 */
+	private final double[] outputs;
+
+	/**
+	 * The indexes of the robots that have not yet found the
+	 * <code>Goal</code>, only the first <code>activeCount</code> are used.
+	 */
+	private final int[] active;
+	private int activeCount;
+
+	/**
+	 * Used to pass the inputs and outputs of networks that are not compiled.
+	 */
+	private final double[] networkInputs = new double[INPUT_COUNT];
+	private final double[] networkOutputs = new double[OUTPUT_COUNT];
+
+	/**
+	 * Reused to test whether a <code>GoalSensor</code> can see the
+	 * <code>Goal</code>.
+	 */
+	private final Arc2D.Double arc = new Arc2D.Double();
+
+	/**
+	 * Constructor, places a robot for each of the provided
+	 * <code>NeuralNetwork</code>s at the initial location of the world.
+	 *
+	 * @param world
+	 *            the <code>AgentWorld</code> to simulate the robots in, which
+	 *            must have a <code>Goal</code>.
+	 * @param networks
+	 *            the <code>NeuralNetwork</code> controlling each robot.
+	 */
+	public RobotBatch(AgentWorld world, NeuralNetwork[] networks) {
+		if (world.getGoal() == null) {
+			throw new IllegalArgumentException("AgentWorld must have a Goal.");
+		}
+
+		Point2D start = world.getInitialLocation();
+		if (!world.getBoundaryRect().contains(start)) {
+			throw new IllegalArgumentException("Initial location " + start
+					+ " is outside of the AgentWorld.");
+		}
+
+		this.world = world;
+		this.obstacleGrid = world.getObstacleGrid();
+		this.goal = world.getGoal();
+		this.goalX = world.getGoal().getPosition().getX();
+		this.goalY = world.getGoal().getPosition().getY();
+
+		// the same angles, calculated the same way, as the Robot's sensors.
+		rangeSensorAngles = new double[Robot.NUMBER_OF_RANGEFINDERS];
+		double increment = (2.0 * Math.PI) / Robot.NUMBER_OF_RANGEFINDERS;
+		for (int i = 0; i < Robot.NUMBER_OF_RANGEFINDERS; i++) {
+			rangeSensorAngles[i] = ((double) i) * increment;
+		}
+
+		goalSensorStarts = new double[Robot.NUMBER_OF_GOAL_SENSORS];
+		goalSensorEnds = new double[Robot.NUMBER_OF_GOAL_SENSORS];
+		increment = (2.0 * Math.PI) / (double) Robot.NUMBER_OF_GOAL_SENSORS;
+		double currentAngle = Math.toRadians(45.0);
+		for (int i = 0; i < Robot.NUMBER_OF_GOAL_SENSORS; i++) {
+			goalSensorStarts[i] = currentAngle;
+			currentAngle += increment;
+			goalSensorEnds[i] = currentAngle;
+		}
+
+		int size = networks.length;
+		this.networks = networks.clone();
+		this.compiled = new CompiledNeuralNetwork[size];
+
+		x = new double[size];
+		y = new double[size];
+		rotation = new double[size];
+		foundGoal = new boolean[size];
+		inputs = new double[size * INPUT_COUNT];
+		outputs = new double[size * OUTPUT_COUNT];
+		active = new int[size];
+
+		for (int r = 0; r < size; r++) {
+			if (networks[r] instanceof CompiledNeuralNetwork) {
+				compiled[r] = (CompiledNeuralNetwork) networks[r];
+			}
+
+			x[r] = start.getX();
+			y[r] = start.getY();
+			rotation[r] = -(Math.PI / 2.0);
+			active[r] = r;
+		}
+
+		activeCount = size;
+	}
+
+	/**
+	 * Runs the simulation for the provided number of steps, or until every
+	 * robot has found the <code>Goal</code>.
+	 *
+	 * @param steps
+	 *            the number of steps to run the simulation for.
+	 */
+	public void run(long steps) {
+		for (long i = 0; i < steps && activeCount > 0; i++) {
+			step();
+		}
+	}
+
+	/**
+	 * Moves every robot that has not found the <code>Goal</code> by one step.
+	 */
+	public void step() {
+		// robots inside the goal's radius have found it, and stop moving.
+		int remaining = 0;
+		for (int i = 0; i < activeCount; i++) {
+			int r = active[i];
+
+			if (goal.containsPoint(x[r], y[r])) {
+				foundGoal[r] = true;
+			} else {
+				active[remaining++] = r;
+			}
+		}
+		activeCount = remaining;
+
+		for (int s = 0; s < rangeSensorAngles.length; s++) {
+			double angle = rangeSensorAngles[s];
+
+			for (int i = 0; i < activeCount; i++) {
+				int r = active[i];
+				double sensorAngle = rotation[r] + angle;
+				double endX = (RangeSensor.SENSOR_RANGE * Math.cos(sensorAngle)) + x[r];
+				double endY = (RangeSensor.SENSOR_RANGE * Math.sin(sensorAngle)) + y[r];
+
+				inputs[r * INPUT_COUNT + s] = obstacleGrid
+						.getDistanceToNearestIntersection(x[r], y[r], endX, endY)
+						/ RangeSensor.SENSOR_RANGE;
+			}
+		}
+
+		for (int s = 0; s < goalSensorStarts.length; s++) {
+			int input = Robot.NUMBER_OF_RANGEFINDERS + s;
+
+			for (int i = 0; i < activeCount; i++) {
+				int r = active[i];
+				inputs[r * INPUT_COUNT + input] = containsGoal(r, s) ? 1.0 : 0.0;
+			}
+		}
+
+		for (int i = 0; i < activeCount; i++) {
+			activate(active[i]);
+		}
+
+		for (int i = 0; i < activeCount; i++) {
+			move(active[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of robots in this batch.
+	 *
+	 * @return the number of robots in this batch.
+	 */
+	public int size() {
+		return x.length;
+	}
+
+	/**
+	 * Returns the number of robots that have not yet found the
+	 * <code>Goal</code>.
+	 *
+	 * @return the number of robots that have not yet found the
+	 *         <code>Goal</code>.
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	public NeuralNetwork getNeuralNetwork(int robot) {
+		return networks[robot];
+	}
+
+	public double getX(int robot) {
+		return x[robot];
+	}
+
+	public double getY(int robot) {
+		return y[robot];
+	}
+
+	public double getRotation(int robot) {
+		return rotation[robot];
+	}
+
+	public boolean foundGoal(int robot) {
+		return foundGoal[robot];
+	}
+
+	public double getDistanceToGoal(int robot) {
+		return Point2D.distance(goalX, goalY, x[robot], y[robot]);
+	}
+
+	/**
+	 * Returns the fitness of the robot, the distance from the
+	 * <code>Goal</code> subtracted from the worst possible score, in the same
+	 * way as it is calculated for a single <code>Robot</code>.
+	 *
+	 * @return the fitness of the robot.
+	 */
+	public double getFitness(int robot) {
+		return world.getWorstFitnessScore() - getDistanceToGoal(robot);
+	}
+
+	/**
+	 * Returns <code>true</code> if the <code>GoalSensor</code> at
+	 * <code>sensor</code> of the robot can see the <code>Goal</code>.
+	 */
+	private boolean containsGoal(int robot, int sensor) {
+		double range = GoalSensor.SENSOR_RANGE;
+		double start = goalSensorStarts[sensor];
+
+		arc.setArc(x[robot] - (GoalSensor.SENSOR_RANGE / 2.0), y[robot]
+				- (GoalSensor.SENSOR_RANGE / 2.0), range, range,
+				Math.toDegrees(start - rotation[robot]),
+				Math.toDegrees(goalSensorEnds[sensor] - start), Arc2D.PIE);
+
+		return arc.contains(goalX, goalY);
+	}
+
+	private void activate(int robot) {
+		int in = robot * INPUT_COUNT;
+		int out = robot * OUTPUT_COUNT;
+
+		if (compiled[robot] != null) {
+			compiled[robot].activate(inputs, in, outputs, out);
+			return;
+		}
+
+		System.arraycopy(inputs, in, networkInputs, 0, INPUT_COUNT);
+
+		NeuralNetwork network = networks[robot];
+		network.setInput(networkInputs);
+		network.calculate();
+		network.getOutputAsArray(networkOutputs);
+
+		System.arraycopy(networkOutputs, 0, outputs, out, OUTPUT_COUNT);
+	}
+
+	/**
+	 * Turns and moves the robot according to it's network outputs, as
+	 * <code>Robot</code> does.
+	 */
+	private void move(int robot) {
+		double leftRight = outputs[robot * OUTPUT_COUNT + 1];
+
+		if (leftRight > 0.5) {
+			rotation[robot] -= leftRight - 0.5;
+		} else {
+			rotation[robot] += leftRight;
+		}
+
+		double forwardBackward = outputs[robot * OUTPUT_COUNT];
+		double amount;
+
+		if (forwardBackward >= 0.5) {
+			// amplify this value to make the agent move faster.
+			amount = (forwardBackward - 0.5) * 5;
+		} else {
+			amount = -forwardBackward;
+		}
+
+		double newX = x[robot] + (amount * Math.cos(rotation[robot]));
+		double newY = y[robot] + (amount * Math.sin(rotation[robot]));
+
+		if (world.canMove(x[robot], y[robot], newX, newY)) {
+			x[robot] = newX;
+			y[robot] = newY;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package edu.uwa.aidan.robot.world;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the positions a <code>Robot</code> has been in, keeping the most
+ * recent <code>capacity</code> of them.
+ *
+ * The coordinates are stored in preallocated arrays that are reused once
+ * they are full, so recording a position never allocates. A
+ * <code>Trajectory</code> with a capacity of zero records nothing, which is
+ * used when training as no-one looks at the path.
+ */
+public class Trajectory {
+	private final double[] xs;
+	private final double[] ys;
+
+	/**
+	 * The index of the oldest position.
+	 */
+	private int start;
+	private int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            the number of positions to keep.
+	 */
+	public Trajectory(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity + ".");
+		}
+
+		xs = new double[capacity];
+		ys = new double[capacity];
+	}
+
+	/**
+	 * Records a position, replacing the oldest one if this
+	 * <code>Trajectory</code> is full.
+	 *
+	 * @param x
+	 *            the x coordinate of the position.
+	 * @param y
+	 *            the y coordinate of the position.
+	 */
+	public void add(double x, double y) {
+		int capacity = xs.length;
+		if (capacity == 0) {
+			return;
+		}
+
+		int index = start + size;
+		if (index >= capacity) {
+			index -= capacity;
+		}
+
+		xs[index] = x;
+		ys[index] = y;
+
+		if (size < capacity) {
+			size++;
+		} else {
+			start = (start + 1 == capacity) ? 0 : start + 1;
+		}
+	}
+
+	/**
+	 * Returns the x coordinate of the position at the provided index, where
+	 * zero is the oldest position kept.
+	 */
+	public double getX(int index) {
+		return xs[toArrayIndex(index)];
+	}
+
+	/**
+	 * Returns the y coordinate of the position at the provided index, where
+	 * zero is the oldest position kept.
+	 */
+	public double getY(int index) {
+		return ys[toArrayIndex(index)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return xs.length;
+	}
+
+	public void clear() {
+		start = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the positions kept as a new <code>List</code>, oldest first.
+	 *
+	 * @return the positions kept as a new <code>List</code>, oldest first.
+	 */
+	public List<Point2D> toList() {
+		List<Point2D> points = new ArrayList<Point2D>(size);
+
+		for (int i = 0; i < size; i++) {
+			points.add(new Point2D.Double(getX(i), getY(i)));
+		}
+
+		return points;
+	}
+
+	private int toArrayIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Invalid index " + index + ".");
+		}
+
+		int arrayIndex = start + index;
+		return arrayIndex >= xs.length ? arrayIndex - xs.length : arrayIndex;
+	}
+}
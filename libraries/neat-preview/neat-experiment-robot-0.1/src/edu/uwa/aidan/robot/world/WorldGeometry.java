@@ -0,0 +1,116 @@
+package edu.uwa.aidan.robot.world;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of an <code>AgentWorld</code> that never change once it has been
+ * loaded: it's size, boundary, <code>Obstacle</code>s and the
+ * <code>ObstacleGrid</code> over them.
+ *
+ * A <code>WorldGeometry</code> cannot be modified, so every
+ * <code>AgentWorld</code> copied from the same definition shares a single
+ * instance, and it can be used from multiple threads at once. Adding an
+ * <code>Obstacle</code> creates a new <code>WorldGeometry</code>.
+ */
+public class WorldGeometry {
+	private final double width;
+	private final double height;
+
+	/**
+	 * The border as a <code>List</code> of <code>Line2D</code> objects, used
+	 * for collision detection.
+	 */
+	private final List<Line2D> boundary;
+
+	private final List<Obstacle> obstacles;
+
+	private final ObstacleGrid obstacleGrid;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param width
+	 *            the width of the world, in pixels.
+	 * @param height
+	 *            the height of the world, in pixels.
+	 * @param obstacles
+	 *            the <code>Obstacle</code>s in the world.
+	 */
+	public WorldGeometry(double width, double height, List<Obstacle> obstacles) {
+		this.width = width;
+		this.height = height;
+		this.obstacles = Collections.unmodifiableList(new ArrayList<Obstacle>(obstacles));
+
+		List<Line2D> lines = new ArrayList<Line2D>();
+		lines.add(new Line2D.Double(0.0, 0.0, width, 0.0));
+		lines.add(new Line2D.Double(0.0, 0.0, 0.0, height));
+		lines.add(new Line2D.Double(0.0, height, width, height));
+		lines.add(new Line2D.Double(width, 0.0, width, height));
+		this.boundary = Collections.unmodifiableList(lines);
+
+		this.obstacleGrid = new ObstacleGrid(this.obstacles, boundary);
+	}
+
+	/**
+	 * Returns a new <code>WorldGeometry</code> that is the same as this one,
+	 * with the provided <code>Obstacle</code> added.
+	 *
+	 * @param o
+	 *            the <code>Obstacle</code> to add.
+	 * @return a new <code>WorldGeometry</code> that is the same as this one,
+	 *         with the provided <code>Obstacle</code> added.
+	 */
+	public WorldGeometry addObstacle(Obstacle o) {
+		List<Obstacle> added = new ArrayList<Obstacle>(obstacles);
+		added.add(o);
+
+		return new WorldGeometry(width, height, added);
+	}
+
+	public double getWidth() {
+		return width;
+	}
+
+	public double getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the border of the world as a new <code>Rectangle2D</code>.
+	 *
+	 * @return the border of the world as a new <code>Rectangle2D</code>.
+	 */
+	public Rectangle2D getBoundaryRect() {
+		return new Rectangle2D.Double(0.0, 0.0, width, height);
+	}
+
+	/**
+	 * Returns the border of the world as an unmodifiable <code>List</code> of
+	 * <code>Line2D</code> objects. The <code>Line2D</code>s are shared, and
+	 * must not be changed.
+	 *
+	 * @return the border of the world as a <code>List</code> of
+	 *         <code>Line2D</code> objects.
+	 */
+	public List<Line2D> getBoundary() {
+		return boundary;
+	}
+
+	/**
+	 * Returns an unmodifiable <code>List</code> of the <code>Obstacle</code>s
+	 * in the world.
+	 *
+	 * @return the <code>Obstacle</code>s in the world.
+	 */
+	public List<Obstacle> getObstacles() {
+		return obstacles;
+	}
+
+	public ObstacleGrid getObstacleGrid() {
+		return obstacleGrid;
+	}
+}
@@ -1,6 +1,8 @@
 package edu.uwa.aidan.robot.world.xml;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -17,6 +19,7 @@ import edu.uwa.aidan.robot.world.AgentWorld;
 import edu.uwa.aidan.robot.world.Goal;
 import edu.uwa.aidan.robot.world.Obstacle;
 import edu.uwa.aidan.robot.world.WorldBuilder;
+import edu.uwa.aidan.robot.world.WorldGeometry;
 
 public class XmlWorldBuilder extends WorldBuilder {
 	private static final String Y_COORDINATE_ATTRIBUTE_NAME = "y";
@@ -49,13 +52,12 @@ public class XmlWorldBuilder extends WorldBuilder {
 			double height = Double.valueOf(rootElement.getAttribute("height"));
 			double bestFitness = Double.valueOf(rootElement.getAttribute("best-fitness"));
 			
-			agentWorld = new AgentWorld(width, height);
+			agentWorld = new AgentWorld(new WorldGeometry(width, height, loadObstacles(rootElement)));
 			agentWorld.setWorstFitnessScore(bestFitness);
 			
 			double[] agentInitialPosition = getPosition(rootElement, "agent-position");
 			agentWorld.setInitialLocation(agentInitialPosition[0], agentInitialPosition[1]);
 			
-			loadObstacles(agentWorld, rootElement);
 			loadGoal(agentWorld, rootElement);
 			
 		} catch (NumberFormatException e) {
@@ -84,8 +86,9 @@ public class XmlWorldBuilder extends WorldBuilder {
 		}
 	}
 
-	private static void loadObstacles(AgentWorld agentWorld, Element parent) {
+	private static List<Obstacle> loadObstacles(Element parent) {
 		NodeList nl = parent.getElementsByTagName("obstacle");
+		List<Obstacle> obstacles = new ArrayList<Obstacle>();
 		
 		for(int i = 0; i < nl.getLength(); i++) {
 			Element e = (Element)nl.item(i);
@@ -94,8 +97,10 @@ public class XmlWorldBuilder extends WorldBuilder {
 			double[] to = getPosition(e, "finish");
 			
 			Obstacle o = new Obstacle(from[0], from[1], to[0], to[1]);
-			agentWorld.addObstacle(o);
+			obstacles.add(o);
 		}
+		
+		return obstacles;
 	}
 	
 	private static double[] getPosition(Element parent, String name) {
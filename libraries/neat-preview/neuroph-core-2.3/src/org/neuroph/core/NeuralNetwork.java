@@ -37,7 +37,6 @@ import java.util.Vector;
 import org.neuroph.core.learning.LearningRule;
 import org.neuroph.core.learning.TrainingSet;
 import org.neuroph.util.NeuralNetworkType;
-import org.neuroph.util.VectorParser;
 import org.neuroph.util.plugins.LabelsPlugin;
 import org.neuroph.util.plugins.PluginBase;
 
@@ -228,7 +227,10 @@ public class NeuralNetwork extends Observable implements Runnable, Serializable
 	public void setInput(double ... inputArray) {
         if (inputArray.length != inputNeurons.size())
             throw new RuntimeException("Input vector size does not match network input dimension!");
-		setInput(VectorParser.convertToVector(inputArray));
+
+		for(int i = 0; i < inputArray.length; i++) {
+			this.inputNeurons.get(i).setInput(inputArray[i]);
+		}
 	}
 
 	/**
@@ -254,7 +256,29 @@ public class NeuralNetwork extends Observable implements Runnable, Serializable
 	 * @return network output vector as double array
 	 */
 	public double[] getOutputAsArray() {
-		return VectorParser.convertToArray(getOutput());
+		return getOutputAsArray(null);
+	}
+
+	/**
+	 * Copies network output into the specified array, so that the same array
+	 * can be reused for every calculation.
+	 *
+	 * @param outputArray
+	 *            array to copy the output into, a new array is created if it is null
+	 * @return network output vector as double array
+	 */
+	public double[] getOutputAsArray(double[] outputArray) {
+		if (outputArray == null) {
+			outputArray = new double[this.outputNeurons.size()];
+		} else if (outputArray.length != this.outputNeurons.size()) {
+			throw new RuntimeException("Output array size does not match network output dimension!");
+		}
+
+		for(int i = 0; i < outputArray.length; i++) {
+			outputArray[i] = this.outputNeurons.get(i).getOutput();
+		}
+
+		return outputArray;
 	}
 
 	/**
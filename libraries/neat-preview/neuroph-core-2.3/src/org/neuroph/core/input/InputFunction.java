@@ -94,12 +94,35 @@ public class InputFunction implements Serializable {
 	 * @return input total net input
 	 */
 	public double getOutput(Vector<Connection> inputConnections) {
+		// the default weighted sum is calculated directly, rather than boxing
+		// each weighted input into a vector and then summing it.
+		if (isWeightedSum()) {
+			double sum = 0;
+			for (int i = 0, n = inputConnections.size(); i < n; i++) {
+				sum = sum + inputConnections.get(i).getWeightedInput();
+			}
+
+			return sum;
+		}
+
 		Vector<Double> inputVector = this.weightsFunction.getOutput(inputConnections);
 		double output = this.summingFunction.getOutput(inputVector);
 
 		return output;
 	}
 
+	/**
+	 * Returns true if this input function uses exactly WeightedInput and Sum,
+	 * subclasses of either may change how the output is calculated so they 
+	 * are always called.
+	 * 
+	 * @return true if the output is the plain weighted sum of the inputs
+	 */
+	private boolean isWeightedSum() {
+		return this.weightsFunction.getClass() == WeightedInput.class
+				&& this.summingFunction.getClass() == Sum.class;
+	}
+
 	/**
 	 * Returns summing function component of this InputFunction
 	 * 
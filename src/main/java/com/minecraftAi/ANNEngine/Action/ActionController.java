@@ -2,11 +2,22 @@ package com.minecraftAi.ANNEngine.Action;
 
 import com.minecraftAi.ANNEngine.AFitnessFunction;
 import com.minecraftAi.ANNEngine.AIANNEngine;
+import com.minecraftAi.ANNEngine.Training.TrainingJob;
+import com.minecraftAi.ANNEngine.Training.TrainingScheduler;
+import com.minecraftAi.BaseModClass;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.ChatComponentText;
+import org.neuroph.contrib.neat.gen.FitnessScores;
 import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.Organism;
 import org.neuroph.contrib.neat.gen.impl.SimpleNeatParameters;
 import org.neuroph.core.NeuralNetwork;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Created by Mickey on 27/03/2016.
@@ -16,6 +27,12 @@ public abstract class ActionController extends AIANNEngine {
     protected List<NeuronGene> inputList;
     protected List<NeuronGene> outputList;
 
+    /**
+     * The fittest Organism from training then the rest of it's species, fittest first.
+     * Null until training has finished.
+     */
+    private volatile List<Organism> trained;
+
     protected ActionController(){
         setupNeatParamters();
         params.setFitnessFunction(new FlexiFitnessFunction());
@@ -29,6 +46,105 @@ public abstract class ActionController extends AIANNEngine {
     protected abstract List<NeuronGene> createOutputNeuronGenes();
     public abstract double calculateNeuralNetFitness(NeuralNetwork net);
 
+    /**
+     * Starts evolving this controller in the background, see TrainingScheduler.
+     */
+    @Override
+    public void train(EntityPlayer player) {
+        TrainingScheduler scheduler = BaseModClass.instance.getTrainingScheduler();
+        if(scheduler == null) {
+            player.addChatMessage(new ChatComponentText("Training is only available on a running server"));
+            return;
+        }
+
+        TrainingJob job = scheduler.start(this, player.getName());
+        player.addChatMessage(new ChatComponentText("Started training job #" + job.getId()));
+    }
+
+    /**
+     * Called by the TrainingJob on it's worker thread before evolving starts, for setting up
+     * anything too slow to do on the server thread when training is started. Does nothing by
+     * default.
+     */
+    public void prepareTraining() {
+    }
+
+    /**
+     * Runs world reads and writes from calculateNeuralNetFitness, which is called on a
+     * training thread, on the server thread instead.
+     */
+    protected <T> T callOnServerThread(Callable<T> callable) {
+        return BaseModClass.instance.getTrainingScheduler().callOnServerThread(callable);
+    }
+
+    /**
+     * Called by the TrainingJob once training has finished, ranks the fittest Organism's
+     * species by the fitness scores from training. Organisms that were never scored go last.
+     */
+    public void setTrained(Organism fittest, final FitnessScores fitness) {
+        List<Organism> others = new ArrayList<Organism>();
+        if(fittest.getSpecie() != null) {
+            for(Organism organism : fittest.getSpecie().getOrganisms()) {
+                if(organism != fittest) {
+                    others.add(organism);
+                }
+            }
+        }
+
+        Collections.sort(others, new Comparator<Organism>() {
+            @Override
+            public int compare(Organism o1, Organism o2) {
+                return Double.compare(getFitness(o2), getFitness(o1));
+            }
+
+            private double getFitness(Organism organism) {
+                Double score = fitness.getFitnessForOrganism(organism.getInnovationId());
+                return score == null ? Double.NEGATIVE_INFINITY : score;
+            }
+        });
+
+        List<Organism> ranked = new ArrayList<Organism>();
+        ranked.add(fittest);
+        ranked.addAll(others);
+        this.trained = ranked;
+    }
+
+    public boolean isTrained() {
+        return trained != null;
+    }
+
+    /**
+     * Creates networks from the fittest trained Organism and the rest of it's species, fittest
+     * first, up to max of them. Empty until training has finished.
+     */
+    protected List<NeuralNetwork> createTrainedNetworks(int max) {
+        List<NeuralNetwork> networks = new ArrayList<NeuralNetwork>();
+        List<Organism> ranked = trained;
+        if(ranked == null) {
+            return networks;
+        }
+
+        for(Organism organism : ranked) {
+            if(networks.size() >= max) {
+                break;
+            }
+            networks.add(params.getNeuralNetworkBuilder().createNeuralNetwork(organism));
+        }
+        return networks;
+    }
+
+    public SimpleNeatParameters getParams() {
+        return params;
+    }
+
+    public List<NeuronGene> getInputList() {
+        return inputList;
+    }
+
+    public List<NeuronGene> getOutputList() {
+        return outputList;
+    }
+
 
     private class FlexiFitnessFunction extends AFitnessFunction {
         public double calculateNetworkFitness(NeuralNetwork net) {
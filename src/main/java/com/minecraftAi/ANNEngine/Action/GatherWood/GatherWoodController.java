@@ -1,17 +1,70 @@
 package com.minecraftAi.ANNEngine.Action.GatherWood;
 
-import com.minecraftAi.ANNEngine.AFitnessFunction;
 import com.minecraftAi.ANNEngine.Action.ActionController;
+import com.minecraftAi.ANNEngine.Execution.AgentExecutionPool;
+import com.minecraftAi.ANNEngine.Execution.LiveAgent;
+import com.minecraftAi.ANNEngine.Simulation.AgentAction;
+import com.minecraftAi.ANNEngine.Simulation.AgentSensors;
+import com.minecraftAi.ANNEngine.Simulation.BlockClass;
+import com.minecraftAi.ANNEngine.Simulation.ChunkSnapshotCache;
+import com.minecraftAi.ANNEngine.Simulation.ChunkSource;
+import com.minecraftAi.ANNEngine.Simulation.SimulatedAgent;
+import com.minecraftAi.ANNEngine.Simulation.SimulatedWorld;
+import com.minecraftAi.ANNEngine.Simulation.WorldSnapshot;
+import com.minecraftAi.ANNEngine.Training.TrainingScheduler;
+import com.minecraftAi.BaseModClass;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.NeuronType;
+import org.neuroph.contrib.neat.gen.impl.ActivationOrder;
+import org.neuroph.contrib.neat.gen.impl.CompiledNetworkBuilder;
 import org.neuroph.contrib.neat.gen.impl.SimpleNeatParameters;
+import org.neuroph.contrib.neat.gen.operations.evaluator.CachingFitnessEvaluator;
+import org.neuroph.contrib.neat.gen.operations.evaluator.ForkJoinFitnessEvaluator;
 import org.neuroph.core.NeuralNetwork;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Created by Mickey on 26/03/2016.
  */
 public class GatherWoodController extends ActionController{
+    /**
+     * The chunks captured around the player in each direction, and the blocks below and above them.
+     */
+    public static final int CHUNK_RADIUS = 2;
+    public static final int BLOCKS_BELOW = 16;
+    public static final int BLOCKS_ABOVE = 32;
+
+    /**
+     * How long each network gets to gather wood, one minute.
+     */
+    public static final int EVALUATION_TICKS = 1200;
+
+    /**
+     * The most agents execute runs at once, enough for a whole species.
+     */
+    public static final int MAX_AGENTS = 150;
+
+    public static final double WOOD_REWARD = 100;
+    public static final double BREAKING_REWARD = 50;
+    public static final double APPROACH_REWARD = 25;
+
+    private WorldSnapshot snapshot;
+    private World startWorld;
+    private BlockPos startPos;
+    private double startX, startY, startZ, startYaw;
+
+    /**
+     * The positions of every log in the snapshot, x, y and z in turn.
+     */
+    private int[] logs;
 
     @Override
     protected void setupNeatParamters(){
@@ -20,22 +73,186 @@ public class GatherWoodController extends ActionController{
         params.setPopulationSize(150);
         params.setMaximumFitness(1000);
         params.setMaximumGenerations(100);
+
+        // Each network is simulated in it's own copy of the world, so they can be evaluated in parallel
+        ForkJoinFitnessEvaluator evaluator = new ForkJoinFitnessEvaluator(TrainingScheduler.getEvaluationPool());
+        evaluator.setBatchSize(4);
+        // The simulation is deterministic, so identical genomes can reuse an earlier fitness
+        params.setFitnessEvaluator(new CachingFitnessEvaluator(evaluator));
+        params.setNeuralNetworkBuilder(new CompiledNetworkBuilder(ActivationOrder.TOPOLOGICAL));
+    }
+
+    /**
+     * Remembers where the player is to train there, then starts training.
+     */
+    @Override
+    public void train(EntityPlayer player) {
+        startWorld = player.worldObj;
+        startPos = player.getPosition();
+        startX = player.posX;
+        startY = player.posY;
+        startZ = player.posZ;
+        startYaw = Math.toRadians(player.rotationYaw);
+
+        super.train(player);
+    }
+
+    /**
+     * Captures the world around where training was started to train in. Each chunk is captured
+     * by it's own call to the server thread, so the TrainingScheduler spreads the capture over
+     * as many ticks as it's tick budget needs.
+     */
+    @Override
+    public void prepareTraining() {
+        final ChunkSnapshotCache cache = BaseModClass.instance.getChunkCache();
+        ChunkSource chunks;
+
+        if(cache != null) {
+            // refresh the chunk in the cache on the server thread, then read it through the view here
+            final ChunkSnapshotCache.View view = cache.newView(startWorld);
+            chunks = new ChunkSource() {
+                @Override
+                public byte[][] getChunk(final int chunkX, final int chunkZ) {
+                    callOnServerThread(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            cache.cacheChunk(startWorld, chunkX, chunkZ);
+                            return null;
+                        }
+                    });
+                    return view.getChunk(chunkX, chunkZ);
+                }
+            };
+        } else {
+            chunks = new ChunkSource() {
+                @Override
+                public byte[][] getChunk(final int chunkX, final int chunkZ) {
+                    return callOnServerThread(new Callable<byte[][]>() {
+                        @Override
+                        public byte[][] call() {
+                            return WorldSnapshot.captureChunk(startWorld, chunkX, chunkZ);
+                        }
+                    });
+                }
+            };
+        }
+
+        snapshot = WorldSnapshot.fromChunks(chunks, startPos, CHUNK_RADIUS, startPos.getY() - BLOCKS_BELOW, startPos.getY() + BLOCKS_ABOVE);
+        logs = findLogs(snapshot);
+    }
+
+    /**
+     * Runs the trained species as agents in the world, starting where the player is.
+     */
+    @Override
+    public void execute(EntityPlayer player) {
+        AgentExecutionPool pool = BaseModClass.instance.getExecutionPool();
+        if(pool == null || !(player.worldObj instanceof WorldServer)) {
+            player.addChatMessage(new ChatComponentText("Agents can only run on a running server"));
+            return;
+        }
+        if(!isTrained()) {
+            player.addChatMessage(new ChatComponentText("Gather wood hasn't finished training"));
+            return;
+        }
+
+        List<NeuralNetwork> networks = createTrainedNetworks(MAX_AGENTS);
+        List<LiveAgent> agents = pool.spawn((WorldServer) player.worldObj, player.posX, player.posY, player.posZ,
+                player.rotationYaw, networks, player.getName());
+        player.addChatMessage(new ChatComponentText("Started " + agents.size() + " gather wood agents"));
+        if(agents.size() < networks.size()) {
+            player.addChatMessage(new ChatComponentText("Only " + pool.getMaxAgents() + " agents can run at once, stop some to start more"));
+        }
     }
 
     @Override
     protected List<NeuronGene> createInputNeuronGenes() {
-        return null;
+        return new AgentSensors().createInputNeuronGenes(params);
     }
 
     @Override
     protected List<NeuronGene> createOutputNeuronGenes() {
-        return null;
+        List<NeuronGene> outputs = new ArrayList<NeuronGene>();
+        for(int i = 0; i < AgentAction.OUTPUT_COUNT; i++) {
+            outputs.add(new NeuronGene(NeuronType.OUTPUT, params));
+        }
+        return outputs;
     }
 
+    /**
+     * Lets the network gather wood in a simulated copy of the captured world. Wood collected
+     * scores the most, with partly broken logs and getting closer to a log counting for a little
+     * so the first generations have something to improve on.
+     */
     @Override
     public double calculateNeuralNetFitness(NeuralNetwork net) {
-        return 0;
+        if(snapshot == null) {
+            return 0;
+        }
+
+        SimulatedWorld world = new SimulatedWorld(snapshot);
+        SimulatedAgent agent = new SimulatedAgent(startX, startY, startZ, startYaw);
+        AgentAction action = new AgentAction();
+        AgentSensors sensors = new AgentSensors();
+        double[] inputs = new double[sensors.getInputCount()];
+        double[] outputs = new double[AgentAction.OUTPUT_COUNT];
+        double startDistance = distanceToLog(world, startX, startY, startZ);
+
+        for(int tick = 0; tick < EVALUATION_TICKS; tick++) {
+            sensors.sense(world, agent, inputs, 0);
+            net.setInput(inputs);
+            net.calculate();
+            net.getOutputAsArray(outputs);
+            agent.tick(world, action.decode(outputs, 0));
+        }
+
+        double fitness = agent.getWoodCollected() * WOOD_REWARD;
+        if(agent.hasTarget() && world.getBlockClass(agent.getTargetX(), agent.getTargetY(), agent.getTargetZ()) == BlockClass.LOG) {
+            fitness += agent.getBreakProgress() * BREAKING_REWARD;
+        }
+        if(startDistance > 0 && startDistance < Double.MAX_VALUE) {
+            double distance = distanceToLog(world, agent.getX(), agent.getY(), agent.getZ());
+            fitness += Math.max(0, 1 - distance / startDistance) * APPROACH_REWARD;
+        }
+        return fitness;
     }
 
+    /**
+     * Returns the distance to the nearest of the snapshot's logs that is still in the world, or
+     * Double.MAX_VALUE if there are none.
+     */
+    private double distanceToLog(SimulatedWorld world, double x, double y, double z) {
+        double nearest = Double.MAX_VALUE;
+
+        for(int i = 0; i < logs.length; i += 3) {
+            if(world.getBlockId(logs[i], logs[i + 1], logs[i + 2]) == BlockClass.LOG.getId()) {
+                double dx = logs[i] + 0.5 - x, dy = logs[i + 1] + 0.5 - y, dz = logs[i + 2] + 0.5 - z;
+                nearest = Math.min(nearest, dx * dx + dy * dy + dz * dz);
+            }
+        }
+
+        return nearest == Double.MAX_VALUE ? nearest : Math.sqrt(nearest);
+    }
 
+    private static int[] findLogs(WorldSnapshot snapshot) {
+        List<Integer> found = new ArrayList<Integer>();
+
+        for(int y = snapshot.getMinY(); y < snapshot.getMinY() + snapshot.getSizeY(); y++) {
+            for(int z = snapshot.getMinZ(); z < snapshot.getMinZ() + snapshot.getSizeZ(); z++) {
+                for(int x = snapshot.getMinX(); x < snapshot.getMinX() + snapshot.getSizeX(); x++) {
+                    if(snapshot.getBlockId(x, y, z) == BlockClass.LOG.getId()) {
+                        found.add(x);
+                        found.add(y);
+                        found.add(z);
+                    }
+                }
+            }
+        }
+
+        int[] logs = new int[found.size()];
+        for(int i = 0; i < logs.length; i++) {
+            logs[i] = found.get(i);
+        }
+        return logs;
+    }
 }
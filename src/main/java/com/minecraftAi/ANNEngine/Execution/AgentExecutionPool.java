@@ -0,0 +1,281 @@
+package com.minecraftAi.ANNEngine.Execution;
+
+import com.minecraftAi.ANNEngine.Simulation.AgentAction;
+import com.minecraftAi.ANNEngine.Simulation.AgentSensors;
+import com.minecraftAi.ANNEngine.Simulation.LiveBlockSource;
+import com.minecraftAi.ANNEngine.Simulation.SimulatedAgent;
+import com.minecraftAi.ANNEngine.Simulation.VoxelRayCaster;
+import com.mojang.authlib.GameProfile;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.util.FakePlayer;
+import net.minecraftforge.common.util.FakePlayerFactory;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.neuroph.core.NeuralNetwork;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Drives many LiveAgents at once, each a FakePlayer with it's own network.
+ *
+ * Every tick runs in three phases over the agents whose turn it is: all of
+ * them sense the world, then all of their networks are calculated in one
+ * pass over a single pair of input and output arrays, then all of their
+ * actions are carried out. Everything happens on the server thread.
+ *
+ * No more than maxAgentsPerTick agents run in a tick. When there are more
+ * agents than that they take turns, round robin, so each moves every few
+ * ticks rather than some never moving.
+ *
+ * FakePlayerFactory keeps every FakePlayer it makes until it's world unloads,
+ * so agents only ever use the profiles of ids 1 to maxAgents. An agent's id is
+ * freed when it stops, and the next agent given it reuses the same FakePlayer.
+ */
+public class AgentExecutionPool {
+    public static final int DEFAULT_MAX_AGENTS_PER_TICK = 64;
+    public static final int DEFAULT_MAX_AGENTS = 150;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<LiveAgent> agents = new ArrayList<LiveAgent>();
+    private final AgentSensors sensors = new AgentSensors();
+    private final AgentAction action = new AgentAction();
+    private final VoxelRayCaster caster = new VoxelRayCaster();
+    private final Map<World, LiveBlockSource> blockSources = new HashMap<World, LiveBlockSource>();
+
+    private final int maxAgents;
+    private int maxAgentsPerTick;
+
+    /**
+     * The ids no running agent has, and the profile made for each id, by id - 1.
+     */
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<Integer>();
+    private final GameProfile[] profiles;
+
+    /**
+     * The index of the agent to start the next tick from.
+     */
+    private int cursor;
+
+    /**
+     * The agents running this tick, with their inputs and outputs at index * count.
+     */
+    private LiveAgent[] batch = new LiveAgent[0];
+    private double[] inputs = new double[0];
+    private double[] outputs = new double[0];
+    private final double[] networkInputs = new double[sensors.getInputCount()];
+    private final double[] networkOutputs = new double[AgentAction.OUTPUT_COUNT];
+
+    public AgentExecutionPool() {
+        this(DEFAULT_MAX_AGENTS, DEFAULT_MAX_AGENTS_PER_TICK);
+    }
+
+    public AgentExecutionPool(int maxAgents, int maxAgentsPerTick) {
+        if (maxAgents <= 0) {
+            throw new IllegalArgumentException("Agents must be positive: " + maxAgents);
+        }
+        this.maxAgents = maxAgents;
+        this.profiles = new GameProfile[maxAgents];
+        setMaxAgentsPerTick(maxAgentsPerTick);
+        freeAllIds();
+    }
+
+    /**
+     * Adds an agent for each network, all starting at the position, until maxAgents are
+     * running. The networks must take AgentSensors inputs and give AgentAction outputs.
+     * Must be called on the server thread.
+     */
+    public List<LiveAgent> spawn(WorldServer world, double x, double y, double z, float yaw, List<NeuralNetwork> networks, String owner) {
+        List<LiveAgent> spawned = new ArrayList<LiveAgent>();
+
+        for (NeuralNetwork network : networks) {
+            Integer id = freeIds.poll();
+            if (id == null) {
+                break;
+            }
+
+            FakePlayer player = FakePlayerFactory.get(world, getProfile(id));
+            // the factory hands back the same player for a profile whatever the world.
+            if (player.worldObj != world) {
+                player.setWorld(world);
+                player.dimension = world.provider.getDimensionId();
+            }
+            player.setLocationAndAngles(x, y, z, yaw, 0);
+
+            LiveAgent agent = new LiveAgent(id, owner, player, network);
+            agents.add(agent);
+            spawned.add(agent);
+        }
+
+        return spawned;
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+
+        removeUnloaded();
+        if (agents.isEmpty()) {
+            return;
+        }
+
+        int count = Math.min(agents.size(), maxAgentsPerTick);
+        ensureCapacity(count);
+
+        if (cursor >= agents.size()) {
+            cursor = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            batch[i] = agents.get((cursor + i) % agents.size());
+        }
+        cursor = (cursor + count) % agents.size();
+
+        // chunks can unload between ticks, so don't keep any from the last one.
+        for (LiveBlockSource blocks : blockSources.values()) {
+            blocks.clear();
+        }
+
+        int inputCount = sensors.getInputCount();
+        for (int i = 0; i < count; i++) {
+            LiveAgent agent = batch[i];
+            FakePlayer player = agent.getPlayer();
+            sensors.sense(getBlockSource(player.worldObj), player.posX, player.posY + SimulatedAgent.EYE_HEIGHT, player.posZ,
+                    agent.getYaw(), agent.getPitch(), agent.getWoodCollected(), player.onGround, agent.getBreakProgress(),
+                    inputs, i * inputCount);
+        }
+
+        for (int i = 0; i < count; i++) {
+            activate(batch[i], i * inputCount, i * AgentAction.OUTPUT_COUNT);
+        }
+
+        for (int i = 0; i < count; i++) {
+            LiveAgent agent = batch[i];
+            agent.apply(action.decode(outputs, i * AgentAction.OUTPUT_COUNT), getBlockSource(agent.getPlayer().worldObj), caster);
+            batch[i] = null;
+        }
+    }
+
+    /**
+     * Removes the agents owned by the player, returning how many there were.
+     */
+    public int stop(String owner) {
+        int stopped = 0;
+        Iterator<LiveAgent> iterator = agents.iterator();
+        while (iterator.hasNext()) {
+            LiveAgent agent = iterator.next();
+            if (agent.getOwner().equals(owner)) {
+                iterator.remove();
+                freeIds.push(agent.getId());
+                stopped++;
+            }
+        }
+        return stopped;
+    }
+
+    public void stopAll() {
+        agents.clear();
+        blockSources.clear();
+        cursor = 0;
+        freeAllIds();
+    }
+
+    public List<LiveAgent> getAgents() {
+        return Collections.unmodifiableList(agents);
+    }
+
+    public int getMaxAgents() {
+        return maxAgents;
+    }
+
+    public int getMaxAgentsPerTick() {
+        return maxAgentsPerTick;
+    }
+
+    public void setMaxAgentsPerTick(int maxAgentsPerTick) {
+        if (maxAgentsPerTick <= 0) {
+            throw new IllegalArgumentException("Agents per tick must be positive: " + maxAgentsPerTick);
+        }
+        this.maxAgentsPerTick = maxAgentsPerTick;
+    }
+
+    /**
+     * Removes agents in worlds that have been unloaded.
+     */
+    private void removeUnloaded() {
+        Iterator<LiveAgent> iterator = agents.iterator();
+        while (iterator.hasNext()) {
+            LiveAgent agent = iterator.next();
+            World world = agent.getPlayer().worldObj;
+            if (DimensionManager.getWorld(world.provider.getDimensionId()) != world) {
+                iterator.remove();
+                blockSources.remove(world);
+                freeIds.push(agent.getId());
+            }
+        }
+    }
+
+    private void freeAllIds() {
+        freeIds.clear();
+        for (int id = 1; id <= maxAgents; id++) {
+            freeIds.add(id);
+        }
+    }
+
+    /**
+     * Returns the profile for the id, the same one every time so FakePlayerFactory reuses it's player.
+     */
+    private GameProfile getProfile(int id) {
+        GameProfile profile = profiles[id - 1];
+        if (profile == null) {
+            UUID uuid = UUID.nameUUIDFromBytes(("MinecraftAI agent " + id).getBytes(UTF_8));
+            profile = new GameProfile(uuid, "[AI " + id + "]");
+            profiles[id - 1] = profile;
+        }
+        return profile;
+    }
+
+    private void activate(LiveAgent agent, int in, int out) {
+        if (agent.getCompiledNetwork() != null) {
+            agent.getCompiledNetwork().activate(inputs, in, outputs, out);
+            return;
+        }
+
+        System.arraycopy(inputs, in, networkInputs, 0, networkInputs.length);
+
+        NeuralNetwork network = agent.getNetwork();
+        network.setInput(networkInputs);
+        network.calculate();
+        network.getOutputAsArray(networkOutputs);
+
+        System.arraycopy(networkOutputs, 0, outputs, out, networkOutputs.length);
+    }
+
+    private void ensureCapacity(int count) {
+        if (batch.length < count) {
+            batch = new LiveAgent[count];
+            inputs = new double[count * sensors.getInputCount()];
+            outputs = new double[count * AgentAction.OUTPUT_COUNT];
+        }
+    }
+
+    private LiveBlockSource getBlockSource(World world) {
+        LiveBlockSource blocks = blockSources.get(world);
+        if (blocks == null) {
+            blocks = new LiveBlockSource(world);
+            blockSources.put(world, blocks);
+        }
+        return blocks;
+    }
+}
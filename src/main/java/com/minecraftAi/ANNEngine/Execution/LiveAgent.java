@@ -0,0 +1,177 @@
+package com.minecraftAi.ANNEngine.Execution;
+
+import com.minecraftAi.ANNEngine.Simulation.AgentAction;
+import com.minecraftAi.ANNEngine.Simulation.BlockClass;
+import com.minecraftAi.ANNEngine.Simulation.BlockSource;
+import com.minecraftAi.ANNEngine.Simulation.SimulatedAgent;
+import com.minecraftAi.ANNEngine.Simulation.VoxelRayCaster;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.BlockPos;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.common.util.FakePlayer;
+import net.minecraftforge.event.world.BlockEvent;
+import org.neuroph.contrib.neat.gen.impl.CompiledNeuralNetwork;
+import org.neuroph.core.NeuralNetwork;
+
+/**
+ * An evolved network driving a FakePlayer in the live world.
+ *
+ * It moves, turns, jumps and breaks blocks with the same speeds and rules as
+ * a SimulatedAgent, so it behaves the way it did in training, but collides
+ * with the real world through moveEntity. Blocks are broken with a
+ * BlockEvent.BreakEvent first, so protection and the chunk cache see them,
+ * and drop their items where they were.
+ */
+public class LiveAgent {
+    private final int id;
+    private final String owner;
+    private final FakePlayer player;
+    private final NeuralNetwork network;
+    private final CompiledNeuralNetwork compiled;
+
+    private double yaw, pitch;
+    private double motionY;
+
+    private boolean hasTarget;
+    private int targetX, targetY, targetZ;
+    private int breakProgress;
+    private double breakFraction;
+
+    private int woodCollected;
+    private long ticks;
+
+    LiveAgent(int id, String owner, FakePlayer player, NeuralNetwork network) {
+        this.id = id;
+        this.owner = owner;
+        this.player = player;
+        this.network = network;
+        this.compiled = network instanceof CompiledNeuralNetwork ? (CompiledNeuralNetwork) network : null;
+        this.yaw = Math.toRadians(player.rotationYaw);
+        this.pitch = Math.toRadians(player.rotationPitch);
+    }
+
+    /**
+     * Carries out the action for one tick, must be called on the server thread.
+     */
+    void apply(AgentAction action, BlockSource blocks, VoxelRayCaster caster) {
+        ticks++;
+
+        yaw += Math.max(-1.0, Math.min(1.0, action.turn)) * SimulatedAgent.MAX_TURN;
+        pitch = Math.max(-Math.PI / 2.0, Math.min(Math.PI / 2.0, action.pitch));
+        player.rotationYaw = (float) Math.toDegrees(yaw);
+        player.rotationYawHead = player.rotationYaw;
+        player.rotationPitch = (float) Math.toDegrees(pitch);
+
+        if (action.jump && player.onGround) {
+            motionY = SimulatedAgent.JUMP_MOTION;
+        }
+
+        double forward = Math.max(-1.0, Math.min(1.0, action.forward)) * SimulatedAgent.WALK_SPEED;
+        player.moveEntity(-Math.sin(yaw) * forward, motionY, Math.cos(yaw) * forward);
+        if (player.isCollidedVertically) {
+            motionY = 0.0;
+        }
+        motionY = (motionY - SimulatedAgent.GRAVITY) * SimulatedAgent.DRAG;
+
+        if (action.breakBlock) {
+            breakTarget(blocks, caster);
+        } else {
+            breakProgress = 0;
+            breakFraction = 0.0;
+        }
+    }
+
+    private void breakTarget(BlockSource blocks, VoxelRayCaster caster) {
+        double cosPitch = Math.cos(pitch);
+        int hit = caster.cast(blocks, player.posX, player.posY + SimulatedAgent.EYE_HEIGHT, player.posZ,
+                -Math.sin(yaw) * cosPitch, -Math.sin(pitch), Math.cos(yaw) * cosPitch, SimulatedAgent.REACH);
+
+        if (hit == VoxelRayCaster.MISS || !BlockClass.byId(hit).isBreakable()) {
+            hasTarget = false;
+            breakProgress = 0;
+            breakFraction = 0.0;
+            return;
+        }
+
+        if (!hasTarget || caster.getHitX() != targetX || caster.getHitY() != targetY || caster.getHitZ() != targetZ) {
+            hasTarget = true;
+            targetX = caster.getHitX();
+            targetY = caster.getHitY();
+            targetZ = caster.getHitZ();
+            breakProgress = 0;
+        }
+
+        BlockClass target = BlockClass.byId(hit);
+        breakProgress++;
+        breakFraction = breakProgress / (double) target.getBreakTicks();
+        if (breakProgress < target.getBreakTicks()) {
+            return;
+        }
+
+        breakProgress = 0;
+        breakFraction = 0.0;
+        hasTarget = false;
+
+        BlockPos pos = new BlockPos(targetX, targetY, targetZ);
+        IBlockState state = player.worldObj.getBlockState(pos);
+        BlockEvent.BreakEvent event = new BlockEvent.BreakEvent(player.worldObj, pos, state, player);
+        if (MinecraftForge.EVENT_BUS.post(event)) {
+            return;
+        }
+
+        if (player.worldObj.destroyBlock(pos, true) && target == BlockClass.LOG) {
+            woodCollected++;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public FakePlayer getPlayer() {
+        return player;
+    }
+
+    NeuralNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Returns the network as a CompiledNeuralNetwork, or null if it isn't compiled.
+     */
+    CompiledNeuralNetwork getCompiledNetwork() {
+        return compiled;
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    public double getBreakProgress() {
+        return breakFraction;
+    }
+
+    public int getWoodCollected() {
+        return woodCollected;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns a one line summary of the agent for chat.
+     */
+    public String getStatus() {
+        return "Agent " + id + " at " + (int) Math.floor(player.posX) + ", " + (int) Math.floor(player.posY) + ", "
+                + (int) Math.floor(player.posZ) + ", " + woodCollected + " wood in " + ticks + " ticks";
+    }
+}
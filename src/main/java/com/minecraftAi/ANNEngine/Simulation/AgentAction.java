@@ -0,0 +1,43 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+/**
+ * What an agent wants to do for one tick, decoded from the outputs of it's
+ * network. The same decoding drives simulated and live agents, so a network
+ * behaves the same in both. Reused from tick to tick rather than recreated.
+ */
+public class AgentAction {
+    /**
+     * The network outputs an agent needs, in the order read by decode.
+     */
+    public static final int OUTPUT_COUNT = 5;
+
+    /**
+     * From -1, full speed backwards, to 1, full speed forwards.
+     */
+    public double forward;
+
+    /**
+     * From -1 to 1, as a fraction of the fastest an agent can turn.
+     */
+    public double turn;
+
+    /**
+     * The pitch to look at in radians, from straight up at -PI/2 to straight down at PI/2.
+     */
+    public double pitch;
+
+    public boolean jump;
+    public boolean breakBlock;
+
+    /**
+     * Reads the action from network outputs, which are expected to be between 0 and 1.
+     */
+    public AgentAction decode(double[] outputs, int offset) {
+        forward = outputs[offset] * 2.0 - 1.0;
+        turn = outputs[offset + 1] * 2.0 - 1.0;
+        pitch = (outputs[offset + 2] * 2.0 - 1.0) * (Math.PI / 2.0);
+        jump = outputs[offset + 3] > 0.5;
+        breakBlock = outputs[offset + 4] > 0.5;
+        return this;
+    }
+}
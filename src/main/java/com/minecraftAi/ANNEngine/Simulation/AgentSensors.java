@@ -0,0 +1,118 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+import org.neuroph.contrib.neat.gen.NeatParameters;
+import org.neuroph.contrib.neat.gen.NeuronGene;
+import org.neuroph.contrib.neat.gen.NeuronType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns what an agent can see and what it's carrying into a fixed number of
+ * network inputs, every tick.
+ *
+ * A fan of rays is cast from the agent's eyes, at each combination of the
+ * yaw and pitch offsets from where it's looking. Each ray gives how close the
+ * first block it hits is, from 1 right in front of the agent to 0 at the end
+ * of it's range, and which BlockClass it is as one input per class, with AIR
+ * meaning nothing was hit. After the rays come the agent's own features: the
+ * wood it has, the sine and cosine of it's heading, it's pitch, whether it's
+ * on the ground and how far through breaking a block it is.
+ *
+ * The input neurons a network needs for these sensors are made by
+ * createInputNeuronGenes. Sensing doesn't allocate, and as the rays share a
+ * VoxelRayCaster a sensor suite must only be used by one thread.
+ */
+public class AgentSensors {
+    public static final double RANGE = 16.0;
+
+    /**
+     * The wood an agent carries is divided by this, so a full stack reads as 1.
+     */
+    public static final double WOOD_SCALE = 64.0;
+
+    public static final double[] DEFAULT_YAW_OFFSETS = {
+            Math.toRadians(-60), Math.toRadians(-30), 0, Math.toRadians(30), Math.toRadians(60)
+    };
+    public static final double[] DEFAULT_PITCH_OFFSETS = {
+            Math.toRadians(-30), 0, Math.toRadians(30)
+    };
+
+    private static final int INPUTS_PER_RAY = 1 + BlockClass.values().length;
+    private static final int FEATURE_COUNT = 6;
+
+    private final double[] yawOffsets;
+    private final double[] pitchOffsets;
+    private final VoxelRayCaster caster = new VoxelRayCaster();
+
+    public AgentSensors() {
+        this(DEFAULT_YAW_OFFSETS, DEFAULT_PITCH_OFFSETS);
+    }
+
+    public AgentSensors(double[] yawOffsets, double[] pitchOffsets) {
+        this.yawOffsets = yawOffsets.clone();
+        this.pitchOffsets = pitchOffsets.clone();
+    }
+
+    public int getRayCount() {
+        return yawOffsets.length * pitchOffsets.length;
+    }
+
+    public int getInputCount() {
+        return getRayCount() * INPUTS_PER_RAY + FEATURE_COUNT;
+    }
+
+    /**
+     * Creates an input NeuronGene for each input, in order.
+     */
+    public List<NeuronGene> createInputNeuronGenes(NeatParameters params) {
+        List<NeuronGene> inputs = new ArrayList<NeuronGene>();
+        for (int i = 0; i < getInputCount(); i++) {
+            inputs.add(new NeuronGene(NeuronType.INPUT, params));
+        }
+        return inputs;
+    }
+
+    public void sense(BlockSource blocks, SimulatedAgent agent, double[] inputs, int offset) {
+        sense(blocks, agent.getX(), agent.getEyeY(), agent.getZ(), agent.getYaw(), agent.getPitch(),
+                agent.getWoodCollected(), agent.isOnGround(), agent.getBreakProgress(), inputs, offset);
+    }
+
+    /**
+     * Writes getInputCount inputs, starting at offset, for an agent at the position.
+     *
+     * @param yaw   the agent's yaw in radians, see SimulatedAgent.
+     * @param pitch the agent's pitch in radians, see SimulatedAgent.
+     */
+    public void sense(BlockSource blocks, double x, double eyeY, double z, double yaw, double pitch,
+                      int wood, boolean onGround, double breakProgress, double[] inputs, int offset) {
+        int input = offset;
+
+        for (int p = 0; p < pitchOffsets.length; p++) {
+            double rayPitch = Math.max(-Math.PI / 2.0, Math.min(Math.PI / 2.0, pitch + pitchOffsets[p]));
+            double cosPitch = Math.cos(rayPitch);
+            double dy = -Math.sin(rayPitch);
+
+            for (int w = 0; w < yawOffsets.length; w++) {
+                double rayYaw = yaw + yawOffsets[w];
+                double dx = -Math.sin(rayYaw) * cosPitch;
+                double dz = Math.cos(rayYaw) * cosPitch;
+
+                int hit = caster.cast(blocks, x, eyeY, z, dx, dy, dz, RANGE);
+                int blockClass = hit == VoxelRayCaster.MISS ? BlockClass.AIR.getId() : hit;
+
+                inputs[input++] = 1.0 - caster.getDistance() / RANGE;
+                for (int c = 0; c < INPUTS_PER_RAY - 1; c++) {
+                    inputs[input++] = c == blockClass ? 1.0 : 0.0;
+                }
+            }
+        }
+
+        inputs[input++] = Math.min(1.0, wood / WOOD_SCALE);
+        inputs[input++] = Math.sin(yaw);
+        inputs[input++] = Math.cos(yaw);
+        inputs[input++] = pitch / (Math.PI / 2.0);
+        inputs[input++] = onGround ? 1.0 : 0.0;
+        inputs[input] = breakProgress;
+    }
+}
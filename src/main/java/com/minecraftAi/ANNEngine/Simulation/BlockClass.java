@@ -0,0 +1,63 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockLeaves;
+import net.minecraft.block.BlockLog;
+
+/**
+ * The few kinds of block the simulator tells apart. Every Minecraft block is
+ * reduced to one of these when a region is captured, stored as it's id.
+ */
+public enum BlockClass {
+    AIR(0),
+    LOG(60),
+    LEAVES(7),
+    SOLID(-1);
+
+    private static final BlockClass[] BY_ID = values();
+
+    /**
+     * The ticks it takes to break the block by hand, or -1 if it can't be broken.
+     */
+    private final int breakTicks;
+
+    BlockClass(int breakTicks) {
+        this.breakTicks = breakTicks;
+    }
+
+    public byte getId() {
+        return (byte) ordinal();
+    }
+
+    public int getBreakTicks() {
+        return breakTicks;
+    }
+
+    public boolean blocksMovement() {
+        return this != AIR;
+    }
+
+    public boolean isBreakable() {
+        return breakTicks > 0;
+    }
+
+    public static BlockClass byId(int id) {
+        return BY_ID[id];
+    }
+
+    /**
+     * Anything that doesn't block movement, like grass, flowers or water, is treated as air.
+     */
+    public static BlockClass of(Block block) {
+        if (block instanceof BlockLog) {
+            return LOG;
+        }
+        if (block instanceof BlockLeaves) {
+            return LEAVES;
+        }
+        if (!block.getMaterial().blocksMovement()) {
+            return AIR;
+        }
+        return SOLID;
+    }
+}
@@ -0,0 +1,12 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+/**
+ * Anything blocks can be read from as BlockClass ids, so sensors work the same
+ * on a snapshot, a simulation or the live world.
+ */
+public interface BlockSource {
+    /**
+     * Returns the BlockClass id of the block at the coordinates.
+     */
+    byte getBlockId(int x, int y, int z);
+}
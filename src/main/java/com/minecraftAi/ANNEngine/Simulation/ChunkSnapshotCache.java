@@ -0,0 +1,343 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps BlockClass copies of the chunks around training agents, so training
+ * jobs can read the world at memory speed from any thread, without touching
+ * the server's chunks or calling World.getBlockState.
+ *
+ * Chunks are only captured, refreshed and evicted on the server thread. A
+ * cached chunk is never changed once published, changes replace it, so other
+ * threads read through a View without any locking and always see a whole
+ * chunk.
+ *
+ * The cache follows the world incrementally. A block broken or placed marks
+ * just it's section dirty, and dirty sections are captured again at the end
+ * of the tick, once the change has happened. Unloaded chunks are dropped.
+ * Changes Forge has no event for, like explosions, pistons, leaves decaying or
+ * saplings growing, are picked up by capturing a chunk again once it's older
+ * than MAX_AGE_TICKS.
+ *
+ * When the cached sections take more than the memory cap, the chunks read
+ * least recently are evicted. Recency is counted in server ticks.
+ */
+public class ChunkSnapshotCache {
+    public static final long DEFAULT_MEMORY_CAP = 64L * 1024 * 1024;
+
+    /**
+     * How long a cached chunk is used for before cacheChunk captures it again, 30 seconds.
+     */
+    public static final int MAX_AGE_TICKS = 600;
+
+    /**
+     * The cached chunks of each dimension, by chunkKey.
+     */
+    private final Map<Integer, Map<Long, CachedChunk>> dimensions = new ConcurrentHashMap<Integer, Map<Long, CachedChunk>>();
+
+    /**
+     * Sections waiting to be captured again, only used on the server thread.
+     */
+    private final Set<DirtySection> dirty = new HashSet<DirtySection>();
+
+    private volatile long memoryCap;
+    private volatile long memoryUsed;
+    private volatile long currentTick;
+
+    public ChunkSnapshotCache() {
+        this(DEFAULT_MEMORY_CAP);
+    }
+
+    public ChunkSnapshotCache(long memoryCap) {
+        setMemoryCap(memoryCap);
+    }
+
+    /**
+     * Captures the chunk if it's loaded and isn't cached, or was captured more than
+     * MAX_AGE_TICKS ago. Must be called on the server thread.
+     */
+    public void cacheChunk(World world, int chunkX, int chunkZ) {
+        Map<Long, CachedChunk> chunks = getChunks(world, true);
+        CachedChunk cached = chunks.get(chunkKey(chunkX, chunkZ));
+
+        if (cached != null && currentTick - cached.captured <= MAX_AGE_TICKS) {
+            cached.lastUsed = currentTick;
+            return;
+        }
+
+        byte[][] sections = WorldSnapshot.captureChunk(world, chunkX, chunkZ);
+        if (sections != null) {
+            publish(chunks, cached, new CachedChunk(world.provider.getDimensionId(), chunkX, chunkZ, sections, currentTick, currentTick));
+            evict();
+        }
+    }
+
+    /**
+     * Returns a read-only view of the cached chunks of the world's dimension, which any thread
+     * can read.
+     */
+    public View newView(World world) {
+        return new View(world.provider.getDimensionId());
+    }
+
+    @SubscribeEvent
+    public void onBlockBreak(BlockEvent.BreakEvent event) {
+        markDirty(event.world, event.pos);
+    }
+
+    @SubscribeEvent
+    public void onBlockPlace(BlockEvent.PlaceEvent event) {
+        markDirty(event.world, event.pos);
+    }
+
+    @SubscribeEvent
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.world.isRemote) {
+            return;
+        }
+
+        Map<Long, CachedChunk> chunks = getChunks(event.world, false);
+        if (chunks != null) {
+            Chunk chunk = event.getChunk();
+            CachedChunk removed = chunks.remove(chunkKey(chunk.xPosition, chunk.zPosition));
+            if (removed != null) {
+                memoryUsed -= removed.memory;
+            }
+        }
+    }
+
+    /**
+     * Captures the dirty sections again, at the end of the tick so the changes that made them
+     * dirty have happened.
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+
+        currentTick++;
+
+        for (DirtySection section : dirty) {
+            Map<Long, CachedChunk> chunks = dimensions.get(section.dimension);
+            CachedChunk cached = chunks == null ? null : chunks.get(chunkKey(section.chunkX, section.chunkZ));
+            if (cached == null || !section.world.getChunkProvider().chunkExists(section.chunkX, section.chunkZ)) {
+                continue;
+            }
+
+            ExtendedBlockStorage[] storage = section.world.getChunkFromChunkCoords(section.chunkX, section.chunkZ).getBlockStorageArray();
+            byte[][] sections = cached.sections.clone();
+            sections[section.sectionY] = WorldSnapshot.captureSection(storage[section.sectionY]);
+            publish(chunks, cached, new CachedChunk(cached.dimension, cached.chunkX, cached.chunkZ, sections, cached.captured, cached.lastUsed));
+        }
+        dirty.clear();
+
+        evict();
+    }
+
+    public void setMemoryCap(long memoryCap) {
+        if (memoryCap <= 0) {
+            throw new IllegalArgumentException("Memory cap must be positive: " + memoryCap);
+        }
+        this.memoryCap = memoryCap;
+    }
+
+    public long getMemoryCap() {
+        return memoryCap;
+    }
+
+    /**
+     * Returns roughly how many bytes the cached chunks take.
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public int getCachedChunkCount() {
+        int count = 0;
+        for (Map<Long, CachedChunk> chunks : dimensions.values()) {
+            count += chunks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Drops every cached chunk. Must be called on the server thread.
+     */
+    public void clear() {
+        dimensions.clear();
+        dirty.clear();
+        memoryUsed = 0;
+    }
+
+    private void markDirty(World world, BlockPos pos) {
+        if (world.isRemote || pos.getY() < 0 || pos.getY() > 255) {
+            return;
+        }
+
+        Map<Long, CachedChunk> chunks = getChunks(world, false);
+        int chunkX = pos.getX() >> 4;
+        int chunkZ = pos.getZ() >> 4;
+        if (chunks != null && chunks.containsKey(chunkKey(chunkX, chunkZ))) {
+            dirty.add(new DirtySection(world, chunkX, pos.getY() >> 4, chunkZ));
+        }
+    }
+
+    /**
+     * Replaces old with chunk, or adds chunk if old is null. Only called on the server thread.
+     */
+    private void publish(Map<Long, CachedChunk> chunks, CachedChunk old, CachedChunk chunk) {
+        chunks.put(chunkKey(chunk.chunkX, chunk.chunkZ), chunk);
+        memoryUsed += chunk.memory - (old == null ? 0 : old.memory);
+    }
+
+    /**
+     * Evicts the chunks read least recently until the cache is within it's memory cap.
+     */
+    private void evict() {
+        if (memoryUsed <= memoryCap) {
+            return;
+        }
+
+        List<CachedChunk> all = new ArrayList<CachedChunk>();
+        for (Map<Long, CachedChunk> chunks : dimensions.values()) {
+            all.addAll(chunks.values());
+        }
+
+        // other threads keep updating when chunks were last used, so sort on a copy taken first.
+        for (CachedChunk chunk : all) {
+            chunk.evictionStamp = chunk.lastUsed;
+        }
+        Collections.sort(all, new Comparator<CachedChunk>() {
+            @Override
+            public int compare(CachedChunk a, CachedChunk b) {
+                return a.evictionStamp < b.evictionStamp ? -1 : a.evictionStamp > b.evictionStamp ? 1 : 0;
+            }
+        });
+
+        Iterator<CachedChunk> oldest = all.iterator();
+        while (memoryUsed > memoryCap && oldest.hasNext()) {
+            CachedChunk chunk = oldest.next();
+            if (dimensions.get(chunk.dimension).remove(chunkKey(chunk.chunkX, chunk.chunkZ), chunk)) {
+                memoryUsed -= chunk.memory;
+            }
+        }
+    }
+
+    private Map<Long, CachedChunk> getChunks(World world, boolean create) {
+        int dimension = world.provider.getDimensionId();
+        Map<Long, CachedChunk> chunks = dimensions.get(dimension);
+        if (chunks == null && create) {
+            chunks = new ConcurrentHashMap<Long, CachedChunk>();
+            dimensions.put(dimension, chunks);
+        }
+        return chunks;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads the cached chunks of one dimension. Chunks that aren't cached are null, so they
+     * read as SOLID in a WorldSnapshot.
+     */
+    public class View implements ChunkSource {
+        private final int dimension;
+
+        View(int dimension) {
+            this.dimension = dimension;
+        }
+
+        @Override
+        public byte[][] getChunk(int chunkX, int chunkZ) {
+            Map<Long, CachedChunk> chunks = dimensions.get(dimension);
+            CachedChunk chunk = chunks == null ? null : chunks.get(chunkKey(chunkX, chunkZ));
+            if (chunk == null) {
+                return null;
+            }
+
+            chunk.lastUsed = currentTick;
+            return chunk.sections;
+        }
+    }
+
+    private static class CachedChunk {
+        final int dimension, chunkX, chunkZ;
+        final byte[][] sections;
+        final long memory;
+
+        /**
+         * The tick the chunk was last captured as a whole.
+         */
+        final long captured;
+
+        volatile long lastUsed;
+
+        /**
+         * lastUsed as it was when eviction started, only used on the server thread.
+         */
+        long evictionStamp;
+
+        CachedChunk(int dimension, int chunkX, int chunkZ, byte[][] sections, long captured, long lastUsed) {
+            this.dimension = dimension;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.sections = sections;
+            this.captured = captured;
+            this.lastUsed = lastUsed;
+
+            long memory = 64 + sections.length * 8;
+            for (byte[] section : sections) {
+                if (section != WorldSnapshot.EMPTY_SECTION && section != WorldSnapshot.SOLID_SECTION) {
+                    memory += section.length;
+                }
+            }
+            this.memory = memory;
+        }
+    }
+
+    private static class DirtySection {
+        final World world;
+        final int dimension, chunkX, sectionY, chunkZ;
+
+        DirtySection(World world, int chunkX, int sectionY, int chunkZ) {
+            this.world = world;
+            this.dimension = world.provider.getDimensionId();
+            this.chunkX = chunkX;
+            this.sectionY = sectionY;
+            this.chunkZ = chunkZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DirtySection)) {
+                return false;
+            }
+            DirtySection other = (DirtySection) o;
+            return dimension == other.dimension && chunkX == other.chunkX && sectionY == other.sectionY && chunkZ == other.chunkZ;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((dimension * 31 + chunkX) * 31 + sectionY) * 31 + chunkZ;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+/**
+ * Anything whole chunks can be read from as BlockClass sections, so a
+ * WorldSnapshot can be put together from chunks captured at different times.
+ */
+public interface ChunkSource {
+    /**
+     * Returns the WORLD_SECTIONS sections of the chunk from the bottom up, each indexed by
+     * WorldSnapshot.blockIndex, or null if the chunk isn't loaded. The sections must not be
+     * changed.
+     */
+    byte[][] getChunk(int chunkX, int chunkZ);
+}
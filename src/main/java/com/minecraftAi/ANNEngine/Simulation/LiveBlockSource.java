@@ -0,0 +1,59 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Reads BlockClass ids straight from the loaded chunk sections of a live
+ * world, without the BlockPos every World.getBlockState call needs. The
+ * sections of the last chunk read are kept, as sensors mostly read blocks
+ * next to each other.
+ *
+ * Unloaded chunks read as SOLID rather than being loaded. Must only be used
+ * on the server thread.
+ */
+public class LiveBlockSource implements BlockSource {
+    private final World world;
+
+    private int chunkX, chunkZ;
+    private ExtendedBlockStorage[] storage;
+
+    public LiveBlockSource(World world) {
+        this.world = world;
+    }
+
+    @Override
+    public byte getBlockId(int x, int y, int z) {
+        if (y < 0) {
+            return BlockClass.SOLID.getId();
+        }
+        if (y > 255) {
+            return BlockClass.AIR.getId();
+        }
+
+        int cx = x >> 4;
+        int cz = z >> 4;
+        if (storage == null || cx != chunkX || cz != chunkZ) {
+            if (!world.getChunkProvider().chunkExists(cx, cz)) {
+                return BlockClass.SOLID.getId();
+            }
+            storage = world.getChunkFromChunkCoords(cx, cz).getBlockStorageArray();
+            chunkX = cx;
+            chunkZ = cz;
+        }
+
+        ExtendedBlockStorage section = storage[y >> 4];
+        if (section == null || section.isEmpty()) {
+            return BlockClass.AIR.getId();
+        }
+        return BlockClass.of(section.getBlockByExtId(x & 15, y & 15, z & 15)).getId();
+    }
+
+    /**
+     * Forgets the chunk kept from the last read, which has to be done each tick as chunks
+     * can unload between ticks.
+     */
+    public void clear() {
+        storage = null;
+    }
+}
@@ -0,0 +1,309 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+/**
+ * A player reduced to what gathering wood needs: walking, turning, jumping
+ * and falling with collision against the blocks of a SimulatedWorld, and
+ * breaking the block it's looking at. Broken logs go straight into it's
+ * inventory.
+ *
+ * The constants follow vanilla survival players closely enough that a
+ * trained network still works in the real world, but there is no sprinting,
+ * stepping up half blocks, swimming or item drops.
+ *
+ * Yaw and pitch use Minecraft's conventions, in radians: a yaw of 0 faces
+ * south (+z) and increases clockwise, and a positive pitch looks down.
+ */
+public class SimulatedAgent {
+    public static final double WIDTH = 0.6;
+    public static final double HEIGHT = 1.8;
+    public static final double EYE_HEIGHT = 1.62;
+    public static final double WALK_SPEED = 0.2159;
+    public static final double GRAVITY = 0.08;
+    public static final double DRAG = 0.98;
+    public static final double JUMP_MOTION = 0.42;
+    public static final double MAX_TURN = Math.toRadians(20.0);
+    public static final double REACH = 4.5;
+
+    private static final double HALF_WIDTH = WIDTH / 2.0;
+    private static final double EPSILON = 1.0E-7;
+
+    private static final int AXIS_X = 0;
+    private static final int AXIS_Y = 1;
+    private static final int AXIS_Z = 2;
+
+    private double x, y, z;
+    private double yaw, pitch;
+    private double motionY;
+    private boolean onGround;
+
+    private boolean hasTarget;
+    private int targetX, targetY, targetZ;
+    private int breakProgress;
+    private int breakTicks;
+
+    private int woodCollected;
+    private int blocksBroken;
+    private int ticks;
+
+    private final VoxelRayCaster caster = new VoxelRayCaster();
+
+    /**
+     * @param x   the x coordinate of the middle of the agent's feet.
+     * @param y   the y coordinate of the agent's feet.
+     * @param z   the z coordinate of the middle of the agent's feet.
+     * @param yaw the direction the agent faces, in radians.
+     */
+    public SimulatedAgent(double x, double y, double z, double yaw) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+    }
+
+    /**
+     * Carries out the action for one tick.
+     */
+    public void tick(SimulatedWorld world, AgentAction action) {
+        ticks++;
+
+        yaw += Math.max(-1.0, Math.min(1.0, action.turn)) * MAX_TURN;
+        pitch = Math.max(-Math.PI / 2.0, Math.min(Math.PI / 2.0, action.pitch));
+
+        if (action.jump && onGround) {
+            motionY = JUMP_MOTION;
+        }
+
+        double forward = Math.max(-1.0, Math.min(1.0, action.forward)) * WALK_SPEED;
+        double dx = -Math.sin(yaw) * forward;
+        double dz = Math.cos(yaw) * forward;
+
+        // like vanilla, move up or down first, then along each horizontal axis.
+        double dy = clip(world, AXIS_Y, motionY);
+        onGround = motionY < 0.0 && dy != motionY;
+        if (dy != motionY) {
+            motionY = 0.0;
+        }
+        y += dy;
+        x += clip(world, AXIS_X, dx);
+        z += clip(world, AXIS_Z, dz);
+
+        motionY = (motionY - GRAVITY) * DRAG;
+
+        if (action.breakBlock) {
+            breakTarget(world);
+        } else {
+            breakProgress = 0;
+        }
+    }
+
+    /**
+     * Returns how far the agent can move along the axis, up to distance, before it's box
+     * hits a block.
+     */
+    private double clip(SimulatedWorld world, int axis, double distance) {
+        if (distance == 0.0) {
+            return 0.0;
+        }
+
+        double min, max;
+        int aLow, aHigh, bLow, bHigh;
+        if (axis == AXIS_X) {
+            min = x - HALF_WIDTH;
+            max = x + HALF_WIDTH;
+            aLow = floor(y);
+            aHigh = ceil(y + HEIGHT) - 1;
+            bLow = floor(z - HALF_WIDTH);
+            bHigh = ceil(z + HALF_WIDTH) - 1;
+        } else if (axis == AXIS_Y) {
+            min = y;
+            max = y + HEIGHT;
+            aLow = floor(x - HALF_WIDTH);
+            aHigh = ceil(x + HALF_WIDTH) - 1;
+            bLow = floor(z - HALF_WIDTH);
+            bHigh = ceil(z + HALF_WIDTH) - 1;
+        } else {
+            min = z - HALF_WIDTH;
+            max = z + HALF_WIDTH;
+            aLow = floor(x - HALF_WIDTH);
+            aHigh = ceil(x + HALF_WIDTH) - 1;
+            bLow = floor(y);
+            bHigh = ceil(y + HEIGHT) - 1;
+        }
+
+        // check each layer of blocks the leading face of the box moves into, nearest first.
+        if (distance > 0.0) {
+            int last = ceil(max + distance) - 1;
+            for (int layer = ceil(max); layer <= last; layer++) {
+                if (isLayerBlocked(world, axis, layer, aLow, aHigh, bLow, bHigh)) {
+                    return Math.max(0.0, layer - max);
+                }
+            }
+        } else {
+            int last = floor(min + distance);
+            for (int layer = floor(min) - 1; layer >= last; layer--) {
+                if (isLayerBlocked(world, axis, layer, aLow, aHigh, bLow, bHigh)) {
+                    return Math.min(0.0, (layer + 1) - min);
+                }
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Returns true if any block across the box, in the layer at the coordinate along the axis,
+     * blocks movement. a and b are the ranges along the other two axes, in x, y, z order.
+     */
+    private static boolean isLayerBlocked(SimulatedWorld world, int axis, int layer, int aLow, int aHigh, int bLow, int bHigh) {
+        for (int a = aLow; a <= aHigh; a++) {
+            for (int b = bLow; b <= bHigh; b++) {
+                boolean blocked;
+                if (axis == AXIS_X) {
+                    blocked = world.blocksMovement(layer, a, b);
+                } else if (axis == AXIS_Y) {
+                    blocked = world.blocksMovement(a, layer, b);
+                } else {
+                    blocked = world.blocksMovement(a, b, layer);
+                }
+
+                if (blocked) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Works on breaking the block the agent is looking at, starting again if it has looked
+     * away since the last tick.
+     */
+    private void breakTarget(SimulatedWorld world) {
+        int oldX = targetX, oldY = targetY, oldZ = targetZ;
+        boolean hadTarget = hasTarget;
+
+        if (!findTarget(world)) {
+            breakProgress = 0;
+            return;
+        }
+
+        if (!hadTarget || oldX != targetX || oldY != targetY || oldZ != targetZ) {
+            breakProgress = 0;
+        }
+
+        BlockClass target = world.getBlockClass(targetX, targetY, targetZ);
+        if (!target.isBreakable()) {
+            breakProgress = 0;
+            return;
+        }
+
+        breakTicks = target.getBreakTicks();
+        breakProgress++;
+        if (breakProgress >= breakTicks) {
+            world.setBlockClass(targetX, targetY, targetZ, BlockClass.AIR);
+            blocksBroken++;
+            if (target == BlockClass.LOG) {
+                woodCollected++;
+            }
+            breakProgress = 0;
+            hasTarget = false;
+        }
+    }
+
+    /**
+     * Finds the first block, within reach, along the line the agent is looking.
+     *
+     * @return true if there is one, it's coordinates are then in targetX, targetY and targetZ.
+     */
+    private boolean findTarget(SimulatedWorld world) {
+        double cosPitch = Math.cos(pitch);
+        double dx = -Math.sin(yaw) * cosPitch;
+        double dy = -Math.sin(pitch);
+        double dz = Math.cos(yaw) * cosPitch;
+
+        if (caster.cast(world, x, y + EYE_HEIGHT, z, dx, dy, dz, REACH) == VoxelRayCaster.MISS) {
+            hasTarget = false;
+            return false;
+        }
+
+        targetX = caster.getHitX();
+        targetY = caster.getHitY();
+        targetZ = caster.getHitZ();
+        hasTarget = true;
+        return true;
+    }
+
+    private static int floor(double value) {
+        return (int) Math.floor(value + EPSILON);
+    }
+
+    private static int ceil(double value) {
+        return (int) Math.ceil(value - EPSILON);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getEyeY() {
+        return y + EYE_HEIGHT;
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    /**
+     * Returns how far through breaking the current target the agent is, from 0 to 1.
+     */
+    public double getBreakProgress() {
+        if (!hasTarget || breakProgress == 0) {
+            return 0.0;
+        }
+        return breakProgress / (double) breakTicks;
+    }
+
+    public boolean hasTarget() {
+        return hasTarget;
+    }
+
+    public int getTargetX() {
+        return targetX;
+    }
+
+    public int getTargetY() {
+        return targetY;
+    }
+
+    public int getTargetZ() {
+        return targetZ;
+    }
+
+    public int getWoodCollected() {
+        return woodCollected;
+    }
+
+    public int getBlocksBroken() {
+        return blocksBroken;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+}
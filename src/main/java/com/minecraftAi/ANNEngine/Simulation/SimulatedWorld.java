@@ -0,0 +1,74 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+/**
+ * A changeable world backed by a WorldSnapshot, for one simulation on one thread.
+ *
+ * Sections are read straight from the snapshot until a block in them is set,
+ * then that section alone is copied, so creating a SimulatedWorld is cheap and
+ * many can share one snapshot.
+ */
+public class SimulatedWorld implements BlockSource {
+    private final WorldSnapshot snapshot;
+    private final byte[][] sections;
+    private final boolean[] copied;
+
+    public SimulatedWorld(WorldSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.sections = new byte[snapshot.getSectionCount()][];
+        this.copied = new boolean[sections.length];
+        reset();
+    }
+
+    /**
+     * Undoes every change, back to the snapshot.
+     */
+    public void reset() {
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = snapshot.getSection(i);
+            copied[i] = false;
+        }
+    }
+
+    /**
+     * Returns the BlockClass id of the block, SOLID if it's outside the snapshot.
+     */
+    @Override
+    public byte getBlockId(int x, int y, int z) {
+        int section = snapshot.sectionIndex(x, y, z);
+        if (section < 0) {
+            return BlockClass.SOLID.getId();
+        }
+        return sections[section][WorldSnapshot.blockIndex(x & 15, y & 15, z & 15)];
+    }
+
+    public BlockClass getBlockClass(int x, int y, int z) {
+        return BlockClass.byId(getBlockId(x, y, z));
+    }
+
+    public boolean blocksMovement(int x, int y, int z) {
+        return getBlockId(x, y, z) != BlockClass.AIR.getId();
+    }
+
+    /**
+     * Changes the block, blocks outside the snapshot can't be changed.
+     *
+     * @return true if the block is inside the snapshot.
+     */
+    public boolean setBlockClass(int x, int y, int z, BlockClass blockClass) {
+        int section = snapshot.sectionIndex(x, y, z);
+        if (section < 0) {
+            return false;
+        }
+
+        if (!copied[section]) {
+            sections[section] = sections[section].clone();
+            copied[section] = true;
+        }
+        sections[section][WorldSnapshot.blockIndex(x & 15, y & 15, z & 15)] = blockClass.getId();
+        return true;
+    }
+
+    public WorldSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,98 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+/**
+ * Finds the first block a ray hits by visiting every block it passes through
+ * in order, stepping from one block boundary to the next (Amanatides and
+ * Woo's voxel traversal). Each step is a few additions and comparisons.
+ *
+ * The result of the last cast is kept in the caster rather than returned as
+ * an object, so casting never allocates. A caster must only be used by one
+ * thread.
+ */
+public class VoxelRayCaster {
+    /**
+     * Returned by cast when nothing is hit within range.
+     */
+    public static final int MISS = -1;
+
+    private int hitX, hitY, hitZ;
+    private double distance;
+
+    /**
+     * Casts a ray through the source, stopping at the first block that isn't air.
+     *
+     * @param dx          the direction of the ray, which must have a length of one.
+     * @param maxDistance the furthest the ray goes.
+     * @return the BlockClass id of the block hit, or MISS.
+     */
+    public int cast(BlockSource source, double x, double y, double z, double dx, double dy, double dz, double maxDistance) {
+        int bx = (int) Math.floor(x);
+        int by = (int) Math.floor(y);
+        int bz = (int) Math.floor(z);
+
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+
+        // how far along the ray it takes to cross a whole block on each axis.
+        double deltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+        double deltaY = stepY != 0 ? Math.abs(1.0 / dy) : Double.POSITIVE_INFINITY;
+        double deltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.POSITIVE_INFINITY;
+
+        // how far along the ray the next boundary on each axis is.
+        double nextX = stepX > 0 ? (bx + 1 - x) * deltaX : stepX < 0 ? (x - bx) * deltaX : Double.POSITIVE_INFINITY;
+        double nextY = stepY > 0 ? (by + 1 - y) * deltaY : stepY < 0 ? (y - by) * deltaY : Double.POSITIVE_INFINITY;
+        double nextZ = stepZ > 0 ? (bz + 1 - z) * deltaZ : stepZ < 0 ? (z - bz) * deltaZ : Double.POSITIVE_INFINITY;
+
+        double t = 0.0;
+        while (true) {
+            byte id = source.getBlockId(bx, by, bz);
+            if (id != BlockClass.AIR.getId()) {
+                hitX = bx;
+                hitY = by;
+                hitZ = bz;
+                distance = t;
+                return id;
+            }
+
+            if (nextX < nextY && nextX < nextZ) {
+                t = nextX;
+                bx += stepX;
+                nextX += deltaX;
+            } else if (nextY < nextZ) {
+                t = nextY;
+                by += stepY;
+                nextY += deltaY;
+            } else {
+                t = nextZ;
+                bz += stepZ;
+                nextZ += deltaZ;
+            }
+
+            if (t > maxDistance) {
+                distance = maxDistance;
+                return MISS;
+            }
+        }
+    }
+
+    public int getHitX() {
+        return hitX;
+    }
+
+    public int getHitY() {
+        return hitY;
+    }
+
+    public int getHitZ() {
+        return hitZ;
+    }
+
+    /**
+     * Returns how far along the ray the block hit by the last cast is, or it's maximum
+     * distance if it missed.
+     */
+    public double getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,229 @@
+package com.minecraftAi.ANNEngine.Simulation;
+
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of a box of the world, made up of whole 16x16x16 chunk
+ * sections, with each block reduced to the id of it's BlockClass.
+ *
+ * A snapshot is put together from chunks captured on the server thread and
+ * never changes once created, so any number of threads can read it, and
+ * SimulatedWorlds share it's sections until they change one. Everything
+ * outside the box reads as SOLID, which keeps simulated agents inside it.
+ */
+public class WorldSnapshot implements BlockSource {
+    public static final int SECTION_SIZE = 16;
+    public static final int SECTION_VOLUME = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+
+    /**
+     * The number of sections in a chunk column, for y 0 to 255.
+     */
+    public static final int WORLD_SECTIONS = 16;
+
+    /**
+     * Shared by every section that is only air, it must never be written to.
+     */
+    static final byte[] EMPTY_SECTION = new byte[SECTION_VOLUME];
+
+    /**
+     * Used for chunks that weren't loaded when the snapshot was captured.
+     */
+    static final byte[] SOLID_SECTION = new byte[SECTION_VOLUME];
+
+    static {
+        Arrays.fill(SOLID_SECTION, BlockClass.SOLID.getId());
+    }
+
+    private final int originX, originY, originZ;
+    private final int sectionsX, sectionsY, sectionsZ;
+
+    /**
+     * Indexed by sectionIndex, each is indexed by blockIndex.
+     */
+    private final byte[][] sections;
+
+    /**
+     * Creates a snapshot from sections that have already been captured, which it takes
+     * ownership of.
+     *
+     * @param chunkX   the x coordinate of the chunk at the lowest corner.
+     * @param sectionY the y index of the section at the lowest corner, 0 to 15.
+     * @param chunkZ   the z coordinate of the chunk at the lowest corner.
+     * @param sections each section, in the order given by sectionIndex.
+     */
+    public WorldSnapshot(int chunkX, int sectionY, int chunkZ, int sectionsX, int sectionsY, int sectionsZ, byte[][] sections) {
+        if (sections.length != sectionsX * sectionsY * sectionsZ) {
+            throw new IllegalArgumentException("Expected " + (sectionsX * sectionsY * sectionsZ) + " sections, not " + sections.length);
+        }
+
+        this.originX = chunkX * SECTION_SIZE;
+        this.originY = sectionY * SECTION_SIZE;
+        this.originZ = chunkZ * SECTION_SIZE;
+        this.sectionsX = sectionsX;
+        this.sectionsY = sectionsY;
+        this.sectionsZ = sectionsZ;
+        this.sections = sections;
+    }
+
+    /**
+     * Creates a snapshot of the chunks within chunkRadius of centre, from minY to maxY
+     * inclusive, from chunks that have already been captured. Chunks the source doesn't have
+     * read as SOLID, and a range above or below the world gets the top or bottom section
+     * instead. Can be called from any thread the source can be read from.
+     */
+    public static WorldSnapshot fromChunks(ChunkSource source, BlockPos centre, int chunkRadius, int minY, int maxY) {
+        if (minY > maxY) {
+            throw new IllegalArgumentException("Minimum y " + minY + " is above maximum y " + maxY);
+        }
+
+        int chunkX = (centre.getX() >> 4) - chunkRadius;
+        int chunkZ = (centre.getZ() >> 4) - chunkRadius;
+        int sectionY = sectionOf(minY);
+        int sectionsY = sectionOf(maxY) - sectionY + 1;
+        int sectionsXZ = chunkRadius * 2 + 1;
+
+        byte[][] sections = new byte[sectionsXZ * sectionsY * sectionsXZ][];
+
+        for (int cz = 0; cz < sectionsXZ; cz++) {
+            for (int cx = 0; cx < sectionsXZ; cx++) {
+                byte[][] chunk = source.getChunk(chunkX + cx, chunkZ + cz);
+
+                for (int sy = 0; sy < sectionsY; sy++) {
+                    int index = (sy * sectionsXZ + cz) * sectionsXZ + cx;
+                    sections[index] = chunk == null ? SOLID_SECTION : chunk[sectionY + sy];
+                }
+            }
+        }
+
+        return new WorldSnapshot(chunkX, sectionY, chunkZ, sectionsXZ, sectionsY, sectionsXZ, sections);
+    }
+
+    /**
+     * Captures every section of the chunk, or returns null if it isn't loaded. Must be called
+     * on the server thread.
+     */
+    public static byte[][] captureChunk(World world, int chunkX, int chunkZ) {
+        if (!world.getChunkProvider().chunkExists(chunkX, chunkZ)) {
+            return null;
+        }
+
+        ExtendedBlockStorage[] storage = world.getChunkFromChunkCoords(chunkX, chunkZ).getBlockStorageArray();
+        byte[][] sections = new byte[WORLD_SECTIONS][];
+        for (int i = 0; i < WORLD_SECTIONS; i++) {
+            sections[i] = captureSection(storage[i]);
+        }
+        return sections;
+    }
+
+    /**
+     * Returns the index of the section holding y, clamped to the sections of the world.
+     */
+    static int sectionOf(int y) {
+        return Math.max(0, Math.min(WORLD_SECTIONS - 1, y >> 4));
+    }
+
+    /**
+     * Reduces a chunk section to BlockClass ids, indexed by blockIndex. Sections with no
+     * blocks share EMPTY_SECTION.
+     */
+    public static byte[] captureSection(ExtendedBlockStorage storage) {
+        if (storage == null || storage.isEmpty()) {
+            return EMPTY_SECTION;
+        }
+
+        byte[] section = new byte[SECTION_VOLUME];
+        boolean empty = true;
+
+        for (int y = 0; y < SECTION_SIZE; y++) {
+            for (int z = 0; z < SECTION_SIZE; z++) {
+                for (int x = 0; x < SECTION_SIZE; x++) {
+                    byte id = BlockClass.of(storage.getBlockByExtId(x, y, z)).getId();
+                    section[blockIndex(x, y, z)] = id;
+                    empty &= id == 0;
+                }
+            }
+        }
+
+        return empty ? EMPTY_SECTION : section;
+    }
+
+    /**
+     * Returns the BlockClass id of the block, SOLID if it's outside the snapshot.
+     */
+    @Override
+    public byte getBlockId(int x, int y, int z) {
+        int section = sectionIndex(x, y, z);
+        if (section < 0) {
+            return BlockClass.SOLID.getId();
+        }
+        return sections[section][blockIndex(x & 15, y & 15, z & 15)];
+    }
+
+    public BlockClass getBlockClass(int x, int y, int z) {
+        return BlockClass.byId(getBlockId(x, y, z));
+    }
+
+    /**
+     * Returns the index of the section holding the block, or -1 if it's outside the snapshot.
+     */
+    public int sectionIndex(int x, int y, int z) {
+        int sx = (x - originX) >> 4;
+        int sy = (y - originY) >> 4;
+        int sz = (z - originZ) >> 4;
+
+        if (sx < 0 || sy < 0 || sz < 0 || sx >= sectionsX || sy >= sectionsY || sz >= sectionsZ) {
+            return -1;
+        }
+        return (sy * sectionsZ + sz) * sectionsX + sx;
+    }
+
+    /**
+     * Returns the index of a block within it's section, from coordinates within the section.
+     */
+    public static int blockIndex(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    /**
+     * Returns the section at the index, which must not be changed.
+     */
+    byte[] getSection(int index) {
+        return sections[index];
+    }
+
+    int getSectionCount() {
+        return sections.length;
+    }
+
+    public int getMinX() {
+        return originX;
+    }
+
+    public int getMinY() {
+        return originY;
+    }
+
+    public int getMinZ() {
+        return originZ;
+    }
+
+    public int getSizeX() {
+        return sectionsX * SECTION_SIZE;
+    }
+
+    public int getSizeY() {
+        return sectionsY * SECTION_SIZE;
+    }
+
+    public int getSizeZ() {
+        return sectionsZ * SECTION_SIZE;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return sectionIndex(x, y, z) >= 0;
+    }
+}
@@ -0,0 +1,256 @@
+package com.minecraftAi.ANNEngine.Training;
+
+import com.minecraftAi.ANNEngine.Action.ActionController;
+import org.neuroph.contrib.neat.gen.Evolver;
+import org.neuroph.contrib.neat.gen.Organism;
+import org.neuroph.contrib.neat.gen.impl.SimpleNeatParameters;
+import org.neuroph.contrib.neat.gen.operations.FitnessFunction;
+import org.neuroph.contrib.neat.gen.operations.OrganismFitnessScore;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A NEAT training run of an ActionController, evolved on one of the
+ * TrainingScheduler's worker threads rather than the server thread.
+ *
+ * Pausing and cancelling take effect before the next network is evaluated,
+ * so a job never stops half way through a fitness evaluation.
+ */
+public class TrainingJob implements Runnable {
+
+    public enum State { QUEUED, RUNNING, PAUSED, CANCELLED, FINISHED, FAILED }
+
+    /**
+     * The job whose network the current thread is evaluating, if any.
+     */
+    private static final ThreadLocal<TrainingJob> CURRENT = new ThreadLocal<TrainingJob>();
+
+    private final int id;
+    private final String owner;
+    private final ActionController controller;
+
+    private State state = State.QUEUED;
+    private boolean pauseRequested;
+    private boolean cancelRequested;
+    private Thread worker;
+
+    private int evaluations;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+    private Organism fittest;
+    private Throwable failure;
+
+    TrainingJob(int id, String owner, ActionController controller) {
+        this.id = id;
+        this.owner = owner;
+        this.controller = controller;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (cancelRequested) {
+                return;
+            }
+            worker = Thread.currentThread();
+            state = pauseRequested ? State.PAUSED : State.RUNNING;
+        }
+
+        SimpleNeatParameters params = controller.getParams();
+        FitnessFunction fitnessFunction = params.getFitnessFunction();
+        params.setFitnessFunction(new CheckpointFitnessFunction(fitnessFunction));
+
+        try {
+            controller.prepareTraining();
+            Evolver evolver = Evolver.createNew(params, controller.getInputList(), controller.getOutputList());
+            Organism result = evolver.evolve();
+
+            synchronized (this) {
+                fittest = result;
+            }
+            controller.setTrained(result, evolver.getFitness());
+            finish(State.FINISHED, null);
+        } catch (CancellationException e) {
+            finish(State.CANCELLED, null);
+        } catch (Exception e) {
+            // a cancel interrupts the worker, which can surface as any exception.
+            finish(isCancelRequested() ? State.CANCELLED : State.FAILED, e);
+        } finally {
+            params.setFitnessFunction(fitnessFunction);
+
+            synchronized (this) {
+                worker = null;
+            }
+            // clear the interrupt a cancel may have left, so it doesn't leak into the next job.
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Stops the job from evaluating any more networks once the current one is done.
+     */
+    public synchronized void pause() {
+        if (state == State.QUEUED || state == State.RUNNING) {
+            pauseRequested = true;
+            if (state == State.RUNNING) {
+                state = State.PAUSED;
+            }
+        }
+    }
+
+    public synchronized void resume() {
+        if (pauseRequested) {
+            pauseRequested = false;
+            if (state == State.PAUSED) {
+                state = State.RUNNING;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Stops the job, a queued job never starts and a running one stops before the next
+     * network is evaluated. The worker is interrupted so it isn't left waiting on the
+     * server thread, networks being evaluated on other threads stop waiting within a tick.
+     */
+    public synchronized void cancel() {
+        if (isDone()) {
+            return;
+        }
+
+        cancelRequested = true;
+        notifyAll();
+
+        if (worker != null) {
+            worker.interrupt();
+        } else {
+            state = State.CANCELLED;
+        }
+    }
+
+    /**
+     * Called by the worker before each network is evaluated, waits while the job is
+     * paused and throws a CancellationException once it has been cancelled.
+     */
+    private synchronized void checkpoint() {
+        while (pauseRequested && !cancelRequested) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Training job " + id + " was interrupted.");
+            }
+        }
+
+        if (cancelRequested) {
+            throw new CancellationException("Training job " + id + " was cancelled.");
+        }
+    }
+
+    private synchronized void recordFitness(double fitness) {
+        evaluations++;
+        if (fitness > bestFitness) {
+            bestFitness = fitness;
+        }
+    }
+
+    private synchronized void finish(State finalState, Throwable cause) {
+        state = finalState;
+        failure = cause;
+    }
+
+    synchronized boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Returns the job whose network the current thread is evaluating, or null.
+     */
+    static TrainingJob current() {
+        return CURRENT.get();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public ActionController getController() {
+        return controller;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized boolean isDone() {
+        return state == State.CANCELLED || state == State.FINISHED || state == State.FAILED;
+    }
+
+    public synchronized int getEvaluations() {
+        return evaluations;
+    }
+
+    public synchronized double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * Returns the fittest Organism once the job has finished, otherwise null.
+     */
+    public synchronized Organism getFittest() {
+        return fittest;
+    }
+
+    public synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns a one line summary of the job for chat.
+     */
+    public synchronized String getStatus() {
+        String status = "#" + id + " " + controller.getClass().getSimpleName() + " " + state
+                + ", " + evaluations + " evaluations";
+
+        if (evaluations > 0) {
+            status += ", best fitness " + String.format("%.2f", bestFitness);
+        }
+        if (failure != null && state == State.FAILED) {
+            status += ", " + failure;
+        }
+
+        return status;
+    }
+
+    /**
+     * Passes each network on to the controller's fitness function, stopping at a
+     * checkpoint first.
+     */
+    private class CheckpointFitnessFunction implements FitnessFunction {
+        private final FitnessFunction delegate;
+
+        CheckpointFitnessFunction(FitnessFunction delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void evaluate(List<OrganismFitnessScore> fitnesses) {
+            TrainingJob previous = CURRENT.get();
+            CURRENT.set(TrainingJob.this);
+            try {
+                for (OrganismFitnessScore ofs : fitnesses) {
+                    checkpoint();
+                    delegate.evaluate(Collections.singletonList(ofs));
+                    recordFitness(ofs.getFitness());
+                }
+            } finally {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.minecraftAi.ANNEngine.Training;
+
+import com.minecraftAi.ANNEngine.Action.ActionController;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ChatComponentText;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs TrainingJobs on background threads, so evolving a population never
+ * blocks the server thread.
+ *
+ * Anything a job needs to do to the world has to be passed to
+ * callOnServerThread, which queues it to run at the end of a server tick.
+ * Each tick the queue is only worked through for a fixed budget of time,
+ * whatever is left waits for the next tick, so training can't push the
+ * server below 20 ticks per second.
+ */
+public class TrainingScheduler {
+    private static final Logger LOGGER = LogManager.getLogger(TrainingScheduler.class);
+
+    /**
+     * The milliseconds of each tick given to training work, out of the 50 a tick lasts.
+     */
+    public static final long DEFAULT_TICK_BUDGET_MILLIS = 5;
+
+    /**
+     * The number of jobs that can evolve at the same time, any more are queued.
+     */
+    public static final int DEFAULT_WORKER_COUNT = 1;
+
+    /**
+     * How long callOnServerThread waits at a time before checking whether it's job was
+     * cancelled or the scheduler shut down, one tick.
+     */
+    private static final long WAIT_MILLIS = 50;
+
+    private static ForkJoinPool evaluationPool;
+
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
+    private final Map<Integer, TrainingJob> jobs = new ConcurrentHashMap<Integer, TrainingJob>();
+    private final ConcurrentLinkedQueue<FutureTask<?>> serverTasks = new ConcurrentLinkedQueue<FutureTask<?>>();
+    private final ExecutorService workers;
+
+    private volatile long tickBudgetNanos;
+    private volatile Thread serverThread;
+    private volatile boolean shutdown;
+
+    public TrainingScheduler() {
+        this(DEFAULT_WORKER_COUNT, DEFAULT_TICK_BUDGET_MILLIS);
+    }
+
+    public TrainingScheduler(int workerCount, long tickBudgetMillis) {
+        setTickBudgetMillis(tickBudgetMillis);
+        this.workers = Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory());
+    }
+
+    /**
+     * Queues a new job to train the controller, the owner is told in chat when it ends.
+     */
+    public TrainingJob start(ActionController controller, String owner) {
+        final TrainingJob job = new TrainingJob(nextJobId.getAndIncrement(), owner, controller);
+        jobs.put(job.getId(), job);
+
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                job.run();
+                onJobEnded(job);
+            }
+        });
+
+        LOGGER.info("Queued training job " + job.getStatus() + " for " + owner);
+        return job;
+    }
+
+    /**
+     * Runs the callable on the server thread, waiting for it's result. Called from the
+     * server thread itself it runs straight away, otherwise it runs within the tick
+     * budget of one of the next ticks.
+     *
+     * Networks are evaluated on the evaluation pool as well as on a job's worker, and
+     * only the worker is interrupted by a cancel, so the wait also gives up within a
+     * tick of the calling thread's job being cancelled.
+     *
+     * @throws CancellationException if the calling thread is interrupted, it's job is
+     *                               cancelled, or the scheduler shuts down.
+     */
+    public <T> T callOnServerThread(Callable<T> callable) {
+        if (Thread.currentThread() == serverThread) {
+            try {
+                return callable.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (shutdown) {
+            throw new CancellationException("The training scheduler has shut down.");
+        }
+
+        FutureTask<T> task = new FutureTask<T>(callable);
+        serverTasks.add(task);
+        TrainingJob job = TrainingJob.current();
+
+        try {
+            while (true) {
+                try {
+                    return task.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (shutdown || (job != null && job.isCancelRequested())) {
+                        task.cancel(false);
+                        throw new CancellationException("Stopped waiting for the server thread.");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            task.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting for the server thread.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Queues the runnable to run on the server thread without waiting for it.
+     */
+    public void runOnServerThread(Runnable runnable) {
+        serverTasks.add(new FutureTask<Object>(runnable, null));
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        FutureTask<?> task;
+        // always run at least one task, so a budget shorter than a task can't stall training.
+        do {
+            task = serverTasks.poll();
+            if (task != null) {
+                task.run();
+            }
+        } while (task != null && System.nanoTime() < deadline);
+    }
+
+    /**
+     * Returns the pool that training jobs evaluate networks in parallel on. It leaves one
+     * processor free for the server thread, and it's threads have the lowest priority.
+     */
+    public static synchronized ForkJoinPool getEvaluationPool() {
+        if (evaluationPool == null) {
+            int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            evaluationPool = new ForkJoinPool(parallelism, new EvaluationThreadFactory(), null, false);
+        }
+        return evaluationPool;
+    }
+
+    public TrainingJob getJob(int id) {
+        return jobs.get(id);
+    }
+
+    public List<TrainingJob> getJobs() {
+        return new ArrayList<TrainingJob>(jobs.values());
+    }
+
+    /**
+     * Sets the thread that callOnServerThread runs callables on straight away, must be
+     * called when the server starts.
+     */
+    public void setServerThread(Thread serverThread) {
+        this.serverThread = serverThread;
+    }
+
+    public void setTickBudgetMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Tick budget must be positive: " + millis);
+        }
+        this.tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getTickBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickBudgetNanos);
+    }
+
+    /**
+     * Cancels every job and stops the workers, used when the server stops.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (TrainingJob job : jobs.values()) {
+            job.cancel();
+        }
+        workers.shutdownNow();
+
+        // nothing will run the queue any more, so don't leave workers waiting on it.
+        FutureTask<?> task;
+        while ((task = serverTasks.poll()) != null) {
+            task.cancel(false);
+        }
+    }
+
+    private void onJobEnded(final TrainingJob job) {
+        LOGGER.info("Training job ended " + job.getStatus());
+
+        if (job.getFailure() != null) {
+            LOGGER.error("Training job #" + job.getId() + " failed", job.getFailure());
+        }
+
+        runOnServerThread(new Runnable() {
+            @Override
+            public void run() {
+                MinecraftServer server = MinecraftServer.getServer();
+                if (server == null) {
+                    return;
+                }
+
+                EntityPlayerMP player = server.getConfigurationManager().getPlayerByUsername(job.getOwner());
+                if (player != null) {
+                    player.addChatMessage(new ChatComponentText("Training job " + job.getStatus()));
+                }
+            }
+        });
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "AI Training " + count.getAndIncrement());
+            // the server thread should always win over training.
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class EvaluationThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            };
+            thread.setName("AI Evaluation " + thread.getPoolIndex());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
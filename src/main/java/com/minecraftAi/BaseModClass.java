@@ -1,15 +1,21 @@
 package com.minecraftAi;
 
+import com.minecraftAi.ANNEngine.Execution.AgentExecutionPool;
+import com.minecraftAi.ANNEngine.Simulation.ChunkSnapshotCache;
+import com.minecraftAi.ANNEngine.Training.TrainingScheduler;
 import com.minecraftAi.Interfaces.Commands.RunAiCommand;
 import net.minecraft.command.ICommandManager;
 import net.minecraft.command.ServerCommandManager;
 import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 
 /**
  * Created by Mickey on 26/03/2016.
@@ -20,6 +26,10 @@ public class BaseModClass {
     @Mod.Instance
     public static BaseModClass instance;
 
+    private TrainingScheduler trainingScheduler;
+    private ChunkSnapshotCache chunkCache;
+    private AgentExecutionPool executionPool;
+
     @EventHandler
     public void serverStart(FMLServerStartingEvent event){
         // Get's the current server instance
@@ -30,6 +40,52 @@ public class BaseModClass {
         ServerCommandManager manager = (ServerCommandManager) command;
         // Add the new command to the manager
         manager.registerCommand(new RunAiCommand());
+
+        // Runs training off the server thread, working through it's world access each tick
+        trainingScheduler = new TrainingScheduler();
+        // This event comes on the server thread, so jobs know it before the first tick
+        trainingScheduler.setServerThread(Thread.currentThread());
+        FMLCommonHandler.instance().bus().register(trainingScheduler);
+
+        // Keeps copies of the chunks training reads, block and chunk events come on the forge bus, ticks on the FML bus
+        chunkCache = new ChunkSnapshotCache();
+        MinecraftForge.EVENT_BUS.register(chunkCache);
+        FMLCommonHandler.instance().bus().register(chunkCache);
+
+        // Runs trained agents in the world, a batch of them each tick
+        executionPool = new AgentExecutionPool();
+        FMLCommonHandler.instance().bus().register(executionPool);
+    }
+
+    @EventHandler
+    public void serverStop(FMLServerStoppingEvent event){
+        if(executionPool != null) {
+            FMLCommonHandler.instance().bus().unregister(executionPool);
+            executionPool.stopAll();
+            executionPool = null;
+        }
+        if(trainingScheduler != null) {
+            FMLCommonHandler.instance().bus().unregister(trainingScheduler);
+            trainingScheduler.shutdown();
+            trainingScheduler = null;
+        }
+        if(chunkCache != null) {
+            MinecraftForge.EVENT_BUS.unregister(chunkCache);
+            FMLCommonHandler.instance().bus().unregister(chunkCache);
+            chunkCache = null;
+        }
+    }
+
+    public TrainingScheduler getTrainingScheduler(){
+        return trainingScheduler;
+    }
+
+    public ChunkSnapshotCache getChunkCache(){
+        return chunkCache;
+    }
+
+    public AgentExecutionPool getExecutionPool(){
+        return executionPool;
     }
 
     @EventHandler
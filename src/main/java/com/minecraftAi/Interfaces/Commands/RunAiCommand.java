@@ -1,5 +1,11 @@
 package com.minecraftAi.Interfaces.Commands;
 
+import com.minecraftAi.ANNEngine.Action.GatherWood.GatherWoodController;
+import com.minecraftAi.ANNEngine.Execution.AgentExecutionPool;
+import com.minecraftAi.ANNEngine.Execution.LiveAgent;
+import com.minecraftAi.ANNEngine.Training.TrainingJob;
+import com.minecraftAi.ANNEngine.Training.TrainingScheduler;
+import com.minecraftAi.BaseModClass;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.tileentity.TileEntityCommandBlock;
@@ -17,7 +23,7 @@ public class RunAiCommand extends AbstractCommand {
 
     @Override
     public String getCommandUsage(ICommandSender iCommandSender) {
-        return "\\runAI: -train <action>, action: 'gatherwood'" ;
+        return "\\runAI: -train <action>, action: 'gatherwood' | -jobs | -pause <id> | -resume <id> | -cancel <id> | -execute <id> | -agents | -stop" ;
     }
 
     @Override
@@ -30,12 +36,100 @@ public class RunAiCommand extends AbstractCommand {
             switch (params[i]){
                 case "-train":
                     i++;
-                    player.addChatMessage(new ChatComponentText("Training " + params[i]));
+                    if(i < params.length) {
+                        train(player, params[i]);
+                    } else {
+                        player.addChatMessage(new ChatComponentText("No action to train"));
+                    }
+                    break;
+                case "-jobs":
+                    listJobs(player);
+                    break;
+                case "-execute":
+                    i++;
+                    TrainingJob trained = i < params.length ? getJob(params[i]) : null;
+                    if(trained == null) {
+                        player.addChatMessage(new ChatComponentText("No such training job"));
+                    } else {
+                        trained.getController().execute(player);
+                    }
+                    break;
+                case "-agents":
+                    listAgents(player);
+                    break;
+                case "-stop":
+                    AgentExecutionPool pool = BaseModClass.instance.getExecutionPool();
+                    int stopped = pool == null ? 0 : pool.stop(player.getName());
+                    player.addChatMessage(new ChatComponentText("Stopped " + stopped + " agents"));
+                    break;
+                case "-pause":
+                case "-resume":
+                case "-cancel":
+                    String option = params[i];
+                    i++;
+                    TrainingJob job = i < params.length ? getJob(params[i]) : null;
+                    if(job == null) {
+                        player.addChatMessage(new ChatComponentText("No such training job"));
+                    } else if(option.equals("-pause")) {
+                        job.pause();
+                        player.addChatMessage(new ChatComponentText("Paused training job #" + job.getId()));
+                    } else if(option.equals("-resume")) {
+                        job.resume();
+                        player.addChatMessage(new ChatComponentText("Resumed training job #" + job.getId()));
+                    } else {
+                        job.cancel();
+                        player.addChatMessage(new ChatComponentText("Cancelled training job #" + job.getId()));
+                    }
                     break;
                 default:
                     player.addChatMessage(new ChatComponentText("Not a recognised command"));
 
             }
+            i++;
+        }
+    }
+
+    private void train(EntityPlayer player, String action) {
+        switch (action.toLowerCase()){
+            case "gatherwood":
+                new GatherWoodController().train(player);
+                break;
+            default:
+                player.addChatMessage(new ChatComponentText("Not a recognised action: " + action));
+        }
+    }
+
+    private void listJobs(EntityPlayer player) {
+        TrainingScheduler scheduler = BaseModClass.instance.getTrainingScheduler();
+        if(scheduler == null || scheduler.getJobs().isEmpty()) {
+            player.addChatMessage(new ChatComponentText("No training jobs"));
+            return;
+        }
+        for(TrainingJob job : scheduler.getJobs()) {
+            player.addChatMessage(new ChatComponentText(job.getStatus()));
+        }
+    }
+
+    private void listAgents(EntityPlayer player) {
+        AgentExecutionPool pool = BaseModClass.instance.getExecutionPool();
+        if(pool == null || pool.getAgents().isEmpty()) {
+            player.addChatMessage(new ChatComponentText("No agents running"));
+            return;
+        }
+        for(LiveAgent agent : pool.getAgents()) {
+            player.addChatMessage(new ChatComponentText(agent.getStatus()));
+        }
+    }
+
+    private TrainingJob getJob(String id) {
+        TrainingScheduler scheduler = BaseModClass.instance.getTrainingScheduler();
+        if(scheduler == null) {
+            return null;
+        }
+        try {
+            return scheduler.getJob(Integer.parseInt(id.replace("#", "")));
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 